@@ -18,6 +18,10 @@
 #endif
 #endif
 
+#ifndef MINGW
+    #include <time.h>
+#endif
+
 typedef size_t ThreadId;
 
 #ifndef _7ZIP_ST
@@ -37,6 +41,110 @@ inline ThreadId PlatformGetCurrentThreadId() {
 #endif
 }
 
+#ifndef _7ZIP_ST
+    /*
+     * Thread local storage. The callback declared with PLATFORM_THREAD_EXIT_CALLBACK
+     * gets called on exit of each thread with a non-NULL value stored. The key should be deleted
+     * before the library gets unloaded, since the callback points into the library code.
+     */
+    #ifdef MINGW
+        typedef DWORD PlatformThreadLocalKey;
+        typedef PFLS_CALLBACK_FUNCTION PlatformThreadExitCallback;
+        #define PLATFORM_THREAD_EXIT_CALLBACK(name, value) void WINAPI name(void * value)
+
+        inline bool PlatformThreadLocalCreate(PlatformThreadLocalKey * key, PlatformThreadExitCallback callback) {
+            *key = FlsAlloc(callback);
+            return *key != FLS_OUT_OF_INDEXES;
+        }
+        inline void * PlatformThreadLocalGet(PlatformThreadLocalKey key) {
+            return FlsGetValue(key);
+        }
+        inline void PlatformThreadLocalSet(PlatformThreadLocalKey key, void * value) {
+            FlsSetValue(key, value);
+        }
+        inline void PlatformThreadLocalDelete(PlatformThreadLocalKey key) {
+            FlsFree(key); // Calls the callback for all stored values
+        }
+    #else
+        typedef pthread_key_t PlatformThreadLocalKey;
+        typedef void (*PlatformThreadExitCallback)(void *);
+        #define PLATFORM_THREAD_EXIT_CALLBACK(name, value) void name(void * value)
+
+        inline bool PlatformThreadLocalCreate(PlatformThreadLocalKey * key, PlatformThreadExitCallback callback) {
+            return !pthread_key_create(key, callback);
+        }
+        inline void * PlatformThreadLocalGet(PlatformThreadLocalKey key) {
+            return pthread_getspecific(key);
+        }
+        inline void PlatformThreadLocalSet(PlatformThreadLocalKey key, void * value) {
+            pthread_setspecific(key, value);
+        }
+        inline void PlatformThreadLocalDelete(PlatformThreadLocalKey key) {
+            pthread_key_delete(key); // Doesn't call the callback
+        }
+    #endif
+#endif
+
+/*
+ * Atomic access to pointers. A pointer stored with PlatformAtomicSetPointer() gets published
+ * together with all memory writes preceding the store to the threads reading it with
+ * PlatformAtomicGetPointer().
+ */
+#ifdef __ATOMIC_ACQUIRE
+    inline void * PlatformAtomicGetPointer(void * volatile * address) {
+        return __atomic_load_n(address, __ATOMIC_ACQUIRE);
+    }
+    inline void PlatformAtomicSetPointer(void * volatile * address, void * value) {
+        __atomic_store_n(address, value, __ATOMIC_RELEASE);
+    }
+#else
+    inline void * PlatformAtomicGetPointer(void * volatile * address) {
+        void * value = *address;
+        __sync_synchronize();
+        return value;
+    }
+    inline void PlatformAtomicSetPointer(void * volatile * address, void * value) {
+        __sync_synchronize();
+        *address = value;
+    }
+#endif
+
+/*
+ * Atomic 64-bit counters. No ordering with other memory operations is guaranteed.
+ */
+#ifdef __ATOMIC_RELAXED
+    inline void PlatformAtomicAdd(volatile Int64 * address, Int64 value) {
+        __atomic_fetch_add(address, value, __ATOMIC_RELAXED);
+    }
+    inline Int64 PlatformAtomicGet(volatile Int64 * address) {
+        return __atomic_load_n(address, __ATOMIC_RELAXED);
+    }
+#else
+    inline void PlatformAtomicAdd(volatile Int64 * address, Int64 value) {
+        __sync_fetch_and_add(address, value);
+    }
+    inline Int64 PlatformAtomicGet(volatile Int64 * address) {
+        return __sync_fetch_and_add(address, 0);
+    }
+#endif
+
+/*
+ * Monotonic time in nanoseconds. Only differences between two values are meaningful.
+ */
+inline Int64 PlatformGetNanoTime() {
+#ifdef MINGW
+    LARGE_INTEGER counter;
+    LARGE_INTEGER frequency;
+    QueryPerformanceCounter(&counter);
+    QueryPerformanceFrequency(&frequency);
+    return (Int64) (counter.QuadPart * (1000000000.0 / frequency.QuadPart));
+#else
+    struct timespec timespec;
+    clock_gettime(CLOCK_MONOTONIC, &timespec);
+    return (Int64) timespec.tv_sec * 1000000000 + timespec.tv_nsec;
+#endif
+}
+
 #ifdef MINGW
 #   define PlatformSleep(seconds) Sleep((seconds) * 1000)
 #else
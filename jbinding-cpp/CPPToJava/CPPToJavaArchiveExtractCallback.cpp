@@ -56,7 +56,7 @@ STDMETHODIMP CPPToJavaArchiveExtractCallback::GetStream(UInt32 index,
                                                         Int32 askExtractMode) {
     TRACE_OBJECT_CALL("GetStream");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_EXTRACT_CALLBACK);
 
     if (outStream) {
         *outStream = NULL;
@@ -81,7 +81,8 @@ STDMETHODIMP CPPToJavaArchiveExtractCallback::GetStream(UInt32 index,
     }
 
     CMyComPtr<ISequentialOutStream> outStreamComPtr = new CPPToJavaSequentialOutStream(
-            _jbindingSession, jniEnvInstance, result);
+            _jbindingSession, jniEnvInstance, result, &_outStreamDirectBuffer,
+            (IArchiveExtractCallback *) this);
     *outStream = outStreamComPtr.Detach();
 
     return S_OK;
@@ -90,7 +91,7 @@ STDMETHODIMP CPPToJavaArchiveExtractCallback::GetStream(UInt32 index,
 STDMETHODIMP CPPToJavaArchiveExtractCallback::PrepareOperation(Int32 askExtractMode) {
     TRACE_OBJECT_CALL("PrepareOperation");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_EXTRACT_CALLBACK);
 
     jobject askExtractModeObject = jni::ExtractAskMode::getExtractAskModeByIndex(jniEnvInstance,
             (jint) askExtractMode);
@@ -108,7 +109,7 @@ STDMETHODIMP CPPToJavaArchiveExtractCallback::PrepareOperation(Int32 askExtractM
 STDMETHODIMP CPPToJavaArchiveExtractCallback::SetOperationResult(Int32 resultEOperationResult) {
     TRACE_OBJECT_CALL("SetOperationResult");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_EXTRACT_CALLBACK);
 
     jobject resultEOperationResultObject = jni::ExtractOperationResult::getOperationResult(
             jniEnvInstance, (jint) resultEOperationResult);
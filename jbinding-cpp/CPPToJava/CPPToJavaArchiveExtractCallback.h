@@ -3,6 +3,7 @@
 
 #include "CPPToJavaProgress.h"
 #include "CPPToJavaCryptoGetTextPassword.h"
+#include "CPPToJavaDirectBuffer.h"
 
 class CPPToJavaArchiveExtractCallback : public virtual IArchiveExtractCallback,
         public virtual ICryptoGetTextPassword, public virtual CPPToJavaProgress {
@@ -10,6 +11,9 @@ private:
     ICryptoGetTextPassword * _cryptoGetTextPasswordImpl;
     jni::IArchiveExtractCallback * _iArchiveExtractCallback;
 
+    // Direct buffer shared by all out-streams of the extraction implementing IDirectBufferSequentialOutStream
+    CPPToJavaDirectBuffer _outStreamDirectBuffer;
+
 public:
     CPPToJavaArchiveExtractCallback(JBindingSession & jbindingSession, JNIEnv * initEnv,
                                     jobject archiveExtractCallbackImpl) :
@@ -39,6 +43,9 @@ public:
         if (_cryptoGetTextPasswordImpl) {
             _cryptoGetTextPasswordImpl->Release();
         }
+
+        JNIEnvInstance jniEnvInstance(_jbindingSession);
+        _outStreamDirectBuffer.release(jniEnvInstance);
     }
 
     STDMETHOD(QueryInterface)(REFGUID refguid, void ** p) {
@@ -6,7 +6,7 @@
 STDMETHODIMP CPPToJavaArchiveOpenCallback::SetCompleted(const UInt64 *files, const UInt64 *bytes) {
     TRACE_OBJECT_CALL("SetCompleted");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OPEN_CALLBACK);
 
     jobject filesLongObject = NULL;
     jobject bytesLongObject = NULL;
@@ -27,7 +27,7 @@ STDMETHODIMP CPPToJavaArchiveOpenCallback::SetCompleted(const UInt64 *files, con
 STDMETHODIMP CPPToJavaArchiveOpenCallback::SetTotal(const UInt64 *files, const UInt64 *bytes) {
     TRACE_OBJECT_CALL("SetTotal");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OPEN_CALLBACK);
 
     jobject filesLongObject = NULL;
     jobject bytesLongObject = NULL;
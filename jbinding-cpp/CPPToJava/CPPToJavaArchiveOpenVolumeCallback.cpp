@@ -10,7 +10,7 @@ STDMETHODIMP CPPToJavaArchiveOpenVolumeCallback::GetProperty(PROPID propID, PROP
 
     TRACE("GetProperty(" << propID << ')')
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OPEN_CALLBACK);
 
     if (value) {
         value->vt = VT_NULL;
@@ -36,7 +36,7 @@ STDMETHODIMP CPPToJavaArchiveOpenVolumeCallback::GetStream(const wchar_t *name,
                                                            IInStream **inStream) {
     TRACE_OBJECT_CALL("GetStream");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OPEN_CALLBACK);
 
     if (inStream) {
         *inStream = NULL;
@@ -7,8 +7,6 @@
 #include "UnicodeHelper.h"
 #include "CodecTools.h"
 
-#include "UserTrace.h"
-
 void CPPToJavaArchiveUpdateCallback::freeOutItem(JNIEnvInstance & jniEnvInstance) {
     if (_outItem) {
         jniEnvInstance->DeleteGlobalRef(_outItem);
@@ -16,6 +14,157 @@ void CPPToJavaArchiveUpdateCallback::freeOutItem(JNIEnvInstance & jniEnvInstance
     }
 }
 
+void CPPToJavaArchiveUpdateCallback::setItemColumns(JNIEnvInstance & jniEnvInstance, jobject outItemColumns) {
+    #define COPY_ITEM_COLUMN(ARRAY_TYPE, Type, fieldName, column)                                                  \
+    {                                                                                                               \
+        ARRAY_TYPE array = (ARRAY_TYPE) jni::OutItemColumns::fieldName##_Get(jniEnvInstance, outItemColumns);       \
+        if (array) {                                                                                                \
+            jniEnvInstance->Get##Type##ArrayRegion(array, 0, itemCount, column.allocate(itemCount));                \
+            jniEnvInstance->DeleteLocalRef(array);                                                                  \
+        }                                                                                                           \
+    }
+
+    _useItemColumns = true;
+    jint itemCount = jni::OutItemColumns::itemCount_Get(jniEnvInstance, outItemColumns);
+
+    jobjectArray paths = (jobjectArray) jni::OutItemColumns::paths_Get(jniEnvInstance, outItemColumns);
+    if (paths) {
+        _pathColumn = (jobjectArray) jniEnvInstance->NewGlobalRef(paths);
+        jniEnvInstance->DeleteLocalRef(paths);
+    }
+
+    COPY_ITEM_COLUMN(jlongArray, Long, dataSizes, _dataSizeColumn)
+    COPY_ITEM_COLUMN(jlongArray, Long, lastModificationTimes, _lastModificationTimeColumn)
+    COPY_ITEM_COLUMN(jintArray, Int, attributes, _attributesColumn)
+    COPY_ITEM_COLUMN(jintArray, Int, posixAttributes, _posixAttributesColumn)
+    COPY_ITEM_COLUMN(jbooleanArray, Boolean, dirs, _isDirColumn)
+    COPY_ITEM_COLUMN(jintArray, Int, updateOldArchiveItemIndices, _oldArchiveItemIndexColumn)
+    COPY_ITEM_COLUMN(jbooleanArray, Boolean, updateIsNewData, _isNewDataColumn)
+    COPY_ITEM_COLUMN(jbooleanArray, Boolean, updateIsNewProperties, _isNewPropertiesColumn)
+}
+
+void CPPToJavaArchiveUpdateCallback::freeItemColumns(JNIEnvInstance & jniEnvInstance) {
+    if (_pathColumn) {
+        jniEnvInstance->DeleteGlobalRef(_pathColumn);
+        _pathColumn = NULL;
+    }
+}
+
+LONG CPPToJavaArchiveUpdateCallback::getItemColumnsUpdateInfo(JNIEnvInstance & jniEnvInstance, UInt32 index,
+                                                              Int32 *newData, Int32 *newProperties,
+                                                              UInt32 *indexInArchive) {
+    // Items without an old archive item are new. Other items are copied from the old archive by default.
+    UInt32 oldIndex = (UInt32) -1;
+    if (_isInArchiveAttached && _oldArchiveItemIndexColumn.isDefined()) {
+        oldIndex = (UInt32) _oldArchiveItemIndexColumn[index];
+    }
+    bool isNewItem = oldIndex == (UInt32) -1;
+
+    bool isNewData = isNewItem || (_isNewDataColumn.isDefined() && _isNewDataColumn[index]);
+    bool isNewProperties = isNewItem || (_isNewPropertiesColumn.isDefined() && _isNewPropertiesColumn[index]);
+
+    if (newData) {
+        *newData = isNewData ? 1 : 0;
+    }
+    if (newProperties) {
+        *newProperties = isNewProperties ? 1 : 0;
+    }
+    if (indexInArchive) {
+        *indexInArchive = oldIndex;
+    }
+
+    if (_userTrace.isEnabled()) {
+        _userTrace.trace(jniEnvInstance, UString(L"Get update info (new data: ")
+                << (isNewData ? L"true" : L"false") << L") (new props: " << (isNewProperties ? L"true" : L"false")
+                << L") (old index: " << (Int32) oldIndex << L") (index: " << index << L")");
+    }
+
+    return S_OK;
+}
+
+LONG CPPToJavaArchiveUpdateCallback::getItemColumnsProperty(JNIEnvInstance & jniEnvInstance, UInt32 index,
+                                                            PROPID propID,
+                                                            NWindows::NCOM::CPropVariant & cPropVariant) {
+    const wchar_t * columnName;
+    switch (propID) {
+    case kpidPath:
+        columnName = L"paths";
+        if (_pathColumn) {
+            jstring path = (jstring) jniEnvInstance->GetObjectArrayElement(_pathColumn, (jsize) index);
+            if (path) {
+                const jchar * jChars = jniEnvInstance->GetStringChars(path, NULL);
+                if (!jChars) {
+                    jniEnvInstance->DeleteLocalRef(path);
+                    return S_FALSE;
+                }
+                cPropVariant = UString(UnicodeHelper(jChars));
+                jniEnvInstance->ReleaseStringChars(path, jChars);
+                jniEnvInstance->DeleteLocalRef(path);
+            }
+        }
+        break;
+
+    case kpidSize:
+        columnName = L"dataSizes";
+        if (_dataSizeColumn.isDefined()) {
+            cPropVariant = (UInt64) _dataSizeColumn[index];
+        }
+        break;
+
+    case kpidMTime:
+        columnName = L"lastModificationTimes";
+        if (_lastModificationTimeColumn.isDefined()) {
+            LONGLONG time = ((LONGLONG) _lastModificationTimeColumn[index]) * FILETIME_TO_JAVATIME_FACTOR
+                    + FILETIME_TO_JAVATIME_SHIFT;
+            FILETIME filetime;
+            filetime.dwHighDateTime = (DWORD) (time >> 32);
+            filetime.dwLowDateTime = (DWORD) (time);
+            cPropVariant = filetime;
+        }
+        break;
+
+    case kpidAttrib:
+        columnName = L"attributes";
+        if (_attributesColumn.isDefined()) {
+            cPropVariant = (UInt32) _attributesColumn[index];
+        }
+        break;
+
+    case kpidPosixAttrib:
+        columnName = L"posixAttributes";
+        if (_posixAttributesColumn.isDefined()) {
+            cPropVariant = (UInt32) _posixAttributesColumn[index];
+        }
+        break;
+
+    case kpidIsDir:
+        columnName = L"dirs";
+        if (_isDirColumn.isDefined()) {
+            cPropVariant = _isDirColumn[index] ? true : false;
+        }
+        break;
+
+    case kpidIsAnti:
+    case kpidATime:
+    case kpidCTime:
+    case kpidUser:
+    case kpidGroup:
+        // Not provided by the item columns
+        return S_OK;
+
+    default:
+        jniEnvInstance.reportError("CPPToJavaArchiveUpdateCallback::GetProperty() : unexpected propID=%u", propID);
+        return S_FALSE;
+    }
+
+    if (_userTrace.isEnabled()) {
+        _userTrace.trace(jniEnvInstance,
+                UString(L"Get property '") << columnName << L"' (index: " << index << L")");
+    }
+
+    return S_OK;
+}
+
 LONG CPPToJavaArchiveUpdateCallback::getOrUpdateOutItem(JNIEnvInstance & jniEnvInstance, int index) {
     if (_outItemLastIndex == index && _outItem) {
         return S_OK;
@@ -63,7 +212,11 @@ UInt32 *indexInArchive /* -1 if there is no in archive, or if doesn't matter */
 ) {
     TRACE_OBJECT_CALL("GetUpdateItemInfo");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_UPDATE_CALLBACK);
+
+    if (_useItemColumns) {
+        return getItemColumnsUpdateInfo(jniEnvInstance, index, newData, newProperties, indexInArchive);
+    }
 
     LONG result = getOrUpdateOutItem(jniEnvInstance, index);
     if (result) {
@@ -71,7 +224,7 @@ UInt32 *indexInArchive /* -1 if there is no in archive, or if doesn't matter */
     }
 
     UString traceMsg;
-    bool isUserTrace = isUserTraceEnabled(jniEnvInstance, _outArchive);
+    bool isUserTrace = _userTrace.isEnabled();
 
     if (isUserTrace) {
         traceMsg += L"Get update info";
@@ -148,7 +301,7 @@ UInt32 *indexInArchive /* -1 if there is no in archive, or if doesn't matter */
 
     if (isUserTrace) {
         traceMsg += UString(L" (index: ") << index << L")";
-        userTrace(jniEnvInstance, _outArchive, traceMsg);
+        _userTrace.trace(jniEnvInstance, traceMsg);
     }
 
     return S_OK;
@@ -205,8 +358,8 @@ STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetProperty(UInt32 index, PROPID pr
 
 	#define GET_ATTRIBUTE(TYPE, fieldName)                                                                          \
 	{                                                                                                               \
-        if (isUserTraceEnabled(jniEnvInstance, _outArchive)) {                                                      \
-            userTrace(jniEnvInstance, _outArchive,                                                                  \
+        if (_userTrace.isEnabled()) {                                                                               \
+            _userTrace.trace(jniEnvInstance,                                                                        \
                 UString(L"Get property '" #fieldName "' (index: ") << index << L")");                               \
         }                                                                                                           \
         jobject value = jni::OutItem::fieldName##_Get(jniEnvInstance, _outItem);                                    \
@@ -218,7 +371,7 @@ STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetProperty(UInt32 index, PROPID pr
 	}
 
     TRACE_OBJECT_CALL("GetProperty");
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_UPDATE_CALLBACK);
 
     if (!value) {
         return S_OK;
@@ -241,6 +394,15 @@ STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetProperty(UInt32 index, PROPID pr
         return S_OK;
     }
 
+    if (_useItemColumns) {
+        LONG result = getItemColumnsProperty(jniEnvInstance, index, propID, cPropVariant);
+        if (result) {
+            return result;
+        }
+        cPropVariant.Detach(value);
+        return S_OK;
+    }
+
     LONG result = getOrUpdateOutItem(jniEnvInstance, index);
     if (result) {
         return result;
@@ -338,14 +500,14 @@ STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetProperty(UInt32 index, PROPID pr
 
 STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetStream(UInt32 index, ISequentialInStream **inStream) {
     TRACE_OBJECT_CALL("GetStream");
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_UPDATE_CALLBACK);
 
     if (!inStream) {
         return S_OK;
     }
 
-    if (isUserTraceEnabled(jniEnvInstance, _outArchive)) {
-        userTrace(jniEnvInstance, _outArchive,
+    if (_userTrace.isEnabled()) {
+        _userTrace.trace(jniEnvInstance,
             UString(L"Get stream (index: ") << index << L")");
     }
 
@@ -380,7 +542,7 @@ STDMETHODIMP CPPToJavaArchiveUpdateCallback::GetStream(UInt32 index, ISequential
 
 STDMETHODIMP CPPToJavaArchiveUpdateCallback::SetOperationResult(Int32 operationResult) {
     TRACE_OBJECT_CALL("SetOperationResult");
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_UPDATE_CALLBACK);
 
     jboolean operationResultBoolean = (operationResult == NArchive::NUpdate::NOperationResult::kOK);
 
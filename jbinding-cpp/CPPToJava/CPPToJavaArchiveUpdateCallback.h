@@ -4,6 +4,35 @@
 #include "CPPToJavaAbstract.h"
 #include "CPPToJavaProgress.h"
 #include "CodecTools.h"
+#include "UserTrace.h"
+
+/**
+ * Native copy of a primitive column of the OutItemColumns. Undefined columns have no values.
+ */
+template<typename T>
+class OutItemColumn {
+    T * _values;
+
+    OutItemColumn(const OutItemColumn &);
+    OutItemColumn & operator=(const OutItemColumn &);
+public:
+    OutItemColumn() : _values(NULL) {
+    }
+    ~OutItemColumn() {
+        delete[] _values;
+    }
+    bool isDefined() const {
+        return _values != NULL;
+    }
+    T operator[](int index) const {
+        return _values[index];
+    }
+    T * allocate(int size) {
+        delete[] _values;
+        _values = new T[size > 0 ? size : 1];
+        return _values;
+    }
+};
 
 class CPPToJavaArchiveUpdateCallback : public virtual IArchiveUpdateCallback,
         public CPPToJavaProgress {
@@ -15,11 +44,24 @@ private:
     int _archiveFormatIndex;
     jobject _outArchive;
     bool _isInArchiveAttached;
+    UserTrace & _userTrace;
+
+    // Item information provided up-front with OutItemColumns. No getItemInformation() upcalls in this case.
+    bool _useItemColumns;
+    jobjectArray _pathColumn;
+    OutItemColumn<jlong> _dataSizeColumn;
+    OutItemColumn<jlong> _lastModificationTimeColumn;
+    OutItemColumn<jint> _attributesColumn;
+    OutItemColumn<jint> _posixAttributesColumn;
+    OutItemColumn<jboolean> _isDirColumn;
+    OutItemColumn<jint> _oldArchiveItemIndexColumn;
+    OutItemColumn<jboolean> _isNewDataColumn;
+    OutItemColumn<jboolean> _isNewPropertiesColumn;
 
 public:
     CPPToJavaArchiveUpdateCallback(JBindingSession & jbindingSession, JNIEnv * initEnv,
                                    jobject archiveUpdateCallback, bool isInArchiveAttached,
-                                   int archiveFormatIndex, jobject outArchive) :
+                                   int archiveFormatIndex, jobject outArchive, UserTrace & userTrace) :
         CPPToJavaProgress(jbindingSession, initEnv, archiveUpdateCallback),
             _iOutCreateCallback(jni::IOutCreateCallback::_getInstanceFromObject(
                         initEnv, archiveUpdateCallback)),
@@ -27,7 +69,10 @@ public:
 				_archiveFormatIndex(archiveFormatIndex),
 				_outItem(NULL),
 				_outArchive(outArchive),
-				_isInArchiveAttached(isInArchiveAttached) {
+				_isInArchiveAttached(isInArchiveAttached),
+				_userTrace(userTrace),
+				_useItemColumns(false),
+				_pathColumn(NULL) {
         TRACE_OBJECT_CREATION("CPPToJavaArchiveOpenCallback")
 
 		JNIEnvInstance jniEnvInstance(_jbindingSession);
@@ -70,9 +115,19 @@ public:
 
     void freeOutItem(JNIEnvInstance & jniEnvInstance);
 
+    /**
+     * Copy item information from the OutItemColumns object. Should be called before starting update operation.
+     */
+    void setItemColumns(JNIEnvInstance & jniEnvInstance, jobject outItemColumns);
+    void freeItemColumns(JNIEnvInstance & jniEnvInstance);
+
 
 private:
     LONG getOrUpdateOutItem(JNIEnvInstance & jniEnvInstance, int index);
+    LONG getItemColumnsUpdateInfo(JNIEnvInstance & jniEnvInstance, UInt32 index, Int32 *newData,
+                                  Int32 *newProperties, UInt32 *indexInArchive);
+    LONG getItemColumnsProperty(JNIEnvInstance & jniEnvInstance, UInt32 index, PROPID propID,
+                                NWindows::NCOM::CPropVariant & cPropVariant);
 };
 
 #endif /*CPPTOJAVAARCHIVEUPDATECALLBACK_H_*/
@@ -7,7 +7,7 @@
 STDMETHODIMP CPPToJavaCryptoGetTextPassword::CryptoGetTextPassword(BSTR * password) {
     TRACE_OBJECT_CALL("CryptoGetTextPassword");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_CRYPTO_GET_TEXT_PASSWORD);
 
     if (password) {
         *password = NULL;
@@ -0,0 +1,131 @@
+#ifndef CPPTOJAVADIRECTBUFFER_H_
+#define CPPTOJAVADIRECTBUFFER_H_
+
+#include "JBindingTools.h"
+
+/*
+ * Maximal size of the native memory behind a direct buffer. Larger read and write requests
+ * get truncated, which is allowed by the 7-Zip ISequentialInStream/ISequentialOutStream contract.
+ */
+#define DIRECT_BUFFER_MAX_SIZE (1024 * 1024)
+
+/*
+ * Minimal size of the native memory behind a direct buffer. The buffer grows by doubling its size
+ * starting with this value, so it gets reallocated only a few times.
+ */
+#define DIRECT_BUFFER_MIN_SIZE (64 * 1024)
+
+/*
+ * Native memory block exposed to Java as a direct java.nio.ByteBuffer.
+ * The memory and the ByteBuffer object are allocated once and reused for all
+ * subsequent calls. They grow on demand from DIRECT_BUFFER_MIN_SIZE up to DIRECT_BUFFER_MAX_SIZE.
+ */
+class CPPToJavaDirectBuffer {
+    jobject _byteBuffer;
+    void * _memory;
+    UInt32 _capacity;
+
+    CPPToJavaDirectBuffer(CPPToJavaDirectBuffer const &);
+    CPPToJavaDirectBuffer & operator=(CPPToJavaDirectBuffer const &);
+
+    bool ensureCapacity(JNIEnvInstance & jniEnvInstance, UInt32 size) {
+        if (_byteBuffer && _capacity >= size) {
+            return true;
+        }
+
+        if (_byteBuffer) {
+            jniEnvInstance->DeleteGlobalRef(_byteBuffer);
+            _byteBuffer = NULL;
+        }
+
+        UInt32 capacity = _capacity ? _capacity * 2 : DIRECT_BUFFER_MIN_SIZE;
+        if (capacity < size) {
+            capacity = size;
+        }
+        if (capacity > DIRECT_BUFFER_MAX_SIZE) {
+            capacity = DIRECT_BUFFER_MAX_SIZE;
+        }
+
+        void * memory = realloc(_memory, capacity);
+        if (!memory) {
+            jniEnvInstance.reportError("Out of memory allocating direct buffer (size: %u)", capacity);
+            return false;
+        }
+        _memory = memory;
+        _capacity = capacity;
+
+        jobject byteBuffer = jniEnvInstance->NewDirectByteBuffer(_memory, (jlong) _capacity);
+        if (!byteBuffer) {
+            jniEnvInstance.exceptionCheck();
+            jniEnvInstance.reportError("Error creating direct buffer (size: %u)", capacity);
+            return false;
+        }
+        _byteBuffer = jniEnvInstance->NewGlobalRef(byteBuffer);
+        jniEnvInstance->DeleteLocalRef(byteBuffer);
+        return true;
+    }
+
+public:
+    CPPToJavaDirectBuffer() :
+        _byteBuffer(NULL), _memory(NULL), _capacity(0) {
+    }
+
+    ~CPPToJavaDirectBuffer() {
+        MY_ASSERT(!_byteBuffer);
+        if (_memory) {
+            free(_memory);
+        }
+    }
+
+    /*
+     * Truncates 'size' to the maximal supported buffer size.
+     */
+    static UInt32 truncateSize(UInt32 size) {
+        return size > DIRECT_BUFFER_MAX_SIZE ? DIRECT_BUFFER_MAX_SIZE : size;
+    }
+
+    /*
+     * Returns the direct ByteBuffer with position 0 and limit 'size'. The size should be
+     * truncated using truncateSize(). Returns NULL in error case (error was reported).
+     */
+    jobject prepare(JNIEnvInstance & jniEnvInstance, UInt32 size) {
+        MY_ASSERT(size <= DIRECT_BUFFER_MAX_SIZE);
+
+        if (!ensureCapacity(jniEnvInstance, size)) {
+            return NULL;
+        }
+
+        // Reset position and limit, the Java implementation may have changed them during the last call
+        jobject result = jni::Buffer::clear(jniEnvInstance, _byteBuffer);
+        if (jniEnvInstance.exceptionCheck()) {
+            return NULL;
+        }
+        jniEnvInstance->DeleteLocalRef(result);
+
+        if (size != _capacity) {
+            result = jni::Buffer::limit(jniEnvInstance, _byteBuffer, (jint) size);
+            if (jniEnvInstance.exceptionCheck()) {
+                return NULL;
+            }
+            jniEnvInstance->DeleteLocalRef(result);
+        }
+
+        return _byteBuffer;
+    }
+
+    void * getMemory() {
+        return _memory;
+    }
+
+    /*
+     * Releases the ByteBuffer global reference. Should be called before destruction.
+     */
+    void release(JNIEnvInstance & jniEnvInstance) {
+        if (_byteBuffer) {
+            jniEnvInstance->DeleteGlobalRef(_byteBuffer);
+            _byteBuffer = NULL;
+        }
+    }
+};
+
+#endif /*CPPTOJAVADIRECTBUFFER_H_*/
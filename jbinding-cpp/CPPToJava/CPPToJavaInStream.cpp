@@ -3,17 +3,294 @@
 #include "JNITools.h"
 #include "CPPToJavaInStream.h"
 
+CPPToJavaInStream::~CPPToJavaInStream() {
+    TRACE_OBJECT_CALL("~CPPToJavaInStream");
+
+    if (_mapped) {
+        JNIEnvInstance jniEnvInstance(_jbindingSession);
+        releaseMapped(jniEnvInstance);
+    }
+    if (_readBuffer) {
+        free(_readBuffer);
+    }
+}
+
+/*
+ * Reads the size of the read buffer from SevenZip.inStreamReadBufferSize. The buffer itself
+ * gets allocated on the first read operation.
+ */
+void CPPToJavaInStream::initReadBuffer(JNIEnv * initEnv) {
+    jint readBufferSize = jni::SevenZip::inStreamReadBufferSize_Get(initEnv);
+    if (initEnv->ExceptionCheck()) {
+        initEnv->ExceptionClear();
+        return;
+    }
+    _readBufferSize = readBufferSize > 0 ? (UInt32) readBufferSize : 0;
+}
+
+/*
+ * Gets addresses of the memory mapped chunks of the MappedFileInStream. The chunk buffers are held
+ * as global references keeping the mapping alive. On any problem the stream falls back to the
+ * regular read() and seek() upcalls.
+ */
+void CPPToJavaInStream::initMapped(JNIEnv * initEnv, jobject inStream) {
+    jobjectArray chunkBuffers = static_cast<jobjectArray> (jni::MappedFileInStream::getMappedBuffers(initEnv,
+            inStream));
+    if (initEnv->ExceptionCheck()) {
+        initEnv->ExceptionClear();
+        return;
+    }
+    if (!chunkBuffers) {
+        // Stream was closed
+        return;
+    }
+
+    // Start at the current position of the java stream
+    jlong position = _iSeekableStream->seek(initEnv, inStream, 0, (jint) STREAM_SEEK_CUR);
+    if (initEnv->ExceptionCheck()) {
+        initEnv->ExceptionClear();
+        initEnv->DeleteLocalRef(chunkBuffers);
+        return;
+    }
+
+    _mappedChunkCount = (UInt32) initEnv->GetArrayLength(chunkBuffers);
+    _mappedChunkBuffers = new jobject[_mappedChunkCount ? _mappedChunkCount : 1];
+    _mappedChunks = new Byte *[_mappedChunkCount ? _mappedChunkCount : 1];
+    _mappedPosition = (UInt64) position;
+    _mapped = true;
+
+    for (UInt32 i = 0; i < _mappedChunkCount; i++) {
+        _mappedChunkBuffers[i] = NULL;
+    }
+
+    for (UInt32 i = 0; i < _mappedChunkCount; i++) {
+        jobject chunkBuffer = initEnv->GetObjectArrayElement(chunkBuffers, (jsize) i);
+        _mappedChunkBuffers[i] = initEnv->NewGlobalRef(chunkBuffer);
+        initEnv->DeleteLocalRef(chunkBuffer);
+
+        _mappedChunks[i] = (Byte *) initEnv->GetDirectBufferAddress(_mappedChunkBuffers[i]);
+        jlong capacity = initEnv->GetDirectBufferCapacity(_mappedChunkBuffers[i]);
+        if (!_mappedChunks[i] || capacity <= 0) {
+            releaseMapped(initEnv);
+            break;
+        }
+        if (!i) {
+            _mappedChunkSize = (UInt64) capacity;
+        }
+        _mappedSize += (UInt64) capacity;
+    }
+    initEnv->DeleteLocalRef(chunkBuffers);
+}
+
+void CPPToJavaInStream::releaseMapped(JNIEnv * env) {
+    for (UInt32 i = 0; i < _mappedChunkCount; i++) {
+        if (_mappedChunkBuffers[i]) {
+            env->DeleteGlobalRef(_mappedChunkBuffers[i]);
+        }
+    }
+    delete[] _mappedChunkBuffers;
+    delete[] _mappedChunks;
+    _mappedChunkBuffers = NULL;
+    _mappedChunks = NULL;
+    _mappedChunkCount = 0;
+    _mappedSize = 0;
+    _mapped = false;
+}
+
+HRESULT CPPToJavaInStream::ReadMapped(void *data, UInt32 size, UInt32 *processedSize) {
+    UInt32 wasRead = 0;
+    while (wasRead < size && _mappedPosition < _mappedSize) {
+        UInt32 chunkIndex = (UInt32) (_mappedPosition / _mappedChunkSize);
+        UInt64 chunkOffset = _mappedPosition % _mappedChunkSize;
+        UInt64 chunkLength = chunkIndex + 1 < _mappedChunkCount ? _mappedChunkSize
+                : _mappedSize - chunkIndex * _mappedChunkSize;
+
+        UInt32 toRead = size - wasRead;
+        if (toRead > chunkLength - chunkOffset) {
+            toRead = (UInt32) (chunkLength - chunkOffset);
+        }
+        memcpy((Byte *) data + wasRead, _mappedChunks[chunkIndex] + chunkOffset, toRead);
+        wasRead += toRead;
+        _mappedPosition += toRead;
+    }
+
+    if (processedSize) {
+        *processedSize = wasRead;
+    }
+    return S_OK;
+}
+
+HRESULT CPPToJavaInStream::SeekMapped(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition) {
+    Int64 base;
+    switch (seekOrigin) {
+    case STREAM_SEEK_SET:
+        base = 0;
+        break;
+    case STREAM_SEEK_CUR:
+        base = (Int64) _mappedPosition;
+        break;
+    case STREAM_SEEK_END:
+        base = (Int64) _mappedSize;
+        break;
+    default:
+        return STG_E_INVALIDFUNCTION;
+    }
+
+    if (base + offset < 0) {
+        JNIEnvInstance jniEnvInstance(_jbindingSession);
+        jniEnvInstance.reportError("Error while seek operation: negative position %lli",
+                (long long) (base + offset));
+        return S_FALSE;
+    }
+
+    _mappedPosition = (UInt64) (base + offset);
+    if (newPosition) {
+        *newPosition = _mappedPosition;
+    }
+    return S_OK;
+}
+
+/*
+ * Serves the read from the read buffer. The java stream gets called only, if the requested data
+ * isn't buffered: to seek to the current position (if the positions differ) and to refill the buffer.
+ * Reads not smaller than the buffer bypass it.
+ */
+HRESULT CPPToJavaInStream::ReadBuffered(void *data, UInt32 size, UInt32 *processedSize) {
+    if (processedSize) {
+        *processedSize = 0;
+    }
+    if (!size) {
+        return S_OK;
+    }
+
+    HRESULT result;
+    if (_position == UNKNOWN_STREAM_POSITION) {
+        result = SeekJava(0, STREAM_SEEK_CUR, NULL);
+        if (result != S_OK) {
+            return result;
+        }
+    }
+
+    UInt32 wasRead = 0;
+    result = S_OK;
+    while (wasRead < size) {
+        if (_position >= _readBufferStart && _position < _readBufferStart + _readBufferLength) {
+            UInt32 offsetInBuffer = (UInt32) (_position - _readBufferStart);
+            UInt32 toCopy = size - wasRead;
+            if (toCopy > _readBufferLength - offsetInBuffer) {
+                toCopy = _readBufferLength - offsetInBuffer;
+            }
+            memcpy((Byte *) data + wasRead, _readBuffer + offsetInBuffer, toCopy);
+            wasRead += toCopy;
+            _position += toCopy;
+            continue;
+        }
+
+        if (_javaPosition != _position) {
+            result = SeekJava((Int64) _position, STREAM_SEEK_SET, NULL);
+            if (result != S_OK) {
+                break;
+            }
+        }
+
+        UInt32 read = 0;
+        if (size - wasRead >= _readBufferSize) {
+            result = CPPToJavaSequentialInStream::Read((Byte *) data + wasRead, size - wasRead, &read);
+            if (result == S_OK) {
+                wasRead += read;
+                _position += read;
+                _javaPosition += read;
+            }
+            break;
+        }
+
+        if (!_readBuffer) {
+            _readBuffer = (Byte *) malloc(_readBufferSize);
+            if (!_readBuffer) {
+                JNIEnvInstance jniEnvInstance(_jbindingSession);
+                jniEnvInstance.reportError("Out of memory allocating in-stream read buffer (size: %u)",
+                        _readBufferSize);
+                result = S_FALSE;
+                break;
+            }
+        }
+        _readBufferLength = 0;
+        result = CPPToJavaSequentialInStream::Read(_readBuffer, _readBufferSize, &read);
+        if (result != S_OK) {
+            break;
+        }
+        _readBufferStart = _position;
+        _readBufferLength = read;
+        _javaPosition += read;
+        if (!read) {
+            // End of stream
+            break;
+        }
+    }
+
+    if (processedSize) {
+        *processedSize = wasRead;
+    }
+    return result;
+}
+
+/*
+ * Seeks within the stream natively. Only seeks relative to the end of the stream and the first
+ * relative seek, if the position isn't known yet, are passed to the java stream.
+ */
+HRESULT CPPToJavaInStream::SeekBuffered(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition) {
+    Int64 base;
+    switch (seekOrigin) {
+    case STREAM_SEEK_SET:
+        base = 0;
+        break;
+    case STREAM_SEEK_CUR:
+        if (_position == UNKNOWN_STREAM_POSITION) {
+            return SeekJava(offset, seekOrigin, newPosition);
+        }
+        base = (Int64) _position;
+        break;
+    case STREAM_SEEK_END:
+        return SeekJava(offset, seekOrigin, newPosition);
+    default:
+        return STG_E_INVALIDFUNCTION;
+    }
+
+    if (base + offset < 0) {
+        JNIEnvInstance jniEnvInstance(_jbindingSession);
+        jniEnvInstance.reportError("Error while seek operation: negative position %lli",
+                (long long) (base + offset));
+        return S_FALSE;
+    }
+
+    _position = (UInt64) (base + offset);
+    if (newPosition) {
+        *newPosition = _position;
+    }
+    return S_OK;
+}
+
 STDMETHODIMP CPPToJavaInStream::Seek(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition) {
     TRACE_OBJECT_CALL("Seek");
 
     TRACE("SEEK(offset=" << offset << ", origin=" << seekOrigin << ")");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
-
     if (newPosition) {
         *newPosition = 0;
     }
 
+    if (_mapped) {
+        return SeekMapped(offset, seekOrigin, newPosition);
+    }
+    if (_readBufferSize) {
+        return SeekBuffered(offset, seekOrigin, newPosition);
+    }
+    return SeekJava(offset, seekOrigin, newPosition);
+}
+
+HRESULT CPPToJavaInStream::SeekJava(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition) {
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_IN_STREAM_SEEK);
+
     jlong returnedNewPosition = _iSeekableStream->seek(jniEnvInstance, _javaImplementation,
             (jlong) offset, (jint) seekOrigin);
 
@@ -24,6 +301,8 @@ STDMETHODIMP CPPToJavaInStream::Seek(Int64 offset, UInt32 seekOrigin, UInt64 *ne
     if (newPosition) {
         *newPosition = (UInt64) returnedNewPosition;
     }
+    _position = (UInt64) returnedNewPosition;
+    _javaPosition = (UInt64) returnedNewPosition;
 
     TRACE("SEEK: New Pos: " << (UInt64)returnedNewPosition)
 
@@ -2,23 +2,72 @@
 
 #include "CPPToJavaSequentialInStream.h"
 
+// Position of the java stream isn't known yet
+#define UNKNOWN_STREAM_POSITION ((UInt64) (Int64) -1)
+
 class CPPToJavaInStream : public virtual IInStream, public CPPToJavaSequentialInStream
 {
 private:
     jni::ISeekableStream * _iSeekableStream;
+
+    // Only set, if the java implementation is a MappedFileInStream
+    bool _mapped;
+    jobject * _mappedChunkBuffers;
+    Byte ** _mappedChunks;
+    UInt32 _mappedChunkCount;
+    UInt64 _mappedChunkSize;
+    UInt64 _mappedSize;
+    UInt64 _mappedPosition;
+
+    // Read buffer of the other streams. Serves small reads from memory and elides seeks
+    // within the buffered data. Size 0 - every read and seek is passed to the java stream.
+    Byte * _readBuffer;
+    UInt32 _readBufferSize;
+    UInt32 _readBufferLength;
+    UInt64 _readBufferStart;
+    UInt64 _position; // position used by 7-Zip
+    UInt64 _javaPosition; // position of the java stream
+
+    void initMapped(JNIEnv * initEnv, jobject inStream);
+    void initReadBuffer(JNIEnv * initEnv);
+    void releaseMapped(JNIEnv * env);
+    HRESULT ReadMapped(void *data, UInt32 size, UInt32 *processedSize);
+    HRESULT SeekMapped(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition);
+    HRESULT ReadBuffered(void *data, UInt32 size, UInt32 *processedSize);
+    HRESULT SeekBuffered(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition);
+    HRESULT SeekJava(Int64 offset, UInt32 seekOrigin, UInt64 *newPosition);
 public:
 	CPPToJavaInStream(JBindingSession & jbindingSession, JNIEnv * initEnv, jobject inStream) :
 		CPPToJavaSequentialInStream(jbindingSession, initEnv, inStream),
-		        _iSeekableStream(jni::ISeekableStream::_getInstanceFromObject(initEnv, inStream))
+		        _iSeekableStream(jni::ISeekableStream::_getInstanceFromObject(initEnv, inStream)),
+		        _mapped(false), _mappedChunkBuffers(NULL), _mappedChunks(NULL), _mappedChunkCount(0),
+		        _mappedChunkSize(0), _mappedSize(0), _mappedPosition(0),
+		        _readBuffer(NULL), _readBufferSize(0), _readBufferLength(0), _readBufferStart(0),
+		        _position(UNKNOWN_STREAM_POSITION), _javaPosition(UNKNOWN_STREAM_POSITION)
 	{
 	    TRACE_OBJECT_CREATION("CPPToJavaInStream")
 
+	    if (jni::MappedFileInStream::_isInstance(initEnv, inStream)) {
+	        initMapped(initEnv, inStream);
+	    }
+	    if (!_mapped) {
+	        initReadBuffer(initEnv);
+	    }
 	}
 
+	virtual ~CPPToJavaInStream();
+
 	STDMETHOD(Read)(void *data, UInt32 size, UInt32 *processedSize)
 	{
 		TRACE("READ(size=" << size << ")")
-		HRESULT result = CPPToJavaSequentialInStream::Read(data, size, processedSize);
+		HRESULT result;
+		if (_mapped) {
+		    result = ReadMapped(data, size, processedSize);
+		} else if (_readBufferSize) {
+		    result = ReadBuffered(data, size, processedSize);
+		} else {
+		    result = CPPToJavaSequentialInStream::Read(data, size, processedSize);
+		}
 #ifdef TRACE_ON
 		if (processedSize) {
 			TRACE("READ: size=" << size << ", was read:" << *processedSize << ", result:" << result);
@@ -9,7 +9,7 @@ STDMETHODIMP CPPToJavaOutStream::Seek(Int64 offset, UInt32 seekOrigin, UInt64 *n
 
     TRACE("SEEK(offset=" << offset << ", origin=" << seekOrigin << ")");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OUT_STREAM_SEEK);
 
     if (newPosition) {
         *newPosition = 0;
@@ -36,7 +36,7 @@ STDMETHODIMP CPPToJavaOutStream::SetSize(UInt64 newSize) {
 
 	TRACE("SetSize(size=" << newSize << ')');
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OUT_STREAM_SEEK);
 
 	_iOutStream->setSize(jniEnvInstance, _javaImplementation, (jlong)newSize);
 
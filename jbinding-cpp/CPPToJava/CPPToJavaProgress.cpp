@@ -6,7 +6,7 @@
 STDMETHODIMP CPPToJavaProgress::SetCompleted(const UInt64 * completeValue) {
     TRACE_OBJECT_CALL("SetCompleted");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_PROGRESS);
 
     _iProgress->setCompleted(jniEnvInstance, _javaImplementation, (jlong) (*completeValue));
 
@@ -16,7 +16,7 @@ STDMETHODIMP CPPToJavaProgress::SetCompleted(const UInt64 * completeValue) {
 STDMETHODIMP CPPToJavaProgress::SetTotal(UINT64 total) {
     TRACE_OBJECT_CALL("SetTotal");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_PROGRESS);
 
     _iProgress->setTotal(jniEnvInstance, _javaImplementation, (jlong) total);
 
@@ -3,21 +3,47 @@
 #include "JBindingTools.h"
 #include "CPPToJavaSequentialInStream.h"
 
+CPPToJavaSequentialInStream::~CPPToJavaSequentialInStream() {
+    TRACE_OBJECT_CALL("~CPPToJavaSequentialInStream");
+
+    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    _directBuffer.release(jniEnvInstance);
+}
 
 STDMETHODIMP CPPToJavaSequentialInStream::Read(void *data, UInt32 size, UInt32 *processedSize)
 {
     TRACE_OBJECT_CALL("Read");
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_IN_STREAM_READ);
 
     if (processedSize) {
     	*processedSize = 0;
     }
 
+    UInt32 wasRead = 0;
+    HRESULT result;
+    if (_iDirectBufferSequentialInStream && size) {
+        result = ReadUsingDirectBuffer(jniEnvInstance, data, size, &wasRead);
+    } else {
+        result = ReadUsingByteArray(jniEnvInstance, data, size, &wasRead);
+    }
+    if (result == S_OK) {
+        _jbindingSession.getStatistics().addBytesRead(wasRead);
+    }
+    if (processedSize) {
+        *processedSize = wasRead;
+    }
+    return result;
+}
+
+HRESULT CPPToJavaSequentialInStream::ReadUsingByteArray(JNIEnvInstance & jniEnvInstance, void *data,
+                                                        UInt32 size, UInt32 *processedSize)
+{
 	jbyteArray byteArray = jniEnvInstance->NewByteArray(size);
 
 	if (!byteArray) {
 	    jniEnvInstance.reportError("Out of local resources or out of memory");
+	    return S_FALSE;
 	}
 
 	jint wasRead = _iSequentialInStream->read(jniEnvInstance, _javaImplementation, byteArray);
@@ -32,12 +58,41 @@ STDMETHODIMP CPPToJavaSequentialInStream::Read(void *data, UInt32 size, UInt32 *
 		*processedSize = (UInt32)wasRead;
 	}
 
-	jbyte * buffer = jniEnvInstance->GetByteArrayElements(byteArray, NULL);
-	memcpy(data, buffer, size);
-	jniEnvInstance->ReleaseByteArrayElements(byteArray, buffer, JNI_ABORT);
+	if (wasRead > 0) {
+	    jniEnvInstance->GetByteArrayRegion(byteArray, 0, wasRead, (jbyte *)data);
+	}
 
 	jniEnvInstance->DeleteLocalRef(byteArray);
 
 	return S_OK;
 }
 
+HRESULT CPPToJavaSequentialInStream::ReadUsingDirectBuffer(JNIEnvInstance & jniEnvInstance, void *data,
+                                                           UInt32 size, UInt32 *processedSize)
+{
+    size = CPPToJavaDirectBuffer::truncateSize(size);
+
+    jobject byteBuffer = _directBuffer.prepare(jniEnvInstance, size);
+    if (!byteBuffer) {
+        return S_FALSE;
+    }
+
+    jint wasRead = _iDirectBufferSequentialInStream->read(jniEnvInstance, _javaImplementation, byteBuffer);
+    if (jniEnvInstance.exceptionCheck()) {
+        return S_FALSE;
+    }
+
+    if (wasRead < 0 || (UInt32) wasRead > size) {
+        jniEnvInstance.reportError("IDirectBufferSequentialInStream.read(ByteBuffer) returned invalid "
+                "amount of read bytes: %i (buffer size: %u)", (int) wasRead, size);
+        return S_FALSE;
+    }
+
+    memcpy(data, _directBuffer.getMemory(), (size_t) wasRead);
+
+    if (processedSize) {
+        *processedSize = (UInt32) wasRead;
+    }
+
+    return S_OK;
+}
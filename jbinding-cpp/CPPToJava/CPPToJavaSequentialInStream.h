@@ -5,6 +5,7 @@
 #include "Common/MyCom.h"
 
 #include "CPPToJavaAbstract.h"
+#include "CPPToJavaDirectBuffer.h"
 
 #include "JavaStatInfos/JavaPackageSevenZip.h"
 
@@ -14,16 +15,35 @@ class CPPToJavaSequentialInStream :
 	public CMyUnknownImp {
 
 	jni::ISequentialInStream * _iSequentialInStream;
+
+	// Only set, if IDirectBufferSequentialInStream is implemented
+	jni::IDirectBufferSequentialInStream * _iDirectBufferSequentialInStream;
+	CPPToJavaDirectBuffer _directBuffer;
+
+	HRESULT ReadUsingByteArray(JNIEnvInstance & jniEnvInstance, void *data, UInt32 size, UInt32 *processedSize);
+	HRESULT ReadUsingDirectBuffer(JNIEnvInstance & jniEnvInstance, void *data, UInt32 size, UInt32 *processedSize);
 public:
 	MY_UNKNOWN_IMP1(ISequentialInStream)
 
 	CPPToJavaSequentialInStream(JBindingSession & jbindingSession, JNIEnv * initEnv, jobject sequentialInStream)
 		: CPPToJavaAbstract(jbindingSession, initEnv, sequentialInStream),
-		  _iSequentialInStream(jni::ISequentialInStream::_getInstanceFromObject(initEnv, sequentialInStream))
+		  _iSequentialInStream(jni::ISequentialInStream::_getInstanceFromObject(initEnv, sequentialInStream)),
+		  _iDirectBufferSequentialInStream(NULL)
 	{
 	    TRACE_OBJECT_CREATION("CPPToJavaSequentialInStream")
+
+	    jclass directBufferInStreamInterface = initEnv->FindClass(JAVA_IDIRECT_BUFFER_SEQUENTIAL_IN_STREAM);
+	    FATALIF(!directBufferInStreamInterface, "Class " JAVA_IDIRECT_BUFFER_SEQUENTIAL_IN_STREAM " not found");
+
+	    if (initEnv->IsInstanceOf(sequentialInStream, directBufferInStreamInterface)) {
+	        _iDirectBufferSequentialInStream = jni::IDirectBufferSequentialInStream::_getInstanceFromObject(
+	                initEnv, sequentialInStream);
+	    }
+	    initEnv->DeleteLocalRef(directBufferInStreamInterface);
 	}
 
+	virtual ~CPPToJavaSequentialInStream();
+
 	/*
 	 * FROM 7-ZIP:
 	 * Out: if size != 0, return_value = S_OK and (*processedSize == 0),
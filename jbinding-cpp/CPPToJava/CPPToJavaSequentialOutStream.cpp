@@ -3,6 +3,13 @@
 #include "JNITools.h"
 #include "CPPToJavaSequentialOutStream.h"
 
+CPPToJavaSequentialOutStream::~CPPToJavaSequentialOutStream() {
+    TRACE_OBJECT_CALL("~CPPToJavaSequentialOutStream");
+
+    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    _ownDirectBuffer.release(jniEnvInstance);
+}
+
 STDMETHODIMP CPPToJavaSequentialOutStream::Write(const void *data, UInt32 size,
                                                  UInt32 *processedSize) {
     TRACE_OBJECT_CALL("Write");
@@ -15,9 +22,31 @@ STDMETHODIMP CPPToJavaSequentialOutStream::Write(const void *data, UInt32 size,
         return S_OK;
     }
 
-    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_OUT_STREAM_WRITE);
+
+    UInt32 written = 0;
+    HRESULT result;
+    if (_iDirectBufferSequentialOutStream) {
+        result = WriteUsingDirectBuffer(jniEnvInstance, data, size, &written);
+    } else {
+        result = WriteUsingByteArray(jniEnvInstance, data, size, &written);
+    }
+    if (result == S_OK) {
+        _jbindingSession.getStatistics().addBytesWritten(written);
+    }
+    if (processedSize) {
+        *processedSize = written;
+    }
+    return result;
+}
 
+HRESULT CPPToJavaSequentialOutStream::WriteUsingByteArray(JNIEnvInstance & jniEnvInstance, const void *data,
+                                                          UInt32 size, UInt32 *processedSize) {
     jbyteArray dataArray = jniEnvInstance->NewByteArray(size);
+    if (!dataArray) {
+        jniEnvInstance.reportError("Out of local resources or out of memory");
+        return S_FALSE;
+    }
     jniEnvInstance->SetByteArrayRegion(dataArray, 0, (jsize) size, (const jbyte*) data);
 
     // public int write(byte[] data);
@@ -27,7 +56,9 @@ STDMETHODIMP CPPToJavaSequentialOutStream::Write(const void *data, UInt32 size,
         return S_FALSE;
     }
     jniEnvInstance->DeleteLocalRef(dataArray);
-    *processedSize = (UInt32) result;
+    if (processedSize) {
+        *processedSize = (UInt32) result;
+    }
 
     if (result <= 0) {
         jniEnvInstance.reportError("Implementation of 'int ISequentialOutStream.write(byte[])' "
@@ -38,3 +69,31 @@ STDMETHODIMP CPPToJavaSequentialOutStream::Write(const void *data, UInt32 size,
     return S_OK;
 }
 
+HRESULT CPPToJavaSequentialOutStream::WriteUsingDirectBuffer(JNIEnvInstance & jniEnvInstance, const void *data,
+                                                             UInt32 size, UInt32 *processedSize) {
+    size = CPPToJavaDirectBuffer::truncateSize(size);
+
+    jobject byteBuffer = _directBuffer->prepare(jniEnvInstance, size);
+    if (!byteBuffer) {
+        return S_FALSE;
+    }
+    memcpy(_directBuffer->getMemory(), data, size);
+
+    // public int write(ByteBuffer data);
+    jint result = _iDirectBufferSequentialOutStream->write(jniEnvInstance, _javaImplementation, byteBuffer);
+    if (jniEnvInstance.exceptionCheck()) {
+        return S_FALSE;
+    }
+
+    if (result <= 0 || (UInt32) result > size) {
+        jniEnvInstance.reportError("Implementation of 'int IDirectBufferSequentialOutStream.write(ByteBuffer)' "
+            "should write at least one and at most %u bytes. Returned amount of written bytes: %i", size, result);
+        return S_FALSE;
+    }
+
+    if (processedSize) {
+        *processedSize = (UInt32) result;
+    }
+
+    return S_OK;
+}
@@ -4,6 +4,7 @@
 #include "7zip/Archive/IArchive.h"
 #include "Common/MyCom.h"
 #include "CPPToJavaAbstract.h"
+#include "CPPToJavaDirectBuffer.h"
 #include "JavaStatInfos/JavaPackageSevenZip.h"
 
 class CPPToJavaSequentialOutStream : public CPPToJavaAbstract,
@@ -12,6 +13,19 @@ class CPPToJavaSequentialOutStream : public CPPToJavaAbstract,
 {
 private:
     jni::ISequentialOutStream * _iSequentialOutStream;
+
+    // Only set, if IDirectBufferSequentialOutStream is implemented
+    jni::IDirectBufferSequentialOutStream * _iDirectBufferSequentialOutStream;
+
+    // Points either to the shared direct buffer of the owner or to the _ownDirectBuffer
+    CPPToJavaDirectBuffer * _directBuffer;
+    CPPToJavaDirectBuffer _ownDirectBuffer;
+
+    // Keeps the owner of the shared direct buffer alive
+    CMyComPtr<IUnknown> _directBufferOwner;
+
+    HRESULT WriteUsingByteArray(JNIEnvInstance & jniEnvInstance, const void *data, UInt32 size, UInt32 *processedSize);
+    HRESULT WriteUsingDirectBuffer(JNIEnvInstance & jniEnvInstance, const void *data, UInt32 size, UInt32 *processedSize);
 public:
 	MY_UNKNOWN_IMP1(ISequentialOutStream)
 
@@ -33,13 +47,38 @@ public:
 //    }
 
 
-	CPPToJavaSequentialOutStream(JBindingSession & jbindingSession, JNIEnv * initEnv, jobject javaSequentialOutStreamImpl) :
+	/*
+	 * sharedDirectBuffer - direct buffer to use, if the java implementation implements
+	 *                      IDirectBufferSequentialOutStream. If NULL, the stream allocates its own buffer.
+	 * directBufferOwner  - object owning the shared direct buffer. It will be kept alive as long as the stream exists.
+	 */
+	CPPToJavaSequentialOutStream(JBindingSession & jbindingSession, JNIEnv * initEnv, jobject javaSequentialOutStreamImpl,
+	                             CPPToJavaDirectBuffer * sharedDirectBuffer = NULL, IUnknown * directBufferOwner = NULL) :
 		CPPToJavaAbstract(jbindingSession, initEnv, javaSequentialOutStreamImpl),
-		        _iSequentialOutStream(jni::ISequentialOutStream::_getInstanceFromObject(initEnv, javaSequentialOutStreamImpl))
+		        _iSequentialOutStream(jni::ISequentialOutStream::_getInstanceFromObject(initEnv, javaSequentialOutStreamImpl)),
+		        _iDirectBufferSequentialOutStream(NULL),
+		        _directBuffer(NULL)
 	{
 	    TRACE_OBJECT_CREATION("CPPToJavaSequentialOutStream")
+
+	    jclass directBufferOutStreamInterface = initEnv->FindClass(JAVA_IDIRECT_BUFFER_SEQUENTIAL_OUT_STREAM);
+	    FATALIF(!directBufferOutStreamInterface, "Class " JAVA_IDIRECT_BUFFER_SEQUENTIAL_OUT_STREAM " not found");
+
+	    if (initEnv->IsInstanceOf(javaSequentialOutStreamImpl, directBufferOutStreamInterface)) {
+	        _iDirectBufferSequentialOutStream = jni::IDirectBufferSequentialOutStream::_getInstanceFromObject(
+	                initEnv, javaSequentialOutStreamImpl);
+	        if (sharedDirectBuffer) {
+	            _directBuffer = sharedDirectBuffer;
+	            _directBufferOwner = directBufferOwner;
+	        } else {
+	            _directBuffer = &_ownDirectBuffer;
+	        }
+	    }
+	    initEnv->DeleteLocalRef(directBufferOutStreamInterface);
 	}
 
+	virtual ~CPPToJavaSequentialOutStream();
+
 	STDMETHOD(Write)(const void *data, UInt32 size, UInt32 *processedSize);
 };
 
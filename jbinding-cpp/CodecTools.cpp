@@ -15,6 +15,37 @@
 
 CodecTools codecTools;
 
+/**
+ * Offsets of the start signatures of the archive formats used for the fast format detection.
+ * Formats with the signature at a variable position (like PE, Nsis, Udf) aren't listed
+ * and are only detected by trying to open the archive.
+ */
+static const struct {
+	const wchar_t * name;
+	int offset;
+} SIGNATURE_OFFSETS[] = {
+	{ L"7z", 0 },
+	{ L"zip", 0 },
+	{ L"Rar", 0 },
+	{ L"gzip", 0 },
+	{ L"bzip2", 0 },
+	{ L"xz", 0 },
+	{ L"Z", 0 },
+	{ L"Xar", 0 },
+	{ L"Cab", 0 },
+	{ L"Chm", 0 },
+	{ L"Compound", 0 },
+	{ L"wim", 0 },
+	{ L"Arj", 0 },
+	{ L"Deb", 0 },
+	{ L"Rpm", 0 },
+	{ L"Lzh", 2 },
+	{ L"NTFS", 3 },
+	{ L"tar", 257 },
+	{ L"HFS", 0x400 },
+	{ L"Iso", 0x8001 },
+};
+
 void CodecTools::init() {
 	HRESULT result = codecs.Load();
 	if (result != S_OK)
@@ -29,8 +60,23 @@ void CodecTools::init() {
 
 	gzipIndex = -1;
 	bzip2Index = -1;
+	signatureHeaderSize = 0;
 	for (int i = 0; i < CodecTools::codecs.Formats.Size(); i++) {
         const wchar_t * name = (const wchar_t*)CodecTools::codecs.Formats[i].Name;
+
+        int signatureOffset = -1;
+        size_t signatureSize = CodecTools::codecs.Formats[i].StartSignature.GetCapacity();
+        for (size_t j = 0; signatureSize && j < sizeof(SIGNATURE_OFFSETS) / sizeof(SIGNATURE_OFFSETS[0]); j++) {
+            if (wcscmp(name, SIGNATURE_OFFSETS[j].name) == 0) {
+                signatureOffset = SIGNATURE_OFFSETS[j].offset;
+                if (signatureHeaderSize < signatureOffset + signatureSize) {
+                    signatureHeaderSize = signatureOffset + signatureSize;
+                }
+                break;
+            }
+        }
+        signatureOffsets.Add(signatureOffset);
+
         if (wcscmp(name, L"Cab") == 0) {
             cabIndex = i;
         } else if (wcscmp(name, L"gzip") == 0) {
@@ -41,6 +87,21 @@ void CodecTools::init() {
 	}
 }
 
+void CodecTools::findFormatsBySignature(const Byte * header, size_t headerSize, CIntVector & formatIndices) {
+	for (int i = 0; i < codecs.Formats.Size(); i++) {
+		if (signatureOffsets[i] == -1) {
+			continue;
+		}
+		const CByteBuffer & signature = codecs.Formats[i].StartSignature;
+		size_t offset = (size_t) signatureOffsets[i];
+		if (offset + signature.GetCapacity() <= headerSize
+				&& memcmp(header + offset, (const Byte *) signature, signature.GetCapacity()) == 0) {
+			TRACE("Signature of the format '" << codecs.Formats[i].Name << "' matches")
+			formatIndices.Add(i);
+		}
+	}
+}
+
 /**
  * Return index of the archive type. Save to UString converted archive type name into 'formatNameString'.
  * @param env instance of JNIEnv
@@ -17,6 +17,17 @@ class CodecTools {
 	 */
 	int bzip2Index;
 
+	/**
+	 * Offset of the start signature for each archive format. -1, if the format has no signature
+	 * at a fixed position.
+	 */
+	CIntVector signatureOffsets;
+
+	/**
+	 * Count of bytes at the beginning of the archive needed to test all start signatures.
+	 */
+	size_t signatureHeaderSize;
+
 public:
 	CCodecs codecs;
 
@@ -37,6 +48,16 @@ public:
 	bool isBZip2Archive(int index) {
 		return bzip2Index == index;
 	}
+
+	size_t getSignatureHeaderSize() {
+		return signatureHeaderSize;
+	}
+
+	/*
+	 * Find archive formats with the start signature matching the 'header' of the archive.
+	 * The indices of the formats are added to 'formatIndices'.
+	 */
+	void findFormatsBySignature(const Byte * header, size_t headerSize, CIntVector & formatIndices);
 };
 
 extern CodecTools codecTools;
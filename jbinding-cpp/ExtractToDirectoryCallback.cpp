@@ -0,0 +1,343 @@
+#include "SevenZipJBinding.h"
+
+#include "Windows/FileDir.h"
+#include "Windows/FileName.h"
+#include "Windows/PropVariant.h"
+#include "Common/StringConvert.h"
+
+#ifdef ENV_HAVE_LSTAT
+#include <sys/stat.h>
+#endif
+
+#include "JNITools.h"
+#include "ExtractToDirectoryCallback.h"
+#include "CPPToJava/CPPToJavaCryptoGetTextPassword.h"
+
+static const wchar_t * EMPTY_FILE_ALIAS = L"[Content]";
+
+/*
+ * Converts path of an archive item into a relative path on the disk. Empty and '.' path
+ * components get removed, so absolute paths become relative. Returns false, if the path
+ * contains '..' components and would point outside of the target directory.
+ */
+static bool GetRelativeItemPath(const UString & itemPath, UString & relativePath) {
+    relativePath.Empty();
+
+    int start = 0;
+    while (start <= itemPath.Length()) {
+        int end = start;
+        while (end < itemPath.Length() && itemPath[end] != WCHAR_PATH_SEPARATOR && itemPath[end] != L'/') {
+            end++;
+        }
+        UString component = itemPath.Mid(start, end - start);
+        start = end + 1;
+
+        if (component.IsEmpty() || component == L".") {
+            continue;
+        }
+        if (component == L"..") {
+            return false;
+        }
+        if (!relativePath.IsEmpty()) {
+            relativePath += WCHAR_PATH_SEPARATOR;
+        }
+        relativePath += component;
+    }
+    return true;
+}
+
+/*
+ * Returns true, if the item path (relative to the target directory) or one of its parent
+ * directories below the target directory exists as a symbolic link. Creating directories or
+ * writing files through such a link could put the extracted data outside of the target directory.
+ */
+static bool ContainsSymbolicLink(const UString & targetDirectory, const UString & relativePath) {
+#ifdef ENV_HAVE_LSTAT
+    int end = 0;
+    while (end < relativePath.Length()) {
+        end = relativePath.Find(WCHAR_PATH_SEPARATOR, end + 1);
+        if (end < 0) {
+            end = relativePath.Length();
+        }
+        AString path = UnicodeStringToMultiByte(targetDirectory + relativePath.Left(end), CP_ACP);
+        struct stat statInfo;
+        if (lstat((const char *) path, &statInfo)) {
+            // Doesn't exist yet, so the rest of the path doesn't exist either
+            return false;
+        }
+        if (S_ISLNK(statInfo.st_mode)) {
+            return true;
+        }
+    }
+#endif
+    return false;
+}
+
+const char * ExtractToDirectoryCallback::getOperationResultName(Int32 operationResult) {
+    switch (operationResult) {
+    case NArchive::NExtract::NOperationResult::kOK:
+        return "OK";
+    case NArchive::NExtract::NOperationResult::kUnSupportedMethod:
+        return "UNSUPPORTEDMETHOD";
+    case NArchive::NExtract::NOperationResult::kDataError:
+        return "DATAERROR";
+    case NArchive::NExtract::NOperationResult::kCRCError:
+        return "CRCERROR";
+    }
+    return "UNKNOWN_OPERATION_RESULT";
+}
+
+ExtractToDirectoryCallback::ExtractToDirectoryCallback(JBindingSession & jbindingSession, JNIEnv * initEnv,
+                                                       IInArchive * archive, const UString & targetDirectory,
+                                                       jobject progress) :
+    _jbindingSession(jbindingSession), _archive(archive), _targetDirectory(targetDirectory), _progress(NULL),
+            _iProgress(NULL), _cryptoGetTextPasswordImpl(NULL), _total(0), _nextProgressUpdate(0),
+            _outFileStreamSpec(NULL), _currentIndex(0), _currentMTimeDefined(false), _currentAttribDefined(false),
+            _currentAttrib(0), _errorCount(0), _firstErrorIndex(0),
+            _firstErrorOperationResult(NArchive::NExtract::NOperationResult::kOK) {
+    TRACE_OBJECT_CREATION("ExtractToDirectoryCallback")
+
+    NWindows::NFile::NName::NormalizeDirPathPrefix(_targetDirectory);
+
+    if (!progress) {
+        return;
+    }
+
+    _progress = initEnv->NewGlobalRef(progress);
+    _iProgress = jni::IProgress::_getInstanceFromObject(initEnv, progress);
+
+    jclass cryptoGetTextPasswordClass = initEnv->FindClass(CRYPTOGETTEXTPASSWORD_CLASS);
+    FATALIF(cryptoGetTextPasswordClass == NULL, "Can't find class " CRYPTOGETTEXTPASSWORD_CLASS);
+
+    if (initEnv->IsInstanceOf(progress, cryptoGetTextPasswordClass)) {
+        CMyComPtr<ICryptoGetTextPassword> cryptoGetTextPasswordComPtr = new CPPToJavaCryptoGetTextPassword(
+                _jbindingSession, initEnv, progress);
+        _cryptoGetTextPasswordImpl = cryptoGetTextPasswordComPtr.Detach();
+    }
+    initEnv->DeleteLocalRef(cryptoGetTextPasswordClass);
+}
+
+ExtractToDirectoryCallback::~ExtractToDirectoryCallback() {
+    TRACE_OBJECT_CALL("~ExtractToDirectoryCallback");
+
+    if (_cryptoGetTextPasswordImpl) {
+        _cryptoGetTextPasswordImpl->Release();
+    }
+
+    if (_progress) {
+        JNIEnvInstance jniEnvInstance(_jbindingSession);
+        jniEnvInstance->DeleteGlobalRef(_progress);
+    }
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::QueryInterface(REFGUID refguid, void ** p) {
+    TRACE_OBJECT_CALL("QueryInterface");
+
+    if (refguid == IID_ICryptoGetTextPassword && _cryptoGetTextPasswordImpl) {
+        *p = (void *) (ICryptoGetTextPassword *) this;
+        AddRef();
+        return S_OK;
+    }
+
+    if (refguid == IID_IUnknown || refguid == IID_IArchiveExtractCallback) {
+        *p = (void *) (IArchiveExtractCallback *) this;
+        AddRef();
+        return S_OK;
+    }
+
+    return E_NOINTERFACE;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::SetTotal(UInt64 total) {
+    TRACE_OBJECT_CALL("SetTotal");
+
+    _total = total;
+    _nextProgressUpdate = 0;
+
+    if (!_progress) {
+        return S_OK;
+    }
+
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_PROGRESS);
+
+    _iProgress->setTotal(jniEnvInstance, _progress, (jlong) total);
+
+    return jniEnvInstance.exceptionCheck() ? S_FALSE : S_OK;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::SetCompleted(const UInt64 * completeValue) {
+    TRACE_OBJECT_CALL("SetCompleted");
+
+    if (!_progress || !completeValue) {
+        return S_OK;
+    }
+
+    // Skip updates between two progress steps, but always pass the final one
+    if (*completeValue < _nextProgressUpdate && *completeValue < _total) {
+        return S_OK;
+    }
+
+    UInt64 step = _total / EXTRACT_TO_DIRECTORY_PROGRESS_STEPS;
+    _nextProgressUpdate = *completeValue + (step ? step : 1);
+
+    JNIEnvInstance jniEnvInstance(_jbindingSession, UPCALL_PROGRESS);
+
+    _iProgress->setCompleted(jniEnvInstance, _progress, (jlong) (*completeValue));
+
+    return jniEnvInstance.exceptionCheck() ? S_FALSE : S_OK;
+}
+
+HRESULT ExtractToDirectoryCallback::reportItemError(UInt32 index, const char * message, const UString & path) {
+    JNIEnvInstance jniEnvInstance(_jbindingSession);
+    jniEnvInstance.reportError("%s (item index: %u, path: '%S')", message, index, (const wchar_t *) path);
+    return E_ABORT;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::GetStream(UInt32 index, ISequentialOutStream **outStream,
+                                                  Int32 askExtractMode) {
+    TRACE_OBJECT_CALL("GetStream");
+
+    *outStream = NULL;
+    _outFileStream.Release();
+    _outFileStreamSpec = NULL;
+    _currentIndex = index;
+    _currentFilePath.Empty();
+    _currentMTimeDefined = false;
+    _currentAttribDefined = false;
+
+    if (askExtractMode != NArchive::NExtract::NAskMode::kExtract) {
+        return S_OK;
+    }
+
+    UString itemPath;
+    {
+        NWindows::NCOM::CPropVariant prop;
+        RINOK(_archive->GetProperty(index, kpidPath, &prop));
+        if (prop.vt == VT_BSTR) {
+            itemPath = prop.bstrVal;
+        } else if (prop.vt != VT_EMPTY) {
+            return E_FAIL;
+        }
+    }
+
+    UString relativePath;
+    if (!GetRelativeItemPath(itemPath, relativePath)) {
+        return reportItemError(index, "Archive item path points outside of the target directory", itemPath);
+    }
+    if (relativePath.IsEmpty()) {
+        relativePath = EMPTY_FILE_ALIAS;
+    }
+
+    bool isDir = false;
+    {
+        NWindows::NCOM::CPropVariant prop;
+        RINOK(_archive->GetProperty(index, kpidIsDir, &prop));
+        if (prop.vt == VT_BOOL) {
+            isDir = VARIANT_BOOLToBool(prop.boolVal);
+        } else if (prop.vt != VT_EMPTY) {
+            return E_FAIL;
+        }
+    }
+
+    {
+        NWindows::NCOM::CPropVariant prop;
+        RINOK(_archive->GetProperty(index, kpidAttrib, &prop));
+        if (prop.vt == VT_UI4) {
+            _currentAttrib = prop.ulVal;
+            _currentAttribDefined = true;
+        }
+#ifdef ENV_HAVE_LSTAT
+        // MySetFileAttributes() converts files with the unix mode S_IFLNK into symbolic links.
+        // Drop the unix mode of such items, so they get extracted as regular files.
+        if ((_currentAttrib & FILE_ATTRIBUTE_UNIX_EXTENSION) && S_ISLNK(_currentAttrib >> 16)) {
+            _currentAttrib &= 0x7FFF;
+        }
+#endif
+    }
+
+    {
+        NWindows::NCOM::CPropVariant prop;
+        RINOK(_archive->GetProperty(index, kpidMTime, &prop));
+        if (prop.vt == VT_FILETIME) {
+            _currentMTime = prop.filetime;
+            _currentMTimeDefined = true;
+        }
+    }
+
+    if (ContainsSymbolicLink(_targetDirectory, relativePath)) {
+        return reportItemError(index, "Archive item path contains a symbolic link", itemPath);
+    }
+
+    _currentFilePath = _targetDirectory + relativePath;
+
+    if (isDir) {
+        if (!NWindows::NFile::NDirectory::CreateComplexDirectory(_currentFilePath)) {
+            return reportItemError(index, "Can't create directory", _currentFilePath);
+        }
+        return S_OK;
+    }
+
+    int separatorPos = _currentFilePath.ReverseFind(WCHAR_PATH_SEPARATOR);
+    if (separatorPos > 0) {
+        UString parentDirectory = _currentFilePath.Left(separatorPos);
+        if (!NWindows::NFile::NDirectory::CreateComplexDirectory(parentDirectory)) {
+            return reportItemError(index, "Can't create directory", parentDirectory);
+        }
+    }
+
+    _outFileStreamSpec = new COutFileStream;
+    CMyComPtr<ISequentialOutStream> outFileStream(_outFileStreamSpec);
+    if (!_outFileStreamSpec->Open(_currentFilePath, CREATE_ALWAYS)) {
+        _outFileStreamSpec = NULL;
+        return reportItemError(index, "Can't open output file", _currentFilePath);
+    }
+    _outFileStream = outFileStream;
+    *outStream = outFileStream.Detach();
+
+    return S_OK;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::PrepareOperation(Int32 askExtractMode) {
+    TRACE_OBJECT_CALL("PrepareOperation");
+
+    return S_OK;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::SetOperationResult(Int32 resultEOperationResult) {
+    TRACE_OBJECT_CALL("SetOperationResult");
+
+    if (resultEOperationResult != NArchive::NExtract::NOperationResult::kOK) {
+        if (!_errorCount) {
+            _firstErrorIndex = _currentIndex;
+            _firstErrorOperationResult = resultEOperationResult;
+        }
+        _errorCount++;
+    }
+
+    if (_outFileStream != NULL) {
+        if (_currentMTimeDefined) {
+            _outFileStreamSpec->SetMTime(&_currentMTime);
+        }
+        HRESULT result = _outFileStreamSpec->Close();
+        _outFileStream.Release();
+        _outFileStreamSpec = NULL;
+        if (result != S_OK) {
+            return reportItemError(_currentIndex, "Error closing output file", _currentFilePath);
+        }
+        if (_currentAttribDefined) {
+            NWindows::NFile::NDirectory::MySetFileAttributes(_currentFilePath, _currentAttrib);
+        }
+    }
+
+    return S_OK;
+}
+
+STDMETHODIMP ExtractToDirectoryCallback::CryptoGetTextPassword(BSTR *password) {
+    TRACE_OBJECT_CALL("CryptoGetTextPassword");
+
+    if (_cryptoGetTextPasswordImpl) {
+        return _cryptoGetTextPasswordImpl->CryptoGetTextPassword(password);
+    }
+
+    return E_NOINTERFACE;
+}
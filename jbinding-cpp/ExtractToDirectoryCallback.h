@@ -0,0 +1,103 @@
+#ifndef EXTRACTTODIRECTORYCALLBACK_H_
+#define EXTRACTTODIRECTORYCALLBACK_H_
+
+#include "SevenZipJBinding.h"
+
+#include "7zip/Common/FileStreams.h"
+
+#include "JBindingTools.h"
+#include "JavaStatInfos/JavaPackageSevenZip.h"
+
+/*
+ * Count of progress updates passed to the java IProgress implementation during an extraction.
+ */
+#define EXTRACT_TO_DIRECTORY_PROGRESS_STEPS 100
+
+/*
+ * Native implementation of the IArchiveExtractCallback writing extracted items directly
+ * into the target directory. The only upcalls into Java are coarse-grained progress updates
+ * (see EXTRACT_TO_DIRECTORY_PROGRESS_STEPS) and the password request, if the progress object
+ * implements ICryptoGetTextPassword.
+ */
+class ExtractToDirectoryCallback : public IArchiveExtractCallback,
+        public ICryptoGetTextPassword,
+        public CMyUnknownImp,
+        public Object {
+private:
+    JBindingSession & _jbindingSession;
+    CMyComPtr<IInArchive> _archive;
+    UString _targetDirectory;
+
+    jobject _progress;
+    jni::IProgress * _iProgress;
+    ICryptoGetTextPassword * _cryptoGetTextPasswordImpl;
+
+    UInt64 _total;
+    UInt64 _nextProgressUpdate;
+
+    COutFileStream * _outFileStreamSpec;
+    CMyComPtr<ISequentialOutStream> _outFileStream;
+    UInt32 _currentIndex;
+    UString _currentFilePath;
+    bool _currentMTimeDefined;
+    FILETIME _currentMTime;
+    bool _currentAttribDefined;
+    UInt32 _currentAttrib;
+
+    UInt32 _errorCount;
+    UInt32 _firstErrorIndex;
+    Int32 _firstErrorOperationResult;
+
+    HRESULT reportItemError(UInt32 index, const char * message, const UString & path);
+
+public:
+    ExtractToDirectoryCallback(JBindingSession & jbindingSession, JNIEnv * initEnv, IInArchive * archive,
+                               const UString & targetDirectory, jobject progress);
+
+    virtual ~ExtractToDirectoryCallback();
+
+    STDMETHOD(QueryInterface)(REFGUID refguid, void ** p);
+
+    STDMETHOD_(ULONG, AddRef)() {
+        return ++__m_RefCount;
+    }
+
+    STDMETHOD_(ULONG, Release)() {
+        if (--__m_RefCount != 0) {
+            return __m_RefCount;
+        }
+        delete this;
+        return 0;
+    }
+
+    STDMETHOD(SetTotal)(UInt64 total);
+    STDMETHOD(SetCompleted)(const UInt64 *completeValue);
+
+    STDMETHOD(GetStream)(UInt32 index, ISequentialOutStream **outStream, Int32 askExtractMode);
+    STDMETHOD(PrepareOperation)(Int32 askExtractMode);
+    STDMETHOD(SetOperationResult)(Int32 resultEOperationResult);
+
+    STDMETHOD(CryptoGetTextPassword)(BSTR *password);
+
+    /*
+     * Count of items extracted with an operation result other than kOK
+     */
+    UInt32 getErrorCount() {
+        return _errorCount;
+    }
+
+    UInt32 getFirstErrorIndex() {
+        return _firstErrorIndex;
+    }
+
+    Int32 getFirstErrorOperationResult() {
+        return _firstErrorOperationResult;
+    }
+
+    /*
+     * Returns name of the corresponding ExtractOperationResult java enum constant
+     */
+    static const char * getOperationResultName(Int32 operationResult);
+};
+
+#endif /*EXTRACTTODIRECTORYCALLBACK_H_*/
@@ -17,6 +17,11 @@ JT_BEGIN_CLASS("net/sf/sevenzipjbinding", SevenZipException)
 /*    */JT_CLASS_FINAL_METHOD(Void, setCauseLastPotentialThrown, JT_THROWABLE(causeLastPotentialThrown,_))
 JT_END_CLASS
 
+JT_BEGIN_CLASS("net/sf/sevenzipjbinding", ArchiveStatistics)
+/*    */JT_CLASS_CONSTRUCTOR(JT_PARAM(Object, "[J", upcallCounts, JT_PARAM(Object, "[J", upcallTimes,
+                JT_LONG(nativeTime, JT_LONG(bytesRead, JT_LONG(bytesWritten, JT_LONG(attachedThreadCount, _)))))))
+JT_END_CLASS
+
 static const char * outOfMemory = "Out of memory";
 
 static struct {
@@ -46,13 +51,32 @@ static const char * GetSevenZipErrorMessage(HRESULT hresult) {
 }
 
 JavaVM * JBindingSession::_vm = NULL;
+PlatformThreadLocalKey JBindingSession::_threadLocalKey;
+bool JBindingSession::_threadLocalKeyCreated = false;
+bool JBindingSession::_threadLocalKeyDeleting = false;
+unsigned int JBindingSession::_lastId = 0;
+PlatformCriticalSection JBindingSession::_initCriticalSection;
+
+PLATFORM_THREAD_EXIT_CALLBACK(JBindingSession::threadExit, threadLocalData) {
+    ThreadLocalData * data = (ThreadLocalData *) threadLocalData;
+    // Deleting the key (FlsFree() on Windows) calls back for the values of the other threads,
+    // that can't be detached from here.
+    if (data->_attachedEnv && !_threadLocalKeyDeleting) {
+        TRACE("Detaching exiting thread from VM.")
+#ifdef USE_MY_ASSERTS
+        _attachedThreadCountCriticalSection.Enter();
+        _attachedThreadCount--;
+        _attachedThreadCountCriticalSection.Leave();
+#endif
+        _vm->DetachCurrentThread();
+    }
+    delete data;
+}
 
-void JBindingSession::handleThrownException(jthrowable exceptionLocalRef) {
-    ThreadId threadId = PlatformGetCurrentThreadId();
+void JBindingSession::handleThrownException(JNIEnv * env, jthrowable exceptionLocalRef) {
+    MY_ASSERT(!getThreadContext(getThreadLocalData())._javaNativeContext.size())
 
     _threadContextMapCriticalSection.Enter();
-    ThreadContext & threadContext = _threadContextMap[threadId];
-    MY_ASSERT(!threadContext._javaNativeContext.size())
 
     // All active JNINativeCallContext objects should be notified
     ThreadContextMap::iterator threadContextIterator = _threadContextMap.begin();
@@ -60,7 +84,7 @@ void JBindingSession::handleThrownException(jthrowable exceptionLocalRef) {
         std::list<JNINativeCallContext *> & jniNativeCallContextList =
                 threadContextIterator->second._javaNativeContext;
         if (jniNativeCallContextList.size()) {
-            (*jniNativeCallContextList.begin())->exceptionThrownInOtherThread(threadContext._env,
+            (*jniNativeCallContextList.begin())->exceptionThrownInOtherThread(env,
                     exceptionLocalRef);
         }
         threadContextIterator++;
@@ -69,11 +93,9 @@ void JBindingSession::handleThrownException(jthrowable exceptionLocalRef) {
 }
 
 void JBindingSession::vReportError(const int hresult, const char * fmt, va_list args) {
-    ThreadId threadId = PlatformGetCurrentThreadId();
+    MY_ASSERT(!getThreadContext(getThreadLocalData())._javaNativeContext.size())
 
     _threadContextMapCriticalSection.Enter();
-    ThreadContext & threadContext = _threadContextMap[threadId];
-    MY_ASSERT(!threadContext._javaNativeContext.size())
 
     // All active JNINativeCallContext objects should be notified
     ThreadContextMap::iterator threadContextIterator = _threadContextMap.begin();
@@ -119,8 +141,39 @@ bool JNINativeCallContext::willExceptionBeThrown() {
             || _firstThrownExceptionInOtherThread || _lastThrownExceptionInOtherThread; // TODO Test it
 }
 
+jobject JBindingStatistics::newArchiveStatistics(JNIEnv * env) {
+    jlong upcallCounts[UPCALL_TYPE_COUNT];
+    jlong upcallTimes[UPCALL_TYPE_COUNT];
+    for (int i = 0; i < UPCALL_TYPE_COUNT; i++) {
+        upcallCounts[i] = (jlong) getUpcallCount((UpcallType) i);
+        upcallTimes[i] = (jlong) getUpcallTime((UpcallType) i);
+    }
+
+    jlongArray upcallCountArray = env->NewLongArray(UPCALL_TYPE_COUNT);
+    if (!upcallCountArray) {
+        return NULL;
+    }
+    jlongArray upcallTimeArray = env->NewLongArray(UPCALL_TYPE_COUNT);
+    if (!upcallTimeArray) {
+        env->DeleteLocalRef(upcallCountArray);
+        return NULL;
+    }
+    env->SetLongArrayRegion(upcallCountArray, 0, UPCALL_TYPE_COUNT, upcallCounts);
+    env->SetLongArrayRegion(upcallTimeArray, 0, UPCALL_TYPE_COUNT, upcallTimes);
+
+    jobject archiveStatistics = jni::ArchiveStatistics::newInstance(env, upcallCountArray, upcallTimeArray,
+            (jlong) getNativeTime(), (jlong) getBytesRead(), (jlong) getBytesWritten(),
+            (jlong) getAttachedThreadCount());
+    jni::prepareExceptionCheck(env);
+
+    env->DeleteLocalRef(upcallCountArray);
+    env->DeleteLocalRef(upcallTimeArray);
+    return archiveStatistics;
+}
+
 JNINativeCallContext::~JNINativeCallContext() {
     _jbindingSession.unregisterNativeContext(*this);
+    _jbindingSession._statistics.addNativeTime(PlatformGetNanoTime() - _startTime - _upcallTime);
 
     //jthrowable firstThrownException = NULL;
     //jthrowable lastThrownException = NULL;
@@ -197,6 +250,15 @@ JNINativeCallContext::~JNINativeCallContext() {
     // - set lastThrownException
 }
 
+/*
+ * The library may get unloaded together with its class loader. The thread local storage key
+ * should be deleted, so that the exiting threads don't call the thread exit callback
+ * located in the unloaded code.
+ */
+extern "C" JNIEXPORT void JNICALL JNI_OnUnload(JavaVM * vm, void * reserved) {
+    JBindingSession::deleteThreadLocalKey();
+}
+
 #ifdef USE_MY_ASSERTS
 int JBindingSession::_attachedThreadCount = 0;
 PlatformCriticalSection JBindingSession::_attachedThreadCountCriticalSection;
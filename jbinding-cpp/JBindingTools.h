@@ -8,11 +8,13 @@
 #ifndef JBINDINGTOOLS_H_
 #define JBINDINGTOOLS_H_
 
+#include <list>
 #include "Debug.h"
 #include "BaseSystem.h"
 #include "JObjectList.h"
 
 #define NO_HRESULT -1
+#define CALLBACK_LOCAL_FRAME_CAPACITY 16
 
 class JNINativeCallContext;
 class JBindingSession;
@@ -34,19 +36,119 @@ struct CMyComPtrWrapper {
 
 class ThreadContext {
 public:
-    JNIEnv * _env;
     int _attachedThreadCount;
-    bool _wasAttached;
     std::list<JNINativeCallContext*> _javaNativeContext;
 
     ThreadContext() :
-        _attachedThreadCount(0), _env(NULL), _wasAttached(false) {
+        _attachedThreadCount(0) {
+    }
+};
+
+/*
+ * Types of the upcalls (calls of the java implementations from the native code) counted
+ * by JBindingStatistics. Keep in sync with net.sf.sevenzipjbinding.ArchiveStatistics.UpcallType.
+ */
+enum UpcallType {
+    UPCALL_NONE = -1, // Not an upcall (release of references, error reporting). Not counted.
+    UPCALL_IN_STREAM_READ = 0,
+    UPCALL_IN_STREAM_SEEK,
+    UPCALL_OUT_STREAM_WRITE,
+    UPCALL_OUT_STREAM_SEEK, // ISeekableStream.seek() and IOutStream.setSize()
+    UPCALL_OPEN_CALLBACK, // IArchiveOpenCallback and IArchiveOpenVolumeCallback
+    UPCALL_EXTRACT_CALLBACK,
+    UPCALL_UPDATE_CALLBACK,
+    UPCALL_PROGRESS,
+    UPCALL_CRYPTO_GET_TEXT_PASSWORD,
+    UPCALL_TYPE_COUNT
+};
+
+/*
+ * Runtime counters of a JBindingSession. The counters get updated by all threads of the session
+ * without locking, so a snapshot taken during an operation may be slightly inconsistent.
+ */
+class JBindingStatistics {
+    volatile Int64 _upcallCount[UPCALL_TYPE_COUNT];
+    volatile Int64 _upcallTime[UPCALL_TYPE_COUNT];
+    volatile Int64 _nativeTime;
+    volatile Int64 _bytesRead;
+    volatile Int64 _bytesWritten;
+    volatile Int64 _attachedThreadCount;
+
+    JBindingStatistics(JBindingStatistics const &);
+public:
+    JBindingStatistics() :
+        _nativeTime(0), _bytesRead(0), _bytesWritten(0), _attachedThreadCount(0) {
+        for (int i = 0; i < UPCALL_TYPE_COUNT; i++) {
+            _upcallCount[i] = 0;
+            _upcallTime[i] = 0;
+        }
+    }
+
+    void upcall(UpcallType upcallType, Int64 time) {
+        PlatformAtomicAdd(&_upcallCount[upcallType], 1);
+        PlatformAtomicAdd(&_upcallTime[upcallType], time);
+    }
+    void addNativeTime(Int64 time) {
+        PlatformAtomicAdd(&_nativeTime, time);
+    }
+    void addBytesRead(UInt32 size) {
+        PlatformAtomicAdd(&_bytesRead, size);
+    }
+    void addBytesWritten(UInt32 size) {
+        PlatformAtomicAdd(&_bytesWritten, size);
+    }
+    void threadAttached() {
+        PlatformAtomicAdd(&_attachedThreadCount, 1);
+    }
+
+    /*
+     * Creates new instance of net.sf.sevenzipjbinding.ArchiveStatistics with the current values
+     * of the counters. Returns NULL, if an exception occurs.
+     */
+    jobject newArchiveStatistics(JNIEnv * env);
+
+    Int64 getUpcallCount(UpcallType upcallType) {
+        return PlatformAtomicGet(&_upcallCount[upcallType]);
+    }
+    Int64 getUpcallTime(UpcallType upcallType) {
+        return PlatformAtomicGet(&_upcallTime[upcallType]);
+    }
+    Int64 getNativeTime() {
+        return PlatformAtomicGet(&_nativeTime);
+    }
+    Int64 getBytesRead() {
+        return PlatformAtomicGet(&_bytesRead);
+    }
+    Int64 getBytesWritten() {
+        return PlatformAtomicGet(&_bytesWritten);
+    }
+    Int64 getAttachedThreadCount() {
+        return PlatformAtomicGet(&_attachedThreadCount);
+    }
+};
+
+/*
+ * Thread local data of each thread using 7-Zip-JBinding. Holds the JNIEnv of a native thread
+ * attached to the VM and caches the ThreadContext of the last used JBindingSession.
+ */
+struct ThreadLocalData {
+    JNIEnv * _attachedEnv;
+    JBindingSession * _jbindingSession;
+    unsigned int _jbindingSessionId;
+    ThreadContext * _threadContext;
+
+    ThreadLocalData() :
+        _attachedEnv(NULL), _jbindingSession(NULL), _jbindingSessionId(0), _threadContext(NULL) {
     }
 };
 
 /*
  * Represents a single session of 7-Zip-JBinding.
  * For example OpenArchive->QueryArchiveItems->ExtractItems->CloseArchive.
+ *
+ * The ThreadContext of the current thread is cached in the thread local storage, so callbacks
+ * don't need to lock the thread context map. Native threads (7-Zip worker threads) get attached
+ * to the VM as daemon threads on the first callback and stay attached until they exit.
  */
 class JBindingSession {
     friend class JNINativeCallContext;
@@ -57,7 +159,14 @@ class JBindingSession {
     std::list<JNINativeCallContext> _jniNativeCallContextList;
     ThreadContextMap _threadContextMap;
     PlatformCriticalSection _threadContextMapCriticalSection;
+    JBindingStatistics _statistics;
+    unsigned int _id;
     static JavaVM * _vm;
+    static PlatformThreadLocalKey _threadLocalKey;
+    static bool _threadLocalKeyCreated;
+    static bool _threadLocalKeyDeleting;
+    static unsigned int _lastId;
+    static PlatformCriticalSection _initCriticalSection;
 
 #ifdef USE_MY_ASSERTS
 public:
@@ -66,31 +175,80 @@ public:
 private:
 #endif
 
-    void registerNativeContext(JNIEnv * initEnv, JNINativeCallContext * jniNativeCallContext) {
-        ThreadId threadId = PlatformGetCurrentThreadId();
+    static PLATFORM_THREAD_EXIT_CALLBACK(threadExit, threadLocalData);
+
+    static ThreadLocalData * getThreadLocalData() {
+        ThreadLocalData * threadLocalData = (ThreadLocalData *) PlatformThreadLocalGet(_threadLocalKey);
+        if (!threadLocalData) {
+            threadLocalData = new ThreadLocalData();
+            PlatformThreadLocalSet(_threadLocalKey, threadLocalData);
+        }
+        return threadLocalData;
+    }
+
+    ThreadContext & getThreadContext(ThreadLocalData * threadLocalData) {
+        if (threadLocalData->_jbindingSession == this && threadLocalData->_jbindingSessionId == _id) {
+            return *threadLocalData->_threadContext;
+        }
         _threadContextMapCriticalSection.Enter();
-        ThreadContext & threadContext = _threadContextMap[threadId];
+        ThreadContext & threadContext = _threadContextMap[PlatformGetCurrentThreadId()];
         _threadContextMapCriticalSection.Leave();
+        threadLocalData->_jbindingSession = this;
+        threadLocalData->_jbindingSessionId = _id;
+        threadLocalData->_threadContext = &threadContext;
+        return threadContext;
+    }
+
+    JNIEnv * getAttachedEnv(ThreadLocalData * threadLocalData) {
+        if (threadLocalData->_attachedEnv) {
+            return threadLocalData->_attachedEnv;
+        }
+        JNIEnv * env;
+        if (_vm->GetEnv((void**) &env, JNI_VERSION_1_4) == JNI_OK) {
+            // Java thread calling another session
+            return env;
+        }
+
+        TRACE("Attaching current thread to VM.")
+#ifdef USE_MY_ASSERTS
+        _attachedThreadCountCriticalSection.Enter();
+        _attachedThreadCount++;
+        _attachedThreadCountCriticalSection.Leave();
+#endif
+        jint result;
+        if ((result = _vm->AttachCurrentThreadAsDaemon((void**) &env, NULL)) || env == NULL) {
+            TRACE("New thread couldn't be attached: " << result)
+            fatal("Can't attach current thread (id: %i) to the VM", PlatformGetCurrentThreadId());
+        }
+        _statistics.threadAttached();
+        threadLocalData->_attachedEnv = env;
+        TRACE("Thread attached. New env=" << (void *)env);
+        return env;
+    }
+
+    void registerNativeContext(JNIEnv * initEnv, JNINativeCallContext * jniNativeCallContext) {
+        ThreadContext & threadContext = getThreadContext(getThreadLocalData());
         TRACE("JNINativeCallContext=" << jniNativeCallContext)
         threadContext._javaNativeContext.push_front(jniNativeCallContext);
     }
 
     void unregisterNativeContext(JNINativeCallContext & javaNativeContext) {
-        ThreadId threadId = PlatformGetCurrentThreadId();
+        ThreadLocalData * threadLocalData = getThreadLocalData();
+        ThreadContext & threadContext = getThreadContext(threadLocalData);
 
         _threadContextMapCriticalSection.Enter();
-        ThreadContext & threadContext = _threadContextMap[threadId];
         MY_ASSERT(*(threadContext._javaNativeContext.begin()) == &javaNativeContext);
 
         threadContext._javaNativeContext.pop_front();
         if (!threadContext._javaNativeContext.size() && !threadContext._attachedThreadCount) {
-            MY_ASSERT(!threadContext._wasAttached);
-            _threadContextMap.erase(threadId);
+            _threadContextMap.erase(PlatformGetCurrentThreadId());
+            threadLocalData->_jbindingSession = NULL;
+            threadLocalData->_threadContext = NULL;
         }
         _threadContextMapCriticalSection.Leave();
     }
 
-    void handleThrownException(jthrowable exceptionLocalRef);
+    void handleThrownException(JNIEnv * env, jthrowable exceptionLocalRef);
 
     void reportError(const char * fmt, ...) {
         va_list args;
@@ -102,64 +260,51 @@ private:
     void vReportError(const int hresult, const char * fmt, va_list args);
 
     JNIEnv * beginCallback(JNINativeCallContext ** jniNativeCallContext) {
-        _threadContextMapCriticalSection.Enter();
-        ThreadContext & threadContext = _threadContextMap[PlatformGetCurrentThreadId()];
-        _threadContextMapCriticalSection.Leave();
-        if (!threadContext._javaNativeContext.size() && !threadContext._env) {
-            // Attach new thread
-            TRACE("Attaching current thread to VM.")
-#ifdef USE_MY_ASSERTS
-            _attachedThreadCountCriticalSection.Enter();
-            _attachedThreadCount++;
-            _attachedThreadCountCriticalSection.Leave();
-#endif
-            jint result;
-            if ((result = _vm->AttachCurrentThread((void**) &threadContext._env, NULL))
-                    || threadContext._env == NULL) {
-                TRACE("New thread couldn't be attached: " << result)
-                // throw SevenZipException("Can't attach current thread (id: %i) to the VM", currentThreadId);
-                // TODO Decide, what to do with it
-                fatal("Can't attach current thread (id: %i) to the VM",
-                        PlatformGetCurrentThreadId());
-            }
-            threadContext._wasAttached = true;
-            TRACE("Thread attached. New env=" << (void *)threadContext._env);
-        }
+        ThreadLocalData * threadLocalData = getThreadLocalData();
+        ThreadContext & threadContext = getThreadContext(threadLocalData);
+        threadContext._attachedThreadCount++;
         if (threadContext._javaNativeContext.size()) {
             *jniNativeCallContext = *threadContext._javaNativeContext.begin();
+            return NULL;
         }
-        threadContext._attachedThreadCount++;
-        if (threadContext._env) {
-            return threadContext._env;
-        }
-        MY_ASSERT(*jniNativeCallContext)
-        return NULL;
+        return getAttachedEnv(threadLocalData);
     }
 
     void endCallback() {
-        ThreadId threadId = PlatformGetCurrentThreadId();
+        ThreadContext & threadContext = getThreadContext(getThreadLocalData());
+        MY_ASSERT(threadContext._attachedThreadCount > 0);
+        threadContext._attachedThreadCount--;
+    }
 
-        _threadContextMapCriticalSection.Enter();
-        ThreadContext & threadContext = _threadContextMap[threadId];
-        if (!--threadContext._attachedThreadCount && threadContext._wasAttached) {
-            MY_ASSERT(threadContext._javaNativeContext.size() == 0);
-#ifdef USE_MY_ASSERTS
-            _attachedThreadCountCriticalSection.Enter();
-            _attachedThreadCount--;
-            _attachedThreadCountCriticalSection.Leave();
-#endif
-            _vm->DetachCurrentThread();
-            _threadContextMap.erase(threadId);
+public:
+    /*
+     * Deletes the thread local storage key. Called on unload of the library.
+     */
+    static void deleteThreadLocalKey() {
+        _initCriticalSection.Enter();
+        if (_threadLocalKeyCreated) {
+            _threadLocalKeyDeleting = true;
+            PlatformThreadLocalDelete(_threadLocalKey);
+            _threadLocalKeyCreated = false;
+            _threadLocalKeyDeleting = false;
         }
-        _threadContextMapCriticalSection.Leave();
+        _initCriticalSection.Leave();
     }
 
-public:
     JBindingSession(JNIEnv * initEnv) {
         if (!_vm && initEnv->GetJavaVM(&_vm)) {
             fatal("Can't get JavaVM from JNIEnv");
         }
         MY_ASSERT(_vm);
+        _initCriticalSection.Enter();
+        if (!_threadLocalKeyCreated) {
+            if (!PlatformThreadLocalCreate(&_threadLocalKey, threadExit)) {
+                fatal("Can't create thread local storage key");
+            }
+            _threadLocalKeyCreated = true;
+        }
+        _id = ++_lastId;
+        _initCriticalSection.Leave();
 #ifdef TRACE_OBJECTS_ON
         TraceJBindingSessionCreation();
 #endif
@@ -170,13 +315,17 @@ public:
         jthrowable exceptionLocalRef = env->ExceptionOccurred();
         if (exceptionLocalRef) {
             env->ExceptionClear();
-            handleThrownException(exceptionLocalRef);
+            handleThrownException(env, exceptionLocalRef);
             env->DeleteLocalRef(exceptionLocalRef);
             return true;
         }
         return false;
     }
 
+    JBindingStatistics & getStatistics() {
+        return _statistics;
+    }
+
     void addObject(IUnknown * object) {
         _objectList.push_back(CMyComPtrWrapper<IUnknown> (object));
     }
@@ -187,14 +336,15 @@ public:
 
     ~JBindingSession() {
         MY_ASSERT(_objectList.size() == 0);
-        //        ThreadContextMap::iterator i = _threadContextMap.begin();
-        //        while (i != _threadContextMap.end()) {
-        //            printf("Thread Id: %i, attached threads: %i, native contexts: %i\n", i->first,
-        //                    i->second._attachedThreadCount, i->second._javaNativeContext.size());
-        //            fflush(stdout);
-        //            i++;
-        //        }
-        MY_ASSERT(_threadContextMap.size() == 0);
+#ifdef USE_MY_ASSERTS
+        // Contexts of the native threads remain in the map till the end of the session
+        ThreadContextMap::iterator i = _threadContextMap.begin();
+        while (i != _threadContextMap.end()) {
+            MY_ASSERT(i->second._javaNativeContext.size() == 0);
+            MY_ASSERT(i->second._attachedThreadCount == 0);
+            i++;
+        }
+#endif
 #ifdef TRACE_OBJECTS_ON
         TraceJBindingSessionDestruction();
 #endif
@@ -214,6 +364,10 @@ class JNINativeCallContext {
     JNIEnv * _jniCallOriginalEnv;
     char * _errorMessage;
 
+    // Time spent in the upcalls made by the thread of the native call. Only accessed by this thread.
+    Int64 _startTime;
+    Int64 _upcallTime;
+
     JNINativeCallContext(JNINativeCallContext const &);
     void * operator new(size_t i);
 
@@ -254,7 +408,8 @@ public:
     JNINativeCallContext(JBindingSession & _jbindingSession, JNIEnv * initEnv) :
         _jbindingSession(_jbindingSession), _jniCallOriginalEnv(initEnv), _firstThrownException(
                 NULL), _lastThrownException(NULL), _firstThrownExceptionInOtherThread(NULL),
-                _lastThrownExceptionInOtherThread(NULL), _errorMessage(NULL) {
+                _lastThrownExceptionInOtherThread(NULL), _errorMessage(NULL), _startTime(
+                PlatformGetNanoTime()), _upcallTime(0) {
         _jbindingSession.registerNativeContext(initEnv, this);
     }
 
@@ -301,6 +456,9 @@ class JNIEnvInstance {
     JNINativeCallContext * _jniNativeCallContext;
     JNIEnv * _env;
     bool _isCallback;
+    bool _localFramePushed;
+    UpcallType _upcallType;
+    Int64 _upcallStartTime;
 
     void * operator new(size_t i);
 
@@ -312,24 +470,47 @@ class JNIEnvInstance {
             MY_ASSERT(_jniNativeCallContext);
             _env = _jniNativeCallContext->_jniCallOriginalEnv;
             MY_ASSERT(_env);
+        } else {
+            // The thread stays attached, so free local references of each callback explicitly
+            _localFramePushed = !_env->PushLocalFrame(CALLBACK_LOCAL_FRAME_CAPACITY);
         }
     }
 public:
     JNIEnvInstance(JBindingSession & jbindingSession, JNINativeCallContext & jniNativeCallContext,
                    JNIEnv * env) :
         _env(env), _jniNativeCallContext(&jniNativeCallContext), _jbindingSession(jbindingSession),
-                _isCallback(false) {
+                _isCallback(false), _localFramePushed(false), _upcallType(UPCALL_NONE), _upcallStartTime(0) {
         MY_ASSERT(env);
     }
     JNIEnvInstance(JBindingSession & jbindingSession) :
         _env(NULL), _jniNativeCallContext(NULL), _jbindingSession(jbindingSession), _isCallback(
-                true) {
+                true), _localFramePushed(false), _upcallType(UPCALL_NONE), _upcallStartTime(0) {
+        initCallback();
+    }
+    /*
+     * Callback counted and timed in the statistics of the session as an upcall of the 'upcallType'.
+     */
+    JNIEnvInstance(JBindingSession & jbindingSession, UpcallType upcallType) :
+        _env(NULL), _jniNativeCallContext(NULL), _jbindingSession(jbindingSession), _isCallback(
+                true), _localFramePushed(false), _upcallType(upcallType), _upcallStartTime(
+                PlatformGetNanoTime()) {
         initCallback();
     }
     ~JNIEnvInstance() {
         if (_isCallback) {
+            if (_localFramePushed) {
+                _env->PopLocalFrame(NULL);
+            }
             _jbindingSession.endCallback();
             MY_ASSERT(_env);
+            if (_upcallType != UPCALL_NONE) {
+                Int64 upcallTime = PlatformGetNanoTime() - _upcallStartTime;
+                _jbindingSession._statistics.upcall(_upcallType, upcallTime);
+                if (_jniNativeCallContext) {
+                    // Upcall made by the thread of the native call
+                    _jniNativeCallContext->_upcallTime += upcallTime;
+                }
+            }
         }
     }
 
@@ -8,45 +8,63 @@
 #ifndef JOBJECTLIST_H_
 #define JOBJECTLIST_H_
 
-#include <list>
 #include "jni.h"
 #include "BaseSystem.h"
 #include "Debug.h"
 
 
 /**
- * Object map
+ * Object map with lock free lookups. The items are kept in a single list (newest first) and
+ * get compared with IsSameObject(), that doesn't call any java code. The maps hold only a few
+ * items (the java classes implementing an interface), so the list stays short. Items are never
+ * removed. A new item gets published with a single atomic pointer store after it was completely
+ * initialized, so readers never need a lock. Writers should be serialized by the caller.
  */
 template<typename VALUE>
 class JObjectMap {
     struct Item {
         jobject jobj;
         VALUE value;
+        Item * next;
     };
-    std::list<Item> jobjectList;
-    typedef typename std::list<Item>::iterator iterator;
+    Item * volatile _first;
+    int _size;
 public:
+    JObjectMap() :
+        _first(NULL), _size(0) {
+    }
+
+    ~JObjectMap() {
+        Item * item = _first;
+        while (item) {
+            Item * next = item->next;
+            delete item;
+            item = next;
+        }
+    }
+
+    /**
+     * Add new item. Calls to this method should be serialized.
+     */
     void add(jobject const jobj, VALUE value) {
-        jobjectList.push_front(Item());
-        Item & item = *jobjectList.begin();
-        item.jobj = jobj;
-        item.value = value;
+        Item * item = new Item();
+        item->jobj = jobj;
+        item->value = value;
+        item->next = _first;
+        _size++;
+        PlatformAtomicSetPointer((void * volatile *) &_first, item);
     }
 
+    /**
+     * Lock free lookup. Can be called concurrently to add().
+     */
     VALUE * get(JNIEnv * env, jobject const jobj) {
-        iterator iter = jobjectList.begin();
-        for (; iter != jobjectList.end(); iter++) {
-            TRACE("MAP: Checking " << env << iter->jobj);
-            if (env->IsSameObject(iter->jobj, jobj)) {
+        Item * item = (Item *) PlatformAtomicGetPointer((void * volatile *) &_first);
+        for (; item; item = item->next) {
+            TRACE("MAP: Checking " << env << item->jobj);
+            if (env->IsSameObject(item->jobj, jobj)) {
                 TRACE("MAP: Found!")
-                if (jobjectList.begin() != iter) {
-                    TRACE("MAP: Move");
-                    // Move found class to the front
-                    jobjectList.splice(jobjectList.begin(), jobjectList, iter);
-                }
-                // Put element on top
-                VALUE * result = &(iter->value);
-                return result;
+                return &(item->value);
             }
         }
         TRACE("MAP: Not found");
@@ -54,7 +72,7 @@ public:
     }
 
     int size() {
-        return jobjectList.size();
+        return _size;
     }
 };
 
@@ -21,12 +21,21 @@
 #define JAVA_IIN_STREAM 								SEVEN_ZIP_PACKAGE "/IInStream"
 #define JAVA_IIN_STREAM_T 								JAVA_MAKE_SIGNATURE_TYPE(JAVA_IIN_STREAM)
 
+#define JAVA_IARCHIVE_OPEN_CALLBACK                     SEVEN_ZIP_PACKAGE "/IArchiveOpenCallback"
+#define JAVA_IARCHIVE_OPEN_CALLBACK_T                   JAVA_MAKE_SIGNATURE_TYPE(JAVA_IARCHIVE_OPEN_CALLBACK)
+
 #define JAVA_ISEQUENTIAL_IN_STREAM 						SEVEN_ZIP_PACKAGE "/ISequentialInStream"
 #define JAVA_ISEQUENTIAL_IN_STREAM_T 					JAVA_MAKE_SIGNATURE_TYPE(JAVA_ISEQUENTIAL_IN_STREAM)
 
+#define JAVA_IDIRECT_BUFFER_SEQUENTIAL_IN_STREAM        SEVEN_ZIP_PACKAGE "/IDirectBufferSequentialInStream"
+#define JAVA_IDIRECT_BUFFER_SEQUENTIAL_IN_STREAM_T      JAVA_MAKE_SIGNATURE_TYPE(JAVA_IDIRECT_BUFFER_SEQUENTIAL_IN_STREAM)
+
 #define JAVA_ISEQUENTIAL_OUT_STREAM 					SEVEN_ZIP_PACKAGE "/ISequentialOutStream"
 #define JAVA_ISEQUENTIAL_OUT_STREAM_T 					JAVA_MAKE_SIGNATURE_TYPE(JAVA_ISEQUENTIAL_OUT_STREAM)
 
+#define JAVA_IDIRECT_BUFFER_SEQUENTIAL_OUT_STREAM       SEVEN_ZIP_PACKAGE "/IDirectBufferSequentialOutStream"
+#define JAVA_IDIRECT_BUFFER_SEQUENTIAL_OUT_STREAM_T     JAVA_MAKE_SIGNATURE_TYPE(JAVA_IDIRECT_BUFFER_SEQUENTIAL_OUT_STREAM)
+
 #define JAVA_IOUT_ARCHIVE                               SEVEN_ZIP_PACKAGE "/IOutArchive"
 #define JAVA_IOUT_ARCHIVE_T                             JAVA_MAKE_SIGNATURE_TYPE(JAVA_IOUT_ARCHIVE)
 
@@ -56,6 +65,12 @@ JT_BEGIN_INTERFACE(ISequentialInStream)
 JT_END_CLASS
 
 
+JT_BEGIN_INTERFACE(IDirectBufferSequentialInStream)
+	// public int read(ByteBuffer buffer)
+	JT_INTERFACE_METHOD(Int, read, JT_PARAM(Object, JAVA_BYTE_BUFFER_T, buffer, _))
+JT_END_INTERFACE
+
+
 JT_BEGIN_INTERFACE(IArchiveOpenCallback)
 	// public void setTotal(Long files, Long bytes)
 	JT_INTERFACE_METHOD(Void, setTotal, JT_LONG_OBJECT(files, JT_LONG_OBJECT(bytes, _)))
@@ -107,6 +122,11 @@ JT_BEGIN_INTERFACE(ISequentialOutStream)
 	JT_INTERFACE_METHOD(Int, write, JT_BYTE_ARRAY(data, _))
 JT_END_INTERFACE
 
+JT_BEGIN_INTERFACE(IDirectBufferSequentialOutStream)
+	// public int write(ByteBuffer data)
+	JT_INTERFACE_METHOD(Int, write, JT_PARAM(Object, JAVA_BYTE_BUFFER_T, data, _))
+JT_END_INTERFACE
+
 
 JT_BEGIN_INTERFACE(IOutStream)
 	// public void setSize(long newSize)
@@ -163,10 +183,38 @@ JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE_IMPL, OutItem)
 JT_END_CLASS
 
 
+JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE, OutItemColumns)
+    JT_FIELD(Int, itemCount)
+
+    JT_FIELD_OBJECT(paths, "[" JAVA_STRING_T)
+    JT_FIELD_OBJECT(dataSizes, "[J")
+    JT_FIELD_OBJECT(lastModificationTimes, "[J")
+    JT_FIELD_OBJECT(attributes, "[I")
+    JT_FIELD_OBJECT(posixAttributes, "[I")
+    JT_FIELD_OBJECT(dirs, "[Z")
+
+    JT_FIELD_OBJECT(updateOldArchiveItemIndices, "[I")
+    JT_FIELD_OBJECT(updateIsNewData, "[Z")
+    JT_FIELD_OBJECT(updateIsNewProperties, "[Z")
+JT_END_CLASS
+
+JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE, SevenZip)
+    // private static volatile int inStreamReadBufferSize
+    JT_STATIC_FIELD(Int, inStreamReadBufferSize)
+JT_END_CLASS
+
+JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE_IMPL, MappedFileInStream)
+    // final ByteBuffer[] getMappedBuffers()
+    JT_CLASS_FINAL_METHOD_OBJECT("[" JAVA_BYTE_BUFFER_T, getMappedBuffers, _)
+JT_END_CLASS
+
+
 JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE_IMPL, InArchiveImpl)
 	JT_FIELD(Long, jbindingSession)
 	JT_FIELD(Long, sevenZipArchiveInstance)
 	JT_FIELD(Long, sevenZipInStreamInstance)
+	JT_FIELD_OBJECT(inStream, JAVA_IIN_STREAM_T)
+	JT_FIELD_OBJECT(archiveOpenCallback, JAVA_IARCHIVE_OPEN_CALLBACK_T)
 	JT_CLASS_FINAL_METHOD(Void, setArchiveFormat, JT_STRING(archiveFormat,_))
 JT_END_CLASS
 
@@ -179,7 +227,7 @@ JT_BEGIN_CLASS(SEVEN_ZIP_PACKAGE_IMPL, OutArchiveImpl)
 
 	JT_FIELD(Boolean, trace)
 
-	JT_CLASS_FINAL_METHOD(Void, traceMessage, JT_STRING(message, _))
+	JT_CLASS_FINAL_METHOD(Void, traceMessages, JT_PARAM(Object, "[" JAVA_STRING_T, messages, _))
 JT_END_CLASS
 
 
@@ -49,6 +49,12 @@
 #define JAVA_DATE "java/util/Date"
 #define JAVA_DATE_T JAVA_MAKE_SIGNATURE_TYPE(JAVA_DATE)
 
+#define JAVA_BUFFER "java/nio/Buffer"
+#define JAVA_BUFFER_T JAVA_MAKE_SIGNATURE_TYPE(JAVA_BUFFER)
+
+#define JAVA_BYTE_BUFFER "java/nio/ByteBuffer"
+#define JAVA_BYTE_BUFFER_T JAVA_MAKE_SIGNATURE_TYPE(JAVA_BYTE_BUFFER)
+
 JT_BEGIN_CLASS("java/util", Date)
     JT_CLASS_VIRTUAL_METHOD(Long, getTime, _)
 JT_END_CLASS
@@ -63,6 +69,11 @@ JT_BEGIN_CLASS("java/lang", Long)
     JT_CLASS_STATIC_METHOD_OBJECT(JAVA_LONG_T, valueOf, JT_LONG(value, _))
 JT_END_CLASS
 
+JT_BEGIN_CLASS("java/nio", Buffer)
+    JT_CLASS_VIRTUAL_METHOD_OBJECT(JAVA_BUFFER_T, clear, _)
+    JT_CLASS_VIRTUAL_METHOD_OBJECT(JAVA_BUFFER_T, limit, JT_INT(newLimit, _))
+JT_END_CLASS
+
 JT_BEGIN_CLASS("java/lang", Boolean)
     JT_CLASS_VIRTUAL_METHOD(Boolean, booleanValue, _)
 JT_END_CLASS
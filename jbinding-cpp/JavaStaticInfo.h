@@ -759,8 +759,14 @@ public:
         return _getInstance(env, jobjectClass);
     }
     static T * _getInstance(JNIEnv * env, jclass objectClass) {
-        _criticalSection.Enter();
+        // Lock free lookup of the already known classes
         T ** instance = _jinterfaceMap.get(env, objectClass);
+        if (instance) {
+            return *instance;
+        }
+
+        _criticalSection.Enter();
+        instance = _jinterfaceMap.get(env, objectClass);
         if (instance) {
             _criticalSection.Leave();
             return *instance;
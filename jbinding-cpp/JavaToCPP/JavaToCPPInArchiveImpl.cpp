@@ -4,6 +4,9 @@
 #include "CPPToJava/CPPToJavaInStream.h"
 #include "CPPToJava/CPPToJavaArchiveExtractCallback.h"
 #include "CodecTools.h"
+#include "ExtractToDirectoryCallback.h"
+#include "UnicodeHelper.h"
+#include "Common/Buffer.h"
 
 #include "JavaStatInfos/JavaPackageSevenZip.h"
 
@@ -35,6 +38,31 @@ int CompareIndicies(const void *pi1, const void * pi2) {
     return i1 > i2 ? 1 : (i1 < i2 ? -1 : 0);
 }
 
+/*
+ * Checks, that all indices are valid and sorts them, if necessary.
+ * Returns false in error case (the error was reported).
+ */
+static bool CheckAndSortIndices(JNINativeCallContext & jniNativeCallContext, jint * indices,
+                                UInt32 indicesCount, UInt32 numberOfItems) {
+    jint lastIndex = -1;
+    int sortNeeded = false;
+    for (UInt32 i = 0; i < indicesCount; i++) {
+        if (indices[i] < 0 || indices[i] >= numberOfItems) {
+            TRACE("Passed index for the extraction is incorrect: " << indices[i] << " (Count of items in archive: " << numberOfItems << ")")
+            jniNativeCallContext.reportError(
+                    "Passed index for the extraction is incorrect: %i (Count of items in archive: %i)",
+                    indices[i], numberOfItems);
+            return false;
+        }
+        if (lastIndex > indices[i])
+            sortNeeded = true;
+        lastIndex = indices[i];
+    }
+    if (sortNeeded)
+        qsort(indices, indicesCount, 4, &CompareIndicies);
+    return true;
+}
+
 /*
  * Class:     net_sf_sevenzip_impl_InArchiveImpl
  * Method:    nativeExtract
@@ -75,23 +103,10 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_
 
         indicesCount = env->GetArrayLength(indicesArray);
 
-        jint lastIndex = -1;
-        int sortNeeded = false;
-        for (UInt32 i = 0; i < indicesCount; i++) {
-            if (indices[i] < 0 || indices[i] >= numberOfItems) {
-                TRACE("Passed index for the extraction is incorrect: " << indices[i] << " (Count of items in archive: " << numberOfItems << ")")
-                jniNativeCallContext.reportError(
-                        result,
-                        "Passed index for the extraction is incorrect: %i (Count of items in archive: %i)",
-                        indices[i], numberOfItems);
-                return;
-            }
-            if (lastIndex > indices[i])
-                sortNeeded = true;
-            lastIndex = indices[i];
+        if (!CheckAndSortIndices(jniNativeCallContext, indices, indicesCount, numberOfItems)) {
+            env->ReleaseIntArrayElements(indicesArray, indices, JNI_ABORT);
+            return;
         }
-        if (sortNeeded)
-            qsort(indices, indicesCount, 4, &CompareIndicies);
     }
 
     CMyComPtr<IArchiveExtractCallback> archiveExtractCallback =
@@ -121,6 +136,76 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_
 
 }
 
+/*
+ * Class:     net_sf_sevenzipjbinding_impl_InArchiveImpl
+ * Method:    nativeExtractToDirectory
+ * Signature: ([ILjava/lang/String;Lnet/sf/sevenzipjbinding/IProgress;)V
+ */
+JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_nativeExtractToDirectory(
+                                                                                                        JNIEnv * env,
+                                                                                                        jobject thiz,
+                                                                                                        jintArray indicesArray,
+                                                                                                        jstring targetDirectory,
+                                                                                                        jobject progress) {
+    TRACE("InArchiveImpl::nativeExtractToDirectory(). ThreadID=" << PlatformGetCurrentThreadId());
+
+    JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+    JNIEnvInstance jniEnvInstance(jbindingSession, jniNativeCallContext, env);
+
+    CMyComPtr<IInArchive> archive(GetArchive(env, thiz));
+
+    UInt32 numberOfItems;
+    HRESULT result = archive->GetNumberOfItems((UInt32*) &numberOfItems);
+    if (result != S_OK) {
+        TRACE("Error getting number of items from archive. Result: 0x" << std::hex << result)
+        jniNativeCallContext.reportError(result, "Error getting number of items from archive");
+        return;
+    }
+
+    jint * indices = NULL;
+    UInt32 indicesCount = (UInt32) -1;
+    if (indicesArray) {
+        indices = env->GetIntArrayElements(indicesArray, NULL);
+        indicesCount = env->GetArrayLength(indicesArray);
+
+        if (!CheckAndSortIndices(jniNativeCallContext, indices, indicesCount, numberOfItems)) {
+            env->ReleaseIntArrayElements(indicesArray, indices, JNI_ABORT);
+            return;
+        }
+    }
+
+    const jchar * targetDirectoryJChars = env->GetStringChars(targetDirectory, NULL);
+    UString targetDirectoryString((const wchar_t *) UnicodeHelper(targetDirectoryJChars));
+    env->ReleaseStringChars(targetDirectory, targetDirectoryJChars);
+
+    ExtractToDirectoryCallback * extractToDirectoryCallback = new ExtractToDirectoryCallback(jbindingSession,
+            env, archive, targetDirectoryString, progress);
+    CMyComPtr<IArchiveExtractCallback> archiveExtractCallback = extractToDirectoryCallback;
+
+    TRACE("Extracting " << indicesCount << " items to the directory")
+    result = archive->Extract((UInt32*) indices, indicesCount, 0, archiveExtractCallback);
+
+    if (indicesArray) {
+        env->ReleaseIntArrayElements(indicesArray, indices, JNI_ABORT);
+    }
+
+    if (result) {
+        TRACE("Extraction error. Result: 0x" << std::hex << result);
+        jniNativeCallContext.reportError(result, "Error extracting items to the directory '%S'",
+                (const wchar_t *) targetDirectoryString);
+    } else if (extractToDirectoryCallback->getErrorCount()) {
+        jniNativeCallContext.reportError("Error extracting %u item(s) to the directory '%S'. "
+                "First failed item: %u, operation result: %s",
+                extractToDirectoryCallback->getErrorCount(), (const wchar_t *) targetDirectoryString,
+                extractToDirectoryCallback->getFirstErrorIndex(),
+                ExtractToDirectoryCallback::getOperationResultName(
+                        extractToDirectoryCallback->getFirstErrorOperationResult()));
+    } else {
+        TRACE("Extraction succeeded")
+    }
+}
+
 /*
  * Class:     net_sf_sevenzip_impl_InArchiveImpl
  * Method:    nativeGetNumberOfItems
@@ -195,6 +280,21 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_
     TRACE("InArchive closed")
 }
 
+/*
+ * Class:     net_sf_sevenzipjbinding_impl_InArchiveImpl
+ * Method:    nativeGetStatistics
+ * Signature: ()Lnet/sf/sevenzipjbinding/ArchiveStatistics;
+ */
+JBINDING_JNIEXPORT jobject JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_nativeGetStatistics(
+                                                                                                    JNIEnv * env,
+                                                                                                    jobject thiz) {
+    TRACE("InArchiveImpl::nativeGetStatistics()");
+
+    // No JNINativeCallContext: the statistics may be read during an operation running in another thread.
+    // InArchiveImpl.getStatistics() and close() synchronize, so the session can't be deleted concurrently.
+    return GetJBindingSession(env, thiz).getStatistics().newArchiveStatistics(env);
+}
+
 /*
  * Class:     net_sf_sevenzip_impl_InArchiveImpl
  * Method:    nativeGetNumberOfArchiveProperties
@@ -437,6 +537,289 @@ JBINDING_JNIEXPORT jstring JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveIm
 
 }
 
+/*
+ * Kinds of the property value columns created by nativeGetProperties()
+ */
+enum PropertyColumnKind {
+    PROPERTY_COLUMN_UNDEFINED,
+    PROPERTY_COLUMN_UNSUPPORTED,
+    PROPERTY_COLUMN_INT,
+    PROPERTY_COLUMN_UNSIGNED_INT,
+    PROPERTY_COLUMN_LONG,
+    PROPERTY_COLUMN_FILETIME,
+    PROPERTY_COLUMN_BOOLEAN,
+    PROPERTY_COLUMN_STRING
+};
+
+/*
+ * Returns kind of the column for the property value and stores numeric values in 'value'
+ */
+static PropertyColumnKind GetPropertyColumnValue(NWindows::NCOM::CPropVariant & propVariant, jlong & value) {
+    switch (propVariant.vt) {
+    case VT_EMPTY:
+    case VT_NULL:
+    case VT_VOID:
+        return PROPERTY_COLUMN_UNDEFINED;
+
+    case VT_I1:
+        value = propVariant.cVal;
+        return PROPERTY_COLUMN_INT;
+
+    case VT_I2:
+        value = propVariant.iVal;
+        return PROPERTY_COLUMN_INT;
+
+    case VT_INT:
+    case VT_I4:
+        value = propVariant.lVal;
+        return PROPERTY_COLUMN_INT;
+
+    case VT_UI1:
+        value = propVariant.bVal;
+        return PROPERTY_COLUMN_UNSIGNED_INT;
+
+    case VT_UI2:
+        value = propVariant.uiVal;
+        return PROPERTY_COLUMN_UNSIGNED_INT;
+
+    case VT_UINT:
+    case VT_UI4:
+        value = propVariant.ulVal;
+        return PROPERTY_COLUMN_UNSIGNED_INT;
+
+    case VT_I8:
+        value = (jlong) propVariant.hVal.QuadPart;
+        return PROPERTY_COLUMN_LONG;
+
+    case VT_UI8:
+        value = (jlong) propVariant.uhVal.QuadPart;
+        return PROPERTY_COLUMN_LONG;
+
+    case VT_DATE:
+    case VT_FILETIME:
+        value = (jlong) ((((UInt64) propVariant.filetime.dwHighDateTime) << 32)
+                | propVariant.filetime.dwLowDateTime);
+        return PROPERTY_COLUMN_FILETIME;
+
+    case VT_BOOL:
+        value = propVariant.boolVal != VARIANT_FALSE;
+        return PROPERTY_COLUMN_BOOLEAN;
+
+    case VT_BSTR:
+        return PROPERTY_COLUMN_STRING;
+    }
+    return PROPERTY_COLUMN_UNSUPPORTED;
+}
+
+/*
+ * Returns true for the kinds of the columns with integer values (stored as int[] or long[])
+ */
+static bool IsIntegerPropertyColumn(PropertyColumnKind columnKind) {
+    return columnKind == PROPERTY_COLUMN_INT || columnKind == PROPERTY_COLUMN_UNSIGNED_INT
+            || columnKind == PROPERTY_COLUMN_LONG;
+}
+
+/*
+ * Creates java array with the values of the property 'propID' of the items
+ * [fromIndex, fromIndex + itemCount) and stores it in columnsArray[column]. 'values' and
+ * 'definedValues' are buffers with at least 'itemCount' elements. Columns of unsigned 32 bit
+ * values get marked in unsignedColumnsArray[column].
+ */
+static bool GetPropertyColumn(JNINativeCallContext & jniNativeCallContext, JNIEnv * env, IInArchive * archive,
+                              PROPID propID, UInt32 fromIndex, UInt32 itemCount, jlong * values,
+                              jboolean * definedValues, jclass stringClass, jobjectArray columnsArray,
+                              jobjectArray definedValuesArray, jbooleanArray unsignedColumnsArray,
+                              jsize column) {
+    PropertyColumnKind columnKind = PROPERTY_COLUMN_UNDEFINED;
+    jobjectArray stringColumn = NULL;
+    UInt32 definedCount = 0;
+
+    bool success = true;
+
+    for (UInt32 i = 0; i < itemCount; i++) {
+        UInt32 index = fromIndex + i;
+        NWindows::NCOM::CPropVariant propVariant;
+
+        values[i] = 0;
+        definedValues[i] = JNI_FALSE;
+
+        HRESULT hresult = archive->GetProperty(index, propID, &propVariant);
+        if (hresult != S_OK) {
+            jniNativeCallContext.reportError(hresult, "Error getting property with propID=%lu for item %i",
+                    propID, index);
+            success = false;
+            break;
+        }
+
+        PropertyColumnKind valueKind = GetPropertyColumnValue(propVariant, values[i]);
+        if (valueKind == PROPERTY_COLUMN_UNDEFINED) {
+            continue;
+        }
+        if (valueKind == PROPERTY_COLUMN_UNSUPPORTED) {
+            jniNativeCallContext.reportError("Unsupported PropVariant type. VarType: %i", propVariant.vt);
+            success = false;
+            break;
+        }
+
+        if (columnKind == PROPERTY_COLUMN_UNDEFINED || columnKind == valueKind) {
+            columnKind = valueKind;
+        } else if (IsIntegerPropertyColumn(columnKind) && IsIntegerPropertyColumn(valueKind)) {
+            // Mixed signed and unsigned 32 bit values are exact only as 64 bit values
+            columnKind = PROPERTY_COLUMN_LONG;
+        } else {
+            jniNativeCallContext.reportError("Values of the property with propID=%lu have different types "
+                "(item %i, VarType: %i)", propID, index, propVariant.vt);
+            success = false;
+            break;
+        }
+
+        if (valueKind == PROPERTY_COLUMN_STRING) {
+            if (!stringColumn) {
+                stringColumn = env->NewObjectArray((jsize) itemCount, stringClass, NULL);
+                if (!stringColumn) {
+                    jniNativeCallContext.reportError("Out of local resources or out of memory");
+                    success = false;
+                    break;
+                }
+            }
+            jobject string = BSTRToObject(env, propVariant.bstrVal);
+            env->SetObjectArrayElement(stringColumn, (jsize) i, string);
+            env->DeleteLocalRef(string);
+        }
+
+        definedValues[i] = JNI_TRUE;
+        definedCount++;
+    }
+
+    if (!success) {
+        if (stringColumn) {
+            env->DeleteLocalRef(stringColumn);
+        }
+        return false;
+    }
+
+    if (columnKind == PROPERTY_COLUMN_UNSIGNED_INT) {
+        jboolean unsignedColumn = JNI_TRUE;
+        env->SetBooleanArrayRegion(unsignedColumnsArray, column, 1, &unsignedColumn);
+    }
+
+    jarray columnArray = NULL;
+    switch (columnKind) {
+    case PROPERTY_COLUMN_UNDEFINED:
+        // Not defined for any item. Leave the column 'null'.
+        return true;
+
+    case PROPERTY_COLUMN_INT:
+    case PROPERTY_COLUMN_UNSIGNED_INT: {
+        CBuffer<jint> intValues(itemCount);
+        for (UInt32 i = 0; i < itemCount; i++) {
+            intValues[i] = (jint) values[i];
+        }
+        columnArray = env->NewIntArray((jsize) itemCount);
+        if (columnArray) {
+            env->SetIntArrayRegion((jintArray) columnArray, 0, (jsize) itemCount, intValues);
+        }
+        break;
+    }
+
+    case PROPERTY_COLUMN_LONG:
+    case PROPERTY_COLUMN_FILETIME:
+        columnArray = env->NewLongArray((jsize) itemCount);
+        if (columnArray) {
+            env->SetLongArrayRegion((jlongArray) columnArray, 0, (jsize) itemCount, values);
+        }
+        break;
+
+    case PROPERTY_COLUMN_BOOLEAN: {
+        CBuffer<jboolean> booleanValues(itemCount);
+        for (UInt32 i = 0; i < itemCount; i++) {
+            booleanValues[i] = values[i] ? JNI_TRUE : JNI_FALSE;
+        }
+        columnArray = env->NewBooleanArray((jsize) itemCount);
+        if (columnArray) {
+            env->SetBooleanArrayRegion((jbooleanArray) columnArray, 0, (jsize) itemCount, booleanValues);
+        }
+        break;
+    }
+
+    default:
+        columnArray = stringColumn;
+    }
+
+    if (!columnArray) {
+        jniNativeCallContext.reportError("Out of local resources or out of memory");
+        return false;
+    }
+    env->SetObjectArrayElement(columnsArray, column, columnArray);
+    env->DeleteLocalRef(columnArray);
+
+    if (definedCount < itemCount) {
+        jbooleanArray definedValuesColumn = env->NewBooleanArray((jsize) itemCount);
+        if (!definedValuesColumn) {
+            jniNativeCallContext.reportError("Out of local resources or out of memory");
+            return false;
+        }
+        env->SetBooleanArrayRegion(definedValuesColumn, 0, (jsize) itemCount, definedValues);
+        env->SetObjectArrayElement(definedValuesArray, column, definedValuesColumn);
+        env->DeleteLocalRef(definedValuesColumn);
+    }
+
+    return true;
+}
+
+/*
+ * Class:     net_sf_sevenzip_impl_InArchiveImpl
+ * Method:    nativeGetProperties
+ * Signature: ([III[Ljava/lang/Object;[[Z[Z)V
+ */
+JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_InArchiveImpl_nativeGetProperties(
+                                                                                                     JNIEnv * env,
+                                                                                                     jobject thiz,
+                                                                                                     jintArray propIDsArray,
+                                                                                                     jint fromIndex,
+                                                                                                     jint toIndex,
+                                                                                                     jobjectArray columnsArray,
+                                                                                                     jobjectArray definedValuesArray,
+                                                                                                     jbooleanArray unsignedColumnsArray) {
+    TRACE("InArchiveImpl::nativeGetProperties");
+
+    JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+    JNIEnvInstance jniEnvInstance(jbindingSession, jniNativeCallContext, env);
+
+    CMyComPtr<IInArchive> archive(GetArchive(env, thiz));
+    CMyComPtr<CPPToJavaInStream> inStream(GetInStream(env, thiz));
+
+    if (archive == NULL) {
+        TRACE("Archive==NULL. Do nothing...");
+        return;
+    }
+
+    jsize propIDCount = env->GetArrayLength(propIDsArray);
+    UInt32 itemCount = (UInt32) (toIndex - fromIndex);
+    if (!propIDCount || !itemCount) {
+        return;
+    }
+
+    jclass stringClass = env->FindClass(JAVA_STRING);
+    FATALIF(stringClass == NULL, "Can't find class " JAVA_STRING);
+
+    jint * propIDs = env->GetIntArrayElements(propIDsArray, NULL);
+    CBuffer<jlong> values(itemCount);
+    CBuffer<jboolean> definedValues(itemCount);
+
+    for (jsize column = 0; column < propIDCount; column++) {
+        if (!GetPropertyColumn(jniNativeCallContext, env, archive, (PROPID) propIDs[column], (UInt32) fromIndex,
+                itemCount, values, definedValues, stringClass, columnsArray, definedValuesArray,
+                unsignedColumnsArray, column)) {
+            break;
+        }
+    }
+
+    env->ReleaseIntArrayElements(propIDsArray, propIDs, JNI_ABORT);
+    env->DeleteLocalRef(stringClass);
+}
+
 /*
  * Class:     net_sf_sevenzip_impl_InArchiveImpl
  * Method:    nativeGetPropertyInfo
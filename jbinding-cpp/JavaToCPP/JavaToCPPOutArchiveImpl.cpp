@@ -31,14 +31,15 @@ static IOutArchive * GetArchive(JNIEnv * env, jobject thiz) {
 /*
  * Class:     net_sf_sevenzipjbinding_impl_OutArchiveImpl
  * Method:    updateItemsNative
- * Signature: (ILnet/sf/sevenzipjbinding/ISequentialOutStream;ILnet/sf/sevenzipjbinding/IArchiveUpdateCallback;Z)V
+ * Signature: (Lnet/sf/sevenzipjbinding/ISequentialOutStream;ILjava/lang/Object;Lnet/sf/sevenzipjbinding/OutItemColumns;)V
  */
 JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeUpdateItems(
                                                                                                    JNIEnv * env,
                                                                                                    jobject thiz,
                                                                                                    jobject outStream,
                                                                                                    jint numberOfItems,
-                                                                                                   jobject archiveUpdateCallback) {
+                                                                                                   jobject archiveUpdateCallback,
+                                                                                                   jobject outItemColumns) {
     TRACE("OutArchiveImpl.updateItemsNative()");
 
     JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
@@ -51,11 +52,13 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl
     int archiveFormatIndex = codecTools.getArchiveFormatIndex(jniEnvInstance, archiveFormat);
     jboolean isInArchiveAttached = jni::OutArchiveImpl::inArchive_Get(env, thiz) != NULL;
 
-	if (isUserTraceEnabled(jniEnvInstance, thiz)) {
+	// The trace flag gets read once for the whole operation. Messages get passed to Java in batches.
+	UserTrace userTrace(jniEnvInstance, thiz);
+	if (userTrace.isEnabled()) {
 	    if (isInArchiveAttached) {
-	        userTrace(jniEnvInstance, thiz, UString(L"Updating ") << (UInt32)numberOfItems << L" items");
+	        userTrace.trace(jniEnvInstance, UString(L"Updating ") << (UInt32)numberOfItems << L" items");
 	    } else {
-	        userTrace(jniEnvInstance, thiz, UString(L"Compressing ") << (UInt32)numberOfItems << L" items");
+	        userTrace.trace(jniEnvInstance, UString(L"Compressing ") << (UInt32)numberOfItems << L" items");
 	    }
 	}
 
@@ -67,12 +70,18 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl
 	        archiveUpdateCallback,
 	        isInArchiveAttached,
 	        archiveFormatIndex,
-	        thiz);
+	        thiz,
+	        userTrace);
 
 	CMyComPtr<IArchiveUpdateCallback> cppToJavaArchiveUpdateCallbackPtr = cppToJavaArchiveUpdateCallback;
 
+	if (outItemColumns) {
+	    cppToJavaArchiveUpdateCallback->setItemColumns(jniEnvInstance, outItemColumns);
+	}
+
 	HRESULT hresult  = outArchive->UpdateItems(cppToJavaOutStream, numberOfItems,
 			cppToJavaArchiveUpdateCallback);
+	userTrace.flush(jniEnvInstance);
 	if (hresult) {
 		jniEnvInstance.reportError(hresult, "Error creating '%S' archive with %i items",
 				(const wchar_t*) codecTools.codecs.Formats[archiveFormatIndex].Name,
@@ -80,27 +89,25 @@ JBINDING_JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl
 	}
 
 	cppToJavaArchiveUpdateCallback->freeOutItem(jniEnvInstance);
+	cppToJavaArchiveUpdateCallback->freeItemColumns(jniEnvInstance);
 }
 
 /*
  * Class:     net_sf_sevenzipjbinding_impl_OutArchiveImpl
- * Method:    setLevelNative
- * Signature: (I)V
+ * Method:    nativeSetProperties
+ * Signature: ([Ljava/lang/String;[Ljava/lang/Object;)V
  */
-JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeSetLevel
-  (JNIEnv * env, jobject thiz, jint level) {
-    TRACE("OutArchiveImpl::setLevelNative(). ThreadID=" << PlatformGetCurrentThreadId());
+JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeSetProperties(JNIEnv * env,
+                                                                                           jobject thiz,
+                                                                                           jobjectArray names,
+                                                                                           jobjectArray values) {
+    TRACE("OutArchiveImpl::nativeSetProperties(). ThreadID=" << PlatformGetCurrentThreadId());
 
     JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
     JNINativeCallContext jniNativeCallContext(jbindingSession, env);
     JNIEnvInstance jniEnvInstance(jbindingSession, jniNativeCallContext, env);
 
     CMyComPtr<IOutArchive> outArchive(GetArchive(env, thiz));
-    // TODO Delete this and all other such ifs, also in J2CppInArchive.cpp, since this is already tested in GetArchive()
-    if (outArchive == NULL) {
-        TRACE("Archive==NULL. Do nothing...");
-        return;
-    }
 
     // TODO Move query interface to the central location in J2C+SevenZip.cpp
     CMyComPtr<ISetProperties> setProperties;
@@ -111,115 +118,55 @@ JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeSe
         return;
     }
 
-    const int size = 1;
-    NWindows::NCOM::CPropVariant *propValues = new NWindows::NCOM::CPropVariant[size];
-    propValues[0] = (unsigned int)level;
-
-    CRecordVector<const wchar_t *> names;
-    names.Add(L"X");
-
-    result = setProperties->SetProperties(&names.Front(), propValues, names.Size());
-    if (result) {
-        TRACE("Error setting 'Level' property. Result: 0x" << std::hex << result)
-        jniNativeCallContext.reportError(result, "Error setting 'Level' property.");
-        return;
-    }
-}
-
-/*
- * Class:     net_sf_sevenzipjbinding_impl_OutArchiveImpl
- * Method:    nativeSetSolidSpec
- * Signature: (Ljava/land/String;)V
- */
-JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeSetSolidSpec(JNIEnv * env, jobject thiz, jstring solidSpec) {
-    TRACE("OutArchiveImpl::nativeSetSolidSpec(). ThreadID=" << PlatformGetCurrentThreadId());
-
-    JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
-    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
-    JNIEnvInstance jniEnvInstance(jbindingSession, jniNativeCallContext, env);
-
-    CMyComPtr<IOutArchive> outArchive(GetArchive(env, thiz));
-    // TODO Delete this and all other such ifs, also in J2CppInArchive.cpp, since this is already tested in GetArchive()
-    if (outArchive == NULL) {
-        TRACE("Archive==NULL. Do nothing...");
-        return;
-    }
-
-    // TODO Move query interface to the central location in J2C+SevenZip.cpp
-    CMyComPtr<ISetProperties> setProperties;
-    HRESULT result = outArchive->QueryInterface(IID_ISetProperties, (void**)&setProperties);
-    if (result != S_OK) {
-        TRACE("Error getting IID_ISetProperties interface. Result: 0x" << std::hex << result)
-        jniNativeCallContext.reportError(result, "Error getting IID_ISetProperties interface.");
-        return;
+    // 7-Zip resets all properties not passed to SetProperties(), so all properties get set with a single call
+    int size = env->GetArrayLength(names);
+    UStringVector nameStrings;
+    NWindows::NCOM::CPropVariant * propValues = new NWindows::NCOM::CPropVariant[size];
+    UString propertyList;
+    for (int i = 0; i < size; i++) {
+        jstring name = (jstring) env->GetObjectArrayElement(names, i);
+        const jchar * nameJChars = env->GetStringChars(name, NULL);
+        nameStrings.Add(UString(UnicodeHelper(nameJChars)));
+        env->ReleaseStringChars(name, nameJChars);
+        env->DeleteLocalRef(name);
+
+        jobject value = env->GetObjectArrayElement(values, i);
+        if (value == NULL) {
+            // VT_EMPTY
+        } else if (jni::Boolean::_isInstance(env, value)) {
+            propValues[i] = jni::Boolean::booleanValue(jniEnvInstance, value) ? true : false;
+        } else if (jni::Integer::_isInstance(env, value)) {
+            propValues[i] = (UInt32) jni::Integer::intValue(jniEnvInstance, value);
+        } else {
+            const jchar * valueJChars = env->GetStringChars((jstring) value, NULL);
+            propValues[i] = UString(UnicodeHelper(valueJChars));
+            env->ReleaseStringChars((jstring) value, valueJChars);
+        }
+        if (value) {
+            env->DeleteLocalRef(value);
+        }
+        if (jniEnvInstance.exceptionCheck()) {
+            delete[] propValues;
+            return;
+        }
+
+        if (i) {
+            propertyList += L", ";
+        }
+        propertyList += nameStrings.Back();
     }
 
-    const int size = 1;
-    NWindows::NCOM::CPropVariant *propValues = new NWindows::NCOM::CPropVariant[size];
-    if (solidSpec == NULL) {
-		// printf("[SolidSpec:false]");fflush(stdout);
-        propValues[0] = false;
-    } else {
-        const jchar * jchars = env->GetStringChars(solidSpec, NULL);
-		// printf("[SolidSpec:%S]", UString(UnicodeHelper(jchars)).GetBuffer(100000));fflush(stdout);
-        propValues[0] = UString(UnicodeHelper(jchars));
-        env->ReleaseStringChars(solidSpec, jchars);
+    CRecordVector<const wchar_t *> namePointers;
+    for (int i = 0; i < size; i++) {
+        namePointers.Add((const wchar_t *) nameStrings[i]);
     }
-    CRecordVector<const wchar_t *> names;
-    names.Add(L"S");
 
-    result = setProperties->SetProperties(&names.Front(), propValues, names.Size());
+    result = setProperties->SetProperties(&namePointers.Front(), propValues, namePointers.Size());
+    delete[] propValues;
     if (result) {
-        TRACE("Error setting 'Solid' property. Result: 0x" << std::hex << result)
-        jniNativeCallContext.reportError(result, "Error setting 'Solid' property.");
-        return;
-    }
-}
-
-/*
- * Class:     net_sf_sevenzipjbinding_impl_OutArchiveImpl
- * Method:    nativeSetMultithreading
- * Signature: (Ljava/land/String;)V
- */
-JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeSetMultithreading(JNIEnv * env, jobject thiz, jint threadCount) {
-    TRACE("OutArchiveImpl::nativeSetMultithreading(). ThreadID=" << PlatformGetCurrentThreadId());
-
-    JBindingSession & jbindingSession = GetJBindingSession(env, thiz);
-    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
-    JNIEnvInstance jniEnvInstance(jbindingSession, jniNativeCallContext, env);
-
-    CMyComPtr<IOutArchive> outArchive(GetArchive(env, thiz));
-    // TODO Delete this and all other such ifs, also in J2CppInArchive.cpp, since this is already tested in GetArchive()
-    if (outArchive == NULL) {
-        TRACE("Archive==NULL. Do nothing...");
-        return;
-    }
-
-    // TODO Move query interface to the central location in J2C+SevenZip.cpp
-    CMyComPtr<ISetProperties> setProperties;
-    HRESULT result = outArchive->QueryInterface(IID_ISetProperties, (void**)&setProperties);
-    if (result != S_OK) {
-        TRACE("Error getting IID_ISetProperties interface. Result: 0x" << std::hex << result)
-        jniNativeCallContext.reportError(result, "Error getting IID_ISetProperties interface.");
-        return;
-    }
-
-    const int size = 1;
-    NWindows::NCOM::CPropVariant *propValues = new NWindows::NCOM::CPropVariant[size];
-	// printf("[MT:%i]", (int)threadCount);fflush(stdout);
-    if (threadCount) {
-        propValues[0] = (UInt32)threadCount;
-    } else {
-    	// Use count of available processors
-        propValues[0] = true;
-    }
-    CRecordVector<const wchar_t *> names;
-    names.Add(L"MT");
-
-    result = setProperties->SetProperties(&names.Front(), propValues, names.Size());
-    if (result) {
-        TRACE("Error setting 'Multithreading' property. Result: 0x" << std::hex << result)
-        jniNativeCallContext.reportError(result, "Error setting 'Multithreading' property.");
+        TRACE("Error setting properties. Result: 0x" << std::hex << result)
+        jniNativeCallContext.reportError(result, "Error setting archive properties: %S",
+                (const wchar_t *) propertyList);
         return;
     }
 }
@@ -252,3 +199,18 @@ JNIEXPORT void JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeCl
 
     TRACE("OutArchive closed")
 }
+
+/*
+ * Class:     net_sf_sevenzipjbinding_impl_OutArchiveImpl
+ * Method:    nativeGetStatistics
+ * Signature: ()Lnet/sf/sevenzipjbinding/ArchiveStatistics;
+ */
+JBINDING_JNIEXPORT jobject JNICALL Java_net_sf_sevenzipjbinding_impl_OutArchiveImpl_nativeGetStatistics(
+                                                                                                     JNIEnv * env,
+                                                                                                     jobject thiz) {
+    TRACE("OutArchiveImpl::nativeGetStatistics()");
+
+    // No JNINativeCallContext: the statistics may be read during an operation running in another thread.
+    // OutArchiveImpl.getStatistics() and close() synchronize, so the session can't be deleted concurrently.
+    return GetJBindingSession(env, thiz).getStatistics().newArchiveStatistics(env);
+}
@@ -10,6 +10,7 @@
 #include "CPPToJava/CPPToJavaInStream.h"
 #include "UniversalArchiveOpenCallback.h"
 #include "CodecTools.h"
+#include "7zip/Common/StreamUtils.h"
 
 #include "iostream"
 
@@ -188,27 +189,54 @@ JBINDING_JNIEXPORT jobject JNICALL Java_net_sf_sevenzipjbinding_SevenZip_nativeO
             return NULL;
         }
     } else {
-        // Try all known codecs
-        TRACE("Iterating through all available codecs...")
-        bool success = false;
+        // Try formats with the matching start signature first
+        CIntVector formatIndices;
+        {
+            CByteBuffer header;
+            header.SetCapacity(codecTools.getSignatureHeaderSize());
+            size_t headerSize = header.GetCapacity();
+            if (stream->Seek(0, STREAM_SEEK_SET, NULL) == S_OK
+                    && ReadStream((IInStream *) stream, header, &headerSize) == S_OK) {
+                codecTools.findFormatsBySignature(header, headerSize, formatIndices);
+            }
+        }
+        int signatureMatchCount = formatIndices.Size();
+
+        // Fall back to all other known codecs
         for (int i = 0; i < codecTools.codecs.Formats.Size(); i++) {
-            TRACE("Trying codec " << codecTools.codecs.Formats[i].Name);
+            bool signatureMatched = false;
+            for (int j = 0; j < signatureMatchCount; j++) {
+                if (formatIndices[j] == i) {
+                    signatureMatched = true;
+                    break;
+                }
+            }
+            if (!signatureMatched) {
+                formatIndices.Add(i);
+            }
+        }
+
+        TRACE("Iterating through available codecs...")
+        bool success = false;
+        for (int i = 0; i < formatIndices.Size(); i++) {
+            int formatIndex = formatIndices[i];
+            TRACE("Trying codec " << codecTools.codecs.Formats[formatIndex].Name);
 
             stream->Seek(0, STREAM_SEEK_SET, NULL);
 
-            codecTools.codecs.CreateInArchive(i, archive);
+            codecTools.codecs.CreateInArchive(formatIndex, archive);
             if (!archive) {
                 continue;
             }
 
-            universalArchiveOpencallback->setSimulateArchiveOpenVolumeCallback(codecTools.isCabArchive(i));
+            universalArchiveOpencallback->setSimulateArchiveOpenVolumeCallback(codecTools.isCabArchive(formatIndex));
 
             HRESULT result = archive->Open(stream, &maxCheckStartPosition, archiveOpenCallback);
             if (result != S_OK) {
                 continue;
             }
 
-            formatNameString = codecTools.codecs.Formats[i].Name;
+            formatNameString = codecTools.codecs.Formats[formatIndex].Name;
             success = true;
             break;
         }
@@ -290,6 +318,9 @@ JBINDING_JNIEXPORT jobject JNICALL Java_net_sf_sevenzipjbinding_SevenZip_nativeO
     jni::InArchiveImpl::sevenZipInStreamInstance_Set(env, inArchiveImplObject, //
             (jlong) (size_t) (void*) (stream));
 
+    jni::InArchiveImpl::inStream_Set(env, inArchiveImplObject, inStream);
+    jni::InArchiveImpl::archiveOpenCallback_Set(env, inArchiveImplObject, archiveOpenCallbackImpl);
+
     // SetLongAttribute(env, inArchiveImplObject, IN_STREAM_IMPL_OBJ_ATTRIBUTE,
     //        (jlong) (size_t) (void*) (stream));
 
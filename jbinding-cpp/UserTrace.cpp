@@ -12,18 +12,73 @@
 #include "UnicodeHelper.h"
 #include "UserTrace.h"
 
-bool isUserTraceEnabled(JNIEnvInstance & jniEnvInstance, jobject thiz) {
-    jboolean result = jni::OutArchiveImpl::trace_Get(jniEnvInstance, thiz);
-    if (jniEnvInstance.exceptionCheck()) {
-        return false;
+UserTrace::UserTrace(JNIEnvInstance & jniEnvInstance, jobject outArchive) :
+    _outArchive(outArchive), _enabled(false), _first(0), _count(0) {
+    jboolean enabled = jni::OutArchiveImpl::trace_Get(jniEnvInstance, outArchive);
+    if (!jniEnvInstance.exceptionCheck()) {
+        _enabled = enabled ? true : false;
     }
-    return result;
 }
 
-void userTrace(JNIEnvInstance & jniEnvInstance, jobject thiz, UString msg) {
-    jstring jmsg = jniEnvInstance->NewString(UnicodeHelper(msg.GetBuffer(0)), msg.Length());
-    jni::OutArchiveImpl::traceMessage(jniEnvInstance, thiz, jmsg);
-    jniEnvInstance.exceptionCheck(); // Ignore result
-    jniEnvInstance->DeleteLocalRef(jmsg);
+void UserTrace::trace(JNIEnvInstance & jniEnvInstance, const UString & message) {
+    if (!_enabled) {
+        return;
+    }
+    UStringVector messages;
+    _criticalSection.Enter();
+    if (_count == BUFFER_SIZE) {
+        takeMessagesLocked(messages);
+    }
+    _messages[(_first + _count) % BUFFER_SIZE] = message;
+    _count++;
+    _criticalSection.Leave();
+
+    sendMessages(jniEnvInstance, messages);
+}
+
+void UserTrace::flush(JNIEnvInstance & jniEnvInstance) {
+    if (!_enabled) {
+        return;
+    }
+    UStringVector messages;
+    _criticalSection.Enter();
+    takeMessagesLocked(messages);
+    _criticalSection.Leave();
+
+    sendMessages(jniEnvInstance, messages);
+}
+
+void UserTrace::takeMessagesLocked(UStringVector & messages) {
+    for (int i = 0; i < _count; i++) {
+        UString & message = _messages[(_first + i) % BUFFER_SIZE];
+        messages.Add(message);
+        message.Empty();
+    }
+    _first = (_first + _count) % BUFFER_SIZE;
+    _count = 0;
 }
 
+void UserTrace::sendMessages(JNIEnvInstance & jniEnvInstance, const UStringVector & messages) {
+    if (messages.IsEmpty()) {
+        return;
+    }
+    jclass stringClass = jniEnvInstance->FindClass(JAVA_STRING);
+    FATALIF(!stringClass, "Class " JAVA_STRING " not found");
+
+    jobjectArray jmessages = jniEnvInstance->NewObjectArray(messages.Size(), stringClass, NULL);
+    jniEnvInstance->DeleteLocalRef(stringClass);
+    if (!jmessages) {
+        jniEnvInstance.exceptionCheck(); // Ignore result
+        return;
+    }
+    for (int i = 0; i < messages.Size(); i++) {
+        const UString & message = messages[i];
+        jstring jmessage = jniEnvInstance->NewString(UnicodeHelper(message), message.Length());
+        jniEnvInstance->SetObjectArrayElement(jmessages, i, jmessage);
+        jniEnvInstance->DeleteLocalRef(jmessage);
+    }
+
+    jni::OutArchiveImpl::traceMessages(jniEnvInstance, _outArchive, jmessages);
+    jniEnvInstance.exceptionCheck(); // Ignore result
+    jniEnvInstance->DeleteLocalRef(jmessages);
+}
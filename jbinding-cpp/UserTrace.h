@@ -33,7 +33,38 @@ inline UString operator<<(UString msg, Int32 number) {
     return msg + UString(sz);
 }
 
-bool isUserTraceEnabled(JNIEnvInstance & jniEnvInstance, jobject thiz);
-void userTrace(JNIEnvInstance & jniEnvInstance, jobject thiz, UString msg);
+/**
+ * User trace of a single create or update operation. The 'trace' flag of the OutArchiveImpl gets read once
+ * at the beginning of the operation. The trace messages get collected in a ring buffer and passed to
+ * <code>OutArchiveImpl.traceMessages()</code> in batches, if the buffer is full and at the end of the operation.
+ * The batches get taken out of the ring buffer under the critical section, but passed to Java outside of it.
+ */
+class UserTrace {
+    enum {
+        BUFFER_SIZE = 64
+    };
+
+    jobject _outArchive;
+    bool _enabled;
+    UString _messages[BUFFER_SIZE];
+    int _first;
+    int _count;
+    PlatformCriticalSection _criticalSection;
+
+    UserTrace(const UserTrace &);
+    UserTrace & operator=(const UserTrace &);
+
+    void takeMessagesLocked(UStringVector & messages);
+    void sendMessages(JNIEnvInstance & jniEnvInstance, const UStringVector & messages);
+public:
+    UserTrace(JNIEnvInstance & jniEnvInstance, jobject outArchive);
+
+    bool isEnabled() const {
+        return _enabled;
+    }
+
+    void trace(JNIEnvInstance & jniEnvInstance, const UString & message);
+    void flush(JNIEnvInstance & jniEnvInstance);
+};
 
 #endif /* USERTRACE_H_ */
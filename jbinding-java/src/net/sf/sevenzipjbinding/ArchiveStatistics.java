@@ -0,0 +1,228 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Snapshot of the runtime counters of an opened archive: upcalls (calls from the native code to the Java
+ * implementations) per type, bytes transferred through the Java streams, time spent in the native code and in the
+ * Java callbacks and the count of the native threads attached to the VM. The counters are collected for the whole
+ * life time of the archive starting with the opening of the archive. An {@link IOutUpdateArchive} connected to an
+ * {@link IInArchive} shares the counters of the {@link IInArchive}.<br>
+ * <br>
+ * The counters are always collected. The overhead is two reads of the system timer and a few atomic increments per
+ * upcall. Use {@link #difference(ArchiveStatistics)} to get the counters of a single operation:
+ *
+ * <pre>
+ * ArchiveStatistics before = inArchive.getStatistics();
+ * inArchive.extract(null, false, extractCallback);
+ * ArchiveStatistics extraction = inArchive.getStatistics().difference(before);
+ * </pre>
+ *
+ * High {@link #getJavaTime()} compared to {@link #getNativeTime()} indicates, that the operation is bottlenecked in the
+ * Java stream or callback implementations rather than in the 7-Zip codecs.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ * @see IInArchive#getStatistics()
+ * @see IOutArchiveBase#getStatistics()
+ */
+public final class ArchiveStatistics {
+    /**
+     * Types of the upcalls: calls from the native code to the Java implementations.
+     */
+    public enum UpcallType {
+        /**
+         * {@link ISequentialInStream#read(byte[])} of the archive stream, of the volume streams or of the streams with
+         * the data to compress.
+         */
+        IN_STREAM_READ,
+
+        /**
+         * {@link ISeekableStream#seek(long, int)} of the archive stream and of the volume streams.
+         */
+        IN_STREAM_SEEK,
+
+        /**
+         * {@link ISequentialOutStream#write(byte[])} of the extracted data or of the new archive.
+         */
+        OUT_STREAM_WRITE,
+
+        /**
+         * {@link ISeekableStream#seek(long, int)} and {@link IOutStream#setSize(long)} of the new archive.
+         */
+        OUT_STREAM_SEEK,
+
+        /**
+         * Methods of {@link IArchiveOpenCallback} and {@link IArchiveOpenVolumeCallback}.
+         */
+        OPEN_CALLBACK,
+
+        /**
+         * {@link IArchiveExtractCallback#getStream(int, ExtractAskMode)},
+         * {@link IArchiveExtractCallback#prepareOperation(ExtractAskMode)} and
+         * {@link IArchiveExtractCallback#setOperationResult(ExtractOperationResult)}.
+         */
+        EXTRACT_CALLBACK,
+
+        /**
+         * Methods of {@link IOutCreateCallback} except of the progress methods.
+         */
+        UPDATE_CALLBACK,
+
+        /**
+         * {@link IProgress#setTotal(long)} and {@link IProgress#setCompleted(long)} during extraction and compression.
+         */
+        PROGRESS,
+
+        /**
+         * {@link ICryptoGetTextPassword#cryptoGetTextPassword()}.
+         */
+        CRYPTO_GET_TEXT_PASSWORD
+    }
+
+    private final long[] upcallCounts;
+    private final long[] upcallTimes;
+    private final long nativeTime;
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final long attachedThreadCount;
+
+    // Called by the native code
+    ArchiveStatistics(long[] upcallCounts, long[] upcallTimes, long nativeTime, long bytesRead, long bytesWritten,
+            long attachedThreadCount) {
+        this.upcallCounts = upcallCounts;
+        this.upcallTimes = upcallTimes;
+        this.nativeTime = nativeTime;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.attachedThreadCount = attachedThreadCount;
+    }
+
+    /**
+     * Return the count of the upcalls of the <code>upcallType</code>.
+     *
+     * @param upcallType
+     *            type of the upcalls
+     * @return count of the upcalls
+     */
+    public long getUpcallCount(UpcallType upcallType) {
+        return upcallCounts[upcallType.ordinal()];
+    }
+
+    /**
+     * Return the count of the upcalls of all types.
+     *
+     * @return count of the upcalls
+     */
+    public long getUpcallCount() {
+        return sum(upcallCounts);
+    }
+
+    /**
+     * Return the time spent in the upcalls of the <code>upcallType</code> including the JNI overhead. The time of the
+     * upcalls made by different threads get summed up.
+     *
+     * @param upcallType
+     *            type of the upcalls
+     * @return time in nanoseconds
+     */
+    public long getUpcallTime(UpcallType upcallType) {
+        return upcallTimes[upcallType.ordinal()];
+    }
+
+    /**
+     * Return the time spent in the upcalls of all types (in the Java callbacks and streams) including the JNI
+     * overhead. The time of the upcalls made by different threads get summed up.
+     *
+     * @return time in nanoseconds
+     */
+    public long getJavaTime() {
+        return sum(upcallTimes);
+    }
+
+    /**
+     * Return the time spent by the calling threads in the native methods (opening the archive, extraction,
+     * compression, getting properties, ...) excluding the upcalls made by those threads. The time of the upcalls made
+     * by the 7-Zip worker threads isn't excluded. The time of a native method gets counted after the method returns.
+     *
+     * @return time in nanoseconds
+     */
+    public long getNativeTime() {
+        return nativeTime;
+    }
+
+    /**
+     * Return the count of bytes read from the Java implementations of {@link ISequentialInStream}. The data read by
+     * the native code directly (see {@link net.sf.sevenzipjbinding.impl.MappedFileInStream}) or served from the
+     * native read buffer (see {@link SevenZip#setInStreamReadBufferSize(int)}) isn't counted.
+     *
+     * @return count of bytes
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Return the count of bytes written to the Java implementations of {@link ISequentialOutStream}.
+     *
+     * @return count of bytes
+     */
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Return the count of native threads attached to the VM to make upcalls. A native thread stays attached until it
+     * exits, so the threads reused by subsequent operations get counted only once.
+     *
+     * @return count of attached threads
+     */
+    public long getAttachedThreadCount() {
+        return attachedThreadCount;
+    }
+
+    /**
+     * Return the difference between this snapshot and an <code>earlier</code> snapshot of the same archive.
+     *
+     * @param earlier
+     *            earlier snapshot of the counters of the same archive
+     * @return counters collected between the two snapshots
+     */
+    public ArchiveStatistics difference(ArchiveStatistics earlier) {
+        long[] upcallCountDifferences = new long[upcallCounts.length];
+        long[] upcallTimeDifferences = new long[upcallTimes.length];
+        for (int i = 0; i < upcallCounts.length; i++) {
+            upcallCountDifferences[i] = upcallCounts[i] - earlier.upcallCounts[i];
+            upcallTimeDifferences[i] = upcallTimes[i] - earlier.upcallTimes[i];
+        }
+        return new ArchiveStatistics(upcallCountDifferences, upcallTimeDifferences, nativeTime - earlier.nativeTime,
+                bytesRead - earlier.bytesRead, bytesWritten - earlier.bytesWritten, attachedThreadCount
+                        - earlier.attachedThreadCount);
+    }
+
+    private static long sum(long[] values) {
+        long sum = 0;
+        for (long value : values) {
+            sum += value;
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder stringBuilder = new StringBuilder();
+        stringBuilder.append("nativeTime=").append(nativeTime / 1000).append("us");
+        stringBuilder.append("; javaTime=").append(getJavaTime() / 1000).append("us");
+        stringBuilder.append("; bytesRead=").append(bytesRead);
+        stringBuilder.append("; bytesWritten=").append(bytesWritten);
+        stringBuilder.append("; attachedThreadCount=").append(attachedThreadCount);
+        for (UpcallType upcallType : UpcallType.values()) {
+            if (getUpcallCount(upcallType) != 0) {
+                stringBuilder.append("; ").append(upcallType).append('=').append(getUpcallCount(upcallType));
+                stringBuilder.append(" (").append(getUpcallTime(upcallType) / 1000).append("us)");
+            }
+        }
+        return stringBuilder.toString();
+    }
+}
@@ -0,0 +1,24 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Factory for extraction callbacks used by
+ * {@link IInArchive#extractParallel(int[], int, IArchiveExtractCallbackFactory)}. Each of the parallel extraction
+ * operations gets its own callback.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IArchiveExtractCallbackFactory {
+    /**
+     * Creates a new extraction callback for extraction of the items <code>indices</code>. The method is called in the
+     * thread, that called {@link IInArchive#extractParallel(int[], int, IArchiveExtractCallbackFactory)}. The
+     * returned callback gets called from a single thread, but different callbacks get called concurrently.
+     *
+     * @param indices
+     *            sorted indices of the items to be extracted using the new callback
+     * @return new extraction callback. Optional implementation of {@link ICryptoGetTextPassword}.
+     * @throws SevenZipException
+     *             error creating the callback
+     */
+    public IArchiveExtractCallback createExtractCallback(int[] indices) throws SevenZipException;
+}
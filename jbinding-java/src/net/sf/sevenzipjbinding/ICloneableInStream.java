@@ -0,0 +1,22 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Input stream, that can create independent copies of itself. A copy reads the same data, but has its own position.
+ * Used by {@link IInArchive#extractParallel(int[], int, IArchiveExtractCallbackFactory)} to open the same archive
+ * multiple times.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface ICloneableInStream extends IInStream {
+    /**
+     * Creates a new stream reading the same data as this stream. The position of the new stream is 0. The new stream
+     * can be used in another thread concurrently to this stream. If the new stream implements
+     * {@link java.io.Closeable}, it gets closed by the caller after use.
+     *
+     * @return new independent stream reading the same data
+     * @throws SevenZipException
+     *             error creating the new stream
+     */
+    public IInStream cloneStream() throws SevenZipException;
+}
@@ -0,0 +1,44 @@
+package net.sf.sevenzipjbinding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Optional extension of the {@link ISequentialInStream} interface. If an in-stream implements this interface, the
+ * native side of 7-Zip-JBinding will call {@link #read(ByteBuffer)} instead of {@link ISequentialInStream#read(byte[])}
+ * passing a direct {@link ByteBuffer}. The buffer is allocated once per stream and reused for all subsequent calls, so
+ * no Java array gets allocated and copied on each read operation. {@link IInStream} implementations may implement this
+ * interface as well.<br>
+ * <br>
+ * <i>Note:</i> the passed buffer is only valid during the call. Implementations should never keep a reference to it.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IDirectBufferSequentialInStream extends ISequentialInStream {
+    /**
+     * Reads at least 1 and maximum <code>buffer.remaining()</code> bytes from the in-stream into the direct
+     * <code>buffer</code> starting at the current position of the buffer. The position of the buffer is always 0 and
+     * the limit is set to the maximal amount of bytes to read. If <code>buffer.remaining() != 0</code>, then return
+     * value 0 indicates end-of-stream (EOF). This means no more bytes can be read from the stream. <br>
+     * This function is allowed to read less than number of remaining bytes in stream and less then
+     * <code>buffer.remaining()</code>. The position of the buffer after the call is ignored, the return value is used
+     * instead.<br>
+     * <br>
+     * <i>Note:</i> depending on the archive format and the data size this method may be called from different threads.
+     * Synchronized implementation may be required.
+     *
+     * @param buffer
+     *            direct buffer to get read data
+     *
+     * @return amount of bytes written in the <code>buffer</code>. 0 - represents end of stream.
+     *
+     * @throws SevenZipException
+     *             in error case. If this method ends with an exception, the current operation will be reported to 7-Zip
+     *             as failed. There are no guarantee, that there are no further call back methods will get called. The
+     *             first and last thrown exceptions will be saved and thrown later on from the originally called method
+     *             such as <code>ISevenZipInArchive.extract()</code> or <code>SevenZip.openInArchive()</code>. Up to
+     *             four exceptions depending on the situation can be saved for further analysis. See
+     *             {@link SevenZipException} and {@link SevenZipException#printStackTraceExtended()} for details.
+     */
+    public int read(ByteBuffer buffer) throws SevenZipException;
+}
@@ -0,0 +1,53 @@
+package net.sf.sevenzipjbinding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Optional extension of the {@link ISequentialOutStream} interface. If an out-stream implements this interface, the
+ * native side of 7-Zip-JBinding will call {@link #write(ByteBuffer)} instead of
+ * {@link ISequentialOutStream#write(byte[])} passing a direct {@link ByteBuffer} with the data to write. During an
+ * extraction operation the same buffer is reused for all out-streams returned by
+ * {@link IArchiveExtractCallback#getStream(int, ExtractAskMode)}, so no Java array gets allocated on each write
+ * operation. The buffer can be passed directly to a {@link java.nio.channels.WritableByteChannel} like
+ * {@link java.nio.channels.FileChannel} or {@link java.nio.channels.SocketChannel}:
+ *
+ * <pre>
+ * public int write(ByteBuffer data) throws SevenZipException {
+ *     try {
+ *         return channel.write(data);
+ *     } catch (IOException e) {
+ *         throw new SevenZipException(&quot;Error writing to channel&quot;, e);
+ *     }
+ * }
+ * </pre>
+ *
+ * <i>Note:</i> the passed buffer and its content are only valid during the call. Implementations should never keep a
+ * reference to it.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IDirectBufferSequentialOutStream extends ISequentialOutStream {
+    /**
+     * Write the remaining bytes of the direct <code>data</code> buffer to the stream. The position of the buffer is
+     * always 0 and the limit is set to the amount of bytes to write. If <code>data.remaining() > 0</code> this function
+     * must write at least 1 byte. This function is allowed to write less than <code>data.remaining()</code> bytes. The
+     * position of the buffer after the call is ignored, the return value is used instead.<br>
+     * <br>
+     * <i>Note:</i> depending on the archive format and the data size this method may be called from different threads.
+     * Synchronized implementation may be required.
+     *
+     * @param data
+     *            direct buffer with the data to write
+     * @return count of written bytes
+     *
+     * @throws SevenZipException
+     *             in error case. If this method ends with an exception, the current operation will be reported to 7-Zip
+     *             as failed. There are no guarantee, that there are no further call back methods will get called. The
+     *             first and last thrown exceptions will be saved and thrown later on from the originally called method
+     *             such as <code>ISevenZipInArchive.extract()</code> or <code>SevenZip.openInArchive()</code>. Up to
+     *             four exceptions depending on the situation can be saved for further analysis. See
+     *             {@link SevenZipException} and {@link SevenZipException#printStackTraceExtended()} for details.
+     */
+    public int write(ByteBuffer data) throws SevenZipException;
+}
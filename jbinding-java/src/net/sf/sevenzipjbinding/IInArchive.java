@@ -1,6 +1,7 @@
 package net.sf.sevenzipjbinding;
 
 import java.io.Closeable;
+import java.io.File;
 import java.util.Arrays;
 
 import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
@@ -69,6 +70,26 @@ public interface IInArchive extends Closeable {
      */
     public String getStringProperty(int index, PropID propID) throws SevenZipException;
 
+    /**
+     * Get values of the properties <code>propIDs</code> of all items with the indices from <code>fromIndex</code>
+     * (inclusive) to <code>toIndex</code> (exclusive) with a single native call. The values are returned column
+     * oriented in primitive arrays without boxing each single value. This is much faster, than calling
+     * {@link #getProperty(int, PropID)} for each item and property, if many items need to be listed.
+     * 
+     * @param propIDs
+     *            properties to get values of
+     * @param fromIndex
+     *            index of the first item. 0 - first archive item.
+     * @param toIndex
+     *            index after the last item. Use {@link #getNumberOfItems()} to get properties of all items.
+     * @return values of the properties <code>propIDs</code> of the items in the range
+     * 
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ItemPropertyColumns getProperties(PropID[] propIDs, int fromIndex, int toIndex) throws SevenZipException;
+
     /**
      * Extract archive items with indices <code>indices</code>. <br>
      * Note: passing sorted <code>indices</code> array is more efficient. But it isn't suggested to manually sort
@@ -93,6 +114,65 @@ public interface IInArchive extends Closeable {
     public void extract(int[] indices, boolean testMode, IArchiveExtractCallback extractCallback)
             throws SevenZipException;
 
+    /**
+     * Extract archive items with indices <code>indices</code> using up to <code>threadCount</code> threads. The items
+     * get grouped by the solid block ({@link PropID#BLOCK}) they are stored in. Blocks can be decoded independently of
+     * each other, so the groups get distributed over the threads balancing the total size of the items. Each thread
+     * extracts its groups with a single extraction operation using its own callback created by
+     * <code>callbackFactory</code>. The callbacks get called concurrently.<br>
+     * <br>
+     * Since 7-Zip archive handlers aren't thread safe, each additional thread opens its own instance of the archive
+     * reading from a copy of the input stream using the same {@link IArchiveOpenCallback}. This requires the archive to
+     * be opened from an {@link ICloneableInStream}, like {@link net.sf.sevenzipjbinding.impl.MappedFileInStream} or
+     * {@link net.sf.sevenzipjbinding.impl.PositionalFileInStream}. If the input stream isn't cloneable, the archive
+     * was opened using an {@link IArchiveOpenVolumeCallback} or all items are stored in a single block, all items get
+     * extracted in the calling thread with a single callback.<br>
+     * <br>
+     * The method returns after all threads finished the extraction. If some of the extraction operations failed, the
+     * first thrown exception gets rethrown.
+     *
+     * @param indices
+     *            (optional) array of indices of archive items to extract.<br>
+     *            <code>null</code> - all archive items.
+     * @param threadCount
+     *            maximal count of threads to use including the calling thread
+     * @param callbackFactory
+     *            factory creating a separate extraction callback for each thread
+     *
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void extractParallel(int[] indices, int threadCount, IArchiveExtractCallbackFactory callbackFactory)
+            throws SevenZipException;
+
+    /**
+     * Extract archive items with indices <code>indices</code> directly into the directory <code>targetDirectory</code>.
+     * The files get written by the native code, so no {@link IArchiveExtractCallback} and {@link ISequentialOutStream}
+     * methods get called for each item and each chunk of data. The <code>progress</code> object gets notified about the
+     * extraction progress roughly one hundred times during the extraction. <br>
+     * Item paths containing <code>..</code> are rejected, absolute item paths get extracted relative to the
+     * <code>targetDirectory</code>. Item paths leading through an existing symbolic link are rejected as well.
+     * Symbolic links stored in the archive get extracted as regular files. Existing files get overwritten. Items failed
+     * to extract (for example because of a CRC error) don't stop the extraction. Instead a {@link SevenZipException}
+     * gets thrown at the end of the extraction.
+     * 
+     * @param indices
+     *            (optional) array of indices of archive items to extract.<br>
+     *            <code>null</code> - all archive items.
+     * @param targetDirectory
+     *            directory to extract items to. Missing directories get created.
+     * @param progress
+     *            (optional) progress object. Optional implementation of {@link ICryptoGetTextPassword}.
+     * 
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur or some items couldn't be extracted. Use
+     *             {@link SevenZipException#printStackTraceExtended()} to get stack traces of this SevenZipException and
+     *             of the all thrown 'cause by' exceptions.
+     */
+    public void extractToDirectory(int[] indices, File targetDirectory, IProgress progress)
+            throws SevenZipException;
+
     /**
      * Extract one item from archive. Multiple calls of this method are inefficient for some archive types.
      * 
@@ -216,6 +296,20 @@ public interface IInArchive extends Closeable {
      */
     public ArchiveFormat getArchiveFormat();
 
+    /**
+     * Return a snapshot of the runtime counters of the archive: upcalls to the Java implementations, bytes
+     * transferred through the Java streams, time spent in the native code and in the Java callbacks. The method may be
+     * called from another thread during a running operation and concurrently with {@link #close()}. After the archive
+     * was closed the final snapshot is returned.
+     * 
+     * @return snapshot of the runtime counters
+     * 
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ArchiveStatistics getStatistics() throws SevenZipException;
+
     /**
      * Get an instance of {@link IOutUpdateArchive} connected to the current archive. This is a part of the archive
      * format non-specific API. The new instance allows modification of the currently opened archive. Multiple call of
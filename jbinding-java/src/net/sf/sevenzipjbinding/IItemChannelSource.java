@@ -0,0 +1,28 @@
+package net.sf.sevenzipjbinding;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Source of the item data for create and update operations based on {@link ReadableByteChannel}s. Used by
+ * {@link net.sf.sevenzipjbinding.impl.ReadAheadChannelInStreams} to read the data of the items in advance.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IItemChannelSource {
+    /**
+     * Opens a new channel to read the data of the item <code>index</code>. The channel gets closed by the caller after
+     * reaching end of the stream or if the data isn't needed anymore.<br>
+     * <br>
+     * <i>Note:</i> this method may be called from a background thread.
+     *
+     * @param index
+     *            index of the item (0-based)
+     * @return channel in blocking mode providing the item data. {@link java.nio.channels.FileChannel}s are read
+     *         directly into the direct buffers without intermediate copies.
+     * @throws IOException
+     *             error opening the channel
+     */
+    public ReadableByteChannel openChannel(int index) throws IOException;
+}
@@ -28,7 +28,10 @@ public interface IOutArchiveBase {
 
     /**
      * If <code>true</code>, print trace message during compress and update operation to the {@link System#out} or
-     * {@link #getTracePrintStream()}. Default: <code>false</code>
+     * {@link #getTracePrintStream()}. Default: <code>false</code><br>
+     * <br>
+     * The flag gets read once at the beginning of each operation. The trace messages get collected and printed in
+     * batches, so the output may lag behind the progress of the operation.
      * 
      * @param trace
      *            <code>true</code> - output trace messages, <code>false</code> be quite.
@@ -45,4 +48,19 @@ public interface IOutArchiveBase {
      */
     public boolean isTrace();
 
+    /**
+     * Return a snapshot of the runtime counters of the archive: upcalls to the Java implementations, bytes
+     * transferred through the Java streams, time spent in the native code and in the Java callbacks. The method may be
+     * called from another thread during a running operation and concurrently with closing the archive. After the
+     * archive was closed the final snapshot is returned. The counters of an archive connected to an {@link IInArchive}
+     * are shared with the {@link IInArchive}.
+     * 
+     * @return snapshot of the runtime counters
+     * 
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ArchiveStatistics getStatistics() throws SevenZipException;
+
 }
@@ -80,6 +80,29 @@ public interface IOutCreateArchive<T extends IOutItemBase> extends IOutArchiveBa
     public void createArchive(ISequentialOutStream outStream, int numberOfItems,
             IOutCreateCallback<? extends T> outCreateCallback) throws SevenZipException;
 
+    /**
+     * Create new archive using item information provided up-front in columns. Same as
+     * {@link #createArchive(ISequentialOutStream, int, IOutCreateCallback)}, but the item properties get read directly
+     * from the <code>itemColumns</code> without calling
+     * {@link IOutCreateCallback#getItemInformation(int, net.sf.sevenzipjbinding.impl.OutItemFactory)} for each item.
+     * Use this method to create archives with a large number of items.
+     * 
+     * @param outStream
+     *            output stream to receive the new archive. An implementation of the {@link IOutStream} interface is
+     *            required for some archive formats.
+     * @param itemColumns
+     *            information about all items of the new archive. The number of items in the new archive is
+     *            {@link OutItemColumns#getItemCount()}.
+     * @param outCreateCallback
+     *            callback object to provide item content and to receive information about the progress of the
+     *            operation. The method <code>getItemInformation()</code> doesn't get called.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void createArchive(ISequentialOutStream outStream, OutItemColumns itemColumns,
+            IOutCreateCallback<? extends T> outCreateCallback) throws SevenZipException;
+
     /**
      * Return archive format used with this instance of {@link IOutStream}
      * 
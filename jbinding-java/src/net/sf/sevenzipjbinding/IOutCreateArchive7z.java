@@ -16,5 +16,6 @@ package net.sf.sevenzipjbinding;
 public interface IOutCreateArchive7z extends IOutCreateArchive<IOutItem7z>, //
         IOutFeatureSetLevel, //
         IOutFeatureSetSolid, //
-        IOutFeatureSetMultithreading {
+        IOutFeatureSetMultithreading, //
+        IOutFeatureSetMethod {
 }
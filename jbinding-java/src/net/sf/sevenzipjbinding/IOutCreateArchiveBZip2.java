@@ -14,5 +14,6 @@ package net.sf.sevenzipjbinding;
  * @since 9.20-2.00
  */
 public interface IOutCreateArchiveBZip2 extends IOutCreateArchive<IOutItemBZip2>, //
-        IOutFeatureSetLevel {
+        IOutFeatureSetLevel, //
+        IOutFeatureSetCoderProperties {
 }
@@ -14,7 +14,8 @@ package net.sf.sevenzipjbinding;
  * @since 9.20-2.00
  */
 public interface IOutCreateArchiveZip extends IOutCreateArchive<IOutItemZip>, //
-        IOutFeatureSetLevel {
+        IOutFeatureSetLevel, //
+        IOutFeatureSetMethod {
 
     /**
      * Create new archive. To update an existing archive open it first and then use
@@ -0,0 +1,43 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Feature interface for fine tuning of the compression method using {@link NCoderPropID} properties. Use
+ * {@link SevenZip#openOutArchive(ArchiveFormat)} or one of the <code>SevenZip.openOutArchiveXxx()</code> methods to
+ * get implementation of this interface.<br>
+ * <br>
+ * Example:
+ * 
+ * <pre>
+ * outArchive.setCoderProperty(NCoderPropID.kDictionarySize, &quot;64m&quot;) //
+ *         .setCoderProperty(NCoderPropID.kNumFastBytes, 64);
+ * </pre>
+ * 
+ * @see IOutFeatureSetMethod
+ * 
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IOutFeatureSetCoderProperties {
+
+    /**
+     * Set property of the compression method. The properties get passed to 7-Zip together with all other settings
+     * before the archive gets created or updated. Properties not supported by the archive format get rejected
+     * immediately. Invalid values get rejected by 7-Zip at the beginning of the create or update operation.
+     * 
+     * @param propID
+     *            property to set. {@link NCoderPropID#kDefaultProp} isn't supported.
+     * @param value
+     *            value of the property: {@link Integer} (or other {@link Number} between <code>0</code> and
+     *            <code>2^32-1</code>), {@link Boolean} or {@link String} according to
+     *            {@link NCoderPropID#getValueType()}. Sizes can also be specified as a string like <code>"64m"</code>
+     *            or <code>"512k"</code>. <code>null</code> - remove the property.
+     * @return this object to chain calls
+     * @throws IllegalArgumentException
+     *             the property isn't supported by the archive format or the value has wrong type
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public IOutFeatureSetCoderProperties setCoderProperty(NCoderPropID propID, Object value)
+            throws SevenZipException;
+}
@@ -0,0 +1,33 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Feature interface for the setting 'compression method'. Use {@link SevenZip#openOutArchive(ArchiveFormat)} or one
+ * of the <code>SevenZip.openOutArchiveXxx()</code> methods to get implementation of this interface.<br>
+ * <br>
+ * Example: <code>outArchive.setMethod("LZMA2").setCoderProperty(NCoderPropID.kDictionarySize, "64m")</code>
+ * 
+ * @see IOutFeatureSetCoderProperties
+ * 
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public interface IOutFeatureSetMethod extends IOutFeatureSetCoderProperties {
+
+    /**
+     * Set compression method. Supported methods depend on the archive format:
+     * <ul>
+     * <li>7z: <code>LZMA</code>, <code>LZMA2</code>, <code>PPMd</code>, <code>BZip2</code>, <code>Deflate</code>,
+     * <code>Copy</code>
+     * <li>Zip: <code>Deflate</code>, <code>Deflate64</code>, <code>BZip2</code>, <code>LZMA</code>,
+     * <code>PPMd</code>, <code>Copy</code>
+     * </ul>
+     * 
+     * @param method
+     *            name of the compression method. <code>null</code> - use default method.
+     * @return this object to chain calls
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public IOutFeatureSetCoderProperties setMethod(String method) throws SevenZipException;
+}
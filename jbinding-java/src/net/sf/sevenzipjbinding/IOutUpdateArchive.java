@@ -53,6 +53,27 @@ public interface IOutUpdateArchive<T extends IOutItemBase> extends IOutArchiveBa
     public void updateItems(ISequentialOutStream outStream, int numberOfItems, IOutCreateCallback<T> outCreateCallback)
             throws SevenZipException;
 
+    /**
+     * Update items in archive using item information provided up-front in columns. Same as
+     * {@link #updateItems(ISequentialOutStream, int, IOutCreateCallback)}, but the item properties and the update
+     * information get read directly from the <code>itemColumns</code> without calling
+     * {@link IOutCreateCallback#getItemInformation(int, net.sf.sevenzipjbinding.impl.OutItemFactory)} for each item.
+     * The update information should be set using {@link OutItemColumns#setUpdateInfo(int[], boolean[], boolean[])}.
+     * 
+     * @param outStream
+     *            output stream to get the new archive
+     * @param itemColumns
+     *            information about all items of the new archive. The number of items in the new archive is
+     *            {@link OutItemColumns#getItemCount()}.
+     * @param outCreateCallback
+     *            create call back object to provide content of the new items
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void updateItems(ISequentialOutStream outStream, OutItemColumns itemColumns,
+            IOutCreateCallback<T> outCreateCallback) throws SevenZipException;
+
     /**
      * Return archive format used with this instance of {@link IOutStream}
      * 
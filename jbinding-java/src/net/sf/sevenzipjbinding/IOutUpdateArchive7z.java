@@ -33,5 +33,6 @@ package net.sf.sevenzipjbinding;
 public interface IOutUpdateArchive7z extends IOutUpdateArchive<IOutItem7z>, //
         IOutFeatureSetLevel, //
         IOutFeatureSetSolid, //
-        IOutFeatureSetMultithreading {
+        IOutFeatureSetMultithreading, //
+        IOutFeatureSetMethod {
 }
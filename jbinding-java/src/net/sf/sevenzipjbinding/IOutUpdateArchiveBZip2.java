@@ -31,5 +31,6 @@ package net.sf.sevenzipjbinding;
  * @since 9.20-2.00
  */
 public interface IOutUpdateArchiveBZip2 extends IOutUpdateArchive<IOutItemBZip2>, //
-        IOutFeatureSetLevel {
+        IOutFeatureSetLevel, //
+        IOutFeatureSetCoderProperties {
 }
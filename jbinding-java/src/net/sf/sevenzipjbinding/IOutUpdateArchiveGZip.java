@@ -31,5 +31,6 @@ package net.sf.sevenzipjbinding;
  * @since 9.20-2.00
  */
 public interface IOutUpdateArchiveGZip extends IOutUpdateArchive<IOutItemGZip>, //
-        IOutFeatureSetLevel {
+        IOutFeatureSetLevel, //
+        IOutFeatureSetCoderProperties {
 }
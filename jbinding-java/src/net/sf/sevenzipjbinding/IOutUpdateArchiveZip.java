@@ -31,5 +31,6 @@ package net.sf.sevenzipjbinding;
  * @since 9.20-2.00
  */
 public interface IOutUpdateArchiveZip extends IOutUpdateArchive<IOutItemZip>, //
-        IOutFeatureSetLevel {
+        IOutFeatureSetLevel, //
+        IOutFeatureSetMethod {
 }
@@ -0,0 +1,244 @@
+package net.sf.sevenzipjbinding;
+
+import java.util.Date;
+
+/**
+ * Column oriented values of the archive item properties returned by
+ * {@link IInArchive#getProperties(PropID[], int, int)}. For each requested property the values of all items in the
+ * range are stored in a single primitive array (a column). The element <code>i</code> of a column holds the value of
+ * the item with the index <code>getFromIndex() + i</code>.<br>
+ * <br>
+ * Depending on the type of the property values the column is one of:
+ * <ul>
+ * <li><code>int[]</code> - 8, 16 and 32 bit integer values, like {@link PropID#ATTRIBUTES}. Unsigned 32 bit values
+ * greater than {@link Integer#MAX_VALUE}, like some {@link PropID#CRC} values, appear negative. Use
+ * {@link #getLongColumn(PropID)} to get them as non-negative values.
+ * <li><code>long[]</code> - 64 bit integer values, like {@link PropID#SIZE}, and time values, like
+ * {@link PropID#LAST_MODIFICATION_TIME}. Time values are stored in the FILETIME format: count of 100-nanosecond
+ * intervals since January 1, 1601 (UTC). Use {@link #filetimeToDate(long)} to convert them.
+ * <li><code>boolean[]</code> - boolean values, like {@link PropID#IS_FOLDER}
+ * <li><code>String[]</code> - string values, like {@link PropID#PATH}
+ * </ul>
+ * Undefined values are stored as <code>0</code>, <code>false</code> or <code>null</code>. Use
+ * {@link #isDefined(PropID, int)} to distinguish them from the defined values.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ItemPropertyColumns {
+    private static final long FILETIME_TO_JAVATIME_SHIFT = 0x19db1ded53e8000L;
+    private static final long FILETIME_TO_JAVATIME_FACTOR = 10000;
+
+    private final PropID[] propIDs;
+    private final int fromIndex;
+    private final int toIndex;
+    private final Object[] columns;
+    private final boolean[][] definedValues;
+    private final boolean[] unsignedColumns;
+
+    /**
+     * Constructs an instance of the class. Used by the implementation of
+     * {@link IInArchive#getProperties(PropID[], int, int)}.
+     *
+     * @param propIDs
+     *            properties of the columns
+     * @param fromIndex
+     *            index of the first item (inclusive)
+     * @param toIndex
+     *            index of the last item (exclusive)
+     * @param columns
+     *            one column for each property. <code>null</code> if no value of the property is defined.
+     * @param definedValues
+     *            one array for each property marking the defined values. <code>null</code> if either all or none of
+     *            the values of the property are defined.
+     * @param unsignedColumns
+     *            marks the <code>int[]</code> columns holding unsigned values
+     */
+    public ItemPropertyColumns(PropID[] propIDs, int fromIndex, int toIndex, Object[] columns,
+            boolean[][] definedValues, boolean[] unsignedColumns) {
+        this.propIDs = propIDs;
+        this.fromIndex = fromIndex;
+        this.toIndex = toIndex;
+        this.columns = columns;
+        this.definedValues = definedValues;
+        this.unsignedColumns = unsignedColumns;
+    }
+
+    /**
+     * Returns index of the first item in the columns.
+     *
+     * @return index of the first item (inclusive)
+     */
+    public int getFromIndex() {
+        return fromIndex;
+    }
+
+    /**
+     * Returns index after the last item in the columns.
+     *
+     * @return index of the last item (exclusive)
+     */
+    public int getToIndex() {
+        return toIndex;
+    }
+
+    /**
+     * Returns count of items in the columns. This is the length of each column.
+     *
+     * @return count of items in the columns
+     */
+    public int getItemCount() {
+        return toIndex - fromIndex;
+    }
+
+    /**
+     * Returns the column of the property <code>propID</code>: <code>int[]</code>, <code>long[]</code>,
+     * <code>boolean[]</code>, <code>String[]</code> or <code>null</code>, if the property isn't defined for any
+     * item.
+     *
+     * @param propID
+     *            requested property
+     * @return column of the property <code>propID</code>
+     */
+    public Object getColumn(PropID propID) {
+        return columns[getColumnIndex(propID)];
+    }
+
+    /**
+     * Returns the column of the property <code>propID</code> with 8, 16 or 32 bit integer values.
+     *
+     * @param propID
+     *            requested property
+     * @return column of the property <code>propID</code>
+     * @throws IllegalArgumentException
+     *             the property values aren't 32 bit integers
+     */
+    public int[] getIntColumn(PropID propID) {
+        Object column = getColumn(propID);
+        if (column == null) {
+            return new int[getItemCount()];
+        }
+        if (!(column instanceof int[])) {
+            throw newWrongTypeException(propID, column, "int");
+        }
+        return (int[]) column;
+    }
+
+    /**
+     * Returns the column of the property <code>propID</code> with integer or time values. 32 bit integer values get
+     * widened to <code>long</code>, unsigned values without the sign extension. Time values are in the FILETIME
+     * format (see {@link #filetimeToDate(long)}).
+     *
+     * @param propID
+     *            requested property
+     * @return column of the property <code>propID</code>
+     * @throws IllegalArgumentException
+     *             the property values aren't integers or time values
+     */
+    public long[] getLongColumn(PropID propID) {
+        Object column = getColumn(propID);
+        if (column == null) {
+            return new long[getItemCount()];
+        }
+        if (column instanceof int[]) {
+            int[] intColumn = (int[]) column;
+            long mask = unsignedColumns[getColumnIndex(propID)] ? 0xFFFFFFFFL : -1L;
+            long[] longColumn = new long[intColumn.length];
+            for (int i = 0; i < intColumn.length; i++) {
+                longColumn[i] = intColumn[i] & mask;
+            }
+            return longColumn;
+        }
+        if (!(column instanceof long[])) {
+            throw newWrongTypeException(propID, column, "long");
+        }
+        return (long[]) column;
+    }
+
+    /**
+     * Returns the column of the property <code>propID</code> with boolean values.
+     *
+     * @param propID
+     *            requested property
+     * @return column of the property <code>propID</code>
+     * @throws IllegalArgumentException
+     *             the property values aren't boolean values
+     */
+    public boolean[] getBooleanColumn(PropID propID) {
+        Object column = getColumn(propID);
+        if (column == null) {
+            return new boolean[getItemCount()];
+        }
+        if (!(column instanceof boolean[])) {
+            throw newWrongTypeException(propID, column, "boolean");
+        }
+        return (boolean[]) column;
+    }
+
+    /**
+     * Returns the column of the property <code>propID</code> with string values.
+     *
+     * @param propID
+     *            requested property
+     * @return column of the property <code>propID</code>
+     * @throws IllegalArgumentException
+     *             the property values aren't strings
+     */
+    public String[] getStringColumn(PropID propID) {
+        Object column = getColumn(propID);
+        if (column == null) {
+            return new String[getItemCount()];
+        }
+        if (!(column instanceof String[])) {
+            throw newWrongTypeException(propID, column, "String");
+        }
+        return (String[]) column;
+    }
+
+    /**
+     * Determines, whether the property <code>propID</code> is defined for the item with the index
+     * <code>index</code>.
+     *
+     * @param propID
+     *            requested property
+     * @param index
+     *            index of the item in the archive (not in the column)
+     * @return <code>true</code> if the value is defined, <code>false</code> otherwise
+     */
+    public boolean isDefined(PropID propID, int index) {
+        if (index < fromIndex || index >= toIndex) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range [" + fromIndex + ", " + toIndex
+                    + ")");
+        }
+        int columnIndex = getColumnIndex(propID);
+        if (columns[columnIndex] == null) {
+            return false;
+        }
+        return definedValues[columnIndex] == null || definedValues[columnIndex][index - fromIndex];
+    }
+
+    /**
+     * Converts time in the FILETIME format into a {@link Date} object.
+     *
+     * @param filetime
+     *            count of 100-nanosecond intervals since January 1, 1601 (UTC)
+     * @return the corresponding date
+     */
+    public static Date filetimeToDate(long filetime) {
+        return new Date((filetime - FILETIME_TO_JAVATIME_SHIFT) / FILETIME_TO_JAVATIME_FACTOR);
+    }
+
+    private int getColumnIndex(PropID propID) {
+        for (int i = 0; i < propIDs.length; i++) {
+            if (propIDs[i] == propID) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Property " + propID + " wasn't requested");
+    }
+
+    private IllegalArgumentException newWrongTypeException(PropID propID, Object column, String type) {
+        return new IllegalArgumentException("Values of the property " + propID + " are of type "
+                + column.getClass().getComponentType().getSimpleName() + " and not of type " + type);
+    }
+}
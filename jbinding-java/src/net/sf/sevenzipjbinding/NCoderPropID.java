@@ -1,28 +1,88 @@
 package net.sf.sevenzipjbinding;
 
 /**
- * Enumeration for possible NCoder properties
- * 
- * TODO Use it or remove it
+ * Enumeration for possible NCoder properties. The properties fine tune the compression method of an archive. Use
+ * {@link IOutFeatureSetCoderProperties#setCoderProperty(NCoderPropID, Object)} to set them. Not all properties are
+ * supported by all compression methods and archive formats.
  * 
  * @author Boris Brodski
  * @since 9.20-2.00
  */
 public enum NCoderPropID {
+    /**
+     * Block size in bytes. Integer or string like <code>"64m"</code>.
+     */
     kBlockSize(int.class, "C"), //
+
+    /**
+     * Dictionary size in bytes. Integer or string like <code>"64m"</code>.
+     */
     kDictionarySize(int.class, "D"), //
+
+    /**
+     * Memory usage in bytes (PPMd). Integer or string like <code>"64m"</code>.
+     */
     kUsedMemorySize(int.class, "MEM"), //
+
+    /**
+     * Model order (PPMd).
+     */
     kOrder(int.class, "O"), //
+
+    /**
+     * Number of position state bits (LZMA).
+     */
     kPosStateBits(int.class, "PB"), //
+
+    /**
+     * Number of literal context bits (LZMA).
+     */
     kLitContextBits(int.class, "LC"), //
+
+    /**
+     * Number of literal position bits (LZMA).
+     */
     kLitPosBits(int.class, "LP"), //
+
+    /**
+     * Write end of stream marker (LZMA).
+     */
     kEndMarker(boolean.class, "eos"), //
+
+    /**
+     * Number of passes (Deflate, BZip2).
+     */
     kNumPasses(int.class, "Pass"), //
+
+    /**
+     * Number of fast bytes (LZMA, Deflate).
+     */
     kNumFastBytes(int.class, "fb"), //
+
+    /**
+     * Number of cycles for the match finder (LZMA, Deflate).
+     */
     kMatchFinderCycles(int.class, "mc"), //
+
+    /**
+     * Compression mode: <code>0</code> - fast, <code>1</code> - normal (LZMA, Deflate).
+     */
     kAlgorithm(int.class, "a"), //
+
+    /**
+     * Match finder, like <code>"bt4"</code> or <code>"hc4"</code> (LZMA).
+     */
     kMatchFinder(String.class, "mf"), //
+
+    /**
+     * Number of threads used by the coder.
+     */
     kNumThreads(int.class, "mt"), //
+
+    /**
+     * Default property. Not supported by
+     * {@link IOutFeatureSetCoderProperties#setCoderProperty(NCoderPropID, Object)}.
+     */
     kDefaultProp(int.class, "");
 
     private final Class<?> clazz;
@@ -32,4 +92,34 @@ public enum NCoderPropID {
         this.clazz = clazz;
         this.option = option;
     }
+
+    /**
+     * Returns type of the property value: <code>int.class</code>, <code>boolean.class</code> or
+     * <code>String.class</code>.
+     * 
+     * @return type of the property value
+     */
+    public Class<?> getValueType() {
+        return clazz;
+    }
+
+    /**
+     * Returns name of the property as used by 7-Zip in the command line options, like <code>"fb"</code> in
+     * <code>-m0fb=64</code>.
+     * 
+     * @return name of the 7-Zip option
+     */
+    public String getOption() {
+        return option;
+    }
+
+    /**
+     * Determines, whether the property is a size in bytes, that also can be specified as a string like
+     * <code>"64m"</code>.
+     * 
+     * @return <code>true</code> for the size properties
+     */
+    public boolean isSize() {
+        return this == kBlockSize || this == kDictionarySize || this == kUsedMemorySize;
+    }
 }
@@ -0,0 +1,289 @@
+package net.sf.sevenzipjbinding;
+
+/**
+ * Column oriented item information for archive create and update operations. Instead of providing an
+ * {@link IOutItemBase} object for each item through
+ * {@link IOutCreateCallback#getItemInformation(int, net.sf.sevenzipjbinding.impl.OutItemFactory)} the caller supplies
+ * all item properties up-front in primitive arrays (columns). The element <code>i</code> of a column holds the value of
+ * the item with the index <code>i</code>. The native code reads the properties directly from the columns without
+ * calling back into Java for each item and each property. This considerably speeds up creation of archives with a large
+ * number of small items.<br>
+ * <br>
+ * Columns not set (<code>null</code>) leave the corresponding property undefined for all items. Time values are
+ * specified in milliseconds since January 1, 1970 (UTC), like {@link java.io.File#lastModified()}.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * OutItemColumns itemColumns = new OutItemColumns(files.length) //
+ *         .setPaths(paths) //
+ *         .setDataSizes(sizes) //
+ *         .setLastModificationTimes(times);
+ * outArchive.createArchive(outStream, itemColumns, outCreateCallback);
+ * </pre>
+ *
+ * @see IOutCreateArchive#createArchive(ISequentialOutStream, OutItemColumns, IOutCreateCallback)
+ * @see IOutUpdateArchive#updateItems(ISequentialOutStream, OutItemColumns, IOutCreateCallback)
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class OutItemColumns {
+    // All fields are read by native code
+    private final int itemCount;
+
+    private String[] paths;
+    private long[] dataSizes;
+    private long[] lastModificationTimes;
+    private int[] attributes;
+    private int[] posixAttributes;
+    private boolean[] dirs;
+
+    private int[] updateOldArchiveItemIndices;
+    private boolean[] updateIsNewData;
+    private boolean[] updateIsNewProperties;
+
+    /**
+     * Constructs an instance of the class.
+     *
+     * @param itemCount
+     *            count of items in the new archive. This is the required length of each column.
+     */
+    public OutItemColumns(int itemCount) {
+        if (itemCount < 0) {
+            throw new IllegalArgumentException("Item count can't be negative: " + itemCount);
+        }
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Returns count of items in the new archive. This is the length of each column.
+     *
+     * @return count of items
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Set paths of the items. See {@link IOutItemBase} and {@link PropID#PATH}.
+     *
+     * @param paths
+     *            column with the paths or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setPaths(String[] paths) {
+        checkLength(paths == null ? -1 : paths.length);
+        this.paths = paths;
+        return this;
+    }
+
+    /**
+     * Returns paths of the items.
+     *
+     * @return column with the paths or <code>null</code>
+     */
+    public String[] getPaths() {
+        return paths;
+    }
+
+    /**
+     * Set sizes of the item data. See {@link PropID#SIZE}.
+     *
+     * @param dataSizes
+     *            column with the data sizes or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setDataSizes(long[] dataSizes) {
+        checkLength(dataSizes == null ? -1 : dataSizes.length);
+        this.dataSizes = dataSizes;
+        return this;
+    }
+
+    /**
+     * Returns sizes of the item data.
+     *
+     * @return column with the data sizes or <code>null</code>
+     */
+    public long[] getDataSizes() {
+        return dataSizes;
+    }
+
+    /**
+     * Set last modification times of the items in milliseconds since January 1, 1970 (UTC). See
+     * {@link PropID#LAST_MODIFICATION_TIME}.
+     *
+     * @param lastModificationTimes
+     *            column with the last modification times or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setLastModificationTimes(long[] lastModificationTimes) {
+        checkLength(lastModificationTimes == null ? -1 : lastModificationTimes.length);
+        this.lastModificationTimes = lastModificationTimes;
+        return this;
+    }
+
+    /**
+     * Returns last modification times of the items in milliseconds since January 1, 1970 (UTC).
+     *
+     * @return column with the last modification times or <code>null</code>
+     */
+    public long[] getLastModificationTimes() {
+        return lastModificationTimes;
+    }
+
+    /**
+     * Set attributes of the items. See {@link PropID#ATTRIBUTES}.
+     *
+     * @param attributes
+     *            column with the attributes or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setAttributes(int[] attributes) {
+        checkLength(attributes == null ? -1 : attributes.length);
+        this.attributes = attributes;
+        return this;
+    }
+
+    /**
+     * Returns attributes of the items.
+     *
+     * @return column with the attributes or <code>null</code>
+     */
+    public int[] getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Set posix attributes of the items. See {@link PropID#POSIX_ATTRIB}.
+     *
+     * @param posixAttributes
+     *            column with the posix attributes or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setPosixAttributes(int[] posixAttributes) {
+        checkLength(posixAttributes == null ? -1 : posixAttributes.length);
+        this.posixAttributes = posixAttributes;
+        return this;
+    }
+
+    /**
+     * Returns posix attributes of the items.
+     *
+     * @return column with the posix attributes or <code>null</code>
+     */
+    public int[] getPosixAttributes() {
+        return posixAttributes;
+    }
+
+    /**
+     * Set the 'is directory' flags of the items. See {@link PropID#IS_FOLDER}.
+     *
+     * @param dirs
+     *            column with the 'is directory' flags or <code>null</code>
+     * @return this object to chain calls
+     */
+    public OutItemColumns setDirs(boolean[] dirs) {
+        checkLength(dirs == null ? -1 : dirs.length);
+        this.dirs = dirs;
+        return this;
+    }
+
+    /**
+     * Returns the 'is directory' flags of the items.
+     *
+     * @return column with the 'is directory' flags or <code>null</code>
+     */
+    public boolean[] getDirs() {
+        return dirs;
+    }
+
+    /**
+     * Set update information of the items. Required for update operations only. See
+     * {@link IOutItemBase#setUpdateOldArchiveItemIndex(Integer)},
+     * {@link IOutItemBase#setUpdateIsNewData(Boolean)} and {@link IOutItemBase#setUpdateIsNewProperties(Boolean)}.
+     *
+     * @param oldArchiveItemIndices
+     *            column with the indices of the items in the old archive. <code>-1</code> - a new item.
+     * @param isNewData
+     *            column with the 'new data' flags or <code>null</code> - only new items get new data
+     * @param isNewProperties
+     *            column with the 'new properties' flags or <code>null</code> - only new items get new properties
+     * @return this object to chain calls
+     */
+    public OutItemColumns setUpdateInfo(int[] oldArchiveItemIndices, boolean[] isNewData, boolean[] isNewProperties) {
+        checkLength(oldArchiveItemIndices == null ? -1 : oldArchiveItemIndices.length);
+        checkLength(isNewData == null ? -1 : isNewData.length);
+        checkLength(isNewProperties == null ? -1 : isNewProperties.length);
+        this.updateOldArchiveItemIndices = oldArchiveItemIndices;
+        this.updateIsNewData = isNewData;
+        this.updateIsNewProperties = isNewProperties;
+        return this;
+    }
+
+    /**
+     * Returns indices of the items in the old archive.
+     *
+     * @return column with the indices of the items in the old archive or <code>null</code>
+     */
+    public int[] getUpdateOldArchiveItemIndices() {
+        return updateOldArchiveItemIndices;
+    }
+
+    /**
+     * Returns the 'new data' flags of the items.
+     *
+     * @return column with the 'new data' flags or <code>null</code>
+     */
+    public boolean[] getUpdateIsNewData() {
+        return updateIsNewData;
+    }
+
+    /**
+     * Returns the 'new properties' flags of the items.
+     *
+     * @return column with the 'new properties' flags or <code>null</code>
+     */
+    public boolean[] getUpdateIsNewProperties() {
+        return updateIsNewProperties;
+    }
+
+    /**
+     * Verifies consistency of the columns. Called before the create or update operation starts.
+     *
+     * @param update
+     *            <code>true</code> - update operation, <code>false</code> - create operation
+     * @throws SevenZipException
+     *             the columns are inconsistent
+     */
+    public void verify(boolean update) throws SevenZipException {
+        if (!update) {
+            if (updateOldArchiveItemIndices != null) {
+                throw new SevenZipException("Update information can't be set for the create operation");
+            }
+            return;
+        }
+        if (updateOldArchiveItemIndices == null) {
+            throw new SevenZipException("updateOldArchiveItemIndices can't be null");
+        }
+        for (int i = 0; i < itemCount; i++) {
+            boolean newItem = updateOldArchiveItemIndices[i] == -1;
+            boolean newData = newItem || (updateIsNewData != null && updateIsNewData[i]);
+            boolean newProperties = newItem || (updateIsNewProperties != null && updateIsNewProperties[i]);
+            if (updateOldArchiveItemIndices[i] < -1) {
+                throw new SevenZipException("Invalid old archive item index " + updateOldArchiveItemIndices[i]
+                        + " (index: " + i + ")");
+            }
+            if (newData && !newProperties) {
+                throw new SevenZipException("updateIsNewProperties must be set (updateIsNewData is true, index: "
+                        + i + ")");
+            }
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length != -1 && length != itemCount) {
+            throw new IllegalArgumentException("Column length " + length + " doesn't match item count " + itemCount);
+        }
+    }
+}
@@ -122,7 +122,7 @@ import net.sf.sevenzipjbinding.impl.VolumedArchiveInStream;
  * <li>{@link ICryptoGetTextPassword} - (optional) Provides password encrypted index</li>
  * <li>{@link IArchiveOpenVolumeCallback} - (optional) Provides information about volumes in multipart archives.
  * Currently used only for multipart <code>RAR</code> archives. For opening multipart <code>7z</code> archives use
- * {@link VolumedArchiveInStream}.</li>
+ * {@link VolumedArchiveInStream} or {@link net.sf.sevenzipjbinding.impl.BufferedVolumedArchiveInStream}.</li>
  * </ul>
  * </li>
  * <li>{@link #openInArchive(ArchiveFormat, IInStream, String)} a shortcut method for opening password protected
@@ -191,6 +191,12 @@ public class SevenZip {
         public String copyright;
     }
 
+    /**
+     * Default size of the native read buffer of the in-streams: 0 (buffering disabled). See
+     * {@link #setInStreamReadBufferSize(int)}.
+     */
+    public static final int DEFAULT_IN_STREAM_READ_BUFFER_SIZE = 0;
+
     private static final String SEVENZIPJBINDING_VERSION = "9.20-2.00beta";
 
     private static final String SYSTEM_PROPERTY_TMP = "java.io.tmpdir";
@@ -208,6 +214,9 @@ public class SevenZip {
     private static String usedPlatform = null;
     private static File[] temporaryArtifacts = null;
 
+    // Read by the native code on creation of each in-stream wrapper
+    private static volatile int inStreamReadBufferSize = DEFAULT_IN_STREAM_READ_BUFFER_SIZE;
+
     /**
      * Hide default constructor
      */
@@ -317,6 +326,41 @@ public class SevenZip {
         return temporaryArtifacts;
     }
 
+    /**
+     * Set the size of the native read buffer used for the {@link IInStream} implementations passed to 7-Zip-JBinding.
+     * 7-Zip reads archive headers using many small read and seek operations. With the buffer small reads are served
+     * from the native memory and seeks within the buffered data don't call the Java stream at all. The Java stream
+     * gets called only, if the buffer is exhausted or a read operation lands outside of it. Reads larger than the
+     * buffer bypass it. The new size applies to the in-streams opened after the call. A buffer of 64 KB is a good
+     * start.<br>
+     * <br>
+     * <i>Note:</i> with the buffer enabled the position of the Java stream doesn't follow the position used by 7-Zip.
+     * The native code assumes, that the position of the Java stream changes only through its own calls. Enable the
+     * buffer only, if no other code moves the position of the Java streams. For example, multiple
+     * {@link net.sf.sevenzipjbinding.impl.RandomAccessFileInStream} instances over the same
+     * {@link java.io.RandomAccessFile} share the file pointer and can't be used with the buffer.
+     * 
+     * @param size
+     *            size of the buffer in bytes. Use 0 to disable buffering and pass every read and seek operation to the
+     *            Java stream. Default: {@link #DEFAULT_IN_STREAM_READ_BUFFER_SIZE} (disabled)
+     */
+    public static void setInStreamReadBufferSize(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("Negative in-stream read buffer size: " + size);
+        }
+        inStreamReadBufferSize = size;
+    }
+
+    /**
+     * Returns the size of the native read buffer used for the {@link IInStream} implementations. See
+     * {@link #setInStreamReadBufferSize(int)}.
+     * 
+     * @return size of the buffer in bytes. 0 - buffering is disabled.
+     */
+    public static int getInStreamReadBufferSize() {
+        return inStreamReadBufferSize;
+    }
+
     /**
      * Initialize native SevenZipJBinding library assuming <code>sevenzipjbinding-<i>Platform</i>.jar</code> on the
      * class path. The platform depended library will be extracted from the jar file and copied to the temporary
@@ -0,0 +1,498 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Buffered version of the {@link VolumedArchiveInStream} merging the volumes of a 7z volumed archive (
+ * <code>name.7z.001</code>, <code>name.7z.002</code>, ...) into a single {@link IInStream}. Other naming schemes of
+ * the {@link VolumeNamingStrategy#isConcatenated() concatenated} volumes are supported passing a
+ * {@link VolumeNamingStrategy}. Designed for volumes on slow storage:
+ * <ul>
+ * <li>The data gets read from the volumes in chunks of the buffer size. Small reads get served from the buffer.
+ * <li>Opened volumes stay open. Up to <code>maxOpenVolumeCount</code> least recently used volumes are kept open, so
+ * seeking back and forth across a volume boundary doesn't reopen the volumes.
+ * <li>If the read position nears the end of the current volume, the next volume gets opened and its first chunk gets
+ * read asynchronously by a background thread. Reading sequentially across a volume boundary doesn't stall.
+ * <li>The volume containing a position is found using binary search over the known volume positions.
+ * </ul>
+ * Unlike with the {@link VolumedArchiveInStream} the {@link IArchiveOpenVolumeCallback} implementation shouldn't
+ * close or reuse the streams it returned from {@link IArchiveOpenVolumeCallback#getStream(String)}. Each call should
+ * return a new stream. The streams get closed by {@link #close()} or on eviction, if they implement
+ * {@link Closeable}. The method {@link IArchiveOpenVolumeCallback#getStream(String)} may get called by the background
+ * thread, but never concurrently.<br>
+ * <br>
+ * The background thread terminates, if there is nothing to prefetch. The {@link #close()} method should be called
+ * after the archive was closed.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class BufferedVolumedArchiveInStream implements IInStream, Closeable {
+    /**
+     * Default buffer size: 64 KB
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Default maximal count of the open volumes: 4
+     */
+    public static final int DEFAULT_MAX_OPEN_VOLUME_COUNT = 4;
+
+    private static final String SEVEN_ZIP_FIRST_VOLUME_POSTFIX = ".7z.001";
+    private static final int PREFETCH_THREAD_KEEP_ALIVE_SECONDS = 1;
+
+    /**
+     * Opened volume with its buffer.
+     */
+    private final class Volume {
+        final IInStream inStream;
+        final long length;
+        final byte[] buffer;
+        long bufferOffset;
+        int bufferLength;
+        long streamPosition;
+
+        Volume(IInStream inStream, long length) {
+            this.inStream = inStream;
+            this.length = length;
+            this.buffer = new byte[(int) Math.min(bufferSize, length)];
+            this.streamPosition = length; // The length was determined seeking to the end
+        }
+
+        /**
+         * Fills the buffer with the data starting at <code>offset</code> within the volume.
+         */
+        void fill(long offset) throws SevenZipException {
+            bufferOffset = offset;
+            bufferLength = 0;
+            int toRead = (int) Math.min(buffer.length, length - offset);
+            while (bufferLength < toRead) {
+                int read = read(offset + bufferLength, buffer, bufferLength, toRead - bufferLength);
+                if (read == 0) {
+                    break;
+                }
+                bufferLength += read;
+            }
+        }
+
+        int read(long offset, byte[] data, int dataOffset, int dataLength) throws SevenZipException {
+            if (streamPosition != offset) {
+                streamPosition = inStream.seek(offset, SEEK_SET);
+            }
+            int read;
+            if (dataOffset == 0 && dataLength == data.length) {
+                read = inStream.read(data);
+            } else {
+                byte[] chunk = new byte[dataLength];
+                read = inStream.read(chunk);
+                System.arraycopy(chunk, 0, data, dataOffset, read);
+            }
+            streamPosition += read;
+            return read;
+        }
+
+        boolean isBuffered(long offset) {
+            return offset >= bufferOffset && offset < bufferOffset + bufferLength;
+        }
+    }
+
+    private final IArchiveOpenVolumeCallback archiveOpenVolumeCallback;
+    private final VolumeNamingStrategy volumeNamingStrategy;
+    private final String firstVolumeFilename;
+    private final int bufferSize;
+    private final int maxOpenVolumeCount;
+    private final ExecutorService prefetchExecutor;
+
+    // volumePositions[i] - absolute position of the volume i (0-based). Known for the first knownVolumeCount + 1.
+    private long[] volumePositions = new long[16];
+    private int knownVolumeCount;
+    private boolean lastVolumeKnown;
+
+    // Open volumes in access order: the least recently used volume comes first
+    private final Map<Integer, Volume> openVolumes = new LinkedHashMap<Integer, Volume>(16, 0.75f, true);
+    private final Map<Integer, Future<Volume>> prefetchedVolumes = new HashMap<Integer, Future<Volume>>();
+    private long absoluteOffset;
+    private boolean closed;
+
+    /**
+     * Creates instance of {@link BufferedVolumedArchiveInStream} using {@link IArchiveOpenVolumeCallback}. The name of
+     * the first archive volume will be asked using {@link IArchiveOpenVolumeCallback#getProperty(PropID)} with the
+     * <code>propID</code>={@link PropID#NAME}. The file name should ends with <code>.7z.001</code> or
+     * SevenZipException will be thrown.
+     *
+     * @param archiveOpenVolumeCallback
+     *            call back implementation used to access different volumes of archive.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public BufferedVolumedArchiveInStream(IArchiveOpenVolumeCallback archiveOpenVolumeCallback)
+            throws SevenZipException {
+        this((String) archiveOpenVolumeCallback.getProperty(PropID.NAME), archiveOpenVolumeCallback);
+    }
+
+    /**
+     * Creates instance of {@link BufferedVolumedArchiveInStream} using {@link IArchiveOpenVolumeCallback} with the
+     * default buffer size and the default maximal count of the open volumes.
+     *
+     * @param firstVolumeFilename
+     *            the file name of the first volume. The file name should ends with <code>.7z.001</code> or
+     *            SevenZipException will be thrown.
+     * @param archiveOpenVolumeCallback
+     *            call back implementation used to access different volumes of archive.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public BufferedVolumedArchiveInStream(String firstVolumeFilename,
+            IArchiveOpenVolumeCallback archiveOpenVolumeCallback) throws SevenZipException {
+        this(firstVolumeFilename, archiveOpenVolumeCallback, DEFAULT_BUFFER_SIZE, DEFAULT_MAX_OPEN_VOLUME_COUNT);
+    }
+
+    /**
+     * Creates instance of {@link BufferedVolumedArchiveInStream} using {@link IArchiveOpenVolumeCallback}.
+     *
+     * @param firstVolumeFilename
+     *            the file name of the first volume. The file name should ends with <code>.7z.001</code> or
+     *            SevenZipException will be thrown.
+     * @param archiveOpenVolumeCallback
+     *            call back implementation used to access different volumes of archive.
+     * @param bufferSize
+     *            size of the buffer of each open volume. The next volume gets prefetched, if the read position comes
+     *            closer to the end of the current volume than the buffer size.
+     * @param maxOpenVolumeCount
+     *            maximal count of the open volumes, not counting the prefetched volume.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public BufferedVolumedArchiveInStream(String firstVolumeFilename,
+            IArchiveOpenVolumeCallback archiveOpenVolumeCallback, int bufferSize, int maxOpenVolumeCount)
+            throws SevenZipException {
+        this(checkSevenZipFirstVolume(firstVolumeFilename), VolumeNamingStrategy.SEVEN_ZIP,
+                archiveOpenVolumeCallback, bufferSize, maxOpenVolumeCount);
+    }
+
+    /**
+     * Creates instance of {@link BufferedVolumedArchiveInStream} for the volumes named according to the
+     * <code>volumeNamingStrategy</code>.
+     *
+     * @param firstVolumeFilename
+     *            the file name of the first volume
+     * @param volumeNamingStrategy
+     *            naming strategy of the volumes. Only {@link VolumeNamingStrategy#isConcatenated() concatenated}
+     *            strategies are supported.
+     * @param archiveOpenVolumeCallback
+     *            call back implementation used to access different volumes of archive.
+     * @param bufferSize
+     *            size of the buffer of each open volume. The next volume gets prefetched, if the read position comes
+     *            closer to the end of the current volume than the buffer size.
+     * @param maxOpenVolumeCount
+     *            maximal count of the open volumes, not counting the prefetched volume.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public BufferedVolumedArchiveInStream(String firstVolumeFilename, VolumeNamingStrategy volumeNamingStrategy,
+            IArchiveOpenVolumeCallback archiveOpenVolumeCallback, int bufferSize, int maxOpenVolumeCount)
+            throws SevenZipException {
+        if (!volumeNamingStrategy.isConcatenated()) {
+            throw new IllegalArgumentException("The volumes of the naming strategy '" + volumeNamingStrategy
+                    + "' can't be concatenated");
+        }
+        if (!volumeNamingStrategy.isFirstVolume(firstVolumeFilename)) {
+            throw new SevenZipException("'" + firstVolumeFilename + "' isn't a name of the first volume ("
+                    + volumeNamingStrategy + ")");
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size should be positive: " + bufferSize);
+        }
+        if (maxOpenVolumeCount <= 0) {
+            throw new IllegalArgumentException("Max open volume count should be positive: " + maxOpenVolumeCount);
+        }
+        this.archiveOpenVolumeCallback = archiveOpenVolumeCallback;
+        this.volumeNamingStrategy = volumeNamingStrategy;
+        this.firstVolumeFilename = firstVolumeFilename;
+        this.bufferSize = bufferSize;
+        this.maxOpenVolumeCount = maxOpenVolumeCount;
+        this.prefetchExecutor = new ThreadPoolExecutor(0, 1, PREFETCH_THREAD_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "7-Zip-JBinding volume prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        if (getVolume(0) == null) {
+            close();
+            throw new SevenZipException("The first volume '" + firstVolumeFilename + "' can't be opened");
+        }
+    }
+
+    private static String checkSevenZipFirstVolume(String firstVolumeFilename) throws SevenZipException {
+        if (!firstVolumeFilename.endsWith(SEVEN_ZIP_FIRST_VOLUME_POSTFIX)) {
+            throw new SevenZipException("The first 7z volume filename '" + firstVolumeFilename
+                    + "' don't ends with the postfix: '" + SEVEN_ZIP_FIRST_VOLUME_POSTFIX + "'. Can't proceed");
+        }
+        return firstVolumeFilename;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long seek(long offset, int seekOrigin) throws SevenZipException {
+        ensureOpen();
+        long newOffset;
+        switch (seekOrigin) {
+        case SEEK_SET:
+            newOffset = offset;
+            break;
+
+        case SEEK_CUR:
+            newOffset = absoluteOffset + offset;
+            break;
+
+        case SEEK_END:
+            while (!lastVolumeKnown) {
+                getVolume(knownVolumeCount);
+            }
+            newOffset = volumePositions[knownVolumeCount] + offset;
+            break;
+
+        default:
+            throw new RuntimeException("Seek: unknown origin: " + seekOrigin);
+        }
+
+        if (newOffset < 0) {
+            throw new SevenZipException("Error while seek operation: negative position " + newOffset);
+        }
+        if (findVolumeIndex(newOffset) == -1 && newOffset > volumePositions[knownVolumeCount]) {
+            newOffset = volumePositions[knownVolumeCount];
+        }
+        absoluteOffset = newOffset;
+        return newOffset;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int read(byte[] data) throws SevenZipException {
+        ensureOpen();
+        if (data.length == 0) {
+            return 0;
+        }
+        int index = findVolumeIndex(absoluteOffset);
+        if (index == -1) {
+            return 0;
+        }
+        Volume volume = getVolume(index);
+        long offset = absoluteOffset - volumePositions[index];
+
+        int read;
+        if (volume.isBuffered(offset)) {
+            read = Math.min(data.length, (int) (volume.bufferOffset + volume.bufferLength - offset));
+            System.arraycopy(volume.buffer, (int) (offset - volume.bufferOffset), data, 0, read);
+        } else if (data.length >= volume.buffer.length) {
+            read = volume.read(offset, data, 0, (int) Math.min(data.length, volume.length - offset));
+        } else {
+            volume.fill(offset);
+            read = Math.min(data.length, volume.bufferLength);
+            System.arraycopy(volume.buffer, 0, data, 0, read);
+        }
+        absoluteOffset += read;
+
+        if (volume.length - offset - read <= bufferSize) {
+            prefetch(index + 1);
+        }
+        return read;
+    }
+
+    /**
+     * Returns the index of the volume containing the absolute <code>offset</code> opening new volumes if necessary.
+     * Returns -1, if the offset is beyond the end of the last volume.
+     */
+    private int findVolumeIndex(long offset) throws SevenZipException {
+        while (offset >= volumePositions[knownVolumeCount]) {
+            if (lastVolumeKnown) {
+                return -1;
+            }
+            getVolume(knownVolumeCount);
+        }
+        // Binary search for the largest i with volumePositions[i] <= offset
+        int low = 0;
+        int high = knownVolumeCount - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (volumePositions[middle] <= offset) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the open volume <code>index</code>. The position of the volume should be known. Returns
+     * <code>null</code>, if the volume doesn't exist.
+     */
+    private Volume getVolume(int index) throws SevenZipException {
+        Volume volume = openVolumes.get(Integer.valueOf(index));
+        if (volume != null) {
+            return volume;
+        }
+        if (index == knownVolumeCount && lastVolumeKnown) {
+            return null;
+        }
+
+        Future<Volume> future = prefetchedVolumes.remove(Integer.valueOf(index));
+        if (future == null) {
+            volume = openVolume(index);
+        } else {
+            volume = getPrefetchedVolume(future);
+        }
+
+        if (volume == null) {
+            lastVolumeKnown = true;
+            return null;
+        }
+        if (index == knownVolumeCount) {
+            if (knownVolumeCount + 1 == volumePositions.length) {
+                long[] newVolumePositions = new long[volumePositions.length * 2];
+                System.arraycopy(volumePositions, 0, newVolumePositions, 0, volumePositions.length);
+                volumePositions = newVolumePositions;
+            }
+            volumePositions[index + 1] = volumePositions[index] + volume.length;
+            knownVolumeCount++;
+        }
+
+        openVolumes.put(Integer.valueOf(index), volume);
+        Iterator<Volume> iterator = openVolumes.values().iterator();
+        while (openVolumes.size() > maxOpenVolumeCount) {
+            closeVolume(iterator.next());
+            iterator.remove();
+        }
+        return volume;
+    }
+
+    private Volume getPrefetchedVolume(Future<Volume> future) throws SevenZipException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new SevenZipException("Interrupted while waiting for the prefetched volume", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SevenZipException) {
+                throw (SevenZipException) e.getCause();
+            }
+            throw new SevenZipException("Error prefetching volume", e.getCause());
+        }
+    }
+
+    /**
+     * Opens the next volume <code>index</code> and reads its first chunk in the background thread.
+     */
+    private void prefetch(final int index) {
+        Integer key = Integer.valueOf(index);
+        if (index > knownVolumeCount || (index == knownVolumeCount && lastVolumeKnown)
+                || openVolumes.containsKey(key) || prefetchedVolumes.containsKey(key)) {
+            return;
+        }
+        prefetchedVolumes.put(key, prefetchExecutor.submit(new Callable<Volume>() {
+            public Volume call() throws SevenZipException {
+                Volume volume = openVolume(index);
+                if (volume != null) {
+                    volume.fill(0);
+                }
+                return volume;
+            }
+        }));
+    }
+
+    /**
+     * Opens the volume <code>index</code>. Returns <code>null</code>, if the volume doesn't exist. Called by the
+     * reading and by the background thread.
+     */
+    private Volume openVolume(int index) throws SevenZipException {
+        synchronized (archiveOpenVolumeCallback) {
+            IInStream inStream = archiveOpenVolumeCallback.getStream(volumeNamingStrategy.getVolumeFilename(
+                    firstVolumeFilename, index));
+            if (inStream == null) {
+                return null;
+            }
+            long length = inStream.seek(0, SEEK_END);
+            if (length == 0) {
+                closeStream(inStream);
+                throw new SevenZipException("Volume " + (index + 1) + " is empty");
+            }
+            return new Volume(inStream, length);
+        }
+    }
+
+    private void ensureOpen() throws SevenZipException {
+        if (closed) {
+            throw new SevenZipException("Stream was closed");
+        }
+    }
+
+    /**
+     * Closes all open and prefetched volumes and stops the background thread. After this call no more methods should
+     * be called.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        prefetchExecutor.shutdown();
+        List<Volume> volumesToClose = new ArrayList<Volume>(openVolumes.values());
+        openVolumes.clear();
+        for (Future<Volume> future : prefetchedVolumes.values()) {
+            try {
+                volumesToClose.add(future.get());
+            } catch (Exception e) {
+                // Prefetching failed, nothing to close
+            }
+        }
+        prefetchedVolumes.clear();
+        for (Volume volume : volumesToClose) {
+            closeVolume(volume);
+        }
+    }
+
+    private static void closeVolume(Volume volume) {
+        if (volume != null) {
+            closeStream(volume.inStream);
+        }
+    }
+
+    private static void closeStream(IInStream inStream) {
+        if (inStream instanceof Closeable) {
+            try {
+                ((Closeable) inStream).close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
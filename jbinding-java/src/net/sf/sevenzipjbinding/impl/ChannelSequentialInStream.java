@@ -0,0 +1,78 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * {@link ReadableByteChannel} based implementation of {@link ISequentialInStream}. The native code passes a reused
+ * direct buffer to the {@link #read(ByteBuffer)} method, so the channel reads the data directly into the native
+ * memory.
+ *
+ * @see ReadAheadChannelInStreams
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ChannelSequentialInStream implements IDirectBufferSequentialInStream, Closeable {
+    private final ReadableByteChannel channel;
+
+    /**
+     * Create new channel based implementation of {@link ISequentialInStream}.
+     *
+     * @param channel
+     *            base channel in blocking mode
+     */
+    public ChannelSequentialInStream(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(byte[] data) throws SevenZipException {
+        return read(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(ByteBuffer buffer) throws SevenZipException {
+        int size = buffer.remaining();
+        if (size == 0) {
+            return 0;
+        }
+        try {
+            int result;
+            do {
+                result = channel.read(buffer);
+            } while (result == 0);
+            if (result < 0) {
+                return 0;
+            }
+            return result;
+        } catch (IOException e) {
+            throw new SevenZipException("Error reading " + size + " bytes out of the channel", e);
+        }
+    }
+
+    /**
+     * Returns base channel
+     *
+     * @return channel
+     */
+    public ReadableByteChannel getChannel() {
+        return channel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,11 +1,17 @@
 package net.sf.sevenzipjbinding.impl;
 
+import java.io.File;
+
 import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ArchiveStatistics;
 import net.sf.sevenzipjbinding.ExtractAskMode;
 import net.sf.sevenzipjbinding.ExtractOperationResult;
 import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IArchiveExtractCallbackFactory;
+import net.sf.sevenzipjbinding.IArchiveOpenCallback;
 import net.sf.sevenzipjbinding.ICryptoGetTextPassword;
 import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
 import net.sf.sevenzipjbinding.IOutItem7z;
 import net.sf.sevenzipjbinding.IOutItemAllFormats;
 import net.sf.sevenzipjbinding.IOutItemBZip2;
@@ -19,7 +25,9 @@ import net.sf.sevenzipjbinding.IOutUpdateArchiveBZip2;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveGZip;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveTar;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveZip;
+import net.sf.sevenzipjbinding.IProgress;
 import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.ItemPropertyColumns;
 import net.sf.sevenzipjbinding.NFileTimeType;
 import net.sf.sevenzipjbinding.PropID;
 import net.sf.sevenzipjbinding.PropertyInfo;
@@ -97,12 +105,18 @@ public final class InArchiveImpl implements IInArchive {
     private long jbindingSession;
     private long sevenZipArchiveInstance;
     private long sevenZipInStreamInstance;
+    private IInStream inStream; // Set by the native code on open, cleared on close
+    private IArchiveOpenCallback archiveOpenCallback;
     private OutArchiveImpl<?> outArchiveImpl;
 
     private int numberOfItems = -1;
 
     private ArchiveFormat archiveFormat;
 
+    // Guards the native session against nativeGetStatistics() running concurrently with nativeClose()
+    private final Object statisticsLock = new Object();
+    private ArchiveStatistics closedArchiveStatistics;
+
     /**
      * {@inheritDoc}
      */
@@ -112,6 +126,20 @@ public final class InArchiveImpl implements IInArchive {
         nativeExtract(indices, testMode, extractCallback);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void extractParallel(int[] indices, int threadCount, IArchiveExtractCallbackFactory callbackFactory)
+            throws SevenZipException {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException("Thread count should be positive: " + threadCount);
+        }
+        if (inStream == null) {
+            throw new SevenZipException("Archive was closed");
+        }
+        new ParallelExtraction(this, inStream, archiveOpenCallback).extract(indices, threadCount, callbackFactory);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -135,6 +163,20 @@ public final class InArchiveImpl implements IInArchive {
     private native void nativeExtract(int[] indices, boolean testMode, IArchiveExtractCallback extractCallback)
             throws SevenZipException;
 
+    /**
+     * {@inheritDoc}
+     */
+    public void extractToDirectory(int[] indices, File targetDirectory, IProgress progress)
+            throws SevenZipException {
+        if (targetDirectory == null) {
+            throw new NullPointerException("targetDirectory");
+        }
+        nativeExtractToDirectory(indices, targetDirectory.getAbsolutePath(), progress);
+    }
+
+    private native void nativeExtractToDirectory(int[] indices, String targetDirectory, IProgress progress)
+            throws SevenZipException;
+
     private native Object nativeGetArchiveProperty(int propID) throws SevenZipException;
 
     /**
@@ -196,7 +238,27 @@ public final class InArchiveImpl implements IInArchive {
      * {@inheritDoc}
      */
     public void close() throws SevenZipException {
-        nativeClose();
+        synchronized (statisticsLock) {
+            ArchiveStatistics archiveStatistics = nativeGetStatistics();
+            nativeClose();
+            closedArchiveStatistics = archiveStatistics;
+            inStream = null;
+            archiveOpenCallback = null;
+        }
+    }
+
+    private native ArchiveStatistics nativeGetStatistics() throws SevenZipException;
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArchiveStatistics getStatistics() throws SevenZipException {
+        synchronized (statisticsLock) {
+            if (closedArchiveStatistics != null) {
+                return closedArchiveStatistics;
+            }
+            return nativeGetStatistics();
+        }
     }
 
     private native int nativeGetNumberOfItems() throws SevenZipException;
@@ -270,6 +332,33 @@ public final class InArchiveImpl implements IInArchive {
         return nativeGetStringProperty(index, propID.getPropIDIndex());
     }
 
+    private native void nativeGetProperties(int[] propIDs, int fromIndex, int toIndex, Object[] columns,
+            boolean[][] definedValues, boolean[] unsignedColumns) throws SevenZipException;
+
+    /**
+     * {@inheritDoc}
+     */
+    public ItemPropertyColumns getProperties(PropID[] propIDs, int fromIndex, int toIndex) throws SevenZipException {
+        if (propIDs == null) {
+            throw new NullPointerException("propIDs");
+        }
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > getNumberOfItems()) {
+            throw new SevenZipException("Index range out of range. FromIndex: " + fromIndex + ", ToIndex: " + toIndex
+                    + ", NumberOfItems: " + getNumberOfItems());
+        }
+        int[] propIDIndices = new int[propIDs.length];
+        for (int i = 0; i < propIDs.length; i++) {
+            propIDIndices[i] = propIDs[i].getPropIDIndex();
+        }
+        Object[] columns = new Object[propIDs.length];
+        boolean[][] definedValues = new boolean[propIDs.length][];
+        boolean[] unsignedColumns = new boolean[propIDs.length];
+        if (fromIndex < toIndex) {
+            nativeGetProperties(propIDIndices, fromIndex, toIndex, columns, definedValues, unsignedColumns);
+        }
+        return new ItemPropertyColumns(propIDs.clone(), fromIndex, toIndex, columns, definedValues, unsignedColumns);
+    }
+
     /**
      * {@inheritDoc}
      */
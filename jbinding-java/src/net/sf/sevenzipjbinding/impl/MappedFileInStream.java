@@ -0,0 +1,211 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import net.sf.sevenzipjbinding.ICloneableInStream;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Implementation of {@link IInStream} using memory mapped file. Files larger than the chunk size (1 GB by default) get
+ * mapped in multiple chunks.<br>
+ * <br>
+ * If an instance of this class is passed to the native library (for example to
+ * {@link net.sf.sevenzipjbinding.SevenZip#openInArchive(net.sf.sevenzipjbinding.ArchiveFormat, IInStream)}), the native
+ * code reads the data directly from the mapped memory. In this case the {@link #seek(long, int)} and
+ * {@link #read(byte[])} methods don't get called and the position of the stream doesn't change. The native code tracks
+ * its own position instead.<br>
+ * <br>
+ * <i>Note:</i> the mapped memory gets released by the garbage collector and not by the {@link #close()} method. The
+ * file shouldn't be truncated while mapped.<br>
+ * <br>
+ * The {@link #cloneStream()} method creates new streams sharing the same mapped memory without mapping the file again.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class MappedFileInStream implements ICloneableInStream, IDirectBufferSequentialInStream, Closeable {
+    /**
+     * Default size of the mapped chunks: 1 GB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 30;
+
+    private final long size;
+    private final int chunkSize;
+    private ByteBuffer[] chunks;
+    private long position;
+
+    /**
+     * Constructs instance of the class mapping the whole <code>file</code> into memory using the default chunk size.
+     * The file doesn't need to stay open after the mapping.
+     *
+     * @param file
+     *            file to map
+     * @throws IOException
+     *             error opening or mapping the file
+     */
+    public MappedFileInStream(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel fileChannel = randomAccessFile.getChannel();
+            this.size = fileChannel.size();
+            this.chunkSize = DEFAULT_CHUNK_SIZE;
+            this.chunks = map(fileChannel, size, chunkSize);
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * Constructs instance of the class mapping the whole file of the <code>fileChannel</code> into memory. The file
+     * channel doesn't need to stay open after the mapping.
+     *
+     * @param fileChannel
+     *            channel of the file to map
+     * @param chunkSize
+     *            size of the mapped chunks. Use {@link #DEFAULT_CHUNK_SIZE} for large files.
+     * @throws IOException
+     *             error mapping the file
+     */
+    public MappedFileInStream(FileChannel fileChannel, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive: " + chunkSize);
+        }
+        this.size = fileChannel.size();
+        this.chunkSize = chunkSize;
+        this.chunks = map(fileChannel, size, chunkSize);
+    }
+
+    private MappedFileInStream(long size, int chunkSize, ByteBuffer[] chunks) {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.chunks = chunks;
+    }
+
+    private static ByteBuffer[] map(FileChannel fileChannel, long size, int chunkSize) throws IOException {
+        int chunkCount = (int) ((size + chunkSize - 1) / chunkSize);
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+        for (int i = 0; i < chunkCount; i++) {
+            long chunkPosition = (long) i * chunkSize;
+            chunks[i] = fileChannel.map(MapMode.READ_ONLY, chunkPosition, Math.min(chunkSize, size - chunkPosition));
+        }
+        return chunks;
+    }
+
+    /**
+     * Returns the size of the mapped file.
+     *
+     * @return the size of the mapped file
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Returns mapped chunks of the file. All chunks except the last one have the same size. Used by the native code.
+     *
+     * @return mapped chunks of the file
+     */
+    final ByteBuffer[] getMappedBuffers() {
+        return chunks;
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * The new stream shares the mapped memory with this stream. Closing one of the streams doesn't affect the other.
+     */
+    public synchronized IInStream cloneStream() throws SevenZipException {
+        if (chunks == null) {
+            throw new SevenZipException("Stream was closed");
+        }
+        return new MappedFileInStream(size, chunkSize, chunks);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized long seek(long offset, int seekOrigin) throws SevenZipException {
+        long newPosition;
+        switch (seekOrigin) {
+        case SEEK_SET:
+            newPosition = offset;
+            break;
+
+        case SEEK_CUR:
+            newPosition = position + offset;
+            break;
+
+        case SEEK_END:
+            newPosition = size + offset;
+            break;
+
+        default:
+            throw new RuntimeException("Seek: unknown origin: " + seekOrigin);
+        }
+
+        if (newPosition < 0) {
+            throw new SevenZipException("Error while seek operation: negative position " + newPosition);
+        }
+        position = newPosition;
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int read(byte[] data) throws SevenZipException {
+        if (position >= size || data.length == 0) {
+            return 0;
+        }
+        ByteBuffer chunk = getChunk();
+        int read = Math.min(data.length, chunk.remaining());
+        chunk.get(data, 0, read);
+        position += read;
+        return read;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int read(ByteBuffer buffer) throws SevenZipException {
+        if (position >= size || !buffer.hasRemaining()) {
+            return 0;
+        }
+        ByteBuffer chunk = getChunk();
+        if (chunk.remaining() > buffer.remaining()) {
+            chunk.limit(chunk.position() + buffer.remaining());
+        }
+        int read = chunk.remaining();
+        buffer.put(chunk);
+        position += read;
+        return read;
+    }
+
+    /**
+     * Returns a view of the chunk containing the current position. The position of the view points to the current
+     * position in the stream.
+     */
+    private ByteBuffer getChunk() throws SevenZipException {
+        if (chunks == null) {
+            throw new SevenZipException("Stream was closed");
+        }
+        ByteBuffer chunk = chunks[(int) (position / chunkSize)].duplicate();
+        chunk.position((int) (position % chunkSize));
+        return chunk;
+    }
+
+    /**
+     * Releases references to the mapped chunks. After this call no more methods should be called.
+     */
+    public synchronized void close() {
+        chunks = null;
+    }
+}
@@ -1,9 +1,12 @@
 package net.sf.sevenzipjbinding.impl;
 
+import java.util.List;
+
 import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutFeatureSetCoderProperties;
 import net.sf.sevenzipjbinding.IOutItem7z;
 import net.sf.sevenzipjbinding.IOutUpdateArchive7z;
-import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.NCoderPropID;
 
 /**
  * 7z specific archive create and update class.
@@ -50,8 +53,8 @@ public class OutArchive7zImpl extends OutArchiveImpl<IOutItem7z> implements IOut
     }
 
     @Override
-    protected void applyFeatures() throws SevenZipException {
-        super.applyFeatures();
+    protected void collectFeatureProperties(List<String> names, List<Object> values) {
+        super.collectFeatureProperties(names, values);
 
         StringBuilder stringBuilder = new StringBuilder();
         if (solidExtension) {
@@ -66,13 +69,31 @@ public class OutArchive7zImpl extends OutArchiveImpl<IOutItem7z> implements IOut
             stringBuilder.append("B");
         }
         if (stringBuilder.length() > 0) {
-            nativeSetSolidSpec(stringBuilder.toString());
+            names.add("S");
+            values.add(stringBuilder.toString());
         }
 
         // Set solid block configuration
         if (!solid) {
-            nativeSetSolidSpec(null);
+            names.add("S");
+            values.add(Boolean.FALSE);
+        }
+    }
+
+    /**
+     * 7z coder properties get applied to the first (main) coder: <code>0&lt;option&gt;</code>.
+     */
+    @Override
+    protected String getCoderPropertyName(NCoderPropID propID) {
+        if (propID == NCoderPropID.kDefaultProp) {
+            return null;
         }
+        return "0" + propID.getOption();
+    }
+
+    @Override
+    protected String getMethodPropertyName() {
+        return "0";
     }
 
     /**
@@ -81,4 +102,20 @@ public class OutArchive7zImpl extends OutArchiveImpl<IOutItem7z> implements IOut
     public void setThreadCount(int threadCount) {
         featureSetThreadCount(threadCount);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setMethod(String method) {
+        featureSetMethod(method);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setCoderProperty(NCoderPropID propID, Object value) {
+        featureSetCoderProperty(propID, value);
+        return this;
+    }
 }
@@ -1,8 +1,10 @@
 package net.sf.sevenzipjbinding.impl;
 
 import net.sf.sevenzipjbinding.IOutCreateArchiveBZip2;
+import net.sf.sevenzipjbinding.IOutFeatureSetCoderProperties;
 import net.sf.sevenzipjbinding.IOutItemBZip2;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveBZip2;
+import net.sf.sevenzipjbinding.NCoderPropID;
 
 /**
  * BZip2 specific archive create and update class.
@@ -20,4 +22,23 @@ public class OutArchiveBZip2Impl extends OutArchiveImpl<IOutItemBZip2> implement
         featureSetLevel(compressionLevel);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setCoderProperty(NCoderPropID propID, Object value) {
+        featureSetCoderProperty(propID, value);
+        return this;
+    }
+
+    @Override
+    protected String getCoderPropertyName(NCoderPropID propID) {
+        switch (propID) {
+        case kDictionarySize:
+        case kNumPasses:
+        case kNumThreads:
+            return propID.getOption();
+        default:
+            return null;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package net.sf.sevenzipjbinding.impl;
 
 import net.sf.sevenzipjbinding.IOutCreateArchiveGZip;
+import net.sf.sevenzipjbinding.IOutFeatureSetCoderProperties;
 import net.sf.sevenzipjbinding.IOutItemGZip;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveGZip;
+import net.sf.sevenzipjbinding.NCoderPropID;
 
 /**
  * GZip specific archive create and update class.
@@ -20,4 +22,24 @@ public class OutArchiveGZipImpl extends OutArchiveImpl<IOutItemGZip> implements
         featureSetLevel(compressionLevel);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setCoderProperty(NCoderPropID propID, Object value) {
+        featureSetCoderProperty(propID, value);
+        return this;
+    }
+
+    @Override
+    protected String getCoderPropertyName(NCoderPropID propID) {
+        switch (propID) {
+        case kAlgorithm:
+        case kNumPasses:
+        case kNumFastBytes:
+        case kMatchFinderCycles:
+            return propID.getOption();
+        default:
+            return null;
+        }
+    }
 }
@@ -2,13 +2,20 @@ package net.sf.sevenzipjbinding.impl;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 
 import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ArchiveStatistics;
 import net.sf.sevenzipjbinding.IInArchive;
 import net.sf.sevenzipjbinding.IOutArchive;
 import net.sf.sevenzipjbinding.IOutCreateCallback;
 import net.sf.sevenzipjbinding.IOutItemBase;
 import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.NCoderPropID;
+import net.sf.sevenzipjbinding.OutItemColumns;
 import net.sf.sevenzipjbinding.SevenZipException;
 
 /**
@@ -44,8 +51,13 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
 
     private int compressionLevel = -1;
     private int threadCount = -1;
+    private String method;
+    private final Map<NCoderPropID, Object> coderProperties = new EnumMap<NCoderPropID, Object>(NCoderPropID.class);
     private PrintStream tracePrintStream;
     private boolean trace; // Read by native code
+    // Guards the native session against nativeGetStatistics() running concurrently with nativeClose()
+    private final Object statisticsLock = new Object();
+    private ArchiveStatistics closedArchiveStatistics;
 
     protected void setInArchive(IInArchive inArchive) {
         this.inArchive = inArchive;
@@ -59,13 +71,109 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         this.threadCount = threadCount;
     }
 
-    protected void applyFeatures() throws SevenZipException {
+    protected void featureSetMethod(String method) {
+        this.method = method;
+    }
+
+    protected void featureSetCoderProperty(NCoderPropID propID, Object value) {
+        if (propID == null) {
+            throw new NullPointerException("propID parameter is null");
+        }
+        if (getCoderPropertyName(propID) == null) {
+            throw new IllegalArgumentException("Coder property " + propID + " isn't supported by the archive format "
+                    + archiveFormat);
+        }
+        if (value == null) {
+            coderProperties.remove(propID);
+            return;
+        }
+        coderProperties.put(propID, normalizeCoderPropertyValue(propID, value));
+    }
+
+    private static Object normalizeCoderPropertyValue(NCoderPropID propID, Object value) {
+        Class<?> valueType = propID.getValueType();
+        if (valueType == int.class) {
+            if (value instanceof String && propID.isSize()) {
+                return value;
+            }
+            if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+                long longValue = ((Number) value).longValue();
+                if (longValue < 0 || longValue > 0xFFFFFFFFL) {
+                    throw new IllegalArgumentException("Value of the coder property " + propID
+                            + " is out of range: " + value);
+                }
+                return Integer.valueOf((int) longValue);
+            }
+        } else if (valueType == boolean.class) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+        } else if (value instanceof String) {
+            return value;
+        }
+        throw new IllegalArgumentException("Wrong type of the value of the coder property " + propID + ": "
+                + value.getClass().getName());
+    }
+
+    /**
+     * Returns name of the 7-Zip property to set the coder property <code>propID</code>.
+     * 
+     * @param propID
+     *            coder property
+     * @return name of the 7-Zip property or <code>null</code>, if the coder property isn't supported by the archive
+     *         format
+     */
+    protected String getCoderPropertyName(NCoderPropID propID) {
+        return null;
+    }
+
+    /**
+     * Returns name of the 7-Zip property to set the compression method.
+     * 
+     * @return name of the 7-Zip property or <code>null</code>, if the method can't be set
+     */
+    protected String getMethodPropertyName() {
+        return null;
+    }
+
+    /**
+     * Collect all 7-Zip properties to set. All properties get set with a single call, since 7-Zip resets all
+     * properties not passed to <code>ISetProperties::SetProperties()</code>.
+     * 
+     * @param names
+     *            names of the properties
+     * @param values
+     *            values of the properties: {@link Integer}, {@link Boolean}, {@link String} or <code>null</code>
+     */
+    protected void collectFeatureProperties(List<String> names, List<Object> values) {
         if (compressionLevel != -1) {
-            nativeSetLevel(compressionLevel);
+            names.add("X");
+            values.add(Integer.valueOf(compressionLevel));
         }
 
         if (threadCount >= 0) {
-            nativeSetMultithreading(threadCount);
+            names.add("MT");
+            // 0 - use count of available processors
+            values.add(threadCount == 0 ? (Object) Boolean.TRUE : (Object) Integer.valueOf(threadCount));
+        }
+
+        if (method != null) {
+            names.add(getMethodPropertyName());
+            values.add(method);
+        }
+
+        for (Map.Entry<NCoderPropID, Object> entry : coderProperties.entrySet()) {
+            names.add(getCoderPropertyName(entry.getKey()));
+            values.add(entry.getValue());
+        }
+    }
+
+    protected void applyFeatures() throws SevenZipException {
+        List<String> names = new ArrayList<String>();
+        List<Object> values = new ArrayList<Object>();
+        collectFeatureProperties(names, values);
+        if (!names.isEmpty()) {
+            nativeSetProperties(names.toArray(new String[names.size()]), values.toArray());
         }
     }
 
@@ -80,23 +188,21 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         this.archiveFormat = archiveFormat;
     }
 
-    protected native void nativeSetLevel(int compressionLevel) throws SevenZipException;
-
     /**
-     * Set solid features.
+     * Set 7-Zip properties of the archive with a single <code>ISetProperties::SetProperties()</code> call.
      * 
-     * @param solidBlockSpec
-     *            <code>null</code> - turn solid off
+     * @param names
+     *            names of the properties
+     * @param values
+     *            values of the properties: {@link Integer}, {@link Boolean}, {@link String} or <code>null</code>
      * @throws SevenZipException
      *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
      *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
      */
-    protected native void nativeSetSolidSpec(String solidBlockSpec) throws SevenZipException;
-
-    protected native void nativeSetMultithreading(int threadCount) throws SevenZipException;
+    private native void nativeSetProperties(String[] names, Object[] values) throws SevenZipException;
 
     private native void nativeUpdateItems(ISequentialOutStream outStream, int numberOfItems,
-            Object archiveUpdateCallback) throws SevenZipException;
+            Object archiveUpdateCallback, OutItemColumns itemColumns) throws SevenZipException;
 
     /**
      * {@inheritDoc}
@@ -105,11 +211,32 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         if (inArchive != null) {
             return; // In case of connected OutArchive no explicit closing necessary. 
         }
-        nativeClose();
+        synchronized (statisticsLock) {
+            ArchiveStatistics archiveStatistics = nativeGetStatistics();
+            nativeClose();
+            closedArchiveStatistics = archiveStatistics;
+        }
     }
 
     private native void nativeClose() throws SevenZipException;
 
+    private native ArchiveStatistics nativeGetStatistics() throws SevenZipException;
+
+    /**
+     * {@inheritDoc}
+     */
+    public ArchiveStatistics getStatistics() throws SevenZipException {
+        if (inArchive != null) {
+            return inArchive.getStatistics(); // Connected OutArchive shares the session of the InArchive
+        }
+        synchronized (statisticsLock) {
+            if (closedArchiveStatistics != null) {
+                return closedArchiveStatistics;
+            }
+            return nativeGetStatistics();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -118,10 +245,28 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         doUpdateItems(outStream, numberOfItems, outUpdateCallback);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void updateItems(ISequentialOutStream outStream, OutItemColumns itemColumns,
+            IOutCreateCallback<T> outUpdateCallback) throws SevenZipException {
+        doUpdateItems(outStream, itemColumns, outUpdateCallback);
+    }
+
     private void doUpdateItems(ISequentialOutStream outStream, int numberOfItems,
             IOutCreateCallback<?> archiveCreateCallback) throws SevenZipException {
         applyFeatures();
-        nativeUpdateItems(outStream, numberOfItems, archiveCreateCallback);
+        nativeUpdateItems(outStream, numberOfItems, archiveCreateCallback, null);
+    }
+
+    private void doUpdateItems(ISequentialOutStream outStream, OutItemColumns itemColumns,
+            IOutCreateCallback<?> archiveCreateCallback) throws SevenZipException {
+        if (itemColumns == null) {
+            throw new NullPointerException("itemColumns parameter is null");
+        }
+        itemColumns.verify(inArchive != null);
+        applyFeatures();
+        nativeUpdateItems(outStream, itemColumns.getItemCount(), archiveCreateCallback, itemColumns);
     }
 
     /**
@@ -132,6 +277,14 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         doUpdateItems(outStream, numberOfItems, outCreateCallback);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public void createArchive(ISequentialOutStream outStream, OutItemColumns itemColumns,
+            IOutCreateCallback<? extends T> outCreateCallback) throws SevenZipException {
+        doUpdateItems(outStream, itemColumns, outCreateCallback);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -139,14 +292,11 @@ public class OutArchiveImpl<T extends IOutItemBase> implements IOutArchive<T> {
         return inArchive;
     }
 
-    // Called by native code
-    private final void traceMessage(String message) {
-        if (trace) {
-            if (tracePrintStream == null) {
-                System.out.println(message);
-            } else {
-                tracePrintStream.println(message);
-            }
+    // Called by native code with a batch of messages. The trace flag gets checked once per operation.
+    private final void traceMessages(String[] messages) {
+        PrintStream printStream = tracePrintStream == null ? System.out : tracePrintStream;
+        for (int i = 0; i < messages.length; i++) {
+            printStream.println(messages[i]);
         }
     }
 
@@ -2,10 +2,12 @@ package net.sf.sevenzipjbinding.impl;
 
 import net.sf.sevenzipjbinding.IOutCreateArchiveZip;
 import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutFeatureSetCoderProperties;
 import net.sf.sevenzipjbinding.IOutItemZip;
 import net.sf.sevenzipjbinding.IOutStream;
 import net.sf.sevenzipjbinding.IOutUpdateArchiveZip;
 import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.NCoderPropID;
 import net.sf.sevenzipjbinding.SevenZipException;
 
 /**
@@ -29,4 +31,41 @@ public class OutArchiveZipImpl extends OutArchiveImpl<IOutItemZip> implements IO
         createArchive((ISequentialOutStream) outStream, numberOfItems, outCreateCallback);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setMethod(String method) {
+        featureSetMethod(method);
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public IOutFeatureSetCoderProperties setCoderProperty(NCoderPropID propID, Object value) {
+        featureSetCoderProperty(propID, value);
+        return this;
+    }
+
+    @Override
+    protected String getCoderPropertyName(NCoderPropID propID) {
+        switch (propID) {
+        case kDictionarySize:
+        case kUsedMemorySize:
+        case kOrder:
+        case kNumPasses:
+        case kNumFastBytes:
+        case kMatchFinderCycles:
+        case kNumThreads:
+        case kAlgorithm:
+            return propID.getOption();
+        default:
+            return null;
+        }
+    }
+
+    @Override
+    protected String getMethodPropertyName() {
+        return "M";
+    }
 }
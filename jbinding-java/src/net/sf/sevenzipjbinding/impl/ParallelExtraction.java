@@ -0,0 +1,278 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IArchiveExtractCallbackFactory;
+import net.sf.sevenzipjbinding.IArchiveOpenCallback;
+import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
+import net.sf.sevenzipjbinding.ICloneableInStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ItemPropertyColumns;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Implementation of {@link IInArchive#extractParallel(int[], int, IArchiveExtractCallbackFactory)}. The items get
+ * grouped by the solid block. The groups get distributed over the workers using the "largest group first" strategy.
+ * The first worker uses the original archive in the calling thread, all other workers use own archive instances opened
+ * from clones of the input stream in own threads.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+final class ParallelExtraction {
+    private static final PropID[] PROP_IDS = { PropID.BLOCK, PropID.SIZE };
+
+    private static final Comparator<Group> LARGEST_GROUP_FIRST = new Comparator<Group>() {
+        public int compare(Group group1, Group group2) {
+            if (group1.size == group2.size) {
+                return 0;
+            }
+            return group1.size > group2.size ? -1 : 1;
+        }
+    };
+
+    private static final class Group {
+        private final List<Integer> indices = new ArrayList<Integer>();
+        private long size;
+    }
+
+    private static final class Worker implements Runnable {
+        private final IInArchive inArchive;
+        private final int[] indices;
+        private final IArchiveExtractCallback extractCallback;
+        private Throwable exception;
+
+        Worker(IInArchive inArchive, int[] indices, IArchiveExtractCallback extractCallback) {
+            this.inArchive = inArchive;
+            this.indices = indices;
+            this.extractCallback = extractCallback;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void run() {
+            try {
+                inArchive.extract(indices, false, extractCallback);
+            } catch (Throwable throwable) {
+                exception = throwable;
+            }
+        }
+    }
+
+    private final IInArchive inArchive;
+    private final IInStream inStream;
+    private final IArchiveOpenCallback archiveOpenCallback;
+
+    ParallelExtraction(IInArchive inArchive, IInStream inStream, IArchiveOpenCallback archiveOpenCallback) {
+        this.inArchive = inArchive;
+        this.inStream = inStream;
+        this.archiveOpenCallback = archiveOpenCallback;
+    }
+
+    void extract(int[] indices, int threadCount, IArchiveExtractCallbackFactory callbackFactory)
+            throws SevenZipException {
+        int[] sortedIndices = getSortedIndices(indices);
+        if (threadCount == 1 || sortedIndices.length <= 1 || !(inStream instanceof ICloneableInStream)
+                || archiveOpenCallback instanceof IArchiveOpenVolumeCallback) {
+            inArchive.extract(sortedIndices, false, callbackFactory.createExtractCallback(sortedIndices));
+            return;
+        }
+
+        int[][] workerIndices = distribute(groupByBlock(sortedIndices), threadCount);
+        if (workerIndices.length == 1) {
+            inArchive.extract(sortedIndices, false, callbackFactory.createExtractCallback(sortedIndices));
+            return;
+        }
+
+        IArchiveExtractCallback[] extractCallbacks = new IArchiveExtractCallback[workerIndices.length];
+        for (int i = 0; i < workerIndices.length; i++) {
+            extractCallbacks[i] = callbackFactory.createExtractCallback(workerIndices[i]);
+        }
+
+        List<IInStream> clonedInStreams = new ArrayList<IInStream>();
+        List<IInArchive> clonedInArchives = new ArrayList<IInArchive>();
+        List<Thread> threads = new ArrayList<Thread>();
+        Worker[] workers = new Worker[workerIndices.length];
+        Throwable exception = null;
+        try {
+            workers[0] = new Worker(inArchive, workerIndices[0], extractCallbacks[0]);
+            for (int i = 1; i < workers.length; i++) {
+                IInStream clonedInStream = ((ICloneableInStream) inStream).cloneStream();
+                clonedInStreams.add(clonedInStream);
+                IInArchive clonedInArchive = SevenZip.openInArchive(inArchive.getArchiveFormat(), clonedInStream,
+                        archiveOpenCallback);
+                clonedInArchives.add(clonedInArchive);
+                workers[i] = new Worker(clonedInArchive, workerIndices[i], extractCallbacks[i]);
+            }
+            for (int i = 1; i < workers.length; i++) {
+                Thread thread = new Thread(workers[i], "7-Zip-JBinding parallel extraction " + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            workers[0].run();
+        } catch (Throwable throwable) {
+            exception = throwable;
+        } finally {
+            joinUninterruptibly(threads);
+            for (IInArchive clonedInArchive : clonedInArchives) {
+                try {
+                    clonedInArchive.close();
+                } catch (Throwable throwable) {
+                    if (exception == null) {
+                        exception = throwable;
+                    }
+                }
+            }
+            for (IInStream clonedInStream : clonedInStreams) {
+                if (clonedInStream instanceof Closeable) {
+                    try {
+                        ((Closeable) clonedInStream).close();
+                    } catch (IOException e) {
+                        // Ignore
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; exception == null && i < workers.length; i++) {
+            if (workers[i] != null) {
+                exception = workers[i].exception;
+            }
+        }
+        if (exception instanceof SevenZipException) {
+            throw (SevenZipException) exception;
+        }
+        if (exception instanceof RuntimeException) {
+            throw (RuntimeException) exception;
+        }
+        if (exception instanceof Error) {
+            throw (Error) exception;
+        }
+        if (exception != null) {
+            throw new SevenZipException("Error during parallel extraction", exception);
+        }
+    }
+
+    private int[] getSortedIndices(int[] indices) throws SevenZipException {
+        if (indices == null) {
+            int[] allIndices = new int[inArchive.getNumberOfItems()];
+            for (int i = 0; i < allIndices.length; i++) {
+                allIndices[i] = i;
+            }
+            return allIndices;
+        }
+        int[] sortedIndices = indices.clone();
+        Arrays.sort(sortedIndices);
+        return sortedIndices;
+    }
+
+    /**
+     * Groups items by the block. Items without a block get extracted separately, if the archive isn't solid.
+     * Otherwise they build a single group.
+     */
+    private List<Group> groupByBlock(int[] sortedIndices) throws SevenZipException {
+        int fromIndex = sortedIndices[0];
+        ItemPropertyColumns columns = inArchive.getProperties(PROP_IDS, fromIndex,
+                sortedIndices[sortedIndices.length - 1] + 1);
+        long[] blocks = columns.getLongColumn(PropID.BLOCK);
+        long[] sizes = columns.getLongColumn(PropID.SIZE);
+        boolean solid = Boolean.TRUE.equals(inArchive.getArchiveProperty(PropID.SOLID));
+
+        List<Group> groups = new ArrayList<Group>();
+        Map<Long, Group> groupByBlock = new HashMap<Long, Group>();
+        Group groupWithoutBlock = null;
+        for (int index : sortedIndices) {
+            Group group;
+            if (columns.isDefined(PropID.BLOCK, index)) {
+                Long block = Long.valueOf(blocks[index - fromIndex]);
+                group = groupByBlock.get(block);
+                if (group == null) {
+                    group = new Group();
+                    groupByBlock.put(block, group);
+                    groups.add(group);
+                }
+            } else if (solid) {
+                if (groupWithoutBlock == null) {
+                    groupWithoutBlock = new Group();
+                    groups.add(groupWithoutBlock);
+                }
+                group = groupWithoutBlock;
+            } else {
+                group = new Group();
+                groups.add(group);
+            }
+            group.indices.add(Integer.valueOf(index));
+            if (columns.isDefined(PropID.SIZE, index)) {
+                group.size += sizes[index - fromIndex];
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Distributes the groups over at most <code>threadCount</code> workers assigning the largest remaining group to the
+     * worker with the smallest total size.
+     */
+    private static int[][] distribute(List<Group> groups, int threadCount) {
+        int workerCount = Math.min(threadCount, groups.size());
+        Collections.sort(groups, LARGEST_GROUP_FIRST);
+
+        long[] workerSizes = new long[workerCount];
+        List<List<Integer>> workerIndexLists = new ArrayList<List<Integer>>();
+        for (int i = 0; i < workerCount; i++) {
+            workerIndexLists.add(new ArrayList<Integer>());
+        }
+        for (Group group : groups) {
+            int smallestWorker = 0;
+            for (int i = 1; i < workerCount; i++) {
+                if (workerSizes[i] < workerSizes[smallestWorker]) {
+                    smallestWorker = i;
+                }
+            }
+            workerSizes[smallestWorker] += group.size;
+            workerIndexLists.get(smallestWorker).addAll(group.indices);
+        }
+
+        int[][] workerIndices = new int[workerCount][];
+        for (int i = 0; i < workerCount; i++) {
+            List<Integer> indexList = workerIndexLists.get(i);
+            workerIndices[i] = new int[indexList.size()];
+            for (int j = 0; j < workerIndices[i].length; j++) {
+                workerIndices[i][j] = indexList.get(j).intValue();
+            }
+            Arrays.sort(workerIndices[i]);
+        }
+        return workerIndices;
+    }
+
+    private static void joinUninterruptibly(List<Thread> threads) {
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (true) {
+                try {
+                    thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
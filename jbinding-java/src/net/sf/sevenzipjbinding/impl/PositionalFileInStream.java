@@ -0,0 +1,191 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.sevenzipjbinding.ICloneableInStream;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Implementation of {@link IInStream} using positional reads {@link FileChannel#read(ByteBuffer, long)}. Unlike
+ * {@link RandomAccessFileInStream} the stream doesn't use the shared file pointer of the file. It keeps its own
+ * position instead, so the methods don't need to be synchronized.<br>
+ * <br>
+ * The {@link #cloneStream()} method creates new streams reading the same file channel with their own positions. The
+ * streams can read the file concurrently from different threads without locking. A single stream instance shouldn't
+ * be used by multiple threads at the same time.<br>
+ * <br>
+ * If an instance of this class is passed to the native library, the native code reads the data through the
+ * {@link IDirectBufferSequentialInStream} interface directly into a direct buffer.<br>
+ * <br>
+ * <i>Note:</i> interrupting a thread blocked in a read operation closes the file channel for all streams sharing it.
+ *
+ * @see MappedFileInStream
+ * @see net.sf.sevenzipjbinding.service.ConcurrentInArchive
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class PositionalFileInStream implements ICloneableInStream, IDirectBufferSequentialInStream, Closeable {
+    /**
+     * File channel shared by the stream and all its clones.
+     */
+    private static class SharedChannel {
+        final FileChannel fileChannel;
+        final Closeable owner;
+        int referenceCount = 1;
+
+        SharedChannel(FileChannel fileChannel, Closeable owner) {
+            this.fileChannel = fileChannel;
+            this.owner = owner;
+        }
+
+        synchronized boolean acquire() {
+            if (referenceCount == 0) {
+                return false;
+            }
+            referenceCount++;
+            return true;
+        }
+
+        void release() throws IOException {
+            synchronized (this) {
+                if (--referenceCount > 0 || owner == null) {
+                    return;
+                }
+            }
+            owner.close();
+        }
+    }
+
+    private final SharedChannel sharedChannel;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Constructs instance of the class opening the <code>file</code> for reading. The file gets closed after the
+     * stream and all its clones were closed.
+     *
+     * @param file
+     *            file to read
+     * @throws IOException
+     *             error opening the file
+     */
+    public PositionalFileInStream(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        this.sharedChannel = new SharedChannel(randomAccessFile.getChannel(), randomAccessFile);
+    }
+
+    /**
+     * Constructs instance of the class reading the file of the <code>fileChannel</code>. The file channel doesn't get
+     * closed by the stream. The position of the file channel is neither used nor changed.
+     *
+     * @param fileChannel
+     *            channel of the file to read
+     */
+    public PositionalFileInStream(FileChannel fileChannel) {
+        this.sharedChannel = new SharedChannel(fileChannel, null);
+    }
+
+    private PositionalFileInStream(SharedChannel sharedChannel) {
+        this.sharedChannel = sharedChannel;
+    }
+
+    /**
+     * {@inheritDoc}<br>
+     * <br>
+     * The new stream shares the file channel with this stream. Closing one of the streams doesn't affect the other.
+     */
+    public IInStream cloneStream() throws SevenZipException {
+        if (closed || !sharedChannel.acquire()) {
+            throw new SevenZipException("Stream was closed");
+        }
+        return new PositionalFileInStream(sharedChannel);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long seek(long offset, int seekOrigin) throws SevenZipException {
+        long newPosition;
+        switch (seekOrigin) {
+        case SEEK_SET:
+            newPosition = offset;
+            break;
+
+        case SEEK_CUR:
+            newPosition = position + offset;
+            break;
+
+        case SEEK_END:
+            try {
+                newPosition = getFileChannel().size() + offset;
+            } catch (IOException e) {
+                throw new SevenZipException("Error getting size of the file", e);
+            }
+            break;
+
+        default:
+            throw new RuntimeException("Seek: unknown origin: " + seekOrigin);
+        }
+
+        if (newPosition < 0) {
+            throw new SevenZipException("Error while seek operation: negative position " + newPosition);
+        }
+        position = newPosition;
+        return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(byte[] data) throws SevenZipException {
+        return read(ByteBuffer.wrap(data));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(ByteBuffer buffer) throws SevenZipException {
+        if (!buffer.hasRemaining()) {
+            return 0;
+        }
+        try {
+            int read = getFileChannel().read(buffer, position);
+            if (read == -1) {
+                return 0;
+            }
+            position += read;
+            return read;
+        } catch (IOException e) {
+            throw new SevenZipException("Error reading file at position " + position, e);
+        }
+    }
+
+    private FileChannel getFileChannel() throws SevenZipException {
+        if (closed) {
+            throw new SevenZipException("Stream was closed");
+        }
+        return sharedChannel.fileChannel;
+    }
+
+    /**
+     * Closes the stream. The file gets closed after the last of the streams sharing it was closed, if the stream was
+     * constructed from a {@link File}. After this call no more methods should be called.
+     *
+     * @throws IOException
+     *             error closing the file
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        sharedChannel.release();
+    }
+}
@@ -2,17 +2,21 @@ package net.sf.sevenzipjbinding.impl;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
 import net.sf.sevenzipjbinding.IInStream;
 import net.sf.sevenzipjbinding.SevenZipException;
 
 /**
- * Implementation of {@link IInStream} using {@link RandomAccessFile}.
+ * Implementation of {@link IInStream} using {@link RandomAccessFile}. The native library reads the data through the
+ * {@link IDirectBufferSequentialInStream} interface directly into a direct buffer using the file channel of the
+ * random access file.
  * 
  * @author Boris Brodski
  * @since 4.65-1
  */
-public class RandomAccessFileInStream implements IInStream {
+public class RandomAccessFileInStream implements IInStream, IDirectBufferSequentialInStream {
     private final RandomAccessFile randomAccessFile;
 
     /**
@@ -70,6 +74,23 @@ public class RandomAccessFileInStream implements IInStream {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int read(ByteBuffer buffer) throws SevenZipException {
+        try {
+            int read = randomAccessFile.getChannel().read(buffer);
+            if (read == -1) {
+                return 0;
+            } else {
+                return read;
+            }
+
+        } catch (IOException e) {
+            throw new SevenZipException("Error reading random access file", e);
+        }
+    }
+
     /**
      * Closes random access file. After this call no more methods should be called.
      * 
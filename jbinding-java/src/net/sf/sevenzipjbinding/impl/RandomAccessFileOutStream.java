@@ -2,17 +2,21 @@ package net.sf.sevenzipjbinding.impl;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
 import net.sf.sevenzipjbinding.IOutStream;
 import net.sf.sevenzipjbinding.SevenZipException;
 
 /**
- * Implementation of {@link IOutStream} using {@link RandomAccessFile}.
+ * Implementation of {@link IOutStream} using {@link RandomAccessFile}. The native library writes the data through the
+ * {@link IDirectBufferSequentialOutStream} interface directly from a direct buffer using the file channel of the random
+ * access file.
  * 
  * @author Boris Brodski
  * @since 4.65-1
  */
-public class RandomAccessFileOutStream implements IOutStream {
+public class RandomAccessFileOutStream implements IOutStream, IDirectBufferSequentialOutStream {
     private final RandomAccessFile randomAccessFile;
 
     /**
@@ -77,6 +81,17 @@ public class RandomAccessFileOutStream implements IOutStream {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    public synchronized int write(ByteBuffer data) throws SevenZipException {
+        try {
+            return randomAccessFile.getChannel().write(data);
+        } catch (IOException exception) {
+            throw new SevenZipException("Error writing random access file", exception);
+        }
+    }
+
     /**
      * Closes random access file. After this call no more methods should be called.
      * 
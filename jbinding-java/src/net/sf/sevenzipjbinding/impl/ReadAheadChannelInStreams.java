@@ -0,0 +1,430 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.IItemChannelSource;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Provider of the item streams for {@link IOutCreateCallback#getStream(int)} reading the item data in advance. A
+ * background thread reads the data of the requested items from the channels of the {@link IItemChannelSource} into a
+ * bounded set of direct buffers. As soon as the data of the current item is completely read, the thread starts
+ * prefetching the data of the next item (<code>index + 1</code> by default, see {@link #getNextIndex(int)}) while
+ * 7-Zip is still compressing the current one. This way slow sources (like network file systems) don't stall the
+ * compression between the items.<br>
+ * <br>
+ * If 7-Zip requests an item other than the prefetched one, the prefetched data gets discarded. The streams of
+ * different items may be read concurrently by multiple threads.<br>
+ * <br>
+ * <i>Note:</i> the returned streams aren't seekable ({@link net.sf.sevenzipjbinding.IInStream}). The Zip format
+ * requires seekable item streams and can't be used with this class.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * final ReadAheadChannelInStreams inStreams = new ReadAheadChannelInStreams(new IItemChannelSource() {
+ *     public ReadableByteChannel openChannel(int index) throws IOException {
+ *         return new FileInputStream(files[index]).getChannel();
+ *     }
+ * }, files.length);
+ * try {
+ *     outArchive.createArchive(outStream, files.length, new IOutCreateCallback&lt;IOutItem7z&gt;() {
+ *         // ...
+ *         public ISequentialInStream getStream(int index) throws SevenZipException {
+ *             return inStreams.getStream(index);
+ *         }
+ *     });
+ * } finally {
+ *     inStreams.close();
+ * }
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ReadAheadChannelInStreams implements Closeable {
+    /**
+     * Default size of the read buffers: 64 KB
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Default maximal amount of the data read in advance: 4 MB
+     */
+    public static final long DEFAULT_READ_AHEAD_SIZE = 4 * 1024 * 1024;
+
+    private static final class Item {
+        private final int index;
+        private final LinkedList<ByteBuffer> chunks = new LinkedList<ByteBuffer>();
+        private ReadableByteChannel channel; // Accessed by the read-ahead thread or after the item was released
+        private boolean requested;
+        private boolean endOfStream;
+        private boolean released;
+        private boolean consumed;
+        private Exception exception;
+        private int waitingReaders;
+
+        Item(int index) {
+            this.index = index;
+        }
+    }
+
+    private final class ItemInStream implements IDirectBufferSequentialInStream, Closeable {
+        private final Item item;
+
+        ItemInStream(Item item) {
+            this.item = item;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int read(byte[] data) throws SevenZipException {
+            return readItem(item, ByteBuffer.wrap(data));
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int read(ByteBuffer buffer) throws SevenZipException {
+            return readItem(item, buffer);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close() {
+            synchronized (lock) {
+                releaseItem(item);
+            }
+        }
+    }
+
+    private final IItemChannelSource itemChannelSource;
+    private final int itemCount;
+    private final int chunkSize;
+    private final long readAheadSize;
+
+    private final Object lock = new Object();
+    private final List<Item> items = new ArrayList<Item>(); // Active items in the order of requests
+    private final LinkedList<ByteBuffer> freeChunks = new LinkedList<ByteBuffer>();
+    private long bufferedBytes;
+    private Item readingItem;
+    private Thread thread;
+    private boolean closed;
+
+    /**
+     * Constructs instance of the class using the default chunk and read ahead sizes.
+     *
+     * @param itemChannelSource
+     *            source of the item data
+     * @param itemCount
+     *            count of the items
+     */
+    public ReadAheadChannelInStreams(IItemChannelSource itemChannelSource, int itemCount) {
+        this(itemChannelSource, itemCount, DEFAULT_CHUNK_SIZE, DEFAULT_READ_AHEAD_SIZE);
+    }
+
+    /**
+     * Constructs instance of the class.
+     *
+     * @param itemChannelSource
+     *            source of the item data
+     * @param itemCount
+     *            count of the items
+     * @param chunkSize
+     *            size of the direct buffers to read the data in
+     * @param readAheadSize
+     *            maximal amount of the data read in advance. Should be not less than <code>chunkSize</code>.
+     */
+    public ReadAheadChannelInStreams(IItemChannelSource itemChannelSource, int itemCount, int chunkSize,
+            long readAheadSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size should be positive: " + chunkSize);
+        }
+        if (readAheadSize < chunkSize) {
+            throw new IllegalArgumentException("Read ahead size " + readAheadSize + " is less than the chunk size "
+                    + chunkSize);
+        }
+        this.itemChannelSource = itemChannelSource;
+        this.itemCount = itemCount;
+        this.chunkSize = chunkSize;
+        this.readAheadSize = readAheadSize;
+    }
+
+    /**
+     * Returns stream with the data of the item <code>index</code>. Call this method from
+     * {@link IOutCreateCallback#getStream(int)}. The data of the item gets read in the background. Closing the returned
+     * stream releases the buffered data and the channel of the item. After reaching the end of the stream it happens
+     * automatically.
+     *
+     * @param index
+     *            index of the item
+     * @return stream with the data of the item
+     * @throws SevenZipException
+     *             the streams were closed
+     */
+    public ISequentialInStream getStream(int index) throws SevenZipException {
+        if (index < 0 || index >= itemCount) {
+            throw new IllegalArgumentException("Index " + index + " is out of range [0, " + itemCount + ")");
+        }
+        synchronized (lock) {
+            if (closed) {
+                throw new SevenZipException("Read ahead streams were closed");
+            }
+            Item item = null;
+            for (Item activeItem : new ArrayList<Item>(items)) {
+                if (!activeItem.requested) {
+                    if (activeItem.index == index) {
+                        item = activeItem;
+                    } else {
+                        // Wrong prediction
+                        releaseItem(activeItem);
+                    }
+                }
+            }
+            if (item == null) {
+                item = new Item(index);
+                items.add(item);
+            }
+            item.requested = true;
+
+            int nextIndex = getNextIndex(index);
+            if (nextIndex >= 0 && nextIndex < itemCount && findItem(nextIndex) == null) {
+                items.add(new Item(nextIndex));
+            }
+
+            if (thread == null) {
+                thread = new Thread(new Runnable() {
+                    public void run() {
+                        readAhead();
+                    }
+                }, "7-Zip-JBinding read ahead");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            lock.notifyAll();
+            return new ItemInStream(item);
+        }
+    }
+
+    /**
+     * Predicts index of the item to be requested after the item <code>index</code>. The data of the predicted item
+     * gets read in advance. Override to match the order of {@link IOutCreateCallback#getStream(int)} calls of the
+     * archive format.
+     *
+     * @param index
+     *            index of the last requested item
+     * @return index of the next item or <code>-1</code> - don't read ahead
+     */
+    protected int getNextIndex(int index) {
+        return index + 1;
+    }
+
+    /**
+     * Stops reading ahead and closes all open channels. Reading from the streams returned by {@link #getStream(int)}
+     * isn't possible anymore.
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (Item item : new ArrayList<Item>(items)) {
+                releaseItem(item);
+            }
+            freeChunks.clear();
+            lock.notifyAll();
+        }
+    }
+
+    private int readItem(Item item, ByteBuffer buffer) throws SevenZipException {
+        if (!buffer.hasRemaining()) {
+            return 0;
+        }
+        synchronized (lock) {
+            item.waitingReaders++;
+            try {
+                if (item.chunks.isEmpty() && !item.endOfStream && !item.released) {
+                    // Wake up the read ahead thread, that may wait because of the read ahead limit
+                    lock.notifyAll();
+                    do {
+                        lock.wait();
+                    } while (item.chunks.isEmpty() && !item.endOfStream && !item.released);
+                }
+            } catch (InterruptedException e) {
+                throw new SevenZipException("Interrupted while waiting for the data of the item " + item.index, e);
+            } finally {
+                item.waitingReaders--;
+            }
+            if (item.chunks.isEmpty()) {
+                if (item.exception != null) {
+                    throw new SevenZipException("Error reading data of the item " + item.index, item.exception);
+                }
+                if (item.endOfStream && (!item.released || item.consumed)) {
+                    item.consumed = true;
+                    releaseItem(item);
+                    return 0;
+                }
+                throw new SevenZipException("Stream of the item " + item.index + " was closed");
+            }
+
+            ByteBuffer chunk = item.chunks.getFirst();
+            int size = Math.min(chunk.remaining(), buffer.remaining());
+            if (size == chunk.remaining()) {
+                buffer.put(chunk);
+                item.chunks.removeFirst();
+                recycleChunk(chunk);
+            } else {
+                ByteBuffer part = chunk.duplicate();
+                part.limit(part.position() + size);
+                buffer.put(part);
+                chunk.position(chunk.position() + size);
+            }
+            bufferedBytes -= size;
+            lock.notifyAll();
+            return size;
+        }
+    }
+
+    private void readAhead() {
+        while (true) {
+            Item item = null;
+            ByteBuffer chunk;
+            synchronized (lock) {
+                try {
+                    while (!closed && (item = selectItemToRead()) == null) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+                readingItem = item;
+                chunk = freeChunks.isEmpty() ? ByteBuffer.allocateDirect(chunkSize) : freeChunks.removeFirst();
+            }
+
+            chunk.clear();
+            boolean endOfStream = false;
+            Exception exception = null;
+            try {
+                if (item.channel == null) {
+                    item.channel = itemChannelSource.openChannel(item.index);
+                }
+                while (chunk.hasRemaining()) {
+                    int read = item.channel.read(chunk);
+                    if (read < 0) {
+                        endOfStream = true;
+                        break;
+                    }
+                    if (read == 0 && chunk.position() > 0) {
+                        break;
+                    }
+                }
+            } catch (Exception e) {
+                exception = e;
+            }
+            chunk.flip();
+
+            synchronized (lock) {
+                readingItem = null;
+                if (item.released) {
+                    recycleChunk(chunk);
+                    closeChannel(item);
+                } else {
+                    if (chunk.hasRemaining()) {
+                        item.chunks.add(chunk);
+                        bufferedBytes += chunk.remaining();
+                    } else {
+                        recycleChunk(chunk);
+                    }
+                    if (endOfStream || exception != null) {
+                        item.endOfStream = true;
+                        item.exception = exception;
+                        closeChannel(item);
+                    }
+                }
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Selects the first item in the order of requests with more data to read. Items with waiting readers get read even
+     * if the read ahead limit is reached.
+     */
+    private Item selectItemToRead() {
+        Item firstItem = null;
+        for (Item item : items) {
+            if (item.endOfStream) {
+                continue;
+            }
+            if (item.waitingReaders > 0 && item.chunks.isEmpty()) {
+                return item;
+            }
+            if (firstItem == null) {
+                firstItem = item;
+            }
+        }
+        if (bufferedBytes + chunkSize > readAheadSize) {
+            return null;
+        }
+        return firstItem;
+    }
+
+    private Item findItem(int index) {
+        for (Item item : items) {
+            if (item.index == index) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    private void releaseItem(Item item) {
+        if (item.released) {
+            return;
+        }
+        item.released = true;
+        items.remove(item);
+        for (ByteBuffer chunk : item.chunks) {
+            bufferedBytes -= chunk.remaining();
+            recycleChunk(chunk);
+        }
+        item.chunks.clear();
+        if (item != readingItem) {
+            // The read ahead thread closes the channel after the current read operation
+            closeChannel(item);
+        }
+        lock.notifyAll();
+    }
+
+    private void recycleChunk(ByteBuffer chunk) {
+        if (!closed && freeChunks.size() * (long) chunkSize < readAheadSize) {
+            freeChunks.add(chunk);
+        }
+    }
+
+    private static void closeChannel(Item item) {
+        if (item.channel != null) {
+            try {
+                item.channel.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            item.channel = null;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Naming scheme of the volumes of a multi-volume archive. Used by the {@link VolumeStreamManager} and the
+ * {@link BufferedVolumedArchiveInStream} to find the volumes. The following schemes are supported:
+ * <ul>
+ * <li>{@link #SEVEN_ZIP} - <code>name.7z.001</code>, <code>name.7z.002</code>, ...
+ * <li>{@link #SPLIT} - <code>name.001</code>, <code>name.002</code>, ... (any file split into volumes)
+ * <li>{@link #RAR} - <code>name.part1.rar</code>, <code>name.part2.rar</code>, ... or <code>name.rar</code>,
+ * <code>name.r00</code>, <code>name.r01</code>, ...
+ * </ul>
+ * The volumes of the {@link #isConcatenated() concatenated} schemes are parts of a single archive file split on the
+ * byte layout. They get merged into a single stream. The volumes of the other schemes get opened by the 7-Zip archive
+ * handler itself through the {@link net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback}.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public abstract class VolumeNamingStrategy {
+    /**
+     * 7z volumes: <code>name.7z.001</code>, <code>name.7z.002</code>, ...
+     */
+    public static final VolumeNamingStrategy SEVEN_ZIP = new NumberedVolumeNamingStrategy(Pattern.compile(
+            "(.*\\.7z\\.)(0*1)", Pattern.CASE_INSENSITIVE), "7z");
+
+    /**
+     * Files split into volumes: <code>name.001</code>, <code>name.002</code>, ...
+     */
+    public static final VolumeNamingStrategy SPLIT = new NumberedVolumeNamingStrategy(Pattern.compile("(.*\\.)(0*1)"),
+            "split");
+
+    /**
+     * Multi-volume Rar archives: <code>name.part1.rar</code>, <code>name.part2.rar</code>, ... or the old naming
+     * scheme <code>name.rar</code>, <code>name.r00</code>, <code>name.r01</code>, ...
+     */
+    public static final VolumeNamingStrategy RAR = new RarVolumeNamingStrategy();
+
+    private static final VolumeNamingStrategy[] STRATEGIES = { SEVEN_ZIP, RAR, SPLIT };
+
+    private final String name;
+
+    /**
+     * Creates new naming strategy.
+     *
+     * @param name
+     *            name of the strategy used by {@link #toString()}
+     */
+    protected VolumeNamingStrategy(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns the first naming strategy (in the order {@link #SEVEN_ZIP}, {@link #RAR}, {@link #SPLIT}) accepting
+     * <code>filename</code> as the name of the first volume.
+     *
+     * @param filename
+     *            file name of the first volume
+     * @return matching strategy or <code>null</code>, if no strategy matches
+     */
+    public static VolumeNamingStrategy detect(String filename) {
+        for (VolumeNamingStrategy strategy : STRATEGIES) {
+            if (strategy.isFirstVolume(filename)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns <code>true</code>, if <code>filename</code> is a valid name of the first volume.
+     *
+     * @param filename
+     *            file name to check
+     * @return <code>true</code> if <code>filename</code> is a name of the first volume
+     */
+    public abstract boolean isFirstVolume(String filename);
+
+    /**
+     * Returns the file name of the volume <code>index</code>.
+     *
+     * @param firstVolumeFilename
+     *            file name of the first volume
+     * @param index
+     *            0-based index of the volume. Index 0 returns <code>firstVolumeFilename</code>.
+     * @return file name of the volume
+     */
+    public abstract String getVolumeFilename(String firstVolumeFilename, int index);
+
+    /**
+     * Returns <code>true</code>, if the volumes are parts of a single file split on the byte layout.
+     *
+     * @return <code>true</code> for concatenated volumes, <code>false</code> for volumes opened by the archive handler
+     */
+    public abstract boolean isConcatenated();
+
+    /**
+     * Returns the name of the naming strategy.
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    static String formatNumber(int number, int width) {
+        String string = Integer.toString(number);
+        if (string.length() >= width) {
+            return string;
+        }
+        StringBuilder stringBuilder = new StringBuilder(width);
+        for (int i = string.length(); i < width; i++) {
+            stringBuilder.append('0');
+        }
+        return stringBuilder.append(string).toString();
+    }
+
+    private static String checkFirstVolume(VolumeNamingStrategy strategy, String firstVolumeFilename) {
+        if (!strategy.isFirstVolume(firstVolumeFilename)) {
+            throw new IllegalArgumentException("'" + firstVolumeFilename + "' isn't a name of the first volume ("
+                    + strategy + ")");
+        }
+        return firstVolumeFilename;
+    }
+
+    /**
+     * Volumes numbered with a fixed width number at the end of the file name: <code>name.001</code>,
+     * <code>name.002</code>, ...
+     */
+    private static class NumberedVolumeNamingStrategy extends VolumeNamingStrategy {
+        private final Pattern firstVolumePattern;
+
+        NumberedVolumeNamingStrategy(Pattern firstVolumePattern, String name) {
+            super(name);
+            this.firstVolumePattern = firstVolumePattern;
+        }
+
+        @Override
+        public boolean isFirstVolume(String filename) {
+            return firstVolumePattern.matcher(filename).matches();
+        }
+
+        @Override
+        public String getVolumeFilename(String firstVolumeFilename, int index) {
+            Matcher matcher = firstVolumePattern.matcher(checkFirstVolume(this, firstVolumeFilename));
+            matcher.matches();
+            return matcher.group(1) + formatNumber(index + 1, matcher.group(2).length());
+        }
+
+        @Override
+        public boolean isConcatenated() {
+            return true;
+        }
+    }
+
+    private static class RarVolumeNamingStrategy extends VolumeNamingStrategy {
+        private static final Pattern NEW_FIRST_VOLUME_PATTERN = Pattern.compile("(.*\\.part)(0*1)(\\.rar)",
+                Pattern.CASE_INSENSITIVE);
+        private static final Pattern NEW_VOLUME_PATTERN = Pattern.compile(".*\\.part[0-9]+\\.rar",
+                Pattern.CASE_INSENSITIVE);
+        private static final Pattern OLD_FIRST_VOLUME_PATTERN = Pattern.compile("(.*\\.)([rR])([aA][rR])");
+
+        RarVolumeNamingStrategy() {
+            super("rar");
+        }
+
+        @Override
+        public boolean isFirstVolume(String filename) {
+            if (NEW_VOLUME_PATTERN.matcher(filename).matches()) {
+                return NEW_FIRST_VOLUME_PATTERN.matcher(filename).matches();
+            }
+            return OLD_FIRST_VOLUME_PATTERN.matcher(filename).matches();
+        }
+
+        @Override
+        public String getVolumeFilename(String firstVolumeFilename, int index) {
+            Matcher matcher = NEW_FIRST_VOLUME_PATTERN.matcher(firstVolumeFilename);
+            if (matcher.matches()) {
+                return matcher.group(1) + formatNumber(index + 1, matcher.group(2).length()) + matcher.group(3);
+            }
+            matcher = OLD_FIRST_VOLUME_PATTERN.matcher(checkFirstVolume(this, firstVolumeFilename));
+            matcher.matches();
+            if (index == 0) {
+                return firstVolumeFilename;
+            }
+            return matcher.group(1) + matcher.group(2) + formatNumber(index - 1, 2);
+        }
+
+        @Override
+        public boolean isConcatenated() {
+            return false;
+        }
+    }
+}
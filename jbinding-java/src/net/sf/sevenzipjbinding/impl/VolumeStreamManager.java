@@ -0,0 +1,466 @@
+package net.sf.sevenzipjbinding.impl;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IArchiveOpenCallback;
+import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Provides the volumes of a multi-volume archive located in a single directory. The volume names get resolved using a
+ * {@link VolumeNamingStrategy}. After a volume was requested, the next <code>prefetchVolumeCount</code> volumes get
+ * opened and their first chunks get read by the background threads, so the volume is ready, when the archive handler
+ * asks for it.<br>
+ * <br>
+ * Use {@link #openInArchive(ArchiveFormat)} to open the archive:
+ * <ul>
+ * <li>The volumes of the {@link VolumeNamingStrategy#isConcatenated() concatenated} schemes get merged into a single
+ * stream using {@link BufferedVolumedArchiveInStream}.
+ * <li>The volumes of the other schemes (like Rar) get opened by the 7-Zip archive handler using this class as the
+ * {@link IArchiveOpenVolumeCallback}.
+ * </ul>
+ * <i>Note:</i> the Zip archive handler of 7-Zip 9.20 doesn't support Zip archives spanning multiple disks. Split Zip
+ * archives (<code>name.z01</code>, ..., <code>name.zip</code>) are rejected.
+ * <br>
+ * <br>
+ * All volume streams get closed by {@link #close()}. It should be called after the archive was closed.
+ *
+ * <pre>
+ * VolumeStreamManager volumeStreamManager = new VolumeStreamManager(new File(&quot;archive.part1.rar&quot;));
+ * try {
+ *     IInArchive inArchive = volumeStreamManager.openInArchive(ArchiveFormat.RAR);
+ *     try {
+ *         // Use inArchive
+ *     } finally {
+ *         inArchive.close();
+ *     }
+ * } finally {
+ *     volumeStreamManager.close();
+ * }
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class VolumeStreamManager implements IArchiveOpenVolumeCallback, IArchiveOpenCallback, Closeable {
+    /**
+     * Default count of the volumes to prefetch: 2
+     */
+    public static final int DEFAULT_PREFETCH_VOLUME_COUNT = 2;
+
+    private static final Pattern ZIP_SPLIT_FIRST_VOLUME_PATTERN = Pattern.compile(".*\\.[zZ]0*1");
+
+    /**
+     * Volume stream serving the prefetched first chunk from the memory.
+     */
+    private static final class PrefetchedVolumeInStream implements IInStream, Closeable {
+        private final IInStream inStream;
+        private final byte[] head;
+        private final int headLength;
+        private long position;
+        private long streamPosition;
+        private long length = -1;
+
+        PrefetchedVolumeInStream(IInStream inStream, int headSize) throws SevenZipException {
+            this.inStream = inStream;
+            this.head = new byte[headSize];
+            int offset = 0;
+            while (offset < headSize) {
+                byte[] chunk = offset == 0 ? head : new byte[headSize - offset];
+                int read = inStream.read(chunk);
+                if (read == 0) {
+                    break;
+                }
+                if (chunk != head) {
+                    System.arraycopy(chunk, 0, head, offset, read);
+                }
+                offset += read;
+            }
+            this.headLength = offset;
+            this.streamPosition = offset;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized long seek(long offset, int seekOrigin) throws SevenZipException {
+            switch (seekOrigin) {
+            case SEEK_SET:
+                position = offset;
+                break;
+
+            case SEEK_CUR:
+                position += offset;
+                break;
+
+            case SEEK_END:
+                if (length == -1) {
+                    length = inStream.seek(0, SEEK_END);
+                    streamPosition = length;
+                }
+                position = length + offset;
+                break;
+
+            default:
+                throw new RuntimeException("Seek: unknown origin: " + seekOrigin);
+            }
+            return position;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public synchronized int read(byte[] data) throws SevenZipException {
+            if (position < headLength) {
+                int read = Math.min(data.length, (int) (headLength - position));
+                System.arraycopy(head, (int) position, data, 0, read);
+                position += read;
+                return read;
+            }
+            if (streamPosition != position) {
+                streamPosition = inStream.seek(position, SEEK_SET);
+            }
+            int read = inStream.read(data);
+            position += read;
+            streamPosition = position;
+            return read;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void close() throws IOException {
+            closeStream(inStream);
+        }
+    }
+
+    private final File firstVolume;
+    private final VolumeNamingStrategy volumeNamingStrategy;
+    private final int prefetchVolumeCount;
+    private final int bufferSize;
+    private final ExecutorService prefetchExecutor;
+
+    private final Map<String, Future<IInStream>> prefetchedStreams = new HashMap<String, Future<IInStream>>();
+    private final Set<String> requestedVolumes = new HashSet<String>();
+    private final List<IInStream> openStreams = new ArrayList<IInStream>();
+    private int requestedVolumeCount;
+    private boolean closed;
+
+    /**
+     * Creates instance of {@link VolumeStreamManager} detecting the naming strategy of the volumes using
+     * {@link VolumeNamingStrategy#detect(String)}.
+     *
+     * @param firstVolume
+     *            the first volume of the archive
+     * @throws IllegalArgumentException
+     *             if the name of the first volume doesn't match any naming strategy or if it is the first volume of a
+     *             split Zip archive (<code>name.z01</code>)
+     */
+    public VolumeStreamManager(File firstVolume) {
+        this(firstVolume, detectVolumeNamingStrategy(firstVolume), DEFAULT_PREFETCH_VOLUME_COUNT,
+                BufferedVolumedArchiveInStream.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates instance of {@link VolumeStreamManager}.
+     *
+     * @param firstVolume
+     *            the first volume of the archive
+     * @param volumeNamingStrategy
+     *            naming strategy of the volumes
+     * @param prefetchVolumeCount
+     *            count of the volumes to prefetch after each requested volume. Also the count of the background
+     *            threads. 0 - no prefetching.
+     * @param bufferSize
+     *            size of the prefetched first chunk of the volumes and of the buffers of the
+     *            {@link BufferedVolumedArchiveInStream}
+     */
+    public VolumeStreamManager(File firstVolume, VolumeNamingStrategy volumeNamingStrategy, int prefetchVolumeCount,
+            int bufferSize) {
+        if (!volumeNamingStrategy.isFirstVolume(firstVolume.getName())) {
+            throw new IllegalArgumentException("'" + firstVolume + "' isn't a name of the first volume ("
+                    + volumeNamingStrategy + ")");
+        }
+        if (prefetchVolumeCount < 0) {
+            throw new IllegalArgumentException("Prefetch volume count should be non-negative: " + prefetchVolumeCount);
+        }
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size should be positive: " + bufferSize);
+        }
+        this.firstVolume = firstVolume;
+        this.volumeNamingStrategy = volumeNamingStrategy;
+        this.prefetchVolumeCount = prefetchVolumeCount;
+        this.bufferSize = bufferSize;
+        if (prefetchVolumeCount > 0) {
+            prefetchExecutor = Executors.newFixedThreadPool(prefetchVolumeCount, new ThreadFactory() {
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "7-Zip-JBinding volume prefetch");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        } else {
+            prefetchExecutor = null;
+        }
+    }
+
+    private static VolumeNamingStrategy detectVolumeNamingStrategy(File firstVolume) {
+        if (ZIP_SPLIT_FIRST_VOLUME_PATTERN.matcher(firstVolume.getName()).matches()) {
+            throw new IllegalArgumentException("Split Zip archives aren't supported by the Zip archive handler: '"
+                    + firstVolume + "'");
+        }
+        VolumeNamingStrategy volumeNamingStrategy = VolumeNamingStrategy.detect(firstVolume.getName());
+        if (volumeNamingStrategy == null) {
+            throw new IllegalArgumentException("Unknown volume naming scheme of the first volume '" + firstVolume
+                    + "'");
+        }
+        return volumeNamingStrategy;
+    }
+
+    /**
+     * Returns the naming strategy of the volumes.
+     *
+     * @return the naming strategy of the volumes
+     */
+    public VolumeNamingStrategy getVolumeNamingStrategy() {
+        return volumeNamingStrategy;
+    }
+
+    /**
+     * Opens the multi-volume archive.
+     *
+     * @param archiveFormat
+     *            format of the archive or <code>null</code> to detect the format automatically
+     * @return opened archive. Should be closed before this manager.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public IInArchive openInArchive(ArchiveFormat archiveFormat) throws SevenZipException {
+        if (volumeNamingStrategy.isConcatenated()) {
+            BufferedVolumedArchiveInStream inStream = new BufferedVolumedArchiveInStream(firstVolume.getName(),
+                    volumeNamingStrategy, this, bufferSize,
+                    BufferedVolumedArchiveInStream.DEFAULT_MAX_OPEN_VOLUME_COUNT);
+            synchronized (this) {
+                openStreams.add(inStream);
+            }
+            return SevenZip.openInArchive(archiveFormat, inStream);
+        }
+        IInStream inStream = getStream(firstVolume.getName());
+        if (inStream == null) {
+            throw new SevenZipException("The first volume '" + firstVolume + "' can't be opened");
+        }
+        return SevenZip.openInArchive(archiveFormat, inStream, this);
+    }
+
+    /**
+     * Returns the path of the first volume for {@link PropID#NAME}.<br>
+     * <br>
+     * {@inheritDoc}
+     */
+    public Object getProperty(PropID propID) {
+        if (propID == PropID.NAME) {
+            return firstVolume.getPath();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the stream of the volume <code>filename</code> located in the directory of the first volume. Schedules
+     * prefetching of the next volumes.<br>
+     * <br>
+     * {@inheritDoc}
+     */
+    public IInStream getStream(String filename) throws SevenZipException {
+        String name = new File(filename).getName();
+        Future<IInStream> future;
+        synchronized (this) {
+            if (closed) {
+                throw new SevenZipException("Volume stream manager was closed");
+            }
+            requestedVolumes.add(name);
+            future = prefetchedStreams.remove(name);
+        }
+
+        IInStream inStream;
+        if (future == null) {
+            inStream = openVolume(getVolumeFile(name));
+        } else {
+            inStream = getPrefetchedStream(future);
+        }
+
+        synchronized (this) {
+            if (inStream != null) {
+                openStreams.add(inStream);
+            }
+            if (closed) {
+                close();
+                throw new SevenZipException("Volume stream manager was closed");
+            }
+            int index = findVolumeIndex(name);
+            if (index != -1) {
+                prefetch(index);
+            }
+        }
+        return inStream;
+    }
+
+    /**
+     * Opens the volume <code>file</code>. Returns <code>null</code>, if the volume doesn't exist. Called by the
+     * archive handler and by the background threads.
+     *
+     * @param file
+     *            the volume file
+     * @return opened volume stream or <code>null</code>, if the volume doesn't exist
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    protected IInStream openVolume(File file) throws SevenZipException {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            return new PositionalFileInStream(file);
+        } catch (IOException e) {
+            throw new SevenZipException("Error opening volume '" + file + "'", e);
+        }
+    }
+
+    private File getVolumeFile(String name) {
+        return new File(firstVolume.getAbsoluteFile().getParentFile(), name);
+    }
+
+    private IInStream getPrefetchedStream(Future<IInStream> future) throws SevenZipException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            throw new SevenZipException("Interrupted while waiting for the prefetched volume", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SevenZipException) {
+                throw (SevenZipException) e.getCause();
+            }
+            throw new SevenZipException("Error prefetching volume", e.getCause());
+        }
+    }
+
+    /**
+     * Returns the 0-based index of the volume <code>name</code> or -1. The volumes get usually requested in order, so
+     * only the first requested volumes and the next one get checked.
+     */
+    private int findVolumeIndex(String name) {
+        String firstVolumeName = firstVolume.getName();
+        for (int i = 0; i <= requestedVolumeCount; i++) {
+            if (name.equals(volumeNamingStrategy.getVolumeFilename(firstVolumeName, i))) {
+                requestedVolumeCount = Math.max(requestedVolumeCount, i + 1);
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Schedules prefetching of the volumes following the volume <code>index</code>.
+     */
+    private void prefetch(int index) {
+        String firstVolumeName = firstVolume.getName();
+        for (int i = index + 1; i <= index + prefetchVolumeCount; i++) {
+            String name = volumeNamingStrategy.getVolumeFilename(firstVolumeName, i);
+            if (!getVolumeFile(name).exists()) {
+                return;
+            }
+            prefetch(name);
+        }
+    }
+
+    private void prefetch(String name) {
+        if (requestedVolumes.contains(name) || prefetchedStreams.containsKey(name)) {
+            return;
+        }
+        final File file = getVolumeFile(name);
+        prefetchedStreams.put(name, prefetchExecutor.submit(new Callable<IInStream>() {
+            public IInStream call() throws SevenZipException {
+                IInStream inStream = openVolume(file);
+                if (inStream == null) {
+                    return null;
+                }
+                try {
+                    return new PrefetchedVolumeInStream(inStream, bufferSize);
+                } catch (SevenZipException e) {
+                    closeStream(inStream);
+                    throw e;
+                }
+            }
+        }));
+    }
+
+    /**
+     * Does nothing.<br>
+     * <br>
+     * {@inheritDoc}
+     */
+    public void setTotal(Long files, Long bytes) {
+    }
+
+    /**
+     * Does nothing.<br>
+     * <br>
+     * {@inheritDoc}
+     */
+    public void setCompleted(Long files, Long bytes) {
+    }
+
+    /**
+     * Closes all volume streams, including the prefetched ones, and stops the background threads. The archive should
+     * be closed first.
+     */
+    public synchronized void close() {
+        closed = true;
+        if (prefetchExecutor != null) {
+            prefetchExecutor.shutdown();
+        }
+        List<IInStream> streamsToClose = new ArrayList<IInStream>(openStreams);
+        openStreams.clear();
+        for (Future<IInStream> future : prefetchedStreams.values()) {
+            try {
+                streamsToClose.add(future.get());
+            } catch (Exception e) {
+                // Prefetching failed, nothing to close
+            }
+        }
+        prefetchedStreams.clear();
+        for (IInStream inStream : streamsToClose) {
+            closeStream(inStream);
+        }
+    }
+
+    private static void closeStream(IInStream inStream) {
+        if (inStream instanceof Closeable) {
+            try {
+                ((Closeable) inStream).close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package net.sf.sevenzipjbinding.impl;
 
 import java.io.IOException;
-import java.text.MessageFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
@@ -27,6 +27,7 @@ import net.sf.sevenzipjbinding.SevenZipException;
  * file associated with the old {@link IInStream}, if a new {@link IInStream} was successfully instantiated.
  * </ul>
  * 
+ * @see BufferedVolumedArchiveInStream
  * @author Boris Brodski
  * @since 4.65-1
  */
@@ -101,7 +102,7 @@ public class VolumedArchiveInStream implements IInStream {
             return;
         }
 
-        String volumeFilename = cuttedVolumeFilename + MessageFormat.format("{0,number,000}", Integer.valueOf(index));
+        String volumeFilename = getVolumeFilename(cuttedVolumeFilename, index);
 
         // Get new IInStream
         IInStream newInStream = archiveOpenVolumeCallback.getStream(volumeFilename);
@@ -140,13 +141,10 @@ public class VolumedArchiveInStream implements IInStream {
     // 0______1______2______3 - list index
     // 1______2______3______4 - volume
     private void openVolumeToAbsoluteOffset() throws SevenZipException {
-        int index = volumePositions.size() - 1;
         if (absoluteLength != -1 && absoluteOffset >= absoluteLength) {
             return;
         }
-        while (volumePositions.get(index).longValue() > absoluteOffset) {
-            index--;
-        }
+        int index = findVolumeIndex(volumePositions, absoluteOffset);
 
         if (index < volumePositions.size() - 1) {
             openVolume(index + 1, false);
@@ -161,6 +159,32 @@ public class VolumedArchiveInStream implements IInStream {
 
     }
 
+    /**
+     * Returns the largest index <code>i</code> with <code>volumePositions[i] &lt;= offset</code> using binary search.
+     * The volume positions are strictly increasing starting with 0.
+     */
+    static int findVolumeIndex(List<Long> volumePositions, long offset) {
+        int index = Collections.binarySearch(volumePositions, Long.valueOf(offset));
+        if (index >= 0) {
+            return index;
+        }
+        return -index - 2;
+    }
+
+    /**
+     * Returns the file name of the 7z volume with the number <code>index</code>: <code>name.7z.001</code>,
+     * <code>name.7z.002</code>, ...
+     */
+    static String getVolumeFilename(String cuttedVolumeFilename, int index) {
+        String number = Integer.toString(index);
+        StringBuilder stringBuilder = new StringBuilder(cuttedVolumeFilename.length() + 3);
+        stringBuilder.append(cuttedVolumeFilename);
+        for (int i = number.length(); i < 3; i++) {
+            stringBuilder.append('0');
+        }
+        return stringBuilder.append(number).toString();
+    }
+
     /**
      * ${@inheritDoc}
      */
@@ -0,0 +1,115 @@
+package net.sf.sevenzipjbinding.service;
+
+/**
+ * Snapshot of the metrics of an {@link ArchiveExtractionService}. Returned by
+ * {@link ArchiveExtractionService#getMetrics()}.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ArchiveExtractionMetrics {
+    private final long submittedArchiveCount;
+    private final long completedArchiveCount;
+    private final long failedArchiveCount;
+    private final int pendingArchiveCount;
+    private final long extractedItemCount;
+    private final long extractedBytes;
+    private final long totalWaitingTimeNanos;
+    private final long totalExtractionTimeNanos;
+
+    ArchiveExtractionMetrics(long submittedArchiveCount, long completedArchiveCount, long failedArchiveCount,
+            int pendingArchiveCount, long extractedItemCount, long extractedBytes, long totalWaitingTimeNanos,
+            long totalExtractionTimeNanos) {
+        this.submittedArchiveCount = submittedArchiveCount;
+        this.completedArchiveCount = completedArchiveCount;
+        this.failedArchiveCount = failedArchiveCount;
+        this.pendingArchiveCount = pendingArchiveCount;
+        this.extractedItemCount = extractedItemCount;
+        this.extractedBytes = extractedBytes;
+        this.totalWaitingTimeNanos = totalWaitingTimeNanos;
+        this.totalExtractionTimeNanos = totalExtractionTimeNanos;
+    }
+
+    /**
+     * Returns count of archives submitted to the service.
+     *
+     * @return count of submitted archives
+     */
+    public long getSubmittedArchiveCount() {
+        return submittedArchiveCount;
+    }
+
+    /**
+     * Returns count of processed archives including the failed ones.
+     *
+     * @return count of processed archives
+     */
+    public long getCompletedArchiveCount() {
+        return completedArchiveCount;
+    }
+
+    /**
+     * Returns count of processed archives, that weren't extracted successfully (see
+     * {@link ArchiveExtractionResult#isSuccessful()}).
+     *
+     * @return count of failed archives
+     */
+    public long getFailedArchiveCount() {
+        return failedArchiveCount;
+    }
+
+    /**
+     * Returns count of submitted archives waiting for a worker or being processed at the moment.
+     *
+     * @return count of pending archives
+     */
+    public int getPendingArchiveCount() {
+        return pendingArchiveCount;
+    }
+
+    /**
+     * Returns count of successfully extracted items of all archives.
+     *
+     * @return count of extracted items
+     */
+    public long getExtractedItemCount() {
+        return extractedItemCount;
+    }
+
+    /**
+     * Returns count of extracted bytes of all archives.
+     *
+     * @return count of extracted bytes
+     */
+    public long getExtractedBytes() {
+        return extractedBytes;
+    }
+
+    /**
+     * Returns the sum of the times the processed archives waited for a free worker.
+     *
+     * @return total waiting time in nanoseconds
+     */
+    public long getTotalWaitingTimeNanos() {
+        return totalWaitingTimeNanos;
+    }
+
+    /**
+     * Returns the sum of the extraction times of the processed archives.
+     *
+     * @return total extraction time in nanoseconds
+     */
+    public long getTotalExtractionTimeNanos() {
+        return totalExtractionTimeNanos;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "submitted: " + submittedArchiveCount + ", completed: " + completedArchiveCount + ", failed: "
+                + failedArchiveCount + ", pending: " + pendingArchiveCount + ", items: " + extractedItemCount
+                + ", bytes: " + extractedBytes;
+    }
+}
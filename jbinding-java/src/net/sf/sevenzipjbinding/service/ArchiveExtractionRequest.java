@@ -0,0 +1,150 @@
+package net.sf.sevenzipjbinding.service;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * A single archive to be extracted by the {@link ArchiveExtractionService}. All methods get called on the worker
+ * thread processing the archive. The archive stream is opened only when a worker starts processing the archive, so
+ * many requests can be queued without holding open file handles.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * new ArchiveExtractionRequest(file.getName()) {
+ *     public IInStream openInStream() throws SevenZipException {
+ *         randomAccessFile = new RandomAccessFile(file, &quot;r&quot;); // error handling omitted
+ *         return new RandomAccessFileInStream(randomAccessFile);
+ *     }
+ *
+ *     public void closeInStream(IInStream inStream) throws SevenZipException {
+ *         randomAccessFile.close(); // error handling omitted
+ *     }
+ *
+ *     public ISequentialOutStream getStream(IInArchive inArchive, int index) throws SevenZipException {
+ *         return ...; // or null to skip the item
+ *     }
+ * }
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public abstract class ArchiveExtractionRequest {
+    private final String name;
+    private final ArchiveFormat archiveFormat;
+
+    /**
+     * Constructs a request for an archive of any format. The format is detected automatically.
+     *
+     * @param name
+     *            name of the archive used in the results and error messages
+     */
+    public ArchiveExtractionRequest(String name) {
+        this(name, null);
+    }
+
+    /**
+     * Constructs a request for an archive of the format <code>archiveFormat</code>.
+     *
+     * @param name
+     *            name of the archive used in the results and error messages
+     * @param archiveFormat
+     *            (optional) format of the archive. <code>null</code> - detect format automatically.
+     */
+    public ArchiveExtractionRequest(String name, ArchiveFormat archiveFormat) {
+        this.name = name;
+        this.archiveFormat = archiveFormat;
+    }
+
+    /**
+     * Returns the name of the archive.
+     *
+     * @return name of the archive
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the format of the archive.
+     *
+     * @return format of the archive or <code>null</code>, if the format should be detected automatically
+     */
+    public ArchiveFormat getArchiveFormat() {
+        return archiveFormat;
+    }
+
+    /**
+     * Opens the archive stream. Called once, when a worker starts processing the archive.
+     *
+     * @return the archive stream
+     * @throws SevenZipException
+     *             the stream couldn't be opened. The archive will be reported as failed.
+     */
+    public abstract IInStream openInStream() throws SevenZipException;
+
+    /**
+     * Closes the archive stream opened by {@link #openInStream()}. Called after the extraction, also if the extraction
+     * failed. The default implementation does nothing.
+     *
+     * @param inStream
+     *            the stream returned by {@link #openInStream()}
+     * @throws SevenZipException
+     *             the stream couldn't be closed. The archive will be reported as failed.
+     */
+    public void closeInStream(IInStream inStream) throws SevenZipException {
+    }
+
+    /**
+     * Returns the out-stream to extract the archive item with the index <code>index</code> to.
+     *
+     * @param inArchive
+     *            the opened archive. Can be used to get properties of the item.
+     * @param index
+     *            index of the item to extract
+     * @return the out-stream or <code>null</code> to skip the item. Out-streams implementing
+     *         {@link net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream} receive the data through a direct
+     *         buffer.
+     * @throws SevenZipException
+     *             in error case. The extraction of the archive will be reported as failed.
+     */
+    public abstract ISequentialOutStream getStream(IInArchive inArchive, int index) throws SevenZipException;
+
+    /**
+     * Notifies about the result of the extraction of the archive item with the index <code>index</code>. Called only
+     * for items with an out-stream returned by {@link #getStream(IInArchive, int)}. The default implementation does
+     * nothing.
+     *
+     * @param index
+     *            index of the extracted item
+     * @param extractOperationResult
+     *            result of the extraction
+     * @throws SevenZipException
+     *             in error case. The extraction of the archive will be reported as failed.
+     */
+    public void setOperationResult(int index, ExtractOperationResult extractOperationResult)
+            throws SevenZipException {
+    }
+
+    /**
+     * Returns the password for encrypted archives. The default implementation returns <code>null</code>.
+     *
+     * @return password or <code>null</code>, if the archive isn't encrypted
+     */
+    public String getPassword() {
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return name;
+    }
+}
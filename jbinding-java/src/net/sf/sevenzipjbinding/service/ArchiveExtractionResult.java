@@ -0,0 +1,137 @@
+package net.sf.sevenzipjbinding.service;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+
+/**
+ * Result of the extraction of a single archive by the {@link ArchiveExtractionService}.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ArchiveExtractionResult {
+    private final ArchiveExtractionRequest request;
+    private final ArchiveFormat archiveFormat;
+    private final int itemCount;
+    private final int extractedItemCount;
+    private final int failedItemCount;
+    private final long extractedBytes;
+    private final long waitingTimeNanos;
+    private final long extractionTimeNanos;
+    private final Throwable exception;
+
+    ArchiveExtractionResult(ArchiveExtractionRequest request, ArchiveFormat archiveFormat, int itemCount,
+            int extractedItemCount, int failedItemCount, long extractedBytes, long waitingTimeNanos,
+            long extractionTimeNanos, Throwable exception) {
+        this.request = request;
+        this.archiveFormat = archiveFormat;
+        this.itemCount = itemCount;
+        this.extractedItemCount = extractedItemCount;
+        this.failedItemCount = failedItemCount;
+        this.extractedBytes = extractedBytes;
+        this.waitingTimeNanos = waitingTimeNanos;
+        this.extractionTimeNanos = extractionTimeNanos;
+        this.exception = exception;
+    }
+
+    /**
+     * Returns the request of this result.
+     *
+     * @return the request
+     */
+    public ArchiveExtractionRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Returns the format of the archive.
+     *
+     * @return format of the archive or <code>null</code>, if the archive couldn't be opened
+     */
+    public ArchiveFormat getArchiveFormat() {
+        return archiveFormat;
+    }
+
+    /**
+     * Returns count of items in the archive.
+     *
+     * @return count of items in the archive
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns count of items extracted with the result {@link net.sf.sevenzipjbinding.ExtractOperationResult#OK}.
+     *
+     * @return count of successfully extracted items
+     */
+    public int getExtractedItemCount() {
+        return extractedItemCount;
+    }
+
+    /**
+     * Returns count of items extracted with a result other than
+     * {@link net.sf.sevenzipjbinding.ExtractOperationResult#OK}.
+     *
+     * @return count of failed items
+     */
+    public int getFailedItemCount() {
+        return failedItemCount;
+    }
+
+    /**
+     * Returns count of bytes written to the out-streams of the archive items.
+     *
+     * @return count of extracted bytes
+     */
+    public long getExtractedBytes() {
+        return extractedBytes;
+    }
+
+    /**
+     * Returns the time the request spent in the queue waiting for a free worker.
+     *
+     * @return waiting time in nanoseconds
+     */
+    public long getWaitingTimeNanos() {
+        return waitingTimeNanos;
+    }
+
+    /**
+     * Returns the time needed to open, extract and close the archive.
+     *
+     * @return extraction time in nanoseconds
+     */
+    public long getExtractionTimeNanos() {
+        return extractionTimeNanos;
+    }
+
+    /**
+     * Returns the exception thrown during the processing of the archive.
+     *
+     * @return the exception or <code>null</code>, if no exception was thrown
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * Determines, whether the archive was extracted successfully: no exception was thrown and all items were extracted
+     * with the result {@link net.sf.sevenzipjbinding.ExtractOperationResult#OK}.
+     *
+     * @return <code>true</code> if the archive was extracted successfully, <code>false</code> otherwise
+     */
+    public boolean isSuccessful() {
+        return exception == null && failedItemCount == 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return request.getName() + ": " + (isSuccessful() ? "OK" : "FAILED") + ", format: " + archiveFormat
+                + ", items: " + extractedItemCount + "/" + itemCount + ", bytes: " + extractedBytes
+                + (exception == null ? "" : ", exception: " + exception);
+    }
+}
@@ -0,0 +1,499 @@
+package net.sf.sevenzipjbinding.service;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.ICryptoGetTextPassword;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Extracts many archives concurrently using a bounded pool of worker threads. Each submitted
+ * {@link ArchiveExtractionRequest} gets opened, completely extracted and closed on a single worker thread. The
+ * result of each archive including the occurred exception and some metrics is returned as an
+ * {@link ArchiveExtractionResult}.<br>
+ * <br>
+ * The count of submitted, but not yet processed archives is limited. If the limit is reached,
+ * {@link #submit(ArchiveExtractionRequest)} blocks until a worker finishes processing an archive (back-pressure). This
+ * way a producer can't fill the memory with pending requests.<br>
+ * <br>
+ * Each worker thread reuses its extract callback and the wrappers of the out-streams for all archives it processes.
+ * Out-streams implementing {@link IDirectBufferSequentialOutStream} receive the data through the native direct
+ * buffer. The native resources aren't reused: each archive gets opened with
+ * {@link SevenZip#openInArchive(ArchiveFormat, IInStream)} getting its own native session, native archive object and
+ * native stream wrappers, that are released by {@link IInArchive#close()} after the extraction.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * ArchiveExtractionService service = new ArchiveExtractionService(4, 100);
+ * for (File file : files) {
+ *     futures.add(service.submit(new MyArchiveExtractionRequest(file))); // blocks if 100 archives are pending
+ * }
+ * for (Future&lt;ArchiveExtractionResult&gt; future : futures) {
+ *     ArchiveExtractionResult result = future.get();
+ *     if (!result.isSuccessful()) {
+ *         ...
+ *     }
+ * }
+ * service.shutdown();
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ArchiveExtractionService {
+    private final Executor executor;
+    private final ExecutorService ownExecutorService;
+    private final int maxPendingArchiveCount;
+    private final Semaphore pendingArchiveSemaphore;
+    private volatile boolean shutdown;
+
+    private final AtomicLong submittedArchiveCount = new AtomicLong();
+    private final AtomicLong completedArchiveCount = new AtomicLong();
+    private final AtomicLong failedArchiveCount = new AtomicLong();
+    private final AtomicLong extractedItemCount = new AtomicLong();
+    private final AtomicLong extractedBytes = new AtomicLong();
+    private final AtomicLong totalWaitingTimeNanos = new AtomicLong();
+    private final AtomicLong totalExtractionTimeNanos = new AtomicLong();
+
+    private final ThreadLocal<WorkerExtractCallback> workerExtractCallback = new ThreadLocal<WorkerExtractCallback>() {
+        @Override
+        protected WorkerExtractCallback initialValue() {
+            return new WorkerExtractCallback();
+        }
+    };
+
+    /**
+     * Extract callback of a worker thread. Reused for all archives processed by the worker.
+     */
+    private static final class WorkerExtractCallback implements IArchiveExtractCallback, ICryptoGetTextPassword {
+        private final CountingOutStream countingOutStream = new CountingOutStream();
+        private final CountingDirectBufferOutStream countingDirectBufferOutStream = new CountingDirectBufferOutStream();
+
+        private ArchiveExtractionRequest request;
+        private IInArchive inArchive;
+        private int currentIndex;
+        private boolean currentItemExtracted;
+        private int extractedItemCount;
+        private int failedItemCount;
+
+        void init(ArchiveExtractionRequest request) {
+            this.request = request;
+            this.inArchive = null;
+            this.extractedItemCount = 0;
+            this.failedItemCount = 0;
+            countingOutStream.bytesWritten = 0;
+            countingDirectBufferOutStream.bytesWritten = 0;
+        }
+
+        void release() {
+            request = null;
+            inArchive = null;
+            countingOutStream.outStream = null;
+            countingDirectBufferOutStream.outStream = null;
+        }
+
+        long getExtractedBytes() {
+            return countingOutStream.bytesWritten + countingDirectBufferOutStream.bytesWritten;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
+            currentIndex = index;
+            currentItemExtracted = false;
+            if (extractAskMode != ExtractAskMode.EXTRACT) {
+                return null;
+            }
+            ISequentialOutStream outStream = request.getStream(inArchive, index);
+            if (outStream == null) {
+                return null;
+            }
+            currentItemExtracted = true;
+            if (outStream instanceof IDirectBufferSequentialOutStream) {
+                countingDirectBufferOutStream.outStream = (IDirectBufferSequentialOutStream) outStream;
+                return countingDirectBufferOutStream;
+            }
+            countingOutStream.outStream = outStream;
+            return countingOutStream;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void prepareOperation(ExtractAskMode extractAskMode) throws SevenZipException {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+            if (!currentItemExtracted) {
+                return;
+            }
+            currentItemExtracted = false;
+            if (extractOperationResult == ExtractOperationResult.OK) {
+                extractedItemCount++;
+            } else {
+                failedItemCount++;
+            }
+            request.setOperationResult(currentIndex, extractOperationResult);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setTotal(long total) throws SevenZipException {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public void setCompleted(long complete) throws SevenZipException {
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public String cryptoGetTextPassword() throws SevenZipException {
+            String password = request.getPassword();
+            return password == null ? "" : password;
+        }
+    }
+
+    private static final class CountingOutStream implements ISequentialOutStream {
+        ISequentialOutStream outStream;
+        long bytesWritten;
+
+        /**
+         * {@inheritDoc}
+         */
+        public int write(byte[] data) throws SevenZipException {
+            int written = outStream.write(data);
+            bytesWritten += written;
+            return written;
+        }
+    }
+
+    private static final class CountingDirectBufferOutStream implements IDirectBufferSequentialOutStream {
+        IDirectBufferSequentialOutStream outStream;
+        long bytesWritten;
+
+        /**
+         * {@inheritDoc}
+         */
+        public int write(byte[] data) throws SevenZipException {
+            int written = outStream.write(data);
+            bytesWritten += written;
+            return written;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public int write(ByteBuffer data) throws SevenZipException {
+            int written = outStream.write(data);
+            bytesWritten += written;
+            return written;
+        }
+    }
+
+    private final class ExtractionTask extends FutureTask<ArchiveExtractionResult> {
+        ExtractionTask(final ArchiveExtractionRequest request) {
+            super(new Callable<ArchiveExtractionResult>() {
+                private final long submitTime = System.nanoTime();
+
+                public ArchiveExtractionResult call() {
+                    return extract(request, System.nanoTime() - submitTime);
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            // Release the permit only after the worker leaves the task. done() gets called by cancel(true) while
+            // the extraction may be still running.
+            try {
+                super.run();
+            } finally {
+                pendingArchiveSemaphore.release();
+            }
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        /**
+         * {@inheritDoc}
+         */
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "7-Zip-JBinding extraction worker "
+                    + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * Constructs a service with its own pool of <code>threadCount</code> daemon worker threads.
+     *
+     * @param threadCount
+     *            count of worker threads
+     * @param maxPendingArchiveCount
+     *            maximal count of submitted archives waiting for a worker or being processed. Should be greater or
+     *            equal to <code>threadCount</code> to keep all workers busy.
+     */
+    public ArchiveExtractionService(int threadCount, int maxPendingArchiveCount) {
+        this(Executors.newFixedThreadPool(checkPositive(threadCount, "threadCount"), new WorkerThreadFactory()),
+                maxPendingArchiveCount, true);
+    }
+
+    /**
+     * Constructs a service using the executor <code>executor</code> to run the extractions. The executor isn't shut
+     * down by {@link #shutdown()}.
+     *
+     * @param executor
+     *            executor to run the extractions with
+     * @param maxPendingArchiveCount
+     *            maximal count of submitted archives waiting for a worker or being processed
+     */
+    public ArchiveExtractionService(Executor executor, int maxPendingArchiveCount) {
+        this(executor, maxPendingArchiveCount, false);
+    }
+
+    private ArchiveExtractionService(Executor executor, int maxPendingArchiveCount, boolean ownExecutor) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        this.executor = executor;
+        this.ownExecutorService = ownExecutor ? (ExecutorService) executor : null;
+        this.maxPendingArchiveCount = checkPositive(maxPendingArchiveCount, "maxPendingArchiveCount");
+        this.pendingArchiveSemaphore = new Semaphore(maxPendingArchiveCount);
+    }
+
+    private static int checkPositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " should be positive: " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Submits the archive <code>request</code> for extraction. Blocks, if the maximal count of pending archives is
+     * reached, till a worker finishes processing of an archive.
+     *
+     * @param request
+     *            the archive to extract
+     * @return future of the extraction result. The extraction errors are reported in the result and not thrown by
+     *         {@link Future#get()}.
+     * @throws InterruptedException
+     *             the current thread was interrupted while waiting
+     * @throws IllegalStateException
+     *             the service was shut down
+     * @throws RejectedExecutionException
+     *             the executor rejected the extraction task
+     */
+    public Future<ArchiveExtractionResult> submit(ArchiveExtractionRequest request) throws InterruptedException {
+        checkRequest(request);
+        pendingArchiveSemaphore.acquire();
+        return execute(request);
+    }
+
+    /**
+     * Submits the archive <code>request</code> for extraction. Waits at most <code>timeout</code>, if the maximal count
+     * of pending archives is reached.
+     *
+     * @param request
+     *            the archive to extract
+     * @param timeout
+     *            maximal time to wait
+     * @param unit
+     *            time unit of the <code>timeout</code> argument
+     * @return future of the extraction result or <code>null</code>, if the timeout elapsed before the request could be
+     *         submitted
+     * @throws InterruptedException
+     *             the current thread was interrupted while waiting
+     * @throws IllegalStateException
+     *             the service was shut down
+     * @throws RejectedExecutionException
+     *             the executor rejected the extraction task
+     */
+    public Future<ArchiveExtractionResult> submit(ArchiveExtractionRequest request, long timeout, TimeUnit unit)
+            throws InterruptedException {
+        checkRequest(request);
+        if (!pendingArchiveSemaphore.tryAcquire(timeout, unit)) {
+            return null;
+        }
+        return execute(request);
+    }
+
+    private void checkRequest(ArchiveExtractionRequest request) {
+        if (request == null) {
+            throw new NullPointerException("request");
+        }
+        if (shutdown) {
+            throw new IllegalStateException("The archive extraction service was shut down");
+        }
+    }
+
+    private Future<ArchiveExtractionResult> execute(ArchiveExtractionRequest request) {
+        if (shutdown) {
+            pendingArchiveSemaphore.release();
+            throw new IllegalStateException("The archive extraction service was shut down");
+        }
+        ExtractionTask extractionTask = new ExtractionTask(request);
+        submittedArchiveCount.incrementAndGet();
+        try {
+            executor.execute(extractionTask);
+        } catch (RejectedExecutionException e) {
+            submittedArchiveCount.decrementAndGet();
+            pendingArchiveSemaphore.release();
+            throw e;
+        }
+        return extractionTask;
+    }
+
+    private ArchiveExtractionResult extract(ArchiveExtractionRequest request, long waitingTimeNanos) {
+        long startTime = System.nanoTime();
+        WorkerExtractCallback extractCallback = workerExtractCallback.get();
+        extractCallback.init(request);
+
+        ArchiveFormat archiveFormat = null;
+        int itemCount = 0;
+        Throwable exception = null;
+        IInStream inStream = null;
+        IInArchive inArchive = null;
+        try {
+            inStream = request.openInStream();
+            if (request.getPassword() == null) {
+                inArchive = SevenZip.openInArchive(request.getArchiveFormat(), inStream);
+            } else {
+                inArchive = SevenZip.openInArchive(request.getArchiveFormat(), inStream, request.getPassword());
+            }
+            archiveFormat = inArchive.getArchiveFormat();
+            itemCount = inArchive.getNumberOfItems();
+            extractCallback.inArchive = inArchive;
+            inArchive.extract(null, false, extractCallback);
+        } catch (Exception e) {
+            exception = e;
+        } finally {
+            if (inArchive != null) {
+                try {
+                    inArchive.close();
+                } catch (Exception e) {
+                    if (exception == null) {
+                        exception = e;
+                    }
+                }
+            }
+            if (inStream != null) {
+                try {
+                    request.closeInStream(inStream);
+                } catch (Exception e) {
+                    if (exception == null) {
+                        exception = e;
+                    }
+                }
+            }
+        }
+
+        long extractionTimeNanos = System.nanoTime() - startTime;
+        ArchiveExtractionResult result = new ArchiveExtractionResult(request, archiveFormat, itemCount,
+                extractCallback.extractedItemCount, extractCallback.failedItemCount,
+                extractCallback.getExtractedBytes(), waitingTimeNanos, extractionTimeNanos, exception);
+        extractCallback.release();
+
+        completedArchiveCount.incrementAndGet();
+        if (!result.isSuccessful()) {
+            failedArchiveCount.incrementAndGet();
+        }
+        extractedItemCount.addAndGet(result.getExtractedItemCount());
+        extractedBytes.addAndGet(result.getExtractedBytes());
+        totalWaitingTimeNanos.addAndGet(waitingTimeNanos);
+        totalExtractionTimeNanos.addAndGet(extractionTimeNanos);
+        return result;
+    }
+
+    /**
+     * Returns the maximal count of submitted archives waiting for a worker or being processed.
+     *
+     * @return maximal count of pending archives
+     */
+    public int getMaxPendingArchiveCount() {
+        return maxPendingArchiveCount;
+    }
+
+    /**
+     * Returns a snapshot of the metrics of the service.
+     *
+     * @return current metrics
+     */
+    public ArchiveExtractionMetrics getMetrics() {
+        return new ArchiveExtractionMetrics(submittedArchiveCount.get(), completedArchiveCount.get(),
+                failedArchiveCount.get(), maxPendingArchiveCount - pendingArchiveSemaphore.availablePermits(),
+                extractedItemCount.get(), extractedBytes.get(), totalWaitingTimeNanos.get(),
+                totalExtractionTimeNanos.get());
+    }
+
+    /**
+     * Stops accepting new archives. The already submitted archives get processed. The own worker pool (see
+     * {@link #ArchiveExtractionService(int, int)}) gets shut down after processing the submitted archives. The
+     * executor passed to {@link #ArchiveExtractionService(Executor, int)} isn't shut down.
+     */
+    public void shutdown() {
+        shutdown = true;
+        if (ownExecutorService != null) {
+            ownExecutorService.shutdown();
+        }
+    }
+
+    /**
+     * Determines, whether the service was shut down.
+     *
+     * @return <code>true</code> if the service was shut down, <code>false</code> otherwise
+     */
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    /**
+     * Waits till all submitted archives are processed.
+     *
+     * @param timeout
+     *            maximal time to wait
+     * @param unit
+     *            time unit of the <code>timeout</code> argument
+     * @return <code>true</code> if all submitted archives were processed, <code>false</code> if the timeout elapsed
+     * @throws InterruptedException
+     *             the current thread was interrupted while waiting
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!pendingArchiveSemaphore.tryAcquire(maxPendingArchiveCount, timeout, unit)) {
+            return false;
+        }
+        pendingArchiveSemaphore.release(maxPendingArchiveCount);
+        return true;
+    }
+}
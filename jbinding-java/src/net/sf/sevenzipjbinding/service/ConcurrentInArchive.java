@@ -0,0 +1,416 @@
+package net.sf.sevenzipjbinding.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.ICloneableInStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.ItemPropertyColumns;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Read-only access to a single archive from multiple threads. The 7-Zip archive handlers keep the state of the current
+ * operation and aren't thread-safe, so the methods of an {@link IInArchive} can't be called concurrently. Instead
+ * this class keeps a pool of archive instances. Each instance reads the archive through its own clone of the
+ * {@link ICloneableInStream} with its own position and has its own native session. Each call leases an idle instance
+ * for the duration of the call. New instances get opened on demand up to the maximal instance count. If all
+ * instances are busy, the calling thread waits for an instance to become idle.<br>
+ * <br>
+ * The archive headers get parsed once per instance and not once per call. The instances stay open until
+ * {@link #close()} gets called. The number of items is read once during the construction.<br>
+ * <br>
+ * The clones of {@link net.sf.sevenzipjbinding.impl.MappedFileInStream} and
+ * {@link net.sf.sevenzipjbinding.impl.PositionalFileInStream} read the shared file without locking.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * ConcurrentInArchive archive = new ConcurrentInArchive(null, new MappedFileInStream(file), 8);
+ * // From many threads concurrently
+ * String path = archive.getStringProperty(index, PropID.PATH);
+ * archive.extractSlow(index, outStream);
+ * // After all threads finished
+ * archive.close();
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class ConcurrentInArchive implements Closeable {
+    private final ICloneableInStream inStream;
+    private final String passwordForOpen;
+    private final int maxInstanceCount;
+    private final ArchiveFormat archiveFormat;
+    private final int numberOfItems;
+
+    private final LinkedList<IInArchive> idleInstances = new LinkedList<IInArchive>();
+    private final Map<IInArchive, IInStream> clonedInStreams = new IdentityHashMap<IInArchive, IInStream>();
+    private int instanceCount;
+    private boolean closed;
+
+    /**
+     * Opens the archive for concurrent read-only access.
+     *
+     * @param archiveFormat
+     *            format of the archive or <code>null</code> to detect the format
+     * @param inStream
+     *            stream with the archive. Used by the first instance and cloned for all other instances.
+     * @param maxInstanceCount
+     *            maximal count of the opened archive instances. This is the maximal count of concurrent calls.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ConcurrentInArchive(ArchiveFormat archiveFormat, ICloneableInStream inStream, int maxInstanceCount)
+            throws SevenZipException {
+        this(archiveFormat, inStream, null, maxInstanceCount);
+    }
+
+    /**
+     * Opens the archive with encrypted headers for concurrent read-only access.
+     *
+     * @param archiveFormat
+     *            format of the archive or <code>null</code> to detect the format
+     * @param inStream
+     *            stream with the archive. Used by the first instance and cloned for all other instances.
+     * @param passwordForOpen
+     *            password to decrypt the archive headers or <code>null</code>
+     * @param maxInstanceCount
+     *            maximal count of the opened archive instances. This is the maximal count of concurrent calls.
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ConcurrentInArchive(ArchiveFormat archiveFormat, ICloneableInStream inStream, String passwordForOpen,
+            int maxInstanceCount) throws SevenZipException {
+        if (maxInstanceCount <= 0) {
+            throw new IllegalArgumentException("Max instance count should be positive: " + maxInstanceCount);
+        }
+        this.inStream = inStream;
+        this.passwordForOpen = passwordForOpen;
+        this.maxInstanceCount = maxInstanceCount;
+
+        IInArchive firstInstance = openInstance(archiveFormat, inStream);
+        this.archiveFormat = firstInstance.getArchiveFormat();
+        try {
+            this.numberOfItems = firstInstance.getNumberOfItems();
+        } catch (SevenZipException e) {
+            firstInstance.close();
+            throw e;
+        }
+        instanceCount = 1;
+        idleInstances.add(firstInstance);
+    }
+
+    /**
+     * Returns format of the archive.
+     *
+     * @return format of the archive
+     */
+    public ArchiveFormat getArchiveFormat() {
+        return archiveFormat;
+    }
+
+    /**
+     * Returns count of items in the archive.
+     *
+     * @return count of items in the archive
+     */
+    public int getNumberOfItems() {
+        return numberOfItems;
+    }
+
+    /**
+     * Returns count of currently opened archive instances.
+     *
+     * @return count of opened archive instances
+     */
+    public synchronized int getInstanceCount() {
+        return instanceCount;
+    }
+
+    /**
+     * See {@link IInArchive#getProperty(int, PropID)}.
+     *
+     * @param index
+     *            index of the item
+     * @param propID
+     *            property id
+     * @return value of the property or <code>null</code>
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public Object getProperty(int index, PropID propID) throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.getProperty(index, propID);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#getStringProperty(int, PropID)}.
+     *
+     * @param index
+     *            index of the item
+     * @param propID
+     *            property id
+     * @return string representation of the property value
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public String getStringProperty(int index, PropID propID) throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.getStringProperty(index, propID);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#getProperties(PropID[], int, int)}.
+     *
+     * @param propIDs
+     *            properties to get
+     * @param fromIndex
+     *            index of the first item (inclusive)
+     * @param toIndex
+     *            index of the last item (exclusive)
+     * @return property columns
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ItemPropertyColumns getProperties(PropID[] propIDs, int fromIndex, int toIndex) throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.getProperties(propIDs, fromIndex, toIndex);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#getArchiveProperty(PropID)}.
+     *
+     * @param propID
+     *            property id
+     * @return value of the archive property or <code>null</code>
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public Object getArchiveProperty(PropID propID) throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.getArchiveProperty(propID);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#extract(int[], boolean, IArchiveExtractCallback)}. The callback gets called in the calling
+     * thread.
+     *
+     * @param indices
+     *            indices of the items to extract or <code>null</code> to extract all items
+     * @param testMode
+     *            <code>true</code> - test archive, <code>false</code> - extract
+     * @param extractCallback
+     *            extract callback
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void extract(int[] indices, boolean testMode, IArchiveExtractCallback extractCallback)
+            throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            inArchive.extract(indices, testMode, extractCallback);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#extractSlow(int, ISequentialOutStream)}.
+     *
+     * @param index
+     *            index of the item to extract
+     * @param outStream
+     *            stream to write the extracted data to
+     * @return result of the extraction
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ExtractOperationResult extractSlow(int index, ISequentialOutStream outStream) throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.extractSlow(index, outStream);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * See {@link IInArchive#extractSlow(int, ISequentialOutStream, String)}.
+     *
+     * @param index
+     *            index of the item to extract
+     * @param outStream
+     *            stream to write the extracted data to
+     * @param password
+     *            password to decrypt the item
+     * @return result of the extraction
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ExtractOperationResult extractSlow(int index, ISequentialOutStream outStream, String password)
+            throws SevenZipException {
+        IInArchive inArchive = lease();
+        try {
+            return inArchive.extractSlow(index, outStream, password);
+        } finally {
+            release(inArchive);
+        }
+    }
+
+    /**
+     * Closes all idle archive instances and the cloned streams. Instances leased by running calls get closed after
+     * the calls finish. The stream passed to the constructor doesn't get closed.
+     *
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void close() throws SevenZipException {
+        List<IInArchive> instancesToClose;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            instancesToClose = new ArrayList<IInArchive>(idleInstances);
+            idleInstances.clear();
+            notifyAll();
+        }
+        closeInstances(instancesToClose);
+    }
+
+    private IInArchive lease() throws SevenZipException {
+        synchronized (this) {
+            while (true) {
+                if (closed) {
+                    throw new SevenZipException("Archive was closed");
+                }
+                if (!idleInstances.isEmpty()) {
+                    return idleInstances.removeFirst();
+                }
+                if (instanceCount < maxInstanceCount) {
+                    instanceCount++;
+                    break;
+                }
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    throw new SevenZipException("Interrupted while waiting for an idle archive instance", e);
+                }
+            }
+        }
+
+        // Open a new instance outside of the lock
+        IInStream clonedInStream = null;
+        try {
+            clonedInStream = inStream.cloneStream();
+            IInArchive inArchive = openInstance(archiveFormat, clonedInStream);
+            synchronized (this) {
+                clonedInStreams.put(inArchive, clonedInStream);
+            }
+            return inArchive;
+        } catch (SevenZipException e) {
+            closeStream(clonedInStream);
+            synchronized (this) {
+                instanceCount--;
+                notifyAll();
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            closeStream(clonedInStream);
+            synchronized (this) {
+                instanceCount--;
+                notifyAll();
+            }
+            throw e;
+        }
+    }
+
+    private void release(IInArchive inArchive) throws SevenZipException {
+        synchronized (this) {
+            if (!closed) {
+                idleInstances.addFirst(inArchive);
+                notify();
+                return;
+            }
+        }
+        List<IInArchive> instancesToClose = new ArrayList<IInArchive>();
+        instancesToClose.add(inArchive);
+        closeInstances(instancesToClose);
+    }
+
+    private IInArchive openInstance(ArchiveFormat format, IInStream instanceInStream) throws SevenZipException {
+        if (passwordForOpen == null) {
+            return SevenZip.openInArchive(format, instanceInStream);
+        }
+        return SevenZip.openInArchive(format, instanceInStream, passwordForOpen);
+    }
+
+    private void closeInstances(List<IInArchive> instancesToClose) throws SevenZipException {
+        SevenZipException exception = null;
+        for (IInArchive inArchive : instancesToClose) {
+            try {
+                inArchive.close();
+            } catch (SevenZipException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+            IInStream clonedInStream;
+            synchronized (this) {
+                clonedInStream = clonedInStreams.remove(inArchive);
+            }
+            closeStream(clonedInStream);
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static void closeStream(IInStream stream) {
+        if (stream instanceof Closeable) {
+            try {
+                ((Closeable) stream).close();
+            } catch (IOException e) {
+                // Ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package net.sf.sevenzipjbinding.service;
+
+import java.io.Closeable;
+
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.service.InArchivePool.PooledInArchive;
+
+/**
+ * Exclusive lease of an opened archive from an {@link InArchivePool}. Returned by
+ * {@link InArchivePool#lease(java.io.File)}. The leased archive should be used by a single thread at a time and
+ * mustn't be closed directly. Closing the lease returns the archive into the pool.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class InArchiveLease implements Closeable {
+    private final InArchivePool pool;
+    private final PooledInArchive pooledInArchive;
+    private boolean reusable = true;
+    private boolean closed;
+
+    InArchiveLease(InArchivePool pool, PooledInArchive pooledInArchive) {
+        this.pool = pool;
+        this.pooledInArchive = pooledInArchive;
+    }
+
+    /**
+     * Returns the leased archive.
+     *
+     * @return the leased archive
+     * @throws SevenZipException
+     *             the lease was already closed
+     */
+    public IInArchive getInArchive() throws SevenZipException {
+        if (closed) {
+            throw new SevenZipException("Lease was closed");
+        }
+        return pooledInArchive.inArchive;
+    }
+
+    /**
+     * Marks the leased archive as not reusable. The archive gets closed instead of being returned into the pool, once
+     * the lease is closed. Should be called, if an operation on the archive failed unexpectedly.
+     */
+    public void invalidate() {
+        reusable = false;
+    }
+
+    /**
+     * Returns the leased archive into the pool or closes it, if the archive was invalidated or the pool exceeds its
+     * limits. Subsequent calls have no effect.
+     *
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void close() throws SevenZipException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pool.release(pooledInArchive, reusable);
+    }
+}
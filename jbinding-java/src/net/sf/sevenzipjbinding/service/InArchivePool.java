@@ -0,0 +1,406 @@
+package net.sf.sevenzipjbinding.service;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.PositionalFileInStream;
+
+/**
+ * Pool of opened archives. Opening an archive creates a new native archive instance and parses the archive headers.
+ * Applications opening the same archives again and again can lease already opened archives from the pool instead.<br>
+ * <br>
+ * The archives are identified by the absolute path, the modification time and the length of the file. If the file
+ * changes, the new version of the file gets opened and the idle instances of the old version get closed. The file
+ * shouldn't be changed while it's leased.<br>
+ * <br>
+ * An {@link IInArchive} isn't thread safe, so each leased instance is used by a single caller only. If all opened
+ * instances of an archive are leased, a new instance of the same archive gets opened. Returned instances stay open
+ * and idle. The least recently used idle instances get closed, if the count of the opened instances or the estimated
+ * memory usage of the opened instances exceeds the limit. Leased instances don't get closed, so the limits can be
+ * exceeded temporarily, if more archives are leased at the same time. The instances returned in this case get closed
+ * immediately.<br>
+ * <br>
+ * The memory used by the native archive instance can't be measured. It gets estimated by
+ * {@link #estimateMemoryUsage(IInArchive)} based on the number of items in the archive.<br>
+ * <br>
+ * Example:
+ *
+ * <pre>
+ * InArchivePool pool = new InArchivePool(200, 100 * 1024 * 1024);
+ * // From many threads concurrently
+ * InArchiveLease lease = pool.lease(file);
+ * try {
+ *     lease.getInArchive().extractSlow(index, outStream);
+ * } finally {
+ *     lease.close(); // Return the archive into the pool
+ * }
+ * // Close all idle archives
+ * pool.close();
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class InArchivePool implements Closeable {
+    /**
+     * Estimated memory usage of an opened archive without items: 64 KB
+     */
+    public static final long ESTIMATED_ARCHIVE_MEMORY_USAGE = 64 * 1024;
+
+    /**
+     * Estimated memory usage of a single item of an opened archive: 512 bytes
+     */
+    public static final long ESTIMATED_ITEM_MEMORY_USAGE = 512;
+
+    /**
+     * Identity of a version of the archive file.
+     */
+    private static final class ArchiveKey {
+        final String path;
+        final long lastModified;
+        final long length;
+
+        ArchiveKey(File file) {
+            this.path = file.getAbsolutePath();
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ArchiveKey)) {
+                return false;
+            }
+            ArchiveKey other = (ArchiveKey) obj;
+            return path.equals(other.path) && lastModified == other.lastModified && length == other.length;
+        }
+
+        @Override
+        public int hashCode() {
+            return path.hashCode() * 31 + (int) (lastModified ^ (lastModified >>> 32));
+        }
+    }
+
+    /**
+     * Opened archive instance together with its stream.
+     */
+    static final class PooledInArchive {
+        final ArchiveKey key;
+        final IInArchive inArchive;
+        final PositionalFileInStream inStream;
+        final long memoryUsage;
+
+        PooledInArchive(ArchiveKey key, IInArchive inArchive, PositionalFileInStream inStream, long memoryUsage) {
+            this.key = key;
+            this.inArchive = inArchive;
+            this.inStream = inStream;
+            this.memoryUsage = memoryUsage;
+        }
+    }
+
+    private final int maxOpenArchiveCount;
+    private final long maxMemoryUsage;
+
+    // Idle instances grouped by archive. The map is in access order: the least recently used archive comes first.
+    private final Map<ArchiveKey, LinkedList<PooledInArchive>> idleArchives;
+    private int openArchiveCount;
+    private long memoryUsage;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+    private boolean closed;
+
+    /**
+     * Creates new empty pool.
+     *
+     * @param maxOpenArchiveCount
+     *            maximal count of the opened archive instances including the leased ones
+     * @param maxMemoryUsage
+     *            maximal estimated memory usage of the opened archive instances in bytes (see
+     *            {@link #estimateMemoryUsage(IInArchive)})
+     */
+    public InArchivePool(int maxOpenArchiveCount, long maxMemoryUsage) {
+        if (maxOpenArchiveCount <= 0) {
+            throw new IllegalArgumentException("Max open archive count should be positive: " + maxOpenArchiveCount);
+        }
+        if (maxMemoryUsage <= 0) {
+            throw new IllegalArgumentException("Max memory usage should be positive: " + maxMemoryUsage);
+        }
+        this.maxOpenArchiveCount = maxOpenArchiveCount;
+        this.maxMemoryUsage = maxMemoryUsage;
+        this.idleArchives = new LinkedHashMap<ArchiveKey, LinkedList<PooledInArchive>>(16, 0.75f, true);
+    }
+
+    /**
+     * Leases an opened instance of the archive <code>file</code>. An idle instance of the current version of the file
+     * gets reused, if available. Otherwise a new instance gets opened detecting the archive format. The lease should
+     * be closed after use returning the instance into the pool. Idle instances removed from the pool by this call
+     * (outdated or evicted) get closed ignoring errors, so they can't fail the lease.
+     *
+     * @param file
+     *            archive file
+     * @return lease of the opened archive
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public InArchiveLease lease(File file) throws SevenZipException {
+        ArchiveKey key = new ArchiveKey(file);
+        List<PooledInArchive> archivesToClose = new ArrayList<PooledInArchive>();
+        synchronized (this) {
+            if (closed) {
+                throw new SevenZipException("Archive pool was closed");
+            }
+            LinkedList<PooledInArchive> idleInstances = idleArchives.get(key);
+            if (idleInstances != null) {
+                PooledInArchive pooledInArchive = idleInstances.removeLast();
+                if (idleInstances.isEmpty()) {
+                    idleArchives.remove(key);
+                }
+                hitCount++;
+                return new InArchiveLease(this, pooledInArchive);
+            }
+            missCount++;
+            removeOutdatedArchives(key, archivesToClose);
+            openArchiveCount++;
+        }
+        closeArchivesQuietly(archivesToClose);
+
+        // Open the new instance outside of the lock
+        PooledInArchive pooledInArchive;
+        try {
+            pooledInArchive = open(key, file);
+        } catch (SevenZipException e) {
+            openFailed();
+            throw e;
+        } catch (RuntimeException e) {
+            openFailed();
+            throw e;
+        }
+        synchronized (this) {
+            memoryUsage += pooledInArchive.memoryUsage;
+            evict(archivesToClose);
+        }
+        closeArchivesQuietly(archivesToClose);
+        return new InArchiveLease(this, pooledInArchive);
+    }
+
+    /**
+     * Estimates the memory used by the native archive instance. The default implementation returns
+     * {@link #ESTIMATED_ARCHIVE_MEMORY_USAGE} plus {@link #ESTIMATED_ITEM_MEMORY_USAGE} per item.
+     *
+     * @param inArchive
+     *            opened archive
+     * @return estimated memory usage in bytes
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    protected long estimateMemoryUsage(IInArchive inArchive) throws SevenZipException {
+        return ESTIMATED_ARCHIVE_MEMORY_USAGE + ESTIMATED_ITEM_MEMORY_USAGE * inArchive.getNumberOfItems();
+    }
+
+    /**
+     * Returns count of the opened archive instances including the leased ones.
+     *
+     * @return count of the opened archive instances
+     */
+    public synchronized int getOpenArchiveCount() {
+        return openArchiveCount;
+    }
+
+    /**
+     * Returns estimated memory usage of the opened archive instances including the leased ones.
+     *
+     * @return estimated memory usage in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    /**
+     * Returns count of leases served by an idle instance.
+     *
+     * @return count of leases without opening the archive
+     */
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Returns count of leases, that opened a new instance of the archive.
+     *
+     * @return count of leases opening the archive
+     */
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Returns count of idle instances closed in order to stay within the limits.
+     *
+     * @return count of evicted instances
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Closes all idle archive instances. Leased instances get closed after they were returned. The pool can't be used
+     * after this call.
+     *
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void close() throws SevenZipException {
+        List<PooledInArchive> archivesToClose = new ArrayList<PooledInArchive>();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (LinkedList<PooledInArchive> idleInstances : idleArchives.values()) {
+                for (PooledInArchive pooledInArchive : idleInstances) {
+                    removed(pooledInArchive, archivesToClose);
+                }
+            }
+            idleArchives.clear();
+        }
+        closeArchives(archivesToClose);
+    }
+
+    /**
+     * Returns the leased instance into the pool. Called by {@link InArchiveLease}.
+     */
+    void release(PooledInArchive pooledInArchive, boolean reusable) throws SevenZipException {
+        List<PooledInArchive> archivesToClose = new ArrayList<PooledInArchive>();
+        synchronized (this) {
+            if (!reusable || closed || openArchiveCount > maxOpenArchiveCount || memoryUsage > maxMemoryUsage) {
+                removed(pooledInArchive, archivesToClose);
+            } else {
+                LinkedList<PooledInArchive> idleInstances = idleArchives.get(pooledInArchive.key);
+                if (idleInstances == null) {
+                    idleInstances = new LinkedList<PooledInArchive>();
+                    idleArchives.put(pooledInArchive.key, idleInstances);
+                }
+                idleInstances.addLast(pooledInArchive);
+            }
+        }
+        closeArchives(archivesToClose);
+    }
+
+    private PooledInArchive open(ArchiveKey key, File file) throws SevenZipException {
+        PositionalFileInStream inStream;
+        try {
+            inStream = new PositionalFileInStream(file);
+        } catch (IOException e) {
+            throw new SevenZipException("Error opening file '" + key.path + "'", e);
+        }
+        IInArchive inArchive = null;
+        try {
+            inArchive = SevenZip.openInArchive(null, inStream);
+            return new PooledInArchive(key, inArchive, inStream, estimateMemoryUsage(inArchive));
+        } catch (SevenZipException e) {
+            closeQuietly(inArchive, inStream);
+            throw e;
+        } catch (RuntimeException e) {
+            closeQuietly(inArchive, inStream);
+            throw e;
+        }
+    }
+
+    private synchronized void openFailed() {
+        openArchiveCount--;
+    }
+
+    /**
+     * Removes idle instances of other versions of the same file.
+     */
+    private void removeOutdatedArchives(ArchiveKey key, List<PooledInArchive> archivesToClose) {
+        Iterator<Map.Entry<ArchiveKey, LinkedList<PooledInArchive>>> iterator = idleArchives.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<ArchiveKey, LinkedList<PooledInArchive>> entry = iterator.next();
+            if (entry.getKey().path.equals(key.path)) {
+                for (PooledInArchive pooledInArchive : entry.getValue()) {
+                    removed(pooledInArchive, archivesToClose);
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes the least recently used idle instances until the pool is within the limits.
+     */
+    private void evict(List<PooledInArchive> archivesToClose) {
+        Iterator<LinkedList<PooledInArchive>> iterator = idleArchives.values().iterator();
+        while ((openArchiveCount > maxOpenArchiveCount || memoryUsage > maxMemoryUsage) && iterator.hasNext()) {
+            LinkedList<PooledInArchive> idleInstances = iterator.next();
+            while ((openArchiveCount > maxOpenArchiveCount || memoryUsage > maxMemoryUsage)
+                    && !idleInstances.isEmpty()) {
+                removed(idleInstances.removeFirst(), archivesToClose);
+                evictionCount++;
+            }
+            if (idleInstances.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private void removed(PooledInArchive pooledInArchive, List<PooledInArchive> archivesToClose) {
+        openArchiveCount--;
+        memoryUsage -= pooledInArchive.memoryUsage;
+        archivesToClose.add(pooledInArchive);
+    }
+
+    private static void closeArchives(List<PooledInArchive> archivesToClose) throws SevenZipException {
+        SevenZipException exception = null;
+        for (PooledInArchive pooledInArchive : archivesToClose) {
+            try {
+                pooledInArchive.inArchive.close();
+            } catch (SevenZipException e) {
+                if (exception == null) {
+                    exception = e;
+                }
+            }
+            closeQuietly(null, pooledInArchive.inStream);
+        }
+        archivesToClose.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private static void closeArchivesQuietly(List<PooledInArchive> archivesToClose) {
+        for (PooledInArchive pooledInArchive : archivesToClose) {
+            closeQuietly(pooledInArchive.inArchive, pooledInArchive.inStream);
+        }
+        archivesToClose.clear();
+    }
+
+    private static void closeQuietly(IInArchive inArchive, PositionalFileInStream inStream) {
+        if (inArchive != null) {
+            try {
+                inArchive.close();
+            } catch (SevenZipException e) {
+                // Ignore
+            }
+        }
+        try {
+            inStream.close();
+        } catch (IOException e) {
+            // Ignore
+        }
+    }
+}
@@ -0,0 +1,15 @@
+/**
+ * This package contains the {@link net.sf.sevenzipjbinding.service.ArchiveExtractionService} processing many archives
+ * concurrently using a bounded pool of worker threads and the
+ * {@link net.sf.sevenzipjbinding.service.ConcurrentInArchive} providing read-only access to a single archive from
+ * multiple threads. The {@link net.sf.sevenzipjbinding.service.InArchivePool} keeps frequently used archives open.
+ *
+ * @see net.sf.sevenzipjbinding.service.ArchiveExtractionService
+ * @see net.sf.sevenzipjbinding.service.ConcurrentInArchive
+ * @see net.sf.sevenzipjbinding.service.InArchivePool
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+package net.sf.sevenzipjbinding.service;
+
@@ -54,4 +54,32 @@ public interface ISimpleInArchive {
      *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
      */
     public ISimpleInArchiveItem getArchiveItem(int index) throws SevenZipException;
+
+    /**
+     * Return a simple representation of the first archive item with the path <code>path</code>. The path should be
+     * given exactly as returned by {@link ISimpleInArchiveItem#getPath()}. Use {@link #materializeIndex()} to speed
+     * up frequent lookups.
+     * 
+     * @param path
+     *            path of the archive item to return
+     * @return corresponding instance of {@link ISimpleInArchiveItem} or <code>null</code>, if the archive contains no
+     *         item with the path <code>path</code>
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public ISimpleInArchiveItem getArchiveItem(String path) throws SevenZipException;
+
+    /**
+     * Load metadata of all archive items into memory at once. After this call the getters of the archive items
+     * (except extraction) and the lookup by path ({@link #getArchiveItem(String)}) are served from memory without
+     * calling the native 7-Zip code. Subsequent calls have no effect.<br>
+     * <b>Note</b>: the memory is used for the whole lifetime of this object. Only use this method, if the metadata of
+     * the items is accessed frequently.
+     * 
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    public void materializeIndex() throws SevenZipException;
 }
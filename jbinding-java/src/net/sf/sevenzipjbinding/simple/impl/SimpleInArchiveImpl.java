@@ -1,6 +1,7 @@
 package net.sf.sevenzipjbinding.simple.impl;
 
 import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.PropID;
 import net.sf.sevenzipjbinding.SevenZipException;
 import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
 import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
@@ -14,6 +15,7 @@ import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
 public class SimpleInArchiveImpl implements ISimpleInArchive {
     private final IInArchive sevenZipInArchive;
     private boolean wasClosed = false;
+    private SimpleInArchiveIndex index;
 
     /**
      * Constructing an instance of {@link SimpleInArchiveImpl} from a instance of {@link IInArchive}.
@@ -32,6 +34,7 @@ public class SimpleInArchiveImpl implements ISimpleInArchive {
     public void close() throws SevenZipException {
         sevenZipInArchive.close();
         wasClosed = true;
+        index = null;
     }
 
     /**
@@ -51,7 +54,11 @@ public class SimpleInArchiveImpl implements ISimpleInArchive {
      */
 
     public int getNumberOfItems() throws SevenZipException {
-        return testAndGetSafeSevenZipInArchive().getNumberOfItems();
+        IInArchive inArchive = testAndGetSafeSevenZipInArchive();
+        if (index != null) {
+            return index.getNumberOfItems();
+        }
+        return inArchive.getNumberOfItems();
     }
 
     /**
@@ -72,10 +79,87 @@ public class SimpleInArchiveImpl implements ISimpleInArchive {
      * ${@inheritDoc}
      */
     public ISimpleInArchiveItem getArchiveItem(int index) throws SevenZipException {
-        if (index < 0 || index >= sevenZipInArchive.getNumberOfItems()) {
+        int numberOfItems = getNumberOfItems();
+        if (index < 0 || index >= numberOfItems) {
             throw new SevenZipException("Index " + index + " is out of range. Number of items in archive: "
-                    + sevenZipInArchive.getNumberOfItems());
+                    + numberOfItems);
         }
         return new SimpleInArchiveItemImpl(this, index);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    public ISimpleInArchiveItem getArchiveItem(String path) throws SevenZipException {
+        IInArchive inArchive = testAndGetSafeSevenZipInArchive();
+        if (index != null) {
+            int itemIndex = index.getItemIndex(path);
+            return itemIndex == -1 ? null : new SimpleInArchiveItemImpl(this, itemIndex);
+        }
+
+        // Get all paths with a single native call
+        PropID[] propIDs = new PropID[] { PropID.PATH };
+        String[] paths = inArchive.getProperties(propIDs, 0, inArchive.getNumberOfItems()).getStringColumn(
+                PropID.PATH);
+        for (int i = 0; i < paths.length; i++) {
+            if (path.equals(paths[i])) {
+                return new SimpleInArchiveItemImpl(this, i);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void materializeIndex() throws SevenZipException {
+        IInArchive inArchive = testAndGetSafeSevenZipInArchive();
+        if (index == null) {
+            index = new SimpleInArchiveIndex(inArchive);
+        }
+    }
+
+    /**
+     * Returns value of the property <code>propID</code> of the archive item with the index <code>itemIndex</code>.
+     * The value is taken from the materialized index, if available.
+     * 
+     * @param itemIndex
+     *            index of the archive item
+     * @param propID
+     *            property to get value of
+     * @return value of the property
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     * @see IInArchive#getProperty(int, PropID)
+     */
+    Object getProperty(int itemIndex, PropID propID) throws SevenZipException {
+        IInArchive inArchive = testAndGetSafeSevenZipInArchive();
+        if (index != null) {
+            return index.getProperty(itemIndex, propID);
+        }
+        return inArchive.getProperty(itemIndex, propID);
+    }
+
+    /**
+     * Returns value of the property <code>propID</code> of the archive item with the index <code>itemIndex</code> in
+     * human readable form. The value is taken from the materialized index, if available.
+     * 
+     * @param itemIndex
+     *            index of the archive item
+     * @param propID
+     *            property to get value of
+     * @return value of the property in human readable form
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     * @see IInArchive#getStringProperty(int, PropID)
+     */
+    String getStringProperty(int itemIndex, PropID propID) throws SevenZipException {
+        IInArchive inArchive = testAndGetSafeSevenZipInArchive();
+        if (index != null) {
+            return index.getStringProperty(itemIndex, propID);
+        }
+        return inArchive.getStringProperty(itemIndex, propID);
+    }
 }
@@ -0,0 +1,184 @@
+package net.sf.sevenzipjbinding.simple.impl;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ItemPropertyColumns;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * Immutable in-memory snapshot of the metadata of all archive items. The properties get loaded with a single
+ * {@link IInArchive#getProperties(PropID[], int, int)} call and stored column oriented in primitive arrays. The
+ * methods {@link #getProperty(int, PropID)} and {@link #getStringProperty(int, PropID)} return the same values as the
+ * corresponding methods of {@link IInArchive} without calling the native code. Items can be looked up by path using
+ * an open addressing hash table of item indices.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+final class SimpleInArchiveIndex {
+    private static final PropID[] PROP_IDS = { PropID.PATH, PropID.ATTRIBUTES, PropID.CRC, PropID.COMMENT,
+            PropID.CREATION_TIME, PropID.GROUP, PropID.HOST_OS, PropID.LAST_ACCESS_TIME,
+            PropID.LAST_MODIFICATION_TIME, PropID.METHOD, PropID.PACKED_SIZE, PropID.POSITION, PropID.SIZE,
+            PropID.USER, PropID.COMMENTED, PropID.ENCRYPTED, PropID.IS_FOLDER };
+
+    private final IInArchive inArchive;
+    private final ItemPropertyColumns columns;
+    private final boolean nsis;
+    private final String[] paths;
+
+    /**
+     * Item index + 1 for each used slot. 0 - empty slot.
+     */
+    private final int[] pathHashTable;
+
+    /**
+     * Loads metadata of all items of the archive <code>inArchive</code>.
+     *
+     * @param inArchive
+     *            opened archive
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    SimpleInArchiveIndex(IInArchive inArchive) throws SevenZipException {
+        this.inArchive = inArchive;
+        this.columns = inArchive.getProperties(PROP_IDS, 0, inArchive.getNumberOfItems());
+        this.nsis = inArchive.getArchiveFormat() == ArchiveFormat.NSIS;
+
+        paths = new String[columns.getItemCount()];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = getStringProperty(i, PropID.PATH);
+        }
+
+        int tableSize = 16;
+        while (tableSize < paths.length * 2) {
+            tableSize <<= 1;
+        }
+        pathHashTable = new int[tableSize];
+        for (int i = 0; i < paths.length; i++) {
+            int slot = findSlot(paths[i]);
+            if (pathHashTable[slot] == 0) {
+                // The first item with the same path wins
+                pathHashTable[slot] = i + 1;
+            }
+        }
+    }
+
+    private int findSlot(String path) {
+        int mask = pathHashTable.length - 1;
+        int slot = path.hashCode() & mask;
+        while (pathHashTable[slot] != 0 && !paths[pathHashTable[slot] - 1].equals(path)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Returns count of items in the archive.
+     *
+     * @return count of items in the archive
+     */
+    int getNumberOfItems() {
+        return columns.getItemCount();
+    }
+
+    /**
+     * Returns index of the first item with the path <code>path</code>.
+     *
+     * @param path
+     *            path of the item
+     * @return index of the item or <code>-1</code>, if no item with the path <code>path</code> exists
+     */
+    int getItemIndex(String path) {
+        return pathHashTable[findSlot(path)] - 1;
+    }
+
+    /**
+     * Returns the same value as {@link IInArchive#getProperty(int, PropID)}.
+     *
+     * @param index
+     *            index of the item
+     * @param propID
+     *            property to get value of
+     * @return value of the property
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    Object getProperty(int index, PropID propID) throws SevenZipException {
+        if (!isIndexed(propID)) {
+            return inArchive.getProperty(index, propID);
+        }
+        Object column = columns.getColumn(propID);
+        if (column == null || !columns.isDefined(propID, index)) {
+            switch (propID) {
+            case IS_FOLDER:
+            case ENCRYPTED:
+                return Boolean.FALSE;
+            case SIZE:
+            case PACKED_SIZE:
+                return nsis ? Long.valueOf(0) : null;
+            }
+            return null;
+        }
+
+        if (column instanceof int[]) {
+            int value = ((int[]) column)[index];
+            if (propID == PropID.SIZE || propID == PropID.PACKED_SIZE) {
+                return Long.valueOf(value);
+            }
+            return Integer.valueOf(value);
+        }
+        if (column instanceof long[]) {
+            long value = ((long[]) column)[index];
+            switch (propID) {
+            case CREATION_TIME:
+            case LAST_ACCESS_TIME:
+            case LAST_MODIFICATION_TIME:
+                return ItemPropertyColumns.filetimeToDate(value);
+            }
+            return Long.valueOf(value);
+        }
+        if (column instanceof boolean[]) {
+            return Boolean.valueOf(((boolean[]) column)[index]);
+        }
+        return ((String[]) column)[index];
+    }
+
+    /**
+     * Returns the same value as {@link IInArchive#getStringProperty(int, PropID)}.
+     *
+     * @param index
+     *            index of the item
+     * @param propID
+     *            property to get value of
+     * @return value of the property in human readable form
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur. Use {@link SevenZipException#printStackTraceExtended()} to get
+     *             stack traces of this SevenZipException and of the all thrown 'cause by' exceptions.
+     */
+    String getStringProperty(int index, PropID propID) throws SevenZipException {
+        if (!isIndexed(propID)) {
+            return inArchive.getStringProperty(index, propID);
+        }
+        Object column = columns.getColumn(propID);
+        if (column == null || !columns.isDefined(propID, index)) {
+            return "";
+        }
+        if (!(column instanceof String[])) {
+            // Only string values are returned unchanged. Let 7-Zip format other values.
+            return inArchive.getStringProperty(index, propID);
+        }
+        return ((String[]) column)[index];
+    }
+
+    private static boolean isIndexed(PropID propID) {
+        for (PropID indexedPropID : PROP_IDS) {
+            if (indexedPropID == propID) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -53,7 +53,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getPath() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.PATH);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.PATH);
     }
 
     /**
@@ -61,7 +61,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Integer getAttributes() throws SevenZipException {
-        return (Integer) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.ATTRIBUTES);
+        return (Integer) simpleInArchiveImpl.getProperty(index, PropID.ATTRIBUTES);
     }
 
     /**
@@ -69,7 +69,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Integer getCRC() throws SevenZipException {
-        return (Integer) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.CRC);
+        return (Integer) simpleInArchiveImpl.getProperty(index, PropID.CRC);
     }
 
     /**
@@ -77,7 +77,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getComment() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.COMMENT);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.COMMENT);
     }
 
     /**
@@ -85,7 +85,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Date getCreationTime() throws SevenZipException {
-        return (Date) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.CREATION_TIME);
+        return (Date) simpleInArchiveImpl.getProperty(index, PropID.CREATION_TIME);
     }
 
     /**
@@ -93,7 +93,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getGroup() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.GROUP);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.GROUP);
     }
 
     /**
@@ -101,7 +101,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getHostOS() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.HOST_OS);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.HOST_OS);
     }
 
     /**
@@ -109,7 +109,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Date getLastAccessTime() throws SevenZipException {
-        return (Date) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.LAST_ACCESS_TIME);
+        return (Date) simpleInArchiveImpl.getProperty(index, PropID.LAST_ACCESS_TIME);
     }
 
     /**
@@ -117,7 +117,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Date getLastWriteTime() throws SevenZipException {
-        return (Date) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.LAST_MODIFICATION_TIME);
+        return (Date) simpleInArchiveImpl.getProperty(index, PropID.LAST_MODIFICATION_TIME);
     }
 
     /**
@@ -125,7 +125,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getMethod() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.METHOD);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.METHOD);
     }
 
     /**
@@ -133,7 +133,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Long getPackedSize() throws SevenZipException {
-        return (Long) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.PACKED_SIZE);
+        return (Long) simpleInArchiveImpl.getProperty(index, PropID.PACKED_SIZE);
     }
 
     /**
@@ -141,7 +141,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Integer getPosition() throws SevenZipException {
-        return (Integer) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.POSITION);
+        return (Integer) simpleInArchiveImpl.getProperty(index, PropID.POSITION);
     }
 
     /**
@@ -149,7 +149,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Long getSize() throws SevenZipException {
-        return (Long) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.SIZE);
+        return (Long) simpleInArchiveImpl.getProperty(index, PropID.SIZE);
     }
 
     /**
@@ -157,7 +157,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public String getUser() throws SevenZipException {
-        return simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getStringProperty(index, PropID.USER);
+        return simpleInArchiveImpl.getStringProperty(index, PropID.USER);
     }
 
     /**
@@ -165,7 +165,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public Boolean isCommented() throws SevenZipException {
-        return (Boolean) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.COMMENTED);
+        return (Boolean) simpleInArchiveImpl.getProperty(index, PropID.COMMENTED);
     }
 
     /**
@@ -173,7 +173,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public boolean isEncrypted() throws SevenZipException {
-        return ((Boolean) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.ENCRYPTED))
+        return ((Boolean) simpleInArchiveImpl.getProperty(index, PropID.ENCRYPTED))
                 .booleanValue();
     }
 
@@ -182,7 +182,7 @@ public class SimpleInArchiveItemImpl implements ISimpleInArchiveItem {
      */
 
     public boolean isFolder() throws SevenZipException {
-        return ((Boolean) simpleInArchiveImpl.testAndGetSafeSevenZipInArchive().getProperty(index, PropID.IS_FOLDER))
+        return ((Boolean) simpleInArchiveImpl.getProperty(index, PropID.IS_FOLDER))
                 .booleanValue();
     }
 
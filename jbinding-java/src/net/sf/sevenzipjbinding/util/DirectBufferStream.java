@@ -0,0 +1,526 @@
+package net.sf.sevenzipjbinding.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.IOutStream;
+import net.sf.sevenzipjbinding.ISeekableStream;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+/**
+ * An off-heap memory based implementation of
+ * <ul>
+ * <li>{@link ISequentialOutStream}</li>
+ * <li>{@link IOutStream}</li>
+ * <li>{@link ISequentialInStream}</li>
+ * <li>{@link IInStream}</li>
+ * <li>{@link ISeekableStream}</li>
+ * </ul>
+ *
+ * The content is stored in direct {@link ByteBuffer} segments of the same size, so the stream isn't limited to 2 GB
+ * and doesn't put pressure on the Java heap. Sizes and positions are <code>long</code> values. Segments get allocated
+ * on the first write, regions never written (for example after seeking beyond the end of the stream) read as zeros.<br>
+ * <br>
+ * The stream implements {@link IDirectBufferSequentialInStream} and {@link IDirectBufferSequentialOutStream}, so the
+ * native side of 7-Zip-JBinding copies the data between its direct buffers and the segments without allocating Java
+ * arrays. The content can be exported without copying using {@link #getByteBuffers()}.<br>
+ * <br>
+ * Unlike {@link ByteArrayStream} this class isn't synchronized. A single stream instance should be used by one owner
+ * at a time. The native side of 7-Zip-JBinding never calls the methods of a stream concurrently.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class DirectBufferStream implements IInStream, IOutStream, IDirectBufferSequentialInStream,
+        IDirectBufferSequentialOutStream {
+    /**
+     * Default size of the segments: 4 MB.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+    private static final int INITIAL_SEGMENT_ARRAY_SIZE = 16;
+    private static final byte[] ZEROS = new byte[8192];
+
+    private final int segmentSize;
+    private final long maxSize;
+
+    // null elements represent segments never written
+    private ByteBuffer[] segments = new ByteBuffer[INITIAL_SEGMENT_ARRAY_SIZE];
+    // Zero filled segment shared by all exported regions never written
+    private ByteBuffer zeroSegment;
+    private long size;
+    private long position;
+    private boolean closed;
+
+    /**
+     * Create new empty stream with {@link #DEFAULT_SEGMENT_SIZE} segments and without maximal size.
+     */
+    public DirectBufferStream() {
+        this(DEFAULT_SEGMENT_SIZE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Create new empty stream with {@link #DEFAULT_SEGMENT_SIZE} segments specifying maximal length of the stored data.
+     *
+     * @param maxSize
+     *            maximal length of the stored data. Use {@link Long#MAX_VALUE} to disable maximal length constraint.
+     */
+    public DirectBufferStream(long maxSize) {
+        this(DEFAULT_SEGMENT_SIZE, maxSize);
+    }
+
+    /**
+     * Create new empty stream specifying segment size and maximal length of the stored data.
+     *
+     * @param segmentSize
+     *            size of the direct buffer segments in bytes
+     * @param maxSize
+     *            maximal length of the stored data. Use {@link Long#MAX_VALUE} to disable maximal length constraint.
+     */
+    public DirectBufferStream(int segmentSize, long maxSize) {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("Segment size should be >0");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Maximal size of the direct buffer stream should be >=0");
+        }
+        this.segmentSize = segmentSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(byte[] data) {
+        return read(data, 0, data.length);
+    }
+
+    /**
+     * Reads up to <code>length</code> bytes from the stream into the <code>data</code> array beginning from the
+     * position <code>startPosition</code>. If <code>length != 0</code>, then return value 0 indicates end-of-stream
+     * (EOF).
+     *
+     * @param data
+     *            buffer to get read data.
+     * @param startPosition
+     *            position (index) in the array <code>data</code> to store first read byte.
+     * @param length
+     *            count of the bytes to read.
+     * @return amount of bytes written in the <code>data</code> array. 0 - represents end of stream.
+     * @throws IllegalStateException
+     *             will be thrown, if <code>startPosition</code> is an invalid index for the array <code>data</code> or
+     *             if <code>startPosition + length > data.length</code>.
+     */
+    public int read(byte[] data, int startPosition, int length) {
+        checkRange(data, startPosition, length);
+        ensureOpen();
+        int read = getReadLength(length);
+        int offset = startPosition;
+        int toRead = read;
+        while (toRead > 0) {
+            int positionInSegment = (int) (position % segmentSize);
+            int copySize = Math.min(toRead, segmentSize - positionInSegment);
+            ByteBuffer segment = getWrittenSegment(position);
+            if (segment == null) {
+                Arrays.fill(data, offset, offset + copySize, (byte) 0);
+            } else {
+                segment.position(positionInSegment);
+                segment.get(data, offset, copySize);
+            }
+            offset += copySize;
+            position += copySize;
+            toRead -= copySize;
+        }
+        return read;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int read(ByteBuffer buffer) {
+        ensureOpen();
+        int read = getReadLength(buffer.remaining());
+        int toRead = read;
+        while (toRead > 0) {
+            int positionInSegment = (int) (position % segmentSize);
+            int copySize = Math.min(toRead, segmentSize - positionInSegment);
+            ByteBuffer segment = getWrittenSegment(position);
+            if (segment == null) {
+                for (int i = 0; i < copySize; i += ZEROS.length) {
+                    buffer.put(ZEROS, 0, Math.min(ZEROS.length, copySize - i));
+                }
+            } else {
+                segment.limit(positionInSegment + copySize);
+                segment.position(positionInSegment);
+                buffer.put(segment);
+                segment.limit(segmentSize);
+            }
+            position += copySize;
+            toRead -= copySize;
+        }
+        return read;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int write(byte[] data) throws SevenZipException {
+        return write(data, 0, data.length);
+    }
+
+    /**
+     * Write <code>length</code> byte from the byte array <code>data</code> beginning from the position
+     * <code>startPosition</code>.
+     *
+     * @param data
+     *            data to write
+     * @param startPosition
+     *            index of the first byte to write (beginning with 0)
+     * @param length
+     *            count of bytes to write
+     * @return count of written bytes
+     * @throws SevenZipException
+     *             if the maximal size of the stream would be exceeded
+     * @throws IllegalStateException
+     *             will be thrown, if <code>startPosition</code> is an invalid index for the array <code>data</code> or
+     *             if <code>startPosition + length > data.length</code>.
+     */
+    public int write(byte[] data, int startPosition, int length) throws SevenZipException {
+        checkRange(data, startPosition, length);
+        ensureOpen();
+        checkMaxSize(position + length);
+        int offset = startPosition;
+        int toWrite = length;
+        while (toWrite > 0) {
+            int positionInSegment = (int) (position % segmentSize);
+            int copySize = Math.min(toWrite, segmentSize - positionInSegment);
+            ByteBuffer segment = getSegmentForWriting(position);
+            segment.position(positionInSegment);
+            segment.put(data, offset, copySize);
+            offset += copySize;
+            position += copySize;
+            toWrite -= copySize;
+        }
+        if (position > size) {
+            size = position;
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public int write(ByteBuffer data) throws SevenZipException {
+        ensureOpen();
+        int length = data.remaining();
+        checkMaxSize(position + length);
+        int dataLimit = data.limit();
+        int toWrite = length;
+        while (toWrite > 0) {
+            int positionInSegment = (int) (position % segmentSize);
+            int copySize = Math.min(toWrite, segmentSize - positionInSegment);
+            ByteBuffer segment = getSegmentForWriting(position);
+            segment.position(positionInSegment);
+            data.limit(data.position() + copySize);
+            segment.put(data);
+            data.limit(dataLimit);
+            position += copySize;
+            toWrite -= copySize;
+        }
+        if (position > size) {
+            size = position;
+        }
+        return length;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public long seek(long offset, int seekOrigin) throws SevenZipException {
+        ensureOpen();
+        long newPosition;
+        switch (seekOrigin) {
+        case SEEK_SET:
+            newPosition = offset;
+            break;
+
+        case SEEK_CUR:
+            newPosition = position + offset;
+            break;
+
+        case SEEK_END:
+            newPosition = size + offset;
+            break;
+
+        default:
+            throw new SevenZipException("Seek: unknown origin: " + seekOrigin);
+        }
+        if (newPosition < 0) {
+            throw new SevenZipException("Seek: negative position " + newPosition);
+        }
+        checkMaxSize(newPosition);
+        position = newPosition;
+        return newPosition;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void setSize(long newSize) throws SevenZipException {
+        ensureOpen();
+        if (newSize < 0) {
+            throw new SevenZipException("Negative size " + newSize);
+        }
+        checkMaxSize(newSize);
+        if (newSize < size) {
+            int segmentCount = getSegmentCount(newSize);
+            int positionInLastSegment = (int) (newSize % segmentSize);
+            ByteBuffer segment = getWrittenSegment(newSize);
+            if (positionInLastSegment != 0 && segment != null) {
+                // Bytes after the end of the stream should be zeros
+                segment.position(positionInLastSegment);
+                while (segment.hasRemaining()) {
+                    segment.put(ZEROS, 0, Math.min(ZEROS.length, segment.remaining()));
+                }
+            }
+            for (int i = segmentCount; i < segments.length; i++) {
+                segments[i] = null;
+            }
+        }
+        size = newSize;
+    }
+
+    /**
+     * Set current position back to zero.
+     */
+    public void rewind() {
+        position = 0;
+    }
+
+    /**
+     * Clear all content of the stream and set current position back to zero. All segments get released.
+     */
+    public void truncate() {
+        ensureOpen();
+        segments = new ByteBuffer[INITIAL_SEGMENT_ARRAY_SIZE];
+        zeroSegment = null;
+        size = 0;
+        position = 0;
+    }
+
+    /**
+     * Return the size of the stream content in bytes.
+     *
+     * @return the size of the stream content in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Return current position in the stream. The current position can be greater than the size of the stream after
+     * seeking beyond the end of the stream. In this case the read operations return EOF and the next write operation
+     * expands the stream filling the gap with zeros.
+     *
+     * @return current position in the stream beginning with 0
+     */
+    public long getCurrentPosition() {
+        return position;
+    }
+
+    /**
+     * Return the segment size of the stream in bytes.
+     *
+     * @return the segment size
+     */
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Return the entire content of the stream as read-only buffers without copying. Each buffer represents a single
+     * segment, the last buffer may be shorter than the segment size. The buffers share the memory with the stream, so
+     * the changes to the content of the stream are visible through the buffers. The buffers become invalid after the
+     * stream gets truncated (by {@link #truncate()} or {@link #setSize(long)}) or closed.<br>
+     * <br>
+     * Regions never written don't get allocated. All buffers for such regions share a single zero filled segment, so
+     * the later writes to those regions aren't visible through the buffers.
+     *
+     * @return read-only buffers with the entire content of the stream
+     */
+    public ByteBuffer[] getByteBuffers() {
+        ensureOpen();
+        int segmentCount = getSegmentCount(size);
+        ByteBuffer[] byteBuffers = new ByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            ByteBuffer segment = i < segments.length ? segments[i] : null;
+            if (segment == null) {
+                if (zeroSegment == null) {
+                    zeroSegment = ByteBuffer.allocateDirect(segmentSize);
+                }
+                segment = zeroSegment;
+            }
+            ByteBuffer byteBuffer = segment.asReadOnlyBuffer();
+            byteBuffer.limit((int) Math.min(segmentSize, size - (long) i * segmentSize));
+            byteBuffer.position(0);
+            byteBuffers[i] = byteBuffer;
+        }
+        return byteBuffers;
+    }
+
+    /**
+     * Write entire content of the stream to the <code>channel</code>. The current position of the stream doesn't
+     * change.
+     *
+     * @param channel
+     *            channel to write the entire content to
+     * @throws IOException
+     *             if I/O exception occurs
+     */
+    public void writeToChannel(WritableByteChannel channel) throws IOException {
+        for (ByteBuffer byteBuffer : getByteBuffers()) {
+            while (byteBuffer.hasRemaining()) {
+                channel.write(byteBuffer);
+            }
+        }
+    }
+
+    /**
+     * Write entire data from the <code>channel</code> into the stream. The new data will be written at the current
+     * position of the stream directly into the segments. A new segment gets allocated only after the channel delivered
+     * some data for it.
+     *
+     * @param channel
+     *            channel to read from
+     * @throws IOException
+     *             if I/O exception occurs or the maximal size of the stream would be exceeded
+     */
+    public void writeFromChannel(ReadableByteChannel channel) throws IOException {
+        ensureOpen();
+        while (true) {
+            int positionInSegment = (int) (position % segmentSize);
+            int toRead = (int) Math.min(segmentSize - positionInSegment, maxSize - position);
+            if (toRead == 0) {
+                if (channel.read(ByteBuffer.allocate(1)) == -1) {
+                    return;
+                }
+                throw new IOException("Maximal size of the direct buffer stream was reached. (Max size = " + maxSize
+                        + ")");
+            }
+            int read;
+            ByteBuffer segment = getWrittenSegment(position);
+            if (segment == null) {
+                // Read the first chunk aside to avoid allocating a segment at the end of the channel
+                ByteBuffer firstChunk = ByteBuffer.allocate(Math.min(toRead, ZEROS.length));
+                read = channel.read(firstChunk);
+                if (read == -1) {
+                    return;
+                }
+                if (read > 0) {
+                    segment = getSegmentForWriting(position);
+                    segment.position(positionInSegment);
+                    firstChunk.flip();
+                    segment.put(firstChunk);
+                }
+            } else {
+                segment.limit(positionInSegment + toRead);
+                segment.position(positionInSegment);
+                read = channel.read(segment);
+                segment.limit(segmentSize);
+                if (read == -1) {
+                    return;
+                }
+            }
+            position += read;
+            if (position > size) {
+                size = position;
+            }
+        }
+    }
+
+    /**
+     * Release all segments. The off-heap memory gets freed by the garbage collector. The stream can't be used after
+     * closing.
+     *
+     * @throws IOException
+     *             never
+     */
+    public void close() throws IOException {
+        closed = true;
+        segments = null;
+        zeroSegment = null;
+        size = 0;
+        position = 0;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("Direct buffer stream was closed");
+        }
+    }
+
+    private static void checkRange(byte[] data, int startPosition, int length) {
+        if (startPosition < 0 || length < 0 || data.length < (startPosition + length)) {
+            throw new IllegalStateException("Invalid start position (" + startPosition + ") and length (" + length
+                    + ")");
+        }
+    }
+
+    private void checkMaxSize(long newSize) throws SevenZipException {
+        if (newSize > maxSize || newSize < 0) {
+            throw new SevenZipException("Maximal size of the direct buffer stream was reached by " + newSize
+                    + ", maximal size is " + maxSize + " bytes");
+        }
+    }
+
+    private int getReadLength(int length) {
+        if (position >= size) {
+            return 0;
+        }
+        return (int) Math.min(length, size - position);
+    }
+
+    private ByteBuffer getWrittenSegment(long offset) {
+        long segmentIndex = offset / segmentSize;
+        if (segmentIndex >= segments.length) {
+            return null;
+        }
+        return segments[(int) segmentIndex];
+    }
+
+    private int getSegmentCount(long length) {
+        return (int) ((length + segmentSize - 1) / segmentSize);
+    }
+
+    private ByteBuffer getSegmentForWriting(long offset) throws SevenZipException {
+        long segmentIndex = offset / segmentSize;
+        if (segmentIndex >= Integer.MAX_VALUE) {
+            throw new SevenZipException("Too many segments. Use greater segment size. (Segment size = "
+                    + segmentSize + ")");
+        }
+        return getSegment((int) segmentIndex);
+    }
+
+    private ByteBuffer getSegment(int segmentIndex) {
+        if (segmentIndex >= segments.length) {
+            long newLength = Math.max(segmentIndex + 1L, 2L * segments.length);
+            ByteBuffer[] newSegments = new ByteBuffer[(int) Math.min(newLength, Integer.MAX_VALUE)];
+            System.arraycopy(segments, 0, newSegments, 0, segments.length);
+            segments = newSegments;
+        }
+        ByteBuffer segment = segments[segmentIndex];
+        if (segment == null) {
+            segment = ByteBuffer.allocateDirect(segmentSize);
+            segments[segmentIndex] = segment;
+        }
+        return segment;
+    }
+}
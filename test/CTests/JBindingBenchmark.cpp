@@ -0,0 +1,271 @@
+/*
+ * JBindingBenchmark.cpp
+ *
+ * Micro benchmarks of the JNI bridge primitives. Each benchmark runs the primitive in 1..N native
+ * threads attached to the VM (like the 7-Zip worker threads) and returns the average time
+ * of a single call in nanoseconds.
+ */
+#include "SevenZipJBinding.h"
+#include "Common/MyCom.h"
+#include "Windows/Thread.h"
+#include "Windows/Synchronization.h"
+
+#include "JBindingTools.h"
+#include "CPPToJava/CPPToJavaSequentialOutStream.h"
+
+#ifdef NATIVE_JUNIT_TEST_SUPPORT
+
+JT_BEGIN_INTERFACE(BenchmarkCallback)
+/*    */JT_INTERFACE_METHOD(Void, call, _)
+JT_END_INTERFACE
+
+/*
+ * Single primitive to benchmark. run() gets called in each benchmark thread twice: first for
+ * the warm up, then for the measurement.
+ */
+class BenchmarkOperation {
+public:
+    virtual ~BenchmarkOperation() {
+    }
+    virtual bool run(JBindingSession & jbindingSession, int threadIndex, int iterations) = 0;
+};
+
+struct BenchmarkThreadParameter {
+    BenchmarkOperation * _operation;
+    JBindingSession * _jbindingSession;
+    NWindows::NSynchronization::CManualResetEvent * _startEvent;
+    int _threadIndex;
+    int _iterations;
+    jlong _elapsedTime;
+    bool _error;
+};
+
+static THREAD_FUNC_DECL runBenchmarkThread(void * parameterPtr) {
+    BenchmarkThreadParameter * parameter = (BenchmarkThreadParameter *) parameterPtr;
+
+    parameter->_startEvent->Lock();
+
+    int warmUpIterations = parameter->_iterations / 10 + 1;
+    parameter->_error = !parameter->_operation->run(*parameter->_jbindingSession, parameter->_threadIndex,
+            warmUpIterations);
+
+    Int64 startTime = PlatformGetNanoTime();
+    parameter->_error |= !parameter->_operation->run(*parameter->_jbindingSession, parameter->_threadIndex,
+            parameter->_iterations);
+    parameter->_elapsedTime = PlatformGetNanoTime() - startTime;
+
+    return 0;
+}
+
+/*
+ * Runs the operation in 'threadCount' native threads simultaneously. Returns the average time of
+ * a single operation in nanoseconds or -1, if the operation failed.
+ */
+static jdouble runBenchmark(JBindingSession & jbindingSession, BenchmarkOperation & operation,
+                            int iterations, int threadCount) {
+    NWindows::NSynchronization::CManualResetEvent startEvent;
+    if (startEvent.Create()) {
+        fatal("Can't create start event");
+    }
+
+    NWindows::CThread * threads = new NWindows::CThread[threadCount];
+    BenchmarkThreadParameter * parameters = new BenchmarkThreadParameter[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+        parameters[i]._operation = &operation;
+        parameters[i]._jbindingSession = &jbindingSession;
+        parameters[i]._startEvent = &startEvent;
+        parameters[i]._threadIndex = i;
+        parameters[i]._iterations = iterations;
+        parameters[i]._elapsedTime = 0;
+        parameters[i]._error = false;
+        HRESULT hr;
+        for (int j = 0; j < 100; j++) {
+            hr = threads[i].Create(runBenchmarkThread, &parameters[i]);
+            if (!hr) {
+                break;
+            }
+
+            PlatformSleep(1);
+        }
+        if (hr) {
+            fatal("Can't start new thread. Error: 0x%08X", hr);
+        }
+    }
+    startEvent.Set();
+
+    jlong totalElapsedTime = 0;
+    bool error = false;
+    for (int i = 0; i < threadCount; i++) {
+        threads[i].Wait();
+        totalElapsedTime += parameters[i]._elapsedTime;
+        error |= parameters[i]._error;
+    }
+    delete[] threads;
+    delete[] parameters;
+
+    if (error) {
+        return -1;
+    }
+    return (jdouble) totalElapsedTime / ((jdouble) iterations * threadCount);
+}
+
+/*
+ * Creates and destroys a callback JNIEnvInstance (beginCallback/endCallback).
+ */
+class BeginEndCallbackOperation : public BenchmarkOperation {
+public:
+    virtual bool run(JBindingSession & jbindingSession, int threadIndex, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            JNIEnvInstance jniEnvInstance(jbindingSession);
+        }
+        return true;
+    }
+};
+
+/*
+ * Complete callback round-trip: beginCallback, call of an empty java method, exception check
+ * and endCallback.
+ */
+class CallbackOperation : public BenchmarkOperation {
+    jobject _callback;
+    jni::BenchmarkCallback * _benchmarkCallback;
+public:
+    CallbackOperation(jobject callback, jni::BenchmarkCallback * benchmarkCallback) :
+        _callback(callback), _benchmarkCallback(benchmarkCallback) {
+    }
+    virtual bool run(JBindingSession & jbindingSession, int threadIndex, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            JNIEnvInstance jniEnvInstance(jbindingSession);
+
+            _benchmarkCallback->call(jniEnvInstance, _callback);
+            if (jniEnvInstance.exceptionCheck()) {
+                return false;
+            }
+        }
+        return true;
+    }
+};
+
+/*
+ * Lookup of an already known interface implementation with JInterface::_getInstance().
+ */
+class GetInstanceOperation : public BenchmarkOperation {
+    jclass _callbackClass;
+public:
+    GetInstanceOperation(jclass callbackClass) :
+        _callbackClass(callbackClass) {
+    }
+    virtual bool run(JBindingSession & jbindingSession, int threadIndex, int iterations) {
+        JNIEnvInstance jniEnvInstance(jbindingSession);
+        for (int i = 0; i < iterations; i++) {
+            if (!jni::BenchmarkCallback::_getInstance(jniEnvInstance, _callbackClass)) {
+                return false;
+            }
+        }
+        return true;
+    }
+};
+
+/*
+ * CPPToJavaSequentialOutStream::Write() with either byte array or direct buffer marshalling
+ * depending on the java implementation. Each thread writes into its own stream.
+ */
+class SequentialOutStreamWriteOperation : public BenchmarkOperation {
+    CMyComPtr<ISequentialOutStream> * _outStreams;
+    Byte * _data;
+    UInt32 _size;
+public:
+    SequentialOutStreamWriteOperation(CMyComPtr<ISequentialOutStream> * outStreams, Byte * data, UInt32 size) :
+        _outStreams(outStreams), _data(data), _size(size) {
+    }
+    virtual bool run(JBindingSession & jbindingSession, int threadIndex, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            UInt32 processedSize;
+            if (_outStreams[threadIndex]->Write(_data, _size, &processedSize) != S_OK || processedSize != _size) {
+                return false;
+            }
+        }
+        return true;
+    }
+};
+
+JBINDING_JNIEXPORT jdouble JNICALL
+Java_net_sf_sevenzipjbinding_junit_jbindingtools_JBindingBenchmarkTest_benchmarkBeginEndCallback(
+                                                                                                 JNIEnv * env,
+                                                                                                 jclass thiz,
+                                                                                                 jint iterations,
+                                                                                                 jint threadCount) {
+    JBindingSession jbindingSession(env);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+
+    BeginEndCallbackOperation operation;
+    return runBenchmark(jbindingSession, operation, iterations, threadCount);
+}
+
+JBINDING_JNIEXPORT jdouble JNICALL
+Java_net_sf_sevenzipjbinding_junit_jbindingtools_JBindingBenchmarkTest_benchmarkCallback(
+                                                                                         JNIEnv * env,
+                                                                                         jclass thiz,
+                                                                                         jobject callback,
+                                                                                         jint iterations,
+                                                                                         jint threadCount) {
+    JBindingSession jbindingSession(env);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+
+    jobject callbackGlobalRef = env->NewGlobalRef(callback);
+    CallbackOperation operation(callbackGlobalRef, jni::BenchmarkCallback::_getInstanceFromObject(env, callback));
+    jdouble result = runBenchmark(jbindingSession, operation, iterations, threadCount);
+    env->DeleteGlobalRef(callbackGlobalRef);
+
+    return result;
+}
+
+JBINDING_JNIEXPORT jdouble JNICALL
+Java_net_sf_sevenzipjbinding_junit_jbindingtools_JBindingBenchmarkTest_benchmarkGetInstance(
+                                                                                            JNIEnv * env,
+                                                                                            jclass thiz,
+                                                                                            jobject callback,
+                                                                                            jint iterations,
+                                                                                            jint threadCount) {
+    JBindingSession jbindingSession(env);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+
+    jclass callbackClass = env->GetObjectClass(callback);
+    jclass callbackClassGlobalRef = (jclass) env->NewGlobalRef(callbackClass);
+    env->DeleteLocalRef(callbackClass);
+
+    GetInstanceOperation operation(callbackClassGlobalRef);
+    jdouble result = runBenchmark(jbindingSession, operation, iterations, threadCount);
+    env->DeleteGlobalRef(callbackClassGlobalRef);
+
+    return result;
+}
+
+JBINDING_JNIEXPORT jdouble JNICALL
+Java_net_sf_sevenzipjbinding_junit_jbindingtools_JBindingBenchmarkTest_benchmarkSequentialOutStreamWrite(
+        JNIEnv * env,
+        jclass thiz,
+        jobject outStream,
+        jint size,
+        jint iterations,
+        jint threadCount) {
+    JBindingSession jbindingSession(env);
+    JNINativeCallContext jniNativeCallContext(jbindingSession, env);
+
+    CMyComPtr<ISequentialOutStream> * outStreams = new CMyComPtr<ISequentialOutStream>[threadCount];
+    for (int i = 0; i < threadCount; i++) {
+        outStreams[i] = new CPPToJavaSequentialOutStream(jbindingSession, env, outStream);
+    }
+    Byte * data = new Byte[size];
+    memset(data, 0x5A, size);
+
+    SequentialOutStreamWriteOperation operation(outStreams, data, (UInt32) size);
+    jdouble result = runBenchmark(jbindingSession, operation, iterations, threadCount);
+
+    delete[] data;
+    delete[] outStreams;
+
+    return result;
+}
+
+#endif
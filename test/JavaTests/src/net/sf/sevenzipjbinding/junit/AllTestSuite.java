@@ -12,6 +12,7 @@ import net.sf.sevenzipjbinding.junit.bug.RarPasswordToLongCrash;
 import net.sf.sevenzipjbinding.junit.bug.WrongCRCGetterInSimpleInterface;
 import net.sf.sevenzipjbinding.junit.compression.CompressExceptionGetConnectedArchiveTest;
 import net.sf.sevenzipjbinding.junit.compression.CompressExceptionGetItemInformationTest;
+import net.sf.sevenzipjbinding.junit.compression.CompressFeatureSetCoderProperties;
 import net.sf.sevenzipjbinding.junit.compression.CompressFeatureSetLevel;
 import net.sf.sevenzipjbinding.junit.compression.CompressFeatureSetSolid;
 import net.sf.sevenzipjbinding.junit.compression.CompressFeatureSetThreadCount;
@@ -30,6 +31,8 @@ import net.sf.sevenzipjbinding.junit.compression.CompressNonGenericSingleFileTar
 import net.sf.sevenzipjbinding.junit.compression.CompressNonGenericSingleFileZipTest;
 import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressBZip2Test;
 import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressGZipTest;
+import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressItemColumnsTest;
+import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressReadAheadChannelTest;
 import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressSevenZipTest;
 import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressTarTest;
 import net.sf.sevenzipjbinding.junit.compression.StandaloneCompressZipTest;
@@ -188,6 +191,9 @@ import net.sf.sevenzipjbinding.junit.snippets.PrintCountOfItemsTest;
 import net.sf.sevenzipjbinding.junit.snippets.SevenZipJBindingInitCheckTest;
 import net.sf.sevenzipjbinding.junit.snippets.UpdateAddRemoveItemsTest;
 import net.sf.sevenzipjbinding.junit.snippets.UpdateAlterItemsTest;
+import net.sf.sevenzipjbinding.junit.tools.ArchiveExtractionServiceTest;
+import net.sf.sevenzipjbinding.junit.tools.ArchiveStatisticsTest;
+import net.sf.sevenzipjbinding.junit.tools.BufferedVolumedArchiveInStreamTest;
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithBufferLength1;
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithBufferLength100;
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithBufferLength2;
@@ -199,6 +205,21 @@ import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTe
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithBufferLength8;
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithBufferLength9;
 import net.sf.sevenzipjbinding.junit.tools.ByteArrayStreamTest.ByteArrayStreamTestWithEmptyBuffer;
+import net.sf.sevenzipjbinding.junit.tools.ConcurrentInArchiveTest;
+import net.sf.sevenzipjbinding.junit.tools.DirectBufferInStreamTest;
+import net.sf.sevenzipjbinding.junit.tools.DirectBufferOutStreamTest;
+import net.sf.sevenzipjbinding.junit.tools.DirectBufferStreamTest;
+import net.sf.sevenzipjbinding.junit.tools.ExtractParallelTest;
+import net.sf.sevenzipjbinding.junit.tools.ExtractToDirectoryTest;
+import net.sf.sevenzipjbinding.junit.tools.FormatDetectionTest;
+import net.sf.sevenzipjbinding.junit.tools.GetPropertiesTest;
+import net.sf.sevenzipjbinding.junit.tools.InArchivePoolTest;
+import net.sf.sevenzipjbinding.junit.tools.InStreamReadBufferTest;
+import net.sf.sevenzipjbinding.junit.tools.MappedFileInStreamTest;
+import net.sf.sevenzipjbinding.junit.tools.PositionalFileInStreamTest;
+import net.sf.sevenzipjbinding.junit.tools.SimpleInArchiveIndexTest;
+import net.sf.sevenzipjbinding.junit.tools.VolumeNamingStrategyTest;
+import net.sf.sevenzipjbinding.junit.tools.VolumeStreamManagerTest;
 import net.sf.sevenzipjbinding.junit.tools.VolumedArchiveInStreamTest.NoReadLimitSeekCur;
 import net.sf.sevenzipjbinding.junit.tools.VolumedArchiveInStreamTest.NoReadLimitSeekEnd;
 import net.sf.sevenzipjbinding.junit.tools.VolumedArchiveInStreamTest.NoReadLimitSeekSet;
@@ -348,6 +369,12 @@ public class AllTestSuite extends TestSuite {
             ReadMaxThreeBytesSeekSet.class, //
             ReadMaxThreeBytesSeekCur.class, //
             ReadMaxThreeBytesSeekEnd.class, //
+            BufferedVolumedArchiveInStreamTest.class, //
+            VolumeNamingStrategyTest.class, //
+            VolumeStreamManagerTest.class, //
+            DirectBufferStreamTest.class, //
+            InStreamReadBufferTest.class, //
+            ArchiveStatisticsTest.class, //
             ByteArrayStreamTestWithEmptyBuffer.class, //
             ByteArrayStreamTestWithBufferLength1.class, //
             ByteArrayStreamTestWithBufferLength2.class, //
@@ -398,6 +425,18 @@ public class AllTestSuite extends TestSuite {
             Width3Depth2MtWidth3.class, //
             JNIToolsTest.class, //
             ParamSpecTest.class, //
+            DirectBufferInStreamTest.class, //
+            DirectBufferOutStreamTest.class, //
+            ExtractToDirectoryTest.class, //
+            MappedFileInStreamTest.class, //
+            PositionalFileInStreamTest.class, //
+            GetPropertiesTest.class, //
+            SimpleInArchiveIndexTest.class, //
+            FormatDetectionTest.class, //
+            ArchiveExtractionServiceTest.class, //
+            ConcurrentInArchiveTest.class, //
+            InArchivePoolTest.class, //
+            ExtractParallelTest.class, //
     };
     static Class<?>[] compressionTests = { //
     /*    */CompressExceptionGetItemInformationTest.CompressException7zTest.class, //
@@ -413,6 +452,8 @@ public class AllTestSuite extends TestSuite {
             StandaloneCompressGZipTest.class, //
             StandaloneCompressSevenZipTest.class, //
             StandaloneCompressTarTest.class, //
+            StandaloneCompressItemColumnsTest.class, //
+            StandaloneCompressReadAheadChannelTest.class, //
             StandaloneUpdateArchiveAddTest.class, //
             StandaloneUpdateArchiveRemoveTest.class, //
             StandaloneUpdateArchiveUpdateContentTest.class, //
@@ -423,6 +464,10 @@ public class AllTestSuite extends TestSuite {
             StandaloneUpdateNonGenericBZip2Test.class, //
             StandaloneUpdateNonGenericGZipTest.class, //
 
+            CompressFeatureSetCoderProperties.CompressionFeatureSetCoderPropertiesBZip2.class, //
+            CompressFeatureSetCoderProperties.CompressionFeatureSetCoderPropertiesGZip.class, //
+            CompressFeatureSetCoderProperties.CompressionFeatureSetCoderPropertiesSevenZip.class, //
+            CompressFeatureSetCoderProperties.CompressionFeatureSetCoderPropertiesZip.class, //
             CompressFeatureSetLevel.CompressionFeatureSetLevelBZip2.class, //
             CompressFeatureSetLevel.CompressionFeatureSetLevelGZip.class, //
             CompressFeatureSetLevel.CompressionFeatureSetLevelSevenZip.class, //
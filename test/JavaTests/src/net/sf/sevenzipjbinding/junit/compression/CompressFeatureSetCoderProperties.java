@@ -0,0 +1,229 @@
+package net.sf.sevenzipjbinding.junit.compression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateArchive;
+import net.sf.sevenzipjbinding.IOutFeatureSetCoderProperties;
+import net.sf.sevenzipjbinding.IOutFeatureSetLevel;
+import net.sf.sevenzipjbinding.IOutFeatureSetMethod;
+import net.sf.sevenzipjbinding.IOutFeatureSetMultithreading;
+import net.sf.sevenzipjbinding.IOutItemAllFormats;
+import net.sf.sevenzipjbinding.NCoderPropID;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.junit.tools.RandomContext;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+/**
+ * Tests setting compression method and coder properties.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public abstract class CompressFeatureSetCoderProperties extends CompressFeatureAbstractSingleFile {
+    public static class CompressionFeatureSetCoderPropertiesSevenZip extends CompressFeatureSetCoderProperties {
+        @Override
+        protected ArchiveFormat getArchiveFormat() {
+            return ArchiveFormat.SEVEN_ZIP;
+        }
+
+        @Override
+        protected void setCoderProperties(IOutFeatureSetCoderProperties outArchive) throws Exception {
+            ((IOutFeatureSetMethod) outArchive).setMethod("LZMA") //
+                    .setCoderProperty(NCoderPropID.kDictionarySize, "32k") //
+                    .setCoderProperty(NCoderPropID.kNumFastBytes, Integer.valueOf(64)) //
+                    .setCoderProperty(NCoderPropID.kMatchFinder, "HC4");
+        }
+
+        @Override
+        protected NCoderPropID getUnsupportedCoderProperty() {
+            return NCoderPropID.kDefaultProp;
+        }
+
+        @Override
+        protected String getExpectedMethod() {
+            return "LZMA:15";
+        }
+
+        @Test
+        public void testMethodPPMd() throws Exception {
+            IOutCreateArchive<IOutItemAllFormats> outArchive = createArchive();
+            ((IOutFeatureSetMethod) outArchive).setMethod("PPMd") //
+                    .setCoderProperty(NCoderPropID.kOrder, Integer.valueOf(8));
+            String method = createAndGetMethod(outArchive);
+            assertTrue(method, method.startsWith("PPMD:o8"));
+        }
+
+        @Test
+        public void testLevelAndThreadCount() throws Exception {
+            IOutCreateArchive<IOutItemAllFormats> outArchive = createArchive();
+            ((IOutFeatureSetLevel) outArchive).setLevel(1);
+            ((IOutFeatureSetMultithreading) outArchive).setThreadCount(2);
+            // Level 1 uses 64 KB dictionary. Setting thread count shouldn't reset the level.
+            assertEquals("LZMA:16", createAndGetMethod(outArchive));
+        }
+
+        @Test
+        public void testUnknownMethod() throws Exception {
+            IOutCreateArchive<IOutItemAllFormats> outArchive = createArchive();
+            ((IOutFeatureSetMethod) outArchive).setMethod("UnknownMethod");
+            try {
+                createAndGetMethod(outArchive);
+                fail("Exception expected");
+            } catch (SevenZipException e) {
+                // Expected
+            }
+        }
+    }
+
+    public static class CompressionFeatureSetCoderPropertiesZip extends CompressFeatureSetCoderProperties {
+        @Override
+        protected ArchiveFormat getArchiveFormat() {
+            return ArchiveFormat.ZIP;
+        }
+
+        @Override
+        protected void setCoderProperties(IOutFeatureSetCoderProperties outArchive) throws Exception {
+            ((IOutFeatureSetMethod) outArchive).setMethod("BZip2") //
+                    .setCoderProperty(NCoderPropID.kNumPasses, Integer.valueOf(2));
+        }
+
+        @Override
+        protected NCoderPropID getUnsupportedCoderProperty() {
+            return NCoderPropID.kMatchFinder;
+        }
+
+        @Override
+        protected String getExpectedMethod() {
+            return "BZip2";
+        }
+    }
+
+    public static class CompressionFeatureSetCoderPropertiesBZip2 extends CompressFeatureSetCoderProperties {
+        @Override
+        protected ArchiveFormat getArchiveFormat() {
+            return ArchiveFormat.BZIP2;
+        }
+
+        @Override
+        protected void setCoderProperties(IOutFeatureSetCoderProperties outArchive) throws Exception {
+            outArchive.setCoderProperty(NCoderPropID.kDictionarySize, "100k") //
+                    .setCoderProperty(NCoderPropID.kNumPasses, Integer.valueOf(2));
+        }
+
+        @Override
+        protected NCoderPropID getUnsupportedCoderProperty() {
+            return NCoderPropID.kMatchFinder;
+        }
+    }
+
+    public static class CompressionFeatureSetCoderPropertiesGZip extends CompressFeatureSetCoderProperties {
+        @Override
+        protected ArchiveFormat getArchiveFormat() {
+            return ArchiveFormat.GZIP;
+        }
+
+        @Override
+        protected void setCoderProperties(IOutFeatureSetCoderProperties outArchive) throws Exception {
+            outArchive.setCoderProperty(NCoderPropID.kNumFastBytes, Integer.valueOf(128)) //
+                    .setCoderProperty(NCoderPropID.kNumPasses, Integer.valueOf(3)) //
+                    .setCoderProperty(NCoderPropID.kAlgorithm, Integer.valueOf(1));
+        }
+
+        @Override
+        protected NCoderPropID getUnsupportedCoderProperty() {
+            return NCoderPropID.kDictionarySize;
+        }
+    }
+
+    private static final int ENTROPY = 100;
+    private static final int DATA_SIZE = 100000;
+
+    protected abstract void setCoderProperties(IOutFeatureSetCoderProperties outArchive) throws Exception;
+
+    protected abstract NCoderPropID getUnsupportedCoderProperty();
+
+    /**
+     * @return expected value of the {@link PropID#METHOD} property or <code>null</code> to skip the check
+     */
+    protected String getExpectedMethod() {
+        return null;
+    }
+
+    @Test
+    public void testSetCoderProperties() throws Exception {
+        IOutCreateArchive<IOutItemAllFormats> outArchive = createArchive();
+        assertTrue(outArchive instanceof IOutFeatureSetCoderProperties);
+        setCoderProperties((IOutFeatureSetCoderProperties) outArchive);
+        String method = createAndGetMethod(outArchive);
+        if (getExpectedMethod() != null) {
+            assertEquals(getExpectedMethod(), method);
+        }
+    }
+
+    @Test
+    public void testRemoveCoderProperty() throws Exception {
+        IOutCreateArchive<IOutItemAllFormats> outArchive = createArchive();
+        IOutFeatureSetCoderProperties featureOutArchive = (IOutFeatureSetCoderProperties) outArchive;
+        assertSame(featureOutArchive, featureOutArchive.setCoderProperty(NCoderPropID.kNumPasses,
+                Integer.valueOf(1000000)));
+        featureOutArchive.setCoderProperty(NCoderPropID.kNumPasses, null);
+        createAndGetMethod(outArchive);
+    }
+
+    @Test
+    public void testUnsupportedCoderProperty() throws Exception {
+        IOutFeatureSetCoderProperties outArchive = (IOutFeatureSetCoderProperties) createArchive();
+        try {
+            outArchive.setCoderProperty(getUnsupportedCoderProperty(), Integer.valueOf(1));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testWrongValueType() throws Exception {
+        IOutFeatureSetCoderProperties outArchive = (IOutFeatureSetCoderProperties) createArchive();
+        try {
+            outArchive.setCoderProperty(NCoderPropID.kNumPasses, Boolean.TRUE);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            outArchive.setCoderProperty(NCoderPropID.kNumPasses, "2");
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            outArchive.setCoderProperty(NCoderPropID.kNumPasses, Long.valueOf(-1));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    protected String createAndGetMethod(IOutCreateArchive<IOutItemAllFormats> outArchive) throws Exception {
+        RandomContext randomContext = new RandomContext(DATA_SIZE, ENTROPY);
+        ByteArrayStream outputByteArrayStream = new ByteArrayStream(DATA_SIZE * 2);
+        outArchive.createArchive(outputByteArrayStream, 1, new FeatureSingleFileCreateArchiveCallback(randomContext));
+        closeArchive(outArchive);
+        verifySingleFileArchive(randomContext, outputByteArrayStream);
+
+        outputByteArrayStream.rewind();
+        IInArchive inArchive = SevenZip.openInArchive(getArchiveFormat(), outputByteArrayStream);
+        addCloseable(inArchive);
+        String method = (String) inArchive.getProperty(0, PropID.METHOD);
+        closeArchive(inArchive);
+        return method;
+    }
+}
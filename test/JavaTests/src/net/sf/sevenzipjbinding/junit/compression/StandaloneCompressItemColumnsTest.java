@@ -0,0 +1,237 @@
+package net.sf.sevenzipjbinding.junit.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Date;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateArchive;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItemAllFormats;
+import net.sf.sevenzipjbinding.IOutUpdateArchive;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.OutItemColumns;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.junit.tools.VirtualContent;
+import net.sf.sevenzipjbinding.junit.tools.VirtualContent.VirtualContentConfiguration;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class StandaloneCompressItemColumnsTest extends JUnitNativeTestBase {
+    private static final long TIME = 1300000000000L;
+    private static final byte[] NEW_FILE_BLOB = "Content".getBytes();
+
+    private static class ItemColumnsCreateCallback implements IOutCreateCallback<IOutItemAllFormats> {
+        private final byte[][] contents;
+
+        ItemColumnsCreateCallback(byte[][] contents) {
+            this.contents = contents;
+        }
+
+        public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+        }
+
+        public void setTotal(long total) throws SevenZipException {
+        }
+
+        public void setCompleted(long complete) throws SevenZipException {
+        }
+
+        public IOutItemAllFormats getItemInformation(int index, OutItemFactory<IOutItemAllFormats> outItemFactory)
+                throws SevenZipException {
+            throw new SevenZipException("getItemInformation() shouldn't be called");
+        }
+
+        public ISequentialInStream getStream(int index) throws SevenZipException {
+            if (contents[index] == null) {
+                throw new SevenZipException("No stream expected for item " + index);
+            }
+            return new ByteArrayStream(contents[index], false);
+        }
+    }
+
+    @Test
+    public void testCreate7z() throws Exception {
+        doTestCreate(ArchiveFormat.SEVEN_ZIP, true);
+    }
+
+    @Test
+    public void testCreateZip() throws Exception {
+        doTestCreate(ArchiveFormat.ZIP, false);
+    }
+
+    @Test
+    public void testCreateTar() throws Exception {
+        doTestCreate(ArchiveFormat.TAR, true);
+    }
+
+    @Test
+    public void testDirectory7z() throws Exception {
+        OutItemColumns itemColumns = new OutItemColumns(2) //
+                .setPaths(new String[] { "dir", "dir/file" }) //
+                .setDataSizes(new long[] { 0, NEW_FILE_BLOB.length }) //
+                .setDirs(new boolean[] { true, false });
+        ByteArrayStream outputStream = new ByteArrayStream(100000);
+        IOutCreateArchive<IOutItemAllFormats> outArchive = closeLater(SevenZip.openOutArchive(ArchiveFormat.SEVEN_ZIP));
+        outArchive.createArchive(outputStream, itemColumns, new ItemColumnsCreateCallback(new byte[][] { null,
+                NEW_FILE_BLOB }));
+
+        outputStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, outputStream));
+        assertEquals(2, inArchive.getNumberOfItems());
+        for (int i = 0; i < 2; i++) {
+            String path = (String) inArchive.getProperty(i, PropID.PATH);
+            assertEquals(Boolean.valueOf(path.equals("dir")), inArchive.getProperty(i, PropID.IS_FOLDER));
+        }
+    }
+
+    @Test
+    public void testUpdate7z() throws Exception {
+        VirtualContent virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(3, 1, 1, 100, 50, null);
+        ByteArrayStream outputStream = createArchive(ArchiveFormat.SEVEN_ZIP, virtualContent);
+
+        outputStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, outputStream));
+        int[] oldIndices = new int[] { 0, 1, 2, -1 };
+        String[] paths = new String[4];
+        long[] sizes = new long[4];
+        for (int i = 0; i < 3; i++) {
+            paths[i] = (String) inArchive.getProperty(i, PropID.PATH);
+            sizes[i] = ((Long) inArchive.getProperty(i, PropID.SIZE)).longValue();
+        }
+        paths[0] = "renamed";
+        paths[3] = "new";
+        sizes[3] = NEW_FILE_BLOB.length;
+        OutItemColumns itemColumns = new OutItemColumns(4) //
+                .setPaths(paths) //
+                .setDataSizes(sizes) //
+                .setUpdateInfo(oldIndices, null, new boolean[] { true, false, false, false });
+
+        ByteArrayStream updatedStream = new ByteArrayStream(100000);
+        IOutUpdateArchive<IOutItemAllFormats> outArchive = inArchive.getConnectedOutArchive();
+        outArchive.updateItems(updatedStream, itemColumns, new ItemColumnsCreateCallback(new byte[][] { null, null,
+                null, NEW_FILE_BLOB }));
+
+        updatedStream.rewind();
+        IInArchive updatedInArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, updatedStream));
+        assertEquals(4, updatedInArchive.getNumberOfItems());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(paths[i], updatedInArchive.getProperty(i, PropID.PATH));
+            ByteArrayStream content = new ByteArrayStream(100000);
+            updatedInArchive.extractSlow(i, content);
+            if (i == 3) {
+                assertArrayEquals(NEW_FILE_BLOB, content.getBytes());
+            } else {
+                ByteArrayStream expectedContent = new ByteArrayStream(100000);
+                inArchive.extractSlow(i, expectedContent);
+                assertArrayEquals(expectedContent.getBytes(), content.getBytes());
+            }
+        }
+    }
+
+    @Test
+    public void testWrongColumnLength() throws Exception {
+        try {
+            new OutItemColumns(2).setDataSizes(new long[3]);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testUpdateInfoWithCreate() throws Exception {
+        OutItemColumns itemColumns = new OutItemColumns(1) //
+                .setPaths(new String[] { "file" }) //
+                .setDataSizes(new long[] { NEW_FILE_BLOB.length }) //
+                .setUpdateInfo(new int[] { -1 }, null, null);
+        IOutCreateArchive<IOutItemAllFormats> outArchive = closeLater(SevenZip.openOutArchive(ArchiveFormat.SEVEN_ZIP));
+        try {
+            outArchive.createArchive(new ByteArrayStream(100000), itemColumns, new ItemColumnsCreateCallback(
+                    new byte[][] { NEW_FILE_BLOB }));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testUpdateWithoutUpdateInfo() throws Exception {
+        VirtualContent virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(3, 1, 1, 100, 50, null);
+        ByteArrayStream outputStream = createArchive(ArchiveFormat.SEVEN_ZIP, virtualContent);
+
+        outputStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, outputStream));
+        try {
+            inArchive.getConnectedOutArchive().updateItems(new ByteArrayStream(100000), new OutItemColumns(3),
+                    new ItemColumnsCreateCallback(new byte[3][]));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private void doTestCreate(ArchiveFormat archiveFormat, boolean checkTime) throws Exception {
+        VirtualContent virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(30, 2, 3, 100, 50, null);
+        ByteArrayStream outputStream = createArchive(archiveFormat, virtualContent);
+
+        outputStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(archiveFormat, outputStream));
+        virtualContent.verifyInArchive(inArchive);
+        if (checkTime) {
+            for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+                String path = (String) inArchive.getProperty(i, PropID.PATH);
+                int index = getIndexByPath(virtualContent, path);
+                assertEquals(path, new Date(getTime(index)), inArchive.getProperty(i, PropID.LAST_MODIFICATION_TIME));
+            }
+        }
+    }
+
+    private ByteArrayStream createArchive(ArchiveFormat archiveFormat, VirtualContent virtualContent)
+            throws Exception {
+        int itemCount = virtualContent.getItemCount();
+        String[] paths = new String[itemCount];
+        long[] sizes = new long[itemCount];
+        long[] times = new long[itemCount];
+        byte[][] contents = new byte[itemCount][];
+        for (int i = 0; i < itemCount; i++) {
+            paths[i] = virtualContent.getItemPath(i);
+            contents[i] = virtualContent.getItemStream(i).getBytes();
+            sizes[i] = contents[i].length;
+            times[i] = getTime(i);
+        }
+        OutItemColumns itemColumns = new OutItemColumns(itemCount) //
+                .setPaths(paths) //
+                .setDataSizes(sizes) //
+                .setLastModificationTimes(times);
+
+        ByteArrayStream outputStream = new ByteArrayStream(1000000);
+        IOutCreateArchive<IOutItemAllFormats> outArchive = closeLater(SevenZip.openOutArchive(archiveFormat));
+        outArchive.createArchive(outputStream, itemColumns, new ItemColumnsCreateCallback(contents));
+        return outputStream;
+    }
+
+    private int getIndexByPath(VirtualContent virtualContent, String path) {
+        for (int i = 0; i < virtualContent.getItemCount(); i++) {
+            if (virtualContent.getItemPath(i).equals(path)) {
+                return i;
+            }
+        }
+        throw new AssertionError("Path not found: " + path);
+    }
+
+    private static long getTime(int index) {
+        return TIME + index * 1000L;
+    }
+}
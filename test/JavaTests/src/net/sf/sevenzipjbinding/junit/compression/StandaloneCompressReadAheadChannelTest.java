@@ -0,0 +1,284 @@
+package net.sf.sevenzipjbinding.junit.compression;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialInStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IItemChannelSource;
+import net.sf.sevenzipjbinding.IOutCreateArchive;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutFeatureSetMultithreading;
+import net.sf.sevenzipjbinding.IOutItemAllFormats;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.ChannelSequentialInStream;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.impl.ReadAheadChannelInStreams;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.junit.tools.VirtualContent;
+import net.sf.sevenzipjbinding.junit.tools.VirtualContent.VirtualContentConfiguration;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class StandaloneCompressReadAheadChannelTest extends JUnitNativeTestBase {
+    private static final int WAIT_TIMEOUT = 10000;
+
+    private static class ByteArrayChannelSource implements IItemChannelSource {
+        private final byte[][] contents;
+        final List<Integer> openedIndices = Collections.synchronizedList(new ArrayList<Integer>());
+        volatile int failIndex = -1;
+
+        ByteArrayChannelSource(byte[][] contents) {
+            this.contents = contents;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public ReadableByteChannel openChannel(int index) throws IOException {
+            openedIndices.add(Integer.valueOf(index));
+            if (index == failIndex) {
+                throw new IOException("Test exception");
+            }
+            return Channels.newChannel(new ByteArrayInputStream(contents[index]));
+        }
+    }
+
+    private class CreateCallback implements IOutCreateCallback<IOutItemAllFormats> {
+        private final ReadAheadChannelInStreams inStreams;
+
+        CreateCallback(ReadAheadChannelInStreams inStreams) {
+            this.inStreams = inStreams;
+        }
+
+        public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+        }
+
+        public void setTotal(long total) throws SevenZipException {
+        }
+
+        public void setCompleted(long complete) throws SevenZipException {
+        }
+
+        public IOutItemAllFormats getItemInformation(int index, OutItemFactory<IOutItemAllFormats> outItemFactory)
+                throws SevenZipException {
+            IOutItemAllFormats outItem = outItemFactory.createOutItem();
+            outItem.setDataSize(Long.valueOf(virtualContent.getItemStream(index).getSize()));
+            outItem.setPropertyPath(virtualContent.getItemPath(index));
+            return outItem;
+        }
+
+        public ISequentialInStream getStream(int index) throws SevenZipException {
+            return inStreams.getStream(index);
+        }
+    }
+
+    VirtualContent virtualContent;
+
+    @Test
+    public void testCreate7z() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        doTestCreate(ArchiveFormat.SEVEN_ZIP, new ReadAheadChannelInStreams(source, virtualContent.getItemCount()),
+                -1);
+        assertEquals(virtualContent.getItemCount(), new HashSet<Integer>(source.openedIndices).size());
+    }
+
+    @Test
+    public void testCreate7zMultithreaded() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        doTestCreate(ArchiveFormat.SEVEN_ZIP, new ReadAheadChannelInStreams(source, virtualContent.getItemCount()), 4);
+    }
+
+    @Test
+    public void testCreateTar() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        doTestCreate(ArchiveFormat.TAR, new ReadAheadChannelInStreams(source, virtualContent.getItemCount()), -1);
+    }
+
+    @Test
+    public void testConcurrentStreams() throws Exception {
+        final byte[][] contents = createContents();
+        final ReadAheadChannelInStreams inStreams = closeLater(new ReadAheadChannelInStreams(
+                new ByteArrayChannelSource(contents), contents.length, 16, 64));
+        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int firstIndex = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int index = firstIndex; index < contents.length; index += 4) {
+                            assertArrayEquals(contents[index], readFully(inStreams.getStream(index)));
+                        }
+                    } catch (Throwable throwable) {
+                        exceptions.add(throwable);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), exceptions);
+    }
+
+    @Test
+    public void testSmallBuffers() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        doTestCreate(ArchiveFormat.SEVEN_ZIP, new ReadAheadChannelInStreams(source, virtualContent.getItemCount(), 16,
+                40), -1);
+    }
+
+    @Test
+    public void testWrongPrediction() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        doTestCreate(ArchiveFormat.SEVEN_ZIP, new ReadAheadChannelInStreams(source, virtualContent.getItemCount(), 16,
+                64) {
+            @Override
+            protected int getNextIndex(int index) {
+                return index + 2;
+            }
+        }, -1);
+    }
+
+    @Test
+    public void testPrefetchNextItem() throws Exception {
+        byte[][] contents = createContents();
+        ByteArrayChannelSource source = new ByteArrayChannelSource(contents);
+        ReadAheadChannelInStreams inStreams = closeLater(new ReadAheadChannelInStreams(source, contents.length));
+        assertArrayEquals(contents[0], readFully(inStreams.getStream(0)));
+
+        long timeout = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (!source.openedIndices.contains(Integer.valueOf(1))) {
+            assertTrue("Item 1 wasn't prefetched", System.currentTimeMillis() < timeout);
+            Thread.sleep(1);
+        }
+        assertArrayEquals(contents[1], readFully(inStreams.getStream(1)));
+        assertArrayEquals(contents[5], readFully(inStreams.getStream(5)));
+        assertArrayEquals(contents[3], readFully(inStreams.getStream(3)));
+    }
+
+    @Test
+    public void testReadError() throws Exception {
+        ByteArrayChannelSource source = new ByteArrayChannelSource(createContents());
+        source.failIndex = 3;
+        try {
+            doTestCreate(ArchiveFormat.SEVEN_ZIP, new ReadAheadChannelInStreams(source, virtualContent.getItemCount()),
+                    -1);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            Throwable cause = e;
+            while (cause != null && !"Test exception".equals(cause.getMessage())) {
+                cause = cause.getCause();
+            }
+            assertNotNull(cause);
+        }
+    }
+
+    @Test
+    public void testClosedStreams() throws Exception {
+        byte[][] contents = createContents();
+        ReadAheadChannelInStreams inStreams = new ReadAheadChannelInStreams(new ByteArrayChannelSource(contents),
+                contents.length);
+        ISequentialInStream inStream = inStreams.getStream(0);
+        inStreams.close();
+        try {
+            inStream.read(new byte[10]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        try {
+            inStreams.getStream(1);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testChannelSequentialInStream() throws Exception {
+        byte[] content = createContents()[0];
+        File file = File.createTempFile("sevenzipjbinding", ".tmp");
+        try {
+            FileOutputStream fileOutputStream = new FileOutputStream(file);
+            fileOutputStream.write(content);
+            fileOutputStream.close();
+
+            ChannelSequentialInStream inStream = new ChannelSequentialInStream(new FileInputStream(file).getChannel());
+            try {
+                assertArrayEquals(content, readFully(inStream));
+            } finally {
+                inStream.close();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    private void doTestCreate(ArchiveFormat archiveFormat, ReadAheadChannelInStreams inStreams, int threadCount)
+            throws Exception {
+        ByteArrayStream outputStream = new ByteArrayStream(10000000);
+        IOutCreateArchive<IOutItemAllFormats> outArchive = closeLater(SevenZip.openOutArchive(archiveFormat));
+        if (threadCount > 0) {
+            ((IOutFeatureSetMultithreading) outArchive).setThreadCount(threadCount);
+        }
+        try {
+            outArchive.createArchive(outputStream, virtualContent.getItemCount(), new CreateCallback(inStreams));
+        } finally {
+            inStreams.close();
+        }
+
+        outputStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(archiveFormat, outputStream));
+        virtualContent.verifyInArchive(inArchive);
+    }
+
+    private byte[][] createContents() {
+        virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(30, 2, 3, 100000, 50000, null);
+        byte[][] contents = new byte[virtualContent.getItemCount()][];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = virtualContent.getItemStream(i).getBytes();
+        }
+        return contents;
+    }
+
+    private static byte[] readFully(ISequentialInStream inStream) throws SevenZipException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1000);
+        while (true) {
+            buffer.clear();
+            int read = ((IDirectBufferSequentialInStream) inStream).read(buffer);
+            if (read == 0) {
+                return outputStream.toByteArray();
+            }
+            for (int i = 0; i < read; i++) {
+                outputStream.write(buffer.get(i));
+            }
+        }
+    }
+}
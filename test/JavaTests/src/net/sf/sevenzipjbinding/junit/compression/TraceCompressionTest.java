@@ -6,6 +6,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.HashSet;
+import java.util.Set;
 
 import net.sf.sevenzipjbinding.ArchiveFormat;
 import net.sf.sevenzipjbinding.IInArchive;
@@ -15,6 +17,7 @@ import net.sf.sevenzipjbinding.IOutCreateCallback;
 import net.sf.sevenzipjbinding.IOutItemAllFormats;
 import net.sf.sevenzipjbinding.IOutUpdateArchive;
 import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.OutItemColumns;
 import net.sf.sevenzipjbinding.SevenZip;
 import net.sf.sevenzipjbinding.SevenZipException;
 import net.sf.sevenzipjbinding.impl.OutItemFactory;
@@ -249,6 +252,95 @@ public class TraceCompressionTest extends JUnitNativeTestBase {
         assertEquals("", new String(out.toByteArray()));
     }
 
+    @Test
+    public void testCompressionItemColumns7z() throws Exception {
+        virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(2, 0, 0, 100, 50, null);
+
+        OutItemColumns itemColumns = new OutItemColumns(2) //
+                .setPaths(new String[] { virtualContent.getItemPath(0), virtualContent.getItemPath(1) }) //
+                .setDataSizes(new long[] { virtualContent.getItemStream(0).getSize(),
+                        virtualContent.getItemStream(1).getSize() });
+
+        IOutCreateArchive<IOutItemAllFormats> outNewArchive = closeLater(SevenZip
+                .openOutArchive(ArchiveFormat.SEVEN_ZIP));
+        ByteArrayOutputStream traceLog = new ByteArrayOutputStream();
+        outNewArchive.setTracePrintStream(new PrintStream(traceLog));
+        outNewArchive.setTrace(true);
+        outNewArchive.createArchive(new ByteArrayStream(100000), itemColumns, new OutCreateArchive());
+
+        assertEquals(("Compressing 2 items\n" + //
+                "Get update info (new data: true) (new props: true) (old index: -1) (index: 0)\n" + //
+                "Get property 'attributes' (index: 0)\n" + //
+                "Get property 'lastModificationTimes' (index: 0)\n" + //
+                "Get property 'paths' (index: 0)\n" + //
+                "Get property 'dirs' (index: 0)\n" + //
+                "Get property 'dataSizes' (index: 0)\n" + //
+                "Get update info (new data: true) (new props: true) (old index: -1) (index: 1)\n" + //
+                "Get property 'attributes' (index: 1)\n" + //
+                "Get property 'lastModificationTimes' (index: 1)\n" + //
+                "Get property 'paths' (index: 1)\n" + //
+                "Get property 'dirs' (index: 1)\n" + //
+                "Get property 'dataSizes' (index: 1)\n" + //
+                "Get stream (index: 0)\n" + //
+                "Get stream (index: 1)\n").replace("\n", NEW_LINE), new String(traceLog.toByteArray()));
+    }
+
+    @Test
+    public void testCompressionManyItems7z() throws Exception {
+        // Many more trace messages, than the native trace buffer can hold
+        virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(30, 2, 3, 100, 50, null);
+        int itemCount = virtualContent.getItemCount();
+
+        IOutCreateArchive<IOutItemAllFormats> outNewArchive = closeLater(SevenZip
+                .openOutArchive(ArchiveFormat.SEVEN_ZIP));
+        ByteArrayOutputStream traceLog = new ByteArrayOutputStream();
+        outNewArchive.setTracePrintStream(new PrintStream(traceLog));
+        outNewArchive.setTrace(true);
+        outNewArchive.createArchive(new ByteArrayStream(1000000), itemCount, new OutCreateArchive());
+
+        String[] lines = new String(traceLog.toByteArray()).split(NEW_LINE);
+        assertEquals("Compressing " + itemCount + " items", lines[0]);
+        int updateInfoIndex = 0;
+        Set<String> streamLines = new HashSet<String>();
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i].startsWith("Get update info ")) {
+                assertTrue(lines[i], lines[i].endsWith("(index: " + updateInfoIndex++ + ")"));
+            } else if (lines[i].startsWith("Get stream ")) {
+                assertTrue(lines[i], streamLines.add(lines[i]));
+            } else {
+                assertTrue(lines[i], lines[i].startsWith("Get property "));
+            }
+        }
+        assertEquals(itemCount, updateInfoIndex);
+        assertTrue(lines.length > 64);
+        assertEquals(itemCount, streamLines.size());
+    }
+
+    @Test
+    public void testTraceFlagReadOnce() throws Exception {
+        virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(2, 0, 0, 100, 50, null);
+
+        final IOutCreateArchive<IOutItemAllFormats> outNewArchive = closeLater(SevenZip
+                .openOutArchive(ArchiveFormat.SEVEN_ZIP));
+        ByteArrayOutputStream traceLog = new ByteArrayOutputStream();
+        outNewArchive.setTracePrintStream(new PrintStream(traceLog));
+        outNewArchive.setTrace(true);
+        outNewArchive.createArchive(new ByteArrayStream(100000), 2, new OutCreateArchive() {
+            @Override
+            public IOutItemAllFormats getItemInformation(int index, OutItemFactory<IOutItemAllFormats> outItemFactory)
+                    throws SevenZipException {
+                // Changes take effect with the next operation
+                outNewArchive.setTrace(false);
+                return super.getItemInformation(index, outItemFactory);
+            }
+        });
+
+        assertTrue(new String(traceLog.toByteArray()).endsWith("Get stream (index: 1)" + NEW_LINE));
+    }
+
     private void testUpdate(ArchiveFormat format, String log) throws Exception {
         ByteArrayStream archive = compress(format, null);
         archive.rewind();
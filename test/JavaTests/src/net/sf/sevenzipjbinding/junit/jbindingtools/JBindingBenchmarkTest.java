@@ -0,0 +1,155 @@
+package net.sf.sevenzipjbinding.junit.jbindingtools;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.ByteBuffer;
+
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.junit.DebugModeOnly;
+import net.sf.sevenzipjbinding.junit.DebugModeOnlyTestRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Micro benchmarks of the JNI bridge primitives (see <code>test/CTests/JBindingBenchmark.cpp</code>). The primitives
+ * get called from 1 to {@link #MAX_THREAD_COUNT} native threads attached to the VM, the average time of a single call
+ * gets printed to the standard output. The native part is only available in the debug build of the native library,
+ * so the absolute numbers include the overhead of the debug checks.<br>
+ * <br>
+ * The benchmarks aren't part of the {@link net.sf.sevenzipjbinding.junit.AllTestSuite}. They run only on demand, if
+ * the system property <code>{@value #BENCHMARK_PROPERTY}</code> is set to <code>true</code>:
+ *
+ * <pre>
+ * java -Dsevenzipjbinding.benchmark=true -cp ... org.junit.runner.JUnitCore \
+ *         net.sf.sevenzipjbinding.junit.jbindingtools.JBindingBenchmarkTest
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public class JBindingBenchmarkTest extends JBindingToolsTestBase {
+    /**
+     * System property enabling the benchmarks
+     */
+    public static final String BENCHMARK_PROPERTY = "sevenzipjbinding.benchmark";
+
+    private static final int MAX_THREAD_COUNT = 4;
+    private static final int CALLBACK_ITERATIONS = 100000;
+    private static final int WRITE_ITERATIONS = 2000;
+    private static final int[] WRITE_SIZES = { 16, 4 * 1024, 64 * 1024 };
+
+    private interface BenchmarkCallback {
+        public void call();
+    }
+
+    private static class BenchmarkCallbackImpl implements BenchmarkCallback {
+        public void call() {
+        }
+    }
+
+    private static class ByteArrayOutStream implements ISequentialOutStream {
+        public int write(byte[] data) {
+            return data.length;
+        }
+    }
+
+    private static class DirectBufferOutStream implements IDirectBufferSequentialOutStream {
+        public int write(byte[] data) {
+            throw new IllegalStateException("write(ByteBuffer) expected");
+        }
+
+        public int write(ByteBuffer data) {
+            return data.remaining();
+        }
+    }
+
+    private interface Benchmark {
+        public double run(int threadCount);
+    }
+
+    private static native double benchmarkBeginEndCallback(int iterations, int threadCount);
+
+    private static native double benchmarkCallback(BenchmarkCallback callback, int iterations, int threadCount);
+
+    private static native double benchmarkGetInstance(BenchmarkCallback callback, int iterations, int threadCount);
+
+    private static native double benchmarkSequentialOutStreamWrite(ISequentialOutStream outStream, int size,
+            int iterations, int threadCount);
+
+    @Rule
+    public DebugModeOnlyTestRule skipDebugModeOnlyTestRule = new DebugModeOnlyTestRule();
+
+    @Before
+    public void checkBenchmarkEnabled() {
+        assumeTrue(Boolean.getBoolean(BENCHMARK_PROPERTY));
+    }
+
+    @Test
+    @DebugModeOnly
+    public void testBeginEndCallback() {
+        runBenchmark("beginCallback/endCallback", new Benchmark() {
+            public double run(int threadCount) {
+                return benchmarkBeginEndCallback(CALLBACK_ITERATIONS, threadCount);
+            }
+        });
+    }
+
+    @Test
+    @DebugModeOnly
+    public void testCallback() {
+        runBenchmark("callback round-trip", new Benchmark() {
+            public double run(int threadCount) {
+                return benchmarkCallback(new BenchmarkCallbackImpl(), CALLBACK_ITERATIONS, threadCount);
+            }
+        });
+    }
+
+    @Test
+    @DebugModeOnly
+    public void testGetInstance() {
+        runBenchmark("JInterface::_getInstance", new Benchmark() {
+            public double run(int threadCount) {
+                return benchmarkGetInstance(new BenchmarkCallbackImpl(), CALLBACK_ITERATIONS, threadCount);
+            }
+        });
+    }
+
+    @Test
+    @DebugModeOnly
+    public void testSequentialOutStreamWriteByteArray() {
+        for (final int size : WRITE_SIZES) {
+            runBenchmark("CPPToJavaSequentialOutStream::Write(), byte[" + size + "]", new Benchmark() {
+                public double run(int threadCount) {
+                    return benchmarkSequentialOutStreamWrite(new ByteArrayOutStream(), size, WRITE_ITERATIONS,
+                            threadCount);
+                }
+            });
+        }
+    }
+
+    @Test
+    @DebugModeOnly
+    public void testSequentialOutStreamWriteDirectBuffer() {
+        for (final int size : WRITE_SIZES) {
+            runBenchmark("CPPToJavaSequentialOutStream::Write(), direct buffer " + size, new Benchmark() {
+                public double run(int threadCount) {
+                    return benchmarkSequentialOutStreamWrite(new DirectBufferOutStream(), size, WRITE_ITERATIONS,
+                            threadCount);
+                }
+            });
+        }
+    }
+
+    private void runBenchmark(String name, Benchmark benchmark) {
+        for (int threadCount = 1; threadCount <= MAX_THREAD_COUNT; threadCount++) {
+            double nanosPerCall = benchmark.run(threadCount);
+            assertTrue(name + " failed", nanosPerCall > 0);
+            System.out.println(String.format("JNI bridge benchmark: %-55s %d thread(s): %10.1f ns/call", name,
+                    threadCount, nanosPerCall));
+        }
+    }
+}
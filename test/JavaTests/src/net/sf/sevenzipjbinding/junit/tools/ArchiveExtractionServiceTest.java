@@ -0,0 +1,394 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.service.ArchiveExtractionMetrics;
+import net.sf.sevenzipjbinding.service.ArchiveExtractionRequest;
+import net.sf.sevenzipjbinding.service.ArchiveExtractionResult;
+import net.sf.sevenzipjbinding.service.ArchiveExtractionService;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class ArchiveExtractionServiceTest extends JUnitNativeTestBase {
+    private static final String[] ARCHIVES = { "testdata/multiple-files/7z/archive1.zip.5.7z",
+            "testdata/multiple-files/zip/archive2.zip.5.zip", "testdata/multiple-files/tar/archive3.zip.0.tar",
+            "testdata/simple/7z/simple2.dat.5.7z" };
+    private static final int TIMEOUT_SECONDS = 60;
+
+    private ArchiveExtractionService service;
+
+    private static class TestRequest extends ArchiveExtractionRequest {
+        private final byte[] archiveContent;
+        private final boolean directBuffer;
+        private final byte[][] extractedContents;
+        volatile int openCount;
+        volatile int closeCount;
+        volatile int operationResultCount;
+
+        TestRequest(String name, byte[] archiveContent, int itemCount, boolean directBuffer) {
+            super(name);
+            this.archiveContent = archiveContent;
+            this.directBuffer = directBuffer;
+            this.extractedContents = new byte[itemCount][];
+        }
+
+        @Override
+        public IInStream openInStream() throws SevenZipException {
+            openCount++;
+            return new ByteArrayStream(archiveContent, false);
+        }
+
+        @Override
+        public void closeInStream(IInStream inStream) throws SevenZipException {
+            closeCount++;
+        }
+
+        @Override
+        public ISequentialOutStream getStream(IInArchive inArchive, final int index) throws SevenZipException {
+            if (Boolean.TRUE.equals(inArchive.getProperty(index, PropID.IS_FOLDER))) {
+                return null;
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            extractedContents[index] = new byte[0];
+            if (directBuffer) {
+                return new IDirectBufferSequentialOutStream() {
+                    public int write(byte[] data) throws SevenZipException {
+                        fail("Direct buffer write expected");
+                        return 0;
+                    }
+
+                    public int write(ByteBuffer data) throws SevenZipException {
+                        int length = data.remaining();
+                        byte[] bytes = new byte[length];
+                        data.get(bytes);
+                        outputStream.write(bytes, 0, length);
+                        extractedContents[index] = outputStream.toByteArray();
+                        return length;
+                    }
+                };
+            }
+            return new ISequentialOutStream() {
+                public int write(byte[] data) throws SevenZipException {
+                    outputStream.write(data, 0, data.length);
+                    extractedContents[index] = outputStream.toByteArray();
+                    return data.length;
+                }
+            };
+        }
+
+        @Override
+        public void setOperationResult(int index, ExtractOperationResult extractOperationResult)
+                throws SevenZipException {
+            assertEquals(ExtractOperationResult.OK, extractOperationResult);
+            operationResultCount++;
+        }
+    }
+
+    @After
+    public void shutdownService() throws Exception {
+        if (service != null) {
+            service.shutdown();
+            assertTrue(service.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testExtractManyArchives() throws Exception {
+        checkExtractManyArchives(false);
+    }
+
+    @Test
+    public void testExtractManyArchivesWithDirectBuffer() throws Exception {
+        checkExtractManyArchives(true);
+    }
+
+    private void checkExtractManyArchives(boolean directBuffer) throws Exception {
+        service = new ArchiveExtractionService(3, 4);
+        int archiveCount = 20;
+
+        List<byte[][]> expectedContents = new ArrayList<byte[][]>();
+        List<byte[]> archiveContents = new ArrayList<byte[]>();
+        for (String archive : ARCHIVES) {
+            byte[] archiveContent = readFile(archive);
+            archiveContents.add(archiveContent);
+            expectedContents.add(extractSingleThreaded(archiveContent));
+        }
+
+        List<TestRequest> requests = new ArrayList<TestRequest>();
+        List<Future<ArchiveExtractionResult>> futures = new ArrayList<Future<ArchiveExtractionResult>>();
+        for (int i = 0; i < archiveCount; i++) {
+            int archiveIndex = i % ARCHIVES.length;
+            TestRequest request = new TestRequest(ARCHIVES[archiveIndex], archiveContents.get(archiveIndex),
+                    expectedContents.get(archiveIndex).length, directBuffer);
+            requests.add(request);
+            futures.add(service.submit(request));
+            assertTrue(service.getMetrics().getPendingArchiveCount() <= service.getMaxPendingArchiveCount());
+        }
+
+        long totalExtractedBytes = 0;
+        for (int i = 0; i < archiveCount; i++) {
+            ArchiveExtractionResult result = futures.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            TestRequest request = requests.get(i);
+            byte[][] expected = expectedContents.get(i % ARCHIVES.length);
+
+            assertTrue(result.toString(), result.isSuccessful());
+            assertNull(result.getException());
+            assertNotNull(result.getArchiveFormat());
+            assertEquals(request, result.getRequest());
+            assertEquals(expected.length, result.getItemCount());
+            assertEquals(1, request.openCount);
+            assertEquals(1, request.closeCount);
+            assertEquals(result.getExtractedItemCount(), request.operationResultCount);
+
+            long extractedBytes = 0;
+            int extractedItemCount = 0;
+            for (int j = 0; j < expected.length; j++) {
+                assertArrayEquals(expected[j], request.extractedContents[j]);
+                if (expected[j] != null) {
+                    extractedBytes += expected[j].length;
+                    extractedItemCount++;
+                }
+            }
+            assertEquals(extractedItemCount, result.getExtractedItemCount());
+            assertEquals(extractedBytes, result.getExtractedBytes());
+            totalExtractedBytes += extractedBytes;
+        }
+
+        assertTrue(service.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        ArchiveExtractionMetrics metrics = service.getMetrics();
+        assertEquals(archiveCount, metrics.getSubmittedArchiveCount());
+        assertEquals(archiveCount, metrics.getCompletedArchiveCount());
+        assertEquals(0, metrics.getFailedArchiveCount());
+        assertEquals(0, metrics.getPendingArchiveCount());
+        assertEquals(totalExtractedBytes, metrics.getExtractedBytes());
+    }
+
+    @Test
+    public void testBackPressure() throws Exception {
+        service = new ArchiveExtractionService(1, 1);
+        final CountDownLatch openStarted = new CountDownLatch(1);
+        final CountDownLatch openAllowed = new CountDownLatch(1);
+        byte[] archiveContent = readFile(ARCHIVES[0]);
+        int itemCount = extractSingleThreaded(archiveContent).length;
+        TestRequest blockingRequest = new TestRequest("blocking", archiveContent, itemCount, false) {
+            @Override
+            public IInStream openInStream() throws SevenZipException {
+                openStarted.countDown();
+                try {
+                    openAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new SevenZipException(e);
+                }
+                return super.openInStream();
+            }
+        };
+        TestRequest request = new TestRequest("waiting", archiveContent, itemCount, false);
+
+        Future<ArchiveExtractionResult> blockingFuture = service.submit(blockingRequest);
+        assertTrue(openStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertNull(service.submit(request, 100, TimeUnit.MILLISECONDS));
+        assertEquals(1, service.getMetrics().getPendingArchiveCount());
+        assertFalse(service.awaitCompletion(10, TimeUnit.MILLISECONDS));
+
+        openAllowed.countDown();
+        Future<ArchiveExtractionResult> future = service.submit(request, TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(future);
+        assertTrue(blockingFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        assertTrue(future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        assertEquals(2, service.getMetrics().getSubmittedArchiveCount());
+    }
+
+    @Test
+    public void testCancelRunningArchive() throws Exception {
+        service = new ArchiveExtractionService(1, 1);
+        final CountDownLatch openStarted = new CountDownLatch(1);
+        final CountDownLatch openAllowed = new CountDownLatch(1);
+        byte[] archiveContent = readFile(ARCHIVES[0]);
+        int itemCount = extractSingleThreaded(archiveContent).length;
+        TestRequest blockingRequest = new TestRequest("blocking", archiveContent, itemCount, false) {
+            @Override
+            public IInStream openInStream() throws SevenZipException {
+                openStarted.countDown();
+                // Ignore the interruption by cancel(true): the archive stays in processing
+                while (openAllowed.getCount() > 0) {
+                    try {
+                        openAllowed.await();
+                    } catch (InterruptedException e) {
+                        // Continue waiting
+                    }
+                }
+                return super.openInStream();
+            }
+        };
+        TestRequest request = new TestRequest("waiting", archiveContent, itemCount, false);
+
+        Future<ArchiveExtractionResult> blockingFuture = service.submit(blockingRequest);
+        assertTrue(openStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(blockingFuture.cancel(true));
+        assertEquals(1, service.getMetrics().getPendingArchiveCount());
+        assertNull(service.submit(request, 100, TimeUnit.MILLISECONDS));
+
+        openAllowed.countDown();
+        assertTrue(service.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(1, blockingRequest.closeCount);
+        assertTrue(service.submit(request).get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+    }
+
+    @Test
+    public void testCancelWaitingArchive() throws Exception {
+        service = new ArchiveExtractionService(1, 2);
+        final CountDownLatch openAllowed = new CountDownLatch(1);
+        byte[] archiveContent = readFile(ARCHIVES[0]);
+        int itemCount = extractSingleThreaded(archiveContent).length;
+        TestRequest blockingRequest = new TestRequest("blocking", archiveContent, itemCount, false) {
+            @Override
+            public IInStream openInStream() throws SevenZipException {
+                try {
+                    openAllowed.await();
+                } catch (InterruptedException e) {
+                    throw new SevenZipException(e);
+                }
+                return super.openInStream();
+            }
+        };
+        TestRequest request = new TestRequest("waiting", archiveContent, itemCount, false);
+
+        Future<ArchiveExtractionResult> blockingFuture = service.submit(blockingRequest);
+        Future<ArchiveExtractionResult> future = service.submit(request);
+        assertTrue(future.cancel(false));
+        assertEquals(2, service.getMetrics().getPendingArchiveCount());
+
+        openAllowed.countDown();
+        assertTrue(blockingFuture.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).isSuccessful());
+        assertTrue(service.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(0, request.openCount);
+    }
+
+    @Test
+    public void testFailedArchives() throws Exception {
+        service = new ArchiveExtractionService(2, 2);
+        TestRequest notAnArchive = new TestRequest("not an archive", new byte[1000], 0, false);
+        ArchiveExtractionRequest failingGetStream = new TestRequest("failing getStream", readFile(ARCHIVES[0]),
+                0, false) {
+            @Override
+            public ISequentialOutStream getStream(IInArchive inArchive, int index) throws SevenZipException {
+                throw new SevenZipException("Test exception");
+            }
+        };
+        ArchiveExtractionRequest failingOpen = new ArchiveExtractionRequest("failing open", ArchiveFormat.ZIP) {
+            @Override
+            public IInStream openInStream() throws SevenZipException {
+                throw new SevenZipException("Test exception");
+            }
+
+            @Override
+            public ISequentialOutStream getStream(IInArchive inArchive, int index) throws SevenZipException {
+                return null;
+            }
+        };
+
+        ArchiveExtractionResult result = service.submit(notAnArchive).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getException() instanceof SevenZipException);
+        assertNull(result.getArchiveFormat());
+        assertEquals(1, notAnArchive.closeCount);
+
+        result = service.submit(failingGetStream).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(result.isSuccessful());
+        assertTrue(result.getException() instanceof SevenZipException);
+        assertEquals(ArchiveFormat.SEVEN_ZIP, result.getArchiveFormat());
+
+        result = service.submit(failingOpen).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertFalse(result.isSuccessful());
+        assertEquals("Test exception", result.getException().getMessage());
+
+        assertTrue(service.awaitCompletion(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        ArchiveExtractionMetrics metrics = service.getMetrics();
+        assertEquals(3, metrics.getCompletedArchiveCount());
+        assertEquals(3, metrics.getFailedArchiveCount());
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        service = new ArchiveExtractionService(1, 1);
+        assertFalse(service.isShutdown());
+        service.shutdown();
+        assertTrue(service.isShutdown());
+        try {
+            service.submit(new TestRequest("request", readFile(ARCHIVES[0]), 0, false));
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertEquals(0, service.getMetrics().getSubmittedArchiveCount());
+    }
+
+    @Test
+    public void testInvalidArguments() throws Exception {
+        try {
+            new ArchiveExtractionService(0, 1);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            new ArchiveExtractionService(1, 0);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private byte[][] extractSingleThreaded(byte[] archiveContent) throws Exception {
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, new ByteArrayStream(archiveContent, false)));
+        byte[][] contents = new byte[inArchive.getNumberOfItems()][];
+        for (int i = 0; i < contents.length; i++) {
+            if (Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                continue;
+            }
+            final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, new ISequentialOutStream() {
+                public int write(byte[] data) throws SevenZipException {
+                    outputStream.write(data, 0, data.length);
+                    return data.length;
+                }
+            }));
+            contents[i] = outputStream.toByteArray();
+        }
+        return contents;
+    }
+
+    private byte[] readFile(String filename) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        byte[] content = new byte[(int) randomAccessFile.length()];
+        randomAccessFile.readFully(content);
+        return content;
+    }
+}
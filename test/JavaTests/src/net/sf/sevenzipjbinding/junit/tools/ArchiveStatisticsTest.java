@@ -0,0 +1,227 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import net.sf.sevenzipjbinding.ArchiveStatistics;
+import net.sf.sevenzipjbinding.ArchiveStatistics.UpcallType;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItem7z;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class ArchiveStatisticsTest extends JUnitNativeTestBase {
+    private static final String ARCHIVE_7Z = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final String TEST_FILE = "testdata/simple/simple2.dat";
+    private static final int CONCURRENT_CLOSE_ITERATIONS = 100;
+
+    private static class CountingExtractCallback implements IArchiveExtractCallback {
+        long extractedSize;
+        int progressCallCount;
+
+        public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) {
+            if (extractAskMode != ExtractAskMode.EXTRACT) {
+                return null;
+            }
+            return new ISequentialOutStream() {
+                public int write(byte[] data) {
+                    extractedSize += data.length;
+                    return data.length;
+                }
+            };
+        }
+
+        public void prepareOperation(ExtractAskMode extractAskMode) {
+        }
+
+        public void setOperationResult(ExtractOperationResult extractOperationResult) {
+            assertEquals(ExtractOperationResult.OK, extractOperationResult);
+        }
+
+        public void setTotal(long total) {
+            progressCallCount++;
+        }
+
+        public void setCompleted(long complete) {
+            progressCallCount++;
+        }
+    }
+
+    @Test
+    public void testOpen() throws Exception {
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, new ByteArrayStream(
+                readFile(new File(ARCHIVE_7Z)), false)));
+        ArchiveStatistics statistics = inArchive.getStatistics();
+
+        assertTrue(statistics.getUpcallCount(UpcallType.IN_STREAM_READ) > 0);
+        assertTrue(statistics.getBytesRead() > 0);
+        assertEquals(0, statistics.getBytesWritten());
+        assertEquals(0, statistics.getUpcallCount(UpcallType.OUT_STREAM_WRITE));
+        assertEquals(0, statistics.getUpcallCount(UpcallType.EXTRACT_CALLBACK));
+        assertTrue(statistics.getNativeTime() > 0);
+        assertTrue(statistics.getUpcallTime(UpcallType.IN_STREAM_READ) > 0);
+        assertEquals(sumUpcallCounts(statistics), statistics.getUpcallCount());
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, new ByteArrayStream(
+                readFile(new File(ARCHIVE_7Z)), false)));
+        ArchiveStatistics before = inArchive.getStatistics();
+
+        CountingExtractCallback extractCallback = new CountingExtractCallback();
+        inArchive.extract(null, false, extractCallback);
+        ArchiveStatistics extraction = inArchive.getStatistics().difference(before);
+
+        int fileCount = 0;
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            if (!Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                fileCount++;
+            }
+        }
+        assertEquals(extractCallback.extractedSize, extraction.getBytesWritten());
+        assertTrue(extraction.getUpcallCount(UpcallType.OUT_STREAM_WRITE) > 0);
+        assertTrue(extraction.getUpcallCount(UpcallType.EXTRACT_CALLBACK) >= 2 * fileCount);
+        assertEquals(extractCallback.progressCallCount, extraction.getUpcallCount(UpcallType.PROGRESS));
+        assertEquals(0, extraction.getUpcallCount(UpcallType.OPEN_CALLBACK));
+        assertEquals(0, extraction.getUpcallCount(UpcallType.UPDATE_CALLBACK));
+        assertTrue(extraction.getNativeTime() > 0);
+        assertTrue(extraction.getJavaTime() > 0);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        IInArchive inArchive = SevenZip.openInArchive(null, new ByteArrayStream(readFile(new File(ARCHIVE_7Z)),
+                false));
+        inArchive.extractSlow(1, new ByteArrayStream(Integer.MAX_VALUE));
+        ArchiveStatistics beforeClose = inArchive.getStatistics();
+        inArchive.close();
+
+        ArchiveStatistics afterClose = inArchive.getStatistics();
+        assertSame(afterClose, inArchive.getStatistics());
+        assertEquals(beforeClose.getUpcallCount(), afterClose.getUpcallCount());
+        assertEquals(beforeClose.getBytesRead(), afterClose.getBytesRead());
+        assertEquals(beforeClose.getBytesWritten(), afterClose.getBytesWritten());
+    }
+
+    @Test
+    public void testGetStatisticsConcurrentlyWithClose() throws Exception {
+        byte[] content = readFile(new File(ARCHIVE_7Z));
+        for (int i = 0; i < CONCURRENT_CLOSE_ITERATIONS; i++) {
+            final IInArchive inArchive = SevenZip.openInArchive(null, new ByteArrayStream(content, false));
+            final AtomicBoolean closed = new AtomicBoolean();
+            final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        do {
+                            assertTrue(inArchive.getStatistics().getBytesRead() > 0);
+                        } while (!closed.get());
+                    } catch (Throwable throwable) {
+                        error.set(throwable);
+                    }
+                }
+            };
+            thread.start();
+            inArchive.close();
+            closed.set(true);
+            thread.join();
+            if (error.get() != null) {
+                throw new AssertionError(error.get());
+            }
+        }
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        final byte[] content = readFile(new File(TEST_FILE));
+        ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+        IOutCreateArchive7z outArchive = SevenZip.openOutArchive7z();
+        outArchive.createArchive(outStream, 1, new IOutCreateCallback<IOutItem7z>() {
+            public void setTotal(long total) {
+            }
+
+            public void setCompleted(long complete) {
+            }
+
+            public void setOperationResult(boolean operationResultOk) {
+                assertTrue(operationResultOk);
+            }
+
+            public IOutItem7z getItemInformation(int index, OutItemFactory<IOutItem7z> outItemFactory) {
+                IOutItem7z outItem = outItemFactory.createOutItem();
+                outItem.setDataSize(Long.valueOf(content.length));
+                outItem.setPropertyPath("content.dat");
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) {
+                return new ByteArrayStream(content, false);
+            }
+        });
+        ArchiveStatistics statistics = outArchive.getStatistics();
+        outArchive.close();
+
+        assertEquals(content.length, statistics.getBytesRead());
+        assertTrue(statistics.getBytesWritten() >= outStream.getSize());
+        assertTrue(statistics.getUpcallCount(UpcallType.UPDATE_CALLBACK) >= 3);
+        assertTrue(statistics.getUpcallCount(UpcallType.OUT_STREAM_WRITE) > 0);
+        assertTrue(statistics.getUpcallCount(UpcallType.OUT_STREAM_SEEK) > 0);
+        assertTrue(statistics.getUpcallCount(UpcallType.PROGRESS) >= 2);
+        assertEquals(0, statistics.getUpcallCount(UpcallType.EXTRACT_CALLBACK));
+        assertEquals(statistics.getUpcallCount(), outArchive.getStatistics().getUpcallCount());
+    }
+
+    @Test
+    public void testConnectedOutArchive() throws Exception {
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, new ByteArrayStream(
+                readFile(new File(ARCHIVE_7Z)), false)));
+        ArchiveStatistics inArchiveStatistics = inArchive.getStatistics();
+        ArchiveStatistics outArchiveStatistics = inArchive.getConnectedOutArchive().getStatistics();
+        assertEquals(inArchiveStatistics.getUpcallCount(), outArchiveStatistics.getUpcallCount());
+        assertEquals(inArchiveStatistics.getBytesRead(), outArchiveStatistics.getBytesRead());
+    }
+
+    private static long sumUpcallCounts(ArchiveStatistics statistics) {
+        long sum = 0;
+        for (UpcallType upcallType : UpcallType.values()) {
+            sum += statistics.getUpcallCount(upcallType);
+        }
+        return sum;
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+}
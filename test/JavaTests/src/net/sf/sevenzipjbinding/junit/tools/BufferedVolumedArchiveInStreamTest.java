@@ -0,0 +1,221 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.BufferedVolumedArchiveInStream;
+import net.sf.sevenzipjbinding.impl.PositionalFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class BufferedVolumedArchiveInStreamTest extends JUnitNativeTestBase {
+    private static final String VOLUMED_ARCHIVE = "testdata/multiple-files/7z/vol-archive1.zip.5.7z.001";
+    private static final String ARCHIVE = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final int WAIT_TIMEOUT = 10000;
+
+    /**
+     * Volumes filled with <code>(byte) absolute position</code>. Records opened volumes and the opening threads.
+     */
+    private static class TestVolumeCallback implements IArchiveOpenVolumeCallback {
+        private final int[] volumeSizes;
+        final List<String> openedVolumes = Collections.synchronizedList(new ArrayList<String>());
+        final List<Thread> openingThreads = Collections.synchronizedList(new ArrayList<Thread>());
+        final List<TestVolumeInStream> inStreams = Collections.synchronizedList(new ArrayList<TestVolumeInStream>());
+
+        TestVolumeCallback(int... volumeSizes) {
+            this.volumeSizes = volumeSizes;
+        }
+
+        public Object getProperty(PropID propID) {
+            return null;
+        }
+
+        public IInStream getStream(String filename) {
+            int index = Integer.parseInt(filename.substring(filename.length() - 3));
+            if (index > volumeSizes.length) {
+                return null;
+            }
+            openedVolumes.add(filename);
+            openingThreads.add(Thread.currentThread());
+            int position = 0;
+            for (int i = 0; i < index - 1; i++) {
+                position += volumeSizes[i];
+            }
+            TestVolumeInStream inStream = new TestVolumeInStream(position, volumeSizes[index - 1]);
+            inStreams.add(inStream);
+            return inStream;
+        }
+    }
+
+    private static class TestVolumeInStream extends ByteArrayStream {
+        boolean closed;
+
+        TestVolumeInStream(int position, int size) {
+            super(createContent(position, size), false);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+        }
+
+        private static byte[] createContent(int position, int size) {
+            byte[] content = new byte[size];
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) (position + i);
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Returns a new stream for each volume from the directory of the first volume.
+     */
+    private static class FileVolumeCallback implements IArchiveOpenVolumeCallback {
+        private final File directory;
+
+        FileVolumeCallback(File directory) {
+            this.directory = directory;
+        }
+
+        public Object getProperty(PropID propID) {
+            return null;
+        }
+
+        public IInStream getStream(String filename) throws SevenZipException {
+            File file = new File(directory, new File(filename).getName());
+            if (!file.exists()) {
+                return null;
+            }
+            try {
+                return new PositionalFileInStream(file);
+            } catch (IOException e) {
+                throw new SevenZipException("Error opening " + file, e);
+            }
+        }
+    }
+
+    @Test
+    public void testPrefetchNextVolume() throws Exception {
+        TestVolumeCallback callback = new TestVolumeCallback(100, 100, 100);
+        BufferedVolumedArchiveInStream inStream = closeLater(new BufferedVolumedArchiveInStream("test.7z.001",
+                callback, 10, 4));
+        assertEquals(1, callback.openedVolumes.size());
+        assertEquals(Thread.currentThread(), callback.openingThreads.get(0));
+
+        inStream.seek(80, IInStream.SEEK_SET);
+        assertRead(inStream, 80, 5);
+        assertEquals(1, callback.openedVolumes.size());
+        assertRead(inStream, 85, 10);
+
+        long timeout = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (callback.openedVolumes.size() < 2) {
+            assertTrue("Volume 2 wasn't prefetched", System.currentTimeMillis() < timeout);
+            Thread.sleep(1);
+        }
+        assertEquals("test.7z.002", callback.openedVolumes.get(1));
+        assertNotSame(Thread.currentThread(), callback.openingThreads.get(1));
+        assertRead(inStream, 95, 10);
+        assertEquals(300, inStream.seek(0, IInStream.SEEK_END));
+        assertEquals(3, callback.openedVolumes.size());
+    }
+
+    @Test
+    public void testOpenVolumesCached() throws Exception {
+        TestVolumeCallback callback = new TestVolumeCallback(10, 10, 10, 10);
+        BufferedVolumedArchiveInStream inStream = closeLater(new BufferedVolumedArchiveInStream("test.7z.001",
+                callback, 2, 2));
+        for (int i = 0; i < 5; i++) {
+            inStream.seek(5, IInStream.SEEK_SET);
+            assertRead(inStream, 5, 10);
+            inStream.seek(12, IInStream.SEEK_SET);
+            assertRead(inStream, 12, 3);
+        }
+        assertEquals(2, callback.openedVolumes.size());
+
+        inStream.seek(35, IInStream.SEEK_SET);
+        assertRead(inStream, 35, 5);
+        assertEquals(0, inStream.read(new byte[1]));
+        assertTrue(callback.inStreams.get(0).closed);
+        assertTrue(callback.inStreams.get(1).closed);
+        assertTrue(!callback.inStreams.get(3).closed);
+
+        inStream.close();
+        for (TestVolumeInStream volumeInStream : callback.inStreams) {
+            assertTrue(volumeInStream.closed);
+        }
+        try {
+            inStream.read(new byte[1]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testWrongFirstVolumeName() throws Exception {
+        try {
+            new BufferedVolumedArchiveInStream("test.7z", new TestVolumeCallback(10));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testExtractVolumedArchive() throws Exception {
+        File firstVolume = new File(VOLUMED_ARCHIVE);
+        BufferedVolumedArchiveInStream inStream = closeLater(new BufferedVolumedArchiveInStream(VOLUMED_ARCHIVE,
+                new FileVolumeCallback(firstVolume.getParentFile()), 1024, 2));
+        IInArchive volumedInArchive = closeLater(SevenZip.openInArchive(null, inStream));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, closeLater(new PositionalFileInStream(new File(
+                ARCHIVE)))));
+
+        assertEquals(inArchive.getNumberOfItems(), volumedInArchive.getNumberOfItems());
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            assertEquals(inArchive.getStringProperty(i, PropID.PATH), volumedInArchive.getStringProperty(i,
+                    PropID.PATH));
+            if (Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                continue;
+            }
+            ByteArrayStream expectedOutStream = new ByteArrayStream(Integer.MAX_VALUE);
+            ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, expectedOutStream));
+            assertEquals(ExtractOperationResult.OK, volumedInArchive.extractSlow(i, outStream));
+            assertArrayEquals(expectedOutStream.getBytes(), outStream.getBytes());
+        }
+    }
+
+    private void assertRead(IInStream inStream, int position, int length) throws SevenZipException {
+        byte[] data = new byte[length];
+        int offset = 0;
+        while (offset < length) {
+            byte[] buffer = new byte[length - offset];
+            int read = inStream.read(buffer);
+            assertTrue(read > 0);
+            System.arraycopy(buffer, 0, data, offset, read);
+            offset += read;
+        }
+        for (int i = 0; i < length; i++) {
+            assertEquals((byte) (position + i), data[i]);
+        }
+    }
+}
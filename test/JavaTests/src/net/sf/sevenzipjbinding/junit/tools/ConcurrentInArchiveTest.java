@@ -0,0 +1,124 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.MappedFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.service.ConcurrentInArchive;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class ConcurrentInArchiveTest extends JUnitNativeTestBase {
+    private static final int THREAD_COUNT = 8;
+    private static final int CALLS_PER_THREAD = 20;
+
+    @Test
+    public void testConcurrentExtraction7z() throws Exception {
+        doTestConcurrentExtraction("testdata/multiple-files/7z/archive1.zip.5.7z", 3);
+    }
+
+    @Test
+    public void testConcurrentExtractionZip() throws Exception {
+        doTestConcurrentExtraction("testdata/multiple-files/zip/archive2.zip.5.zip", THREAD_COUNT);
+    }
+
+    @Test
+    public void testSingleInstance() throws Exception {
+        doTestConcurrentExtraction("testdata/multiple-files/zip/archive1.zip.5.zip", 1);
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        MappedFileInStream inStream = closeLater(new MappedFileInStream(new File(
+                "testdata/multiple-files/zip/archive1.zip.5.zip")));
+        ConcurrentInArchive archive = new ConcurrentInArchive(ArchiveFormat.ZIP, inStream, 2);
+        assertEquals(ArchiveFormat.ZIP, archive.getArchiveFormat());
+        archive.close();
+        archive.close();
+        try {
+            archive.getProperty(0, PropID.PATH);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testIllegalInstanceCount() throws Exception {
+        MappedFileInStream inStream = closeLater(new MappedFileInStream(new File(
+                "testdata/multiple-files/zip/archive1.zip.5.zip")));
+        try {
+            new ConcurrentInArchive(null, inStream, 0);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private void doTestConcurrentExtraction(String archiveFilename, int maxInstanceCount) throws Exception {
+        MappedFileInStream inStream = closeLater(new MappedFileInStream(new File(archiveFilename)));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, inStream.cloneStream()));
+        int itemCount = inArchive.getNumberOfItems();
+        final String[] expectedPaths = new String[itemCount];
+        final byte[][] expectedContents = new byte[itemCount][];
+        for (int i = 0; i < itemCount; i++) {
+            expectedPaths[i] = inArchive.getStringProperty(i, PropID.PATH);
+            if (!Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+                assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, outStream));
+                expectedContents[i] = outStream.getBytes();
+            }
+        }
+
+        final ConcurrentInArchive archive = closeLater(new ConcurrentInArchive(null, inStream, maxInstanceCount));
+        assertEquals(inArchive.getArchiveFormat(), archive.getArchiveFormat());
+        assertEquals(itemCount, archive.getNumberOfItems());
+
+        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < threads.length; i++) {
+            final Random random = new Random(i);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                            int index = random.nextInt(expectedPaths.length);
+                            assertEquals(expectedPaths[index], archive.getStringProperty(index, PropID.PATH));
+                            if (expectedContents[index] != null) {
+                                ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+                                assertEquals(ExtractOperationResult.OK, archive.extractSlow(index, outStream));
+                                assertArrayEquals(expectedContents[index], outStream.getBytes());
+                            }
+                        }
+                    } catch (Throwable throwable) {
+                        exceptions.add(throwable);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), exceptions);
+        assertTrue(archive.getInstanceCount() <= maxInstanceCount);
+        assertTrue(archive.getInstanceCount() >= 1);
+    }
+}
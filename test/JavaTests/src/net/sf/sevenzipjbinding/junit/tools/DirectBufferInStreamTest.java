@@ -0,0 +1,157 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+
+import org.junit.Test;
+
+public class DirectBufferInStreamTest extends JUnitNativeTestBase {
+    private static final String TEST_FILE = "testdata/simple/simple2.dat";
+
+    private static class CountingInStream extends RandomAccessFileInStream {
+        int byteArrayReadCount;
+        int directBufferReadCount;
+
+        public CountingInStream(RandomAccessFile randomAccessFile) {
+            super(randomAccessFile);
+        }
+
+        @Override
+        public synchronized int read(byte[] data) throws SevenZipException {
+            byteArrayReadCount++;
+            return super.read(data);
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer buffer) throws SevenZipException {
+            directBufferReadCount++;
+            assertTrue(buffer.isDirect());
+            assertEquals(0, buffer.position());
+            return super.read(buffer);
+        }
+    }
+
+    private static class ByteArrayOnlyInStream implements IInStream {
+        private final IInStream inStream;
+        int byteArrayReadCount;
+
+        public ByteArrayOnlyInStream(IInStream inStream) {
+            this.inStream = inStream;
+        }
+
+        public long seek(long offset, int seekOrigin) throws SevenZipException {
+            return inStream.seek(offset, seekOrigin);
+        }
+
+        public int read(byte[] data) throws SevenZipException {
+            byteArrayReadCount++;
+            return inStream.read(data);
+        }
+
+        public void close() {
+        }
+    }
+
+    private static class LeavePositionInStream extends RandomAccessFileInStream {
+        public LeavePositionInStream(RandomAccessFile randomAccessFile) {
+            super(randomAccessFile);
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer buffer) throws SevenZipException {
+            int read = super.read(buffer);
+            // Move position and limit around. Native side should reset them before the next call.
+            buffer.limit(buffer.position());
+            buffer.position(buffer.limit() / 2);
+            return read;
+        }
+    }
+
+    @Test
+    public void testDirectBufferReadIsUsed7z() throws Exception {
+        CountingInStream inStream = new CountingInStream(openArchiveFile("7z/simple2.dat.5.7z"));
+        extractAndCheck(ArchiveFormat.SEVEN_ZIP, inStream);
+        assertTrue(inStream.directBufferReadCount > 0);
+        assertEquals(0, inStream.byteArrayReadCount);
+    }
+
+    @Test
+    public void testDirectBufferReadIsUsedZip() throws Exception {
+        CountingInStream inStream = new CountingInStream(openArchiveFile("zip/simple2.dat.5.zip"));
+        extractAndCheck(ArchiveFormat.ZIP, inStream);
+        assertTrue(inStream.directBufferReadCount > 0);
+        assertEquals(0, inStream.byteArrayReadCount);
+    }
+
+    @Test
+    public void testDirectBufferReadWithAutodetection() throws Exception {
+        CountingInStream inStream = new CountingInStream(openArchiveFile("7z/simple2.dat.9.7z"));
+        extractAndCheck(null, inStream);
+        assertTrue(inStream.directBufferReadCount > 0);
+    }
+
+    @Test
+    public void testDirectBufferPositionAndLimitAreReset() throws Exception {
+        extractAndCheck(ArchiveFormat.SEVEN_ZIP, new LeavePositionInStream(openArchiveFile("7z/simple2.dat.5.7z")));
+    }
+
+    @Test
+    public void testByteArrayReadStillWorks() throws Exception {
+        ByteArrayOnlyInStream inStream = new ByteArrayOnlyInStream(new RandomAccessFileInStream(
+                openArchiveFile("7z/simple2.dat.5.7z")));
+        extractAndCheck(ArchiveFormat.SEVEN_ZIP, inStream);
+        assertTrue(inStream.byteArrayReadCount > 0);
+    }
+
+    private RandomAccessFile openArchiveFile(String filename) throws Exception {
+        return closeLater(new RandomAccessFile("testdata/simple/" + filename, "r"));
+    }
+
+    private void extractAndCheck(ArchiveFormat archiveFormat, IInStream inStream) throws Exception {
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(archiveFormat, inStream));
+        assertEquals(1, inArchive.getNumberOfItems());
+
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        ExtractOperationResult result = inArchive.extractSlow(0, new ISequentialOutStream() {
+            public int write(byte[] data) throws SevenZipException {
+                byteArrayOutputStream.write(data, 0, data.length);
+                return data.length;
+            }
+        });
+        assertEquals(ExtractOperationResult.OK, result);
+        assertArrayEquals(readExpectedContent(), byteArrayOutputStream.toByteArray());
+    }
+
+    private byte[] readExpectedContent() throws Exception {
+        File file = new File(TEST_FILE);
+        byte[] content = new byte[(int) file.length()];
+        FileInputStream fileInputStream = closeLater(new FileInputStream(file));
+        int offset = 0;
+        while (offset < content.length) {
+            int read = fileInputStream.read(content, offset, content.length - offset);
+            if (read == -1) {
+                break;
+            }
+            offset += read;
+        }
+        assertEquals(content.length, offset);
+        return content;
+    }
+}
@@ -0,0 +1,187 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IDirectBufferSequentialOutStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileOutStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+
+import org.junit.Test;
+
+public class DirectBufferOutStreamTest extends JUnitNativeTestBase {
+    private static final String MULTIPLE_FILES_ARCHIVE = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final String SINGLE_FILE_ARCHIVE = "testdata/simple/7z/simple2.dat.5.7z";
+    private static final String SINGLE_FILE = "testdata/simple/simple2.dat";
+
+    private static class ByteArrayOutStream implements ISequentialOutStream {
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+
+        public int write(byte[] data) throws SevenZipException {
+            byteArrayOutputStream.write(data, 0, data.length);
+            return data.length;
+        }
+    }
+
+    private static class DirectBufferOutStream extends ByteArrayOutStream implements IDirectBufferSequentialOutStream {
+        private final int maxBytesPerWrite;
+        int byteArrayWriteCount;
+        int directBufferWriteCount;
+        ByteBuffer lastBuffer;
+
+        public DirectBufferOutStream(int maxBytesPerWrite) {
+            this.maxBytesPerWrite = maxBytesPerWrite;
+        }
+
+        @Override
+        public int write(byte[] data) throws SevenZipException {
+            byteArrayWriteCount++;
+            return super.write(data);
+        }
+
+        public int write(ByteBuffer data) throws SevenZipException {
+            directBufferWriteCount++;
+            assertTrue(data.isDirect());
+            assertEquals(0, data.position());
+            assertTrue(data.remaining() > 0);
+            lastBuffer = data;
+
+            int length = Math.min(data.remaining(), maxBytesPerWrite);
+            byte[] bytes = new byte[length];
+            data.get(bytes);
+
+            // Leave the buffer in a strange state. Native side should reset it before the next call.
+            data.limit(data.position());
+            return super.write(bytes);
+        }
+    }
+
+    private static abstract class ExtractCallback implements IArchiveExtractCallback {
+        final Map<Integer, ByteArrayOutStream> outStreams = new HashMap<Integer, ByteArrayOutStream>();
+
+        abstract ByteArrayOutStream createOutStream();
+
+        public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
+            if (extractAskMode != ExtractAskMode.EXTRACT) {
+                return null;
+            }
+            ByteArrayOutStream outStream = createOutStream();
+            outStreams.put(Integer.valueOf(index), outStream);
+            return outStream;
+        }
+
+        public void prepareOperation(ExtractAskMode extractAskMode) throws SevenZipException {
+        }
+
+        public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+            assertEquals(ExtractOperationResult.OK, extractOperationResult);
+        }
+
+        public void setCompleted(long complete) throws SevenZipException {
+        }
+
+        public void setTotal(long total) throws SevenZipException {
+        }
+    }
+
+    @Test
+    public void testDirectBufferWriteIsUsed() throws Exception {
+        checkExtractionWithDirectBuffer(Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testDirectBufferPartialWrites() throws Exception {
+        checkExtractionWithDirectBuffer(7);
+    }
+
+    @Test
+    public void testRandomAccessFileOutStream() throws Exception {
+        IInArchive inArchive = openArchive(SINGLE_FILE_ARCHIVE);
+        File outputFile = File.createTempFile("sevenzipjbinding-", ".tmp");
+        outputFile.deleteOnExit();
+        RandomAccessFileOutStream outStream = new RandomAccessFileOutStream(new RandomAccessFile(outputFile, "rw"));
+        try {
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(0, outStream));
+        } finally {
+            outStream.close();
+        }
+
+        assertArrayEquals(readFile(new File(SINGLE_FILE)), readFile(outputFile));
+        outputFile.delete();
+    }
+
+    private void checkExtractionWithDirectBuffer(final int maxBytesPerWrite) throws Exception {
+        IInArchive inArchive = openArchive(MULTIPLE_FILES_ARCHIVE);
+
+        ExtractCallback byteArrayCallback = new ExtractCallback() {
+            @Override
+            ByteArrayOutStream createOutStream() {
+                return new ByteArrayOutStream();
+            }
+        };
+        inArchive.extract(null, false, byteArrayCallback);
+
+        ExtractCallback directBufferCallback = new ExtractCallback() {
+            @Override
+            ByteArrayOutStream createOutStream() {
+                return new DirectBufferOutStream(maxBytesPerWrite);
+            }
+        };
+        inArchive.extract(null, false, directBufferCallback);
+
+        assertEquals(byteArrayCallback.outStreams.keySet(), directBufferCallback.outStreams.keySet());
+        Map<ByteBuffer, Object> usedBuffers = new IdentityHashMap<ByteBuffer, Object>();
+        int nonEmptyItems = 0;
+        for (Integer index : byteArrayCallback.outStreams.keySet()) {
+            byte[] expected = byteArrayCallback.outStreams.get(index).byteArrayOutputStream.toByteArray();
+            DirectBufferOutStream outStream = (DirectBufferOutStream) directBufferCallback.outStreams.get(index);
+            assertArrayEquals("Item " + index + " (" + inArchive.getProperty(index.intValue(), PropID.PATH) + ")",
+                    expected, outStream.byteArrayOutputStream.toByteArray());
+            assertEquals(0, outStream.byteArrayWriteCount);
+            if (expected.length == 0) {
+                continue;
+            }
+            nonEmptyItems++;
+            assertTrue(outStream.directBufferWriteCount > 0);
+            usedBuffers.put(outStream.lastBuffer, null);
+        }
+        assertTrue(nonEmptyItems > 1);
+
+        // Same buffer is reused for all out-streams of the extraction
+        assertEquals(1, usedBuffers.size());
+    }
+
+    private IInArchive openArchive(String filename) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        return closeLater(SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile)));
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(content);
+            return content;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
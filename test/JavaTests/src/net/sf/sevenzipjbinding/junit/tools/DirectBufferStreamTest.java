@@ -0,0 +1,352 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Random;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItem7z;
+import net.sf.sevenzipjbinding.ISeekableStream;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+import net.sf.sevenzipjbinding.util.DirectBufferStream;
+
+import org.junit.Test;
+
+public class DirectBufferStreamTest extends JUnitNativeTestBase {
+    private static final String ARCHIVE_7Z = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final String TEST_FILE = "testdata/simple/simple2.dat";
+    private static final int SEGMENT_SIZE = 7;
+
+    @Test
+    public void testWriteAndReadAcrossSegments() throws Exception {
+        byte[] content = newContent(1000);
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        Random random = new Random(0);
+        int position = 0;
+        while (position < content.length) {
+            int length = Math.min(random.nextInt(20), content.length - position);
+            if (random.nextBoolean()) {
+                assertEquals(length, stream.write(content, position, length));
+            } else {
+                assertEquals(length, stream.write(ByteBuffer.wrap(content, position, length)));
+            }
+            position += length;
+        }
+        assertEquals(content.length, stream.getSize());
+        assertEquals(content.length, stream.getCurrentPosition());
+
+        stream.rewind();
+        byte[] result = new byte[content.length];
+        position = 0;
+        while (position < content.length) {
+            int length = Math.min(random.nextInt(20) + 1, content.length - position);
+            if (random.nextBoolean()) {
+                assertEquals(length, stream.read(result, position, length));
+            } else {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+                assertEquals(length, stream.read(buffer));
+                buffer.flip();
+                buffer.get(result, position, length);
+            }
+            position += length;
+        }
+        assertArrayEquals(content, result);
+        assertEquals(0, stream.read(new byte[10]));
+        assertEquals(0, stream.read(ByteBuffer.allocateDirect(10)));
+    }
+
+    @Test
+    public void testSeekBeyondEndAndWrite() throws Exception {
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        stream.write(new byte[] { 1, 2, 3 });
+        assertEquals(30, stream.seek(27, ISeekableStream.SEEK_CUR));
+        assertEquals(3, stream.getSize());
+        assertEquals(0, stream.read(new byte[10]));
+        stream.write(new byte[] { 4 });
+        assertEquals(31, stream.getSize());
+
+        byte[] expected = new byte[31];
+        expected[0] = 1;
+        expected[1] = 2;
+        expected[2] = 3;
+        expected[30] = 4;
+        assertArrayEquals(expected, readAll(stream));
+        assertEquals(29, stream.seek(-2, ISeekableStream.SEEK_END));
+    }
+
+    @Test
+    public void testSetSize() throws Exception {
+        byte[] content = newContent(100);
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        stream.write(content);
+        stream.setSize(52);
+        assertEquals(52, stream.getSize());
+        stream.setSize(80);
+        assertEquals(80, stream.getSize());
+
+        byte[] expected = new byte[80];
+        System.arraycopy(content, 0, expected, 0, 52);
+        assertArrayEquals(expected, readAll(stream));
+
+        stream.setSize(0);
+        assertEquals(0, stream.getSize());
+        assertEquals(0, stream.getByteBuffers().length);
+    }
+
+    @Test
+    public void testGetByteBuffers() throws Exception {
+        byte[] content = newContent(30);
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        stream.write(content);
+        ByteBuffer[] byteBuffers = stream.getByteBuffers();
+        assertEquals(5, byteBuffers.length);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        for (int i = 0; i < byteBuffers.length; i++) {
+            assertTrue(byteBuffers[i].isDirect());
+            assertTrue(byteBuffers[i].isReadOnly());
+            assertEquals(i < 4 ? SEGMENT_SIZE : 2, byteBuffers[i].remaining());
+            byte[] bytes = new byte[byteBuffers[i].remaining()];
+            byteBuffers[i].get(bytes);
+            outputStream.write(bytes);
+        }
+        assertArrayEquals(content, outputStream.toByteArray());
+
+        // No copy: changes are visible through the exported buffers
+        stream.seek(0, ISeekableStream.SEEK_SET);
+        stream.write(new byte[] { 42 });
+        assertEquals(42, byteBuffers[0].get(0));
+    }
+
+    @Test
+    public void testChannels() throws Exception {
+        byte[] content = newContent(1000);
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        stream.writeFromChannel(Channels.newChannel(new ByteArrayInputStream(content)));
+        assertEquals(content.length, stream.getSize());
+        assertEquals(content.length, stream.getCurrentPosition());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        stream.writeToChannel(Channels.newChannel(outputStream));
+        assertArrayEquals(content, outputStream.toByteArray());
+    }
+
+    @Test
+    public void testChannelEndingOnSegmentBoundary() throws Exception {
+        byte[] content = newContent(3 * SEGMENT_SIZE);
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, Long.MAX_VALUE);
+        stream.writeFromChannel(Channels.newChannel(new ByteArrayInputStream(content)));
+        assertEquals(content.length, stream.getSize());
+        assertEquals(3, getAllocatedSegmentCount(stream));
+        assertArrayEquals(content, readAll(stream));
+
+        stream.seek(10 * SEGMENT_SIZE, ISeekableStream.SEEK_SET);
+        stream.writeFromChannel(Channels.newChannel(new ByteArrayInputStream(new byte[0])));
+        assertEquals(content.length, stream.getSize());
+        assertEquals(3, getAllocatedSegmentCount(stream));
+    }
+
+    @Test
+    public void testGetByteBuffersWithHoles() throws Exception {
+        int segmentSize = 16 * 1024 * 1024;
+        long size = 64L * 1024 * 1024 * 1024;
+        DirectBufferStream stream = new DirectBufferStream(segmentSize, Long.MAX_VALUE);
+        stream.write(new byte[] { 1, 2, 3 });
+        stream.setSize(size);
+
+        ByteBuffer[] byteBuffers = stream.getByteBuffers();
+        assertEquals(size / segmentSize, byteBuffers.length);
+        assertEquals(1, getAllocatedSegmentCount(stream));
+        assertEquals(1, byteBuffers[0].get(0));
+        for (int i = 1; i < byteBuffers.length; i++) {
+            assertTrue(byteBuffers[i].isReadOnly());
+            assertEquals(segmentSize, byteBuffers[i].remaining());
+        }
+        assertEquals(0, byteBuffers[1].get(0));
+        assertEquals(0, byteBuffers[byteBuffers.length - 1].get(segmentSize - 1));
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+        DirectBufferStream stream = new DirectBufferStream(SEGMENT_SIZE, 10);
+        stream.write(new byte[10]);
+        try {
+            stream.write(new byte[1]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        try {
+            stream.seek(11, ISeekableStream.SEEK_SET);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        try {
+            stream.setSize(11);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        stream.truncate();
+        try {
+            stream.writeFromChannel(Channels.newChannel(new ByteArrayInputStream(new byte[11])));
+            fail("Exception expected");
+        } catch (IOException e) {
+            // Expected
+        }
+        assertEquals(10, stream.getSize());
+    }
+
+    @Test
+    public void testPositionsBeyond2GB() throws Exception {
+        long position = 3L * 1024 * 1024 * 1024 + 5;
+        DirectBufferStream stream = new DirectBufferStream(1024, Long.MAX_VALUE);
+        assertEquals(position, stream.seek(position, ISeekableStream.SEEK_SET));
+        stream.write(new byte[] { 1, 2, 3 });
+        assertEquals(position + 3, stream.getSize());
+
+        stream.seek(position - 2, ISeekableStream.SEEK_SET);
+        byte[] result = new byte[10];
+        assertEquals(5, stream.read(result));
+        assertArrayEquals(new byte[] { 0, 0, 1, 2, 3, 0, 0, 0, 0, 0 }, result);
+        assertEquals(position + 3, stream.getCurrentPosition());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        DirectBufferStream stream = new DirectBufferStream();
+        stream.write(new byte[] { 1 });
+        stream.close();
+        try {
+            stream.write(new byte[] { 1 });
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testExtract() throws Exception {
+        DirectBufferStream inStream = closeLater(new DirectBufferStream(1000, Long.MAX_VALUE));
+        FileInputStream fileInputStream = new FileInputStream(ARCHIVE_7Z);
+        try {
+            inStream.writeFromChannel(fileInputStream.getChannel());
+        } finally {
+            fileInputStream.close();
+        }
+        inStream.rewind();
+
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, inStream));
+        ByteArrayStream expectedInStream = new ByteArrayStream(readFile(new File(ARCHIVE_7Z)), false);
+        IInArchive expectedInArchive = closeLater(SevenZip.openInArchive(null, expectedInStream));
+        assertEquals(expectedInArchive.getNumberOfItems(), inArchive.getNumberOfItems());
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            if (Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                continue;
+            }
+            ByteArrayStream expectedOutStream = new ByteArrayStream(Integer.MAX_VALUE);
+            DirectBufferStream outStream = new DirectBufferStream(1000, Long.MAX_VALUE);
+            assertEquals(ExtractOperationResult.OK, expectedInArchive.extractSlow(i, expectedOutStream));
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, outStream));
+            assertArrayEquals(expectedOutStream.getBytes(), readAll(outStream));
+        }
+    }
+
+    @Test
+    public void testCompress() throws Exception {
+        final byte[] content = readFile(new File(TEST_FILE));
+        DirectBufferStream outStream = closeLater(new DirectBufferStream(1000, Long.MAX_VALUE));
+        IOutCreateArchive7z outArchive = closeLater(SevenZip.openOutArchive7z());
+        outArchive.createArchive(outStream, 1, new IOutCreateCallback<IOutItem7z>() {
+            public void setTotal(long total) {
+            }
+
+            public void setCompleted(long complete) {
+            }
+
+            public void setOperationResult(boolean operationResultOk) {
+                assertTrue(operationResultOk);
+            }
+
+            public IOutItem7z getItemInformation(int index, OutItemFactory<IOutItem7z> outItemFactory) {
+                IOutItem7z outItem = outItemFactory.createOutItem();
+                outItem.setDataSize(Long.valueOf(content.length));
+                outItem.setPropertyPath("content.dat");
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) {
+                return new ByteArrayStream(content, false);
+            }
+        });
+        assertFalse(outStream.getSize() == 0);
+
+        outStream.rewind();
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, outStream));
+        assertEquals(1, inArchive.getNumberOfItems());
+        DirectBufferStream extractedStream = new DirectBufferStream(1000, Long.MAX_VALUE);
+        assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(0, extractedStream));
+        assertArrayEquals(content, readAll(extractedStream));
+    }
+
+    private static int getAllocatedSegmentCount(DirectBufferStream stream) throws Exception {
+        Field segmentsField = DirectBufferStream.class.getDeclaredField("segments");
+        segmentsField.setAccessible(true);
+        int count = 0;
+        for (ByteBuffer segment : (ByteBuffer[]) segmentsField.get(stream)) {
+            if (segment != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static byte[] newContent(int length) {
+        byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] readAll(DirectBufferStream stream) {
+        byte[] result = new byte[(int) stream.getSize()];
+        stream.rewind();
+        assertEquals(result.length, stream.read(result));
+        return result;
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,315 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IArchiveExtractCallbackFactory;
+import net.sf.sevenzipjbinding.ICloneableInStream;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItem7z;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.MappedFileInStream;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.junit.tools.VirtualContent.VirtualContentConfiguration;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class ExtractParallelTest extends JUnitNativeTestBase {
+    private static final int THREAD_COUNT = 4;
+
+    private static class CloneableByteArrayStream extends ByteArrayStream implements ICloneableInStream {
+        CloneableByteArrayStream(byte[] content) {
+            super(content, false);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public IInStream cloneStream() {
+            return new CloneableByteArrayStream(getBytes());
+        }
+    }
+
+    private static class ExtractCallbackFactory implements IArchiveExtractCallbackFactory {
+        final byte[][] extractedContents;
+        final List<int[]> workerIndices = Collections.synchronizedList(new ArrayList<int[]>());
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        volatile int failIndex = -1;
+
+        ExtractCallbackFactory(int itemCount) {
+            extractedContents = new byte[itemCount][];
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        public IArchiveExtractCallback createExtractCallback(int[] indices) {
+            workerIndices.add(indices);
+            return new IArchiveExtractCallback() {
+                private int index;
+
+                public ISequentialOutStream getStream(final int index, ExtractAskMode extractAskMode)
+                        throws SevenZipException {
+                    threads.add(Thread.currentThread());
+                    this.index = index;
+                    if (index == failIndex) {
+                        throw new SevenZipException("Test exception");
+                    }
+                    if (extractAskMode != ExtractAskMode.EXTRACT) {
+                        return null;
+                    }
+                    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                    extractedContents[index] = new byte[0];
+                    return new ISequentialOutStream() {
+                        public int write(byte[] data) {
+                            outputStream.write(data, 0, data.length);
+                            extractedContents[index] = outputStream.toByteArray();
+                            return data.length;
+                        }
+                    };
+                }
+
+                public void prepareOperation(ExtractAskMode extractAskMode) {
+                }
+
+                public void setOperationResult(ExtractOperationResult extractOperationResult) {
+                    assertEquals("Item " + index, ExtractOperationResult.OK, extractOperationResult);
+                }
+
+                public void setTotal(long total) {
+                }
+
+                public void setCompleted(long complete) {
+                }
+            };
+        }
+    }
+
+    @Test
+    public void testSolidBlocks7z() throws Exception {
+        byte[] archiveContent = create7zArchive(true);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        assertTrue(getBlockCount(inArchive) > 1);
+        ExtractCallbackFactory factory = checkExtractParallel(inArchive, null);
+        assertEquals(THREAD_COUNT, factory.workerIndices.size());
+        assertTrue(factory.threads.size() > 1);
+    }
+
+    @Test
+    public void testNonSolid7z() throws Exception {
+        byte[] archiveContent = create7zArchive(false);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        ExtractCallbackFactory factory = checkExtractParallel(inArchive, null);
+        assertEquals(THREAD_COUNT, factory.workerIndices.size());
+    }
+
+    @Test
+    public void testSomeItems7z() throws Exception {
+        byte[] archiveContent = create7zArchive(true);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        int[] indices = new int[inArchive.getNumberOfItems() / 2];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indices.length * 2 - 1 - 2 * i;
+        }
+        checkExtractParallel(inArchive, indices);
+    }
+
+    @Test
+    public void testZipMappedFile() throws Exception {
+        MappedFileInStream inStream = closeLater(new MappedFileInStream(new File(
+                "testdata/multiple-files/zip/archive1.zip.5.zip")));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.ZIP, inStream));
+        ExtractCallbackFactory factory = checkExtractParallel(inArchive, null);
+        assertEquals(THREAD_COUNT, factory.workerIndices.size());
+    }
+
+    @Test
+    public void testSingleThread() throws Exception {
+        byte[] archiveContent = create7zArchive(true);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        ExtractCallbackFactory factory = new ExtractCallbackFactory(inArchive.getNumberOfItems());
+        inArchive.extractParallel(null, 1, factory);
+        assertEquals(1, factory.workerIndices.size());
+        assertEquals(Collections.singleton(Thread.currentThread()), factory.threads);
+    }
+
+    @Test
+    public void testClosedArchive() throws Exception {
+        IInArchive inArchive = SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, new CloneableByteArrayStream(
+                create7zArchive(true)));
+        int numberOfItems = inArchive.getNumberOfItems();
+        inArchive.close();
+        try {
+            inArchive.extractParallel(null, THREAD_COUNT, new ExtractCallbackFactory(numberOfItems));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            assertEquals("Archive was closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testNotCloneableStream() throws Exception {
+        byte[] archiveContent = create7zArchive(true);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP, new ByteArrayStream(
+                archiveContent, false)));
+        ExtractCallbackFactory factory = checkExtractParallel(inArchive, null);
+        assertEquals(1, factory.workerIndices.size());
+        assertEquals(Collections.singleton(Thread.currentThread()), factory.threads);
+    }
+
+    @Test
+    public void testException() throws Exception {
+        byte[] archiveContent = create7zArchive(false);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        ExtractCallbackFactory factory = new ExtractCallbackFactory(inArchive.getNumberOfItems());
+        factory.failIndex = inArchive.getNumberOfItems() - 1;
+        try {
+            inArchive.extractParallel(null, THREAD_COUNT, factory);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            Throwable cause = e;
+            while (cause != null && !"Test exception".equals(cause.getMessage())) {
+                cause = cause.getCause();
+            }
+            assertNotNull(cause);
+        }
+
+        // The archive is still usable
+        checkExtractParallel(inArchive, null);
+    }
+
+    @Test
+    public void testIllegalThreadCount() throws Exception {
+        byte[] archiveContent = create7zArchive(false);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.SEVEN_ZIP,
+                new CloneableByteArrayStream(archiveContent)));
+        try {
+            inArchive.extractParallel(null, 0, new ExtractCallbackFactory(inArchive.getNumberOfItems()));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    private ExtractCallbackFactory checkExtractParallel(IInArchive inArchive, int[] indices) throws Exception {
+        int itemCount = inArchive.getNumberOfItems();
+        ExtractCallbackFactory factory = new ExtractCallbackFactory(itemCount);
+        inArchive.extractParallel(indices, THREAD_COUNT, factory);
+
+        Set<Integer> expectedIndices = new HashSet<Integer>();
+        for (int i = 0; i < itemCount; i++) {
+            if (indices == null) {
+                expectedIndices.add(Integer.valueOf(i));
+            }
+        }
+        if (indices != null) {
+            for (int index : indices) {
+                expectedIndices.add(Integer.valueOf(index));
+            }
+        }
+
+        Set<Integer> extractedIndices = new HashSet<Integer>();
+        for (int[] workerIndices : factory.workerIndices) {
+            assertTrue(workerIndices.length > 0);
+            for (int i = 0; i < workerIndices.length; i++) {
+                assertTrue(i == 0 || workerIndices[i - 1] < workerIndices[i]);
+                assertTrue(extractedIndices.add(Integer.valueOf(workerIndices[i])));
+            }
+        }
+        assertEquals(expectedIndices, extractedIndices);
+
+        for (int i = 0; i < itemCount; i++) {
+            if (Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                continue;
+            }
+            if (!expectedIndices.contains(Integer.valueOf(i))) {
+                assertSame(null, factory.extractedContents[i]);
+                continue;
+            }
+            ByteArrayStream expected = new ByteArrayStream(Integer.MAX_VALUE);
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, expected));
+            assertNotNull("Item " + i, factory.extractedContents[i]);
+            assertArrayEquals("Item " + i, expected.getBytes(), factory.extractedContents[i]);
+        }
+        return factory;
+    }
+
+    private int getBlockCount(IInArchive inArchive) throws SevenZipException {
+        Set<Object> blocks = new HashSet<Object>();
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            blocks.add(inArchive.getProperty(i, PropID.BLOCK));
+        }
+        return blocks.size();
+    }
+
+    private byte[] create7zArchive(boolean solid) throws Exception {
+        final VirtualContent virtualContent = new VirtualContent(new VirtualContentConfiguration());
+        virtualContent.fillRandomly(30, 2, 3, 10000, 1000, null);
+
+        ByteArrayStream byteArrayStream = new ByteArrayStream(10000000);
+        IOutCreateArchive7z outArchive = closeLater(SevenZip.openOutArchive7z());
+        outArchive.setLevel(1);
+        outArchive.setSolid(solid);
+        if (solid) {
+            outArchive.setSolidFiles(4);
+        }
+        outArchive.createArchive(byteArrayStream, virtualContent.getItemCount(), new IOutCreateCallback<IOutItem7z>() {
+            public void setOperationResult(boolean operationResultOk) {
+                assertTrue(operationResultOk);
+            }
+
+            public void setTotal(long total) {
+            }
+
+            public void setCompleted(long complete) {
+            }
+
+            public IOutItem7z getItemInformation(int index, OutItemFactory<IOutItem7z> outItemFactory) {
+                ByteArrayStream itemStream = virtualContent.getItemStream(index);
+                IOutItem7z outItem = outItemFactory.createOutItem();
+                outItem.setDataSize(Long.valueOf(itemStream.getSize()));
+                outItem.setPropertyPath(virtualContent.getItemPath(index));
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) {
+                ByteArrayStream itemStream = virtualContent.getItemStream(index);
+                itemStream.rewind();
+                return itemStream;
+            }
+        });
+        assertFalse(byteArrayStream.getSize() == 0);
+        return byteArrayStream.getBytes();
+    }
+}
@@ -0,0 +1,345 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.ICryptoGetTextPassword;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateArchive7z;
+import net.sf.sevenzipjbinding.IOutCreateArchiveZip;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItem7z;
+import net.sf.sevenzipjbinding.IOutItemZip;
+import net.sf.sevenzipjbinding.IProgress;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExtractToDirectoryTest extends JUnitNativeTestBase {
+    private static final String ARCHIVE = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final String PASSWORD_ARCHIVE = "testdata/multiple-files/7z/pass-archive1.zip.5.7z";
+    private static final String PASSWORD = "TestPass";
+    private static final int FILE_ATTRIBUTE_UNIX_EXTENSION = 0x8000;
+    private static final int UNIX_SYMBOLIC_LINK_MODE = 0120777;
+
+    private static class ProgressTester implements IProgress {
+        long total = -1;
+        int setTotalCount;
+        List<Long> completedValues = new ArrayList<Long>();
+
+        public void setTotal(long total) throws SevenZipException {
+            this.total = total;
+            setTotalCount++;
+        }
+
+        public void setCompleted(long complete) throws SevenZipException {
+            completedValues.add(Long.valueOf(complete));
+        }
+    }
+
+    private static class PasswordProgress extends ProgressTester implements ICryptoGetTextPassword {
+        public String cryptoGetTextPassword() throws SevenZipException {
+            return PASSWORD;
+        }
+    }
+
+    private File targetDirectory;
+
+    @Before
+    public void createTargetDirectory() throws Exception {
+        targetDirectory = File.createTempFile("sevenzipjbinding-", "-extract");
+        assertTrue(targetDirectory.delete());
+        targetDirectory = new File(targetDirectory, "target");
+    }
+
+    @After
+    public void deleteTargetDirectory() {
+        delete(targetDirectory.getParentFile());
+    }
+
+    @Test
+    public void testExtractAllItems() throws Exception {
+        IInArchive inArchive = openArchive(ARCHIVE);
+        ProgressTester progress = new ProgressTester();
+        inArchive.extractToDirectory(null, targetDirectory, progress);
+
+        int fileCount = 0;
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            fileCount += checkItem(inArchive, i, null);
+        }
+        assertTrue(fileCount > 1);
+
+        assertEquals(1, progress.setTotalCount);
+        assertTrue(progress.completedValues.size() > 0);
+        assertTrue(progress.completedValues.size() <= 102);
+        assertEquals(progress.total, progress.completedValues.get(progress.completedValues.size() - 1).longValue());
+    }
+
+    @Test
+    public void testExtractSomeItems() throws Exception {
+        IInArchive inArchive = openArchive(ARCHIVE);
+        List<Integer> fileIndices = new ArrayList<Integer>();
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            if (!((Boolean) inArchive.getProperty(i, PropID.IS_FOLDER)).booleanValue()) {
+                fileIndices.add(Integer.valueOf(i));
+            }
+        }
+        int[] indices = new int[] { fileIndices.get(fileIndices.size() - 1).intValue(),
+                fileIndices.get(0).intValue() };
+        inArchive.extractToDirectory(indices, targetDirectory, null);
+
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            File file = new File(targetDirectory, (String) inArchive.getProperty(i, PropID.PATH));
+            if (i == indices[0] || i == indices[1]) {
+                checkItem(inArchive, i, null);
+            } else if (!((Boolean) inArchive.getProperty(i, PropID.IS_FOLDER)).booleanValue()) {
+                assertFalse(file.exists());
+            }
+        }
+    }
+
+    @Test
+    public void testExtractWithPassword() throws Exception {
+        IInArchive inArchive = openArchive(PASSWORD_ARCHIVE);
+        inArchive.extractToDirectory(null, targetDirectory, new PasswordProgress());
+
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            checkItem(inArchive, i, PASSWORD);
+        }
+    }
+
+    @Test
+    public void testExtractWithWrongPassword() throws Exception {
+        IInArchive inArchive = openArchive(PASSWORD_ARCHIVE);
+        try {
+            inArchive.extractToDirectory(null, targetDirectory, new PasswordProgress() {
+                @Override
+                public String cryptoGetTextPassword() throws SevenZipException {
+                    return "wrong";
+                }
+            });
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testPathOutsideTargetDirectoryIsRejected() throws Exception {
+        ByteArrayStream archiveStream = createZipArchive("../outside.txt", "content".getBytes());
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, archiveStream));
+        try {
+            inArchive.extractToDirectory(null, targetDirectory, null);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("outside of the target directory"));
+        }
+        assertFalse(new File(targetDirectory.getParentFile(), "outside.txt").exists());
+    }
+
+    @Test
+    public void testAbsolutePathExtractedRelative() throws Exception {
+        byte[] content = "absolute".getBytes();
+        ByteArrayStream archiveStream = createZipArchive("/dir/absolute.txt", content);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, archiveStream));
+        inArchive.extractToDirectory(null, targetDirectory, null);
+        assertArrayEquals(content, readFile(new File(targetDirectory, "dir/absolute.txt")));
+    }
+
+    @Test
+    public void testSymbolicLinkItemExtractedAsFile() throws Exception {
+        File outsideDirectory = new File(targetDirectory.getParentFile(), "outside");
+        assertTrue(outsideDirectory.mkdirs());
+        byte[] linkContent = outsideDirectory.getAbsolutePath().getBytes();
+        ByteArrayStream archiveStream = create7zArchive(new String[] { "link", "link/passwd" }, new byte[][] {
+                linkContent, "content".getBytes() }, new Integer[] {
+                Integer.valueOf(FILE_ATTRIBUTE_UNIX_EXTENSION | UNIX_SYMBOLIC_LINK_MODE << 16), null });
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, archiveStream));
+        try {
+            inArchive.extractToDirectory(null, targetDirectory, null);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected: 'link' is a regular file, so 'link/passwd' can't be created
+        }
+
+        File link = new File(targetDirectory, "link");
+        assertTrue(link.isFile());
+        assertEquals(new File(targetDirectory.getCanonicalFile(), "link").getPath(), link.getCanonicalPath());
+        assertArrayEquals(linkContent, readFile(link));
+        assertEquals(0, outsideDirectory.list().length);
+    }
+
+    @Test
+    public void testPathWithExistingSymbolicLinkIsRejected() throws Exception {
+        assumeTrue(File.separatorChar == '/');
+        File outsideDirectory = new File(targetDirectory.getParentFile(), "outside");
+        assertTrue(outsideDirectory.mkdirs());
+        assertTrue(targetDirectory.mkdirs());
+        createSymbolicLink(new File(targetDirectory, "dir"), outsideDirectory);
+        createSymbolicLink(new File(targetDirectory, "file.txt"), new File(outsideDirectory, "file.txt"));
+
+        String[] paths = new String[] { "dir/file.txt", "file.txt" };
+        for (String path : paths) {
+            ByteArrayStream archiveStream = create7zArchive(new String[] { path },
+                    new byte[][] { "content".getBytes() }, new Integer[] { null });
+            IInArchive inArchive = closeLater(SevenZip.openInArchive(null, archiveStream));
+            try {
+                inArchive.extractToDirectory(null, targetDirectory, null);
+                fail("Exception expected");
+            } catch (SevenZipException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("symbolic link"));
+            }
+        }
+        assertEquals(0, outsideDirectory.list().length);
+    }
+
+    @Test
+    public void testInvalidIndex() throws Exception {
+        IInArchive inArchive = openArchive(ARCHIVE);
+        try {
+            inArchive.extractToDirectory(new int[] { inArchive.getNumberOfItems() }, targetDirectory, null);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private int checkItem(IInArchive inArchive, int index, String password) throws Exception {
+        File file = new File(targetDirectory, (String) inArchive.getProperty(index, PropID.PATH));
+        assertTrue(file.getPath(), file.exists());
+        if (((Boolean) inArchive.getProperty(index, PropID.IS_FOLDER)).booleanValue()) {
+            assertTrue(file.isDirectory());
+            return 0;
+        }
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        ISequentialOutStream outStream = new ISequentialOutStream() {
+            public int write(byte[] data) throws SevenZipException {
+                expected.write(data, 0, data.length);
+                return data.length;
+            }
+        };
+        ExtractOperationResult result;
+        if (password == null) {
+            result = inArchive.extractSlow(index, outStream);
+        } else {
+            result = inArchive.extractSlow(index, outStream, password);
+        }
+        assertEquals(ExtractOperationResult.OK, result);
+        assertArrayEquals(file.getPath(), expected.toByteArray(), readFile(file));
+        return 1;
+    }
+
+    private IInArchive openArchive(String filename) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        return closeLater(SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile)));
+    }
+
+    private ByteArrayStream createZipArchive(final String path, final byte[] content) throws Exception {
+        ByteArrayStream archiveStream = new ByteArrayStream(1024 * 1024);
+        IOutCreateArchiveZip outArchive = closeLater(SevenZip.openOutArchiveZip());
+        outArchive.createArchive(archiveStream, 1, new IOutCreateCallback<IOutItemZip>() {
+            public void setTotal(long total) throws SevenZipException {
+            }
+
+            public void setCompleted(long complete) throws SevenZipException {
+            }
+
+            public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+            }
+
+            public IOutItemZip getItemInformation(int index, OutItemFactory<IOutItemZip> outItemFactory)
+                    throws SevenZipException {
+                IOutItemZip outItem = outItemFactory.createOutItem();
+                outItem.setPropertyPath(path);
+                outItem.setDataSize(Long.valueOf(content.length));
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) throws SevenZipException {
+                return new ByteArrayStream(content, true);
+            }
+        });
+        archiveStream.rewind();
+        return archiveStream;
+    }
+
+    private ByteArrayStream create7zArchive(final String[] paths, final byte[][] contents,
+            final Integer[] attributes) throws Exception {
+        ByteArrayStream archiveStream = new ByteArrayStream(1024 * 1024);
+        IOutCreateArchive7z outArchive = closeLater(SevenZip.openOutArchive7z());
+        outArchive.createArchive(archiveStream, paths.length, new IOutCreateCallback<IOutItem7z>() {
+            public void setTotal(long total) throws SevenZipException {
+            }
+
+            public void setCompleted(long complete) throws SevenZipException {
+            }
+
+            public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+            }
+
+            public IOutItem7z getItemInformation(int index, OutItemFactory<IOutItem7z> outItemFactory)
+                    throws SevenZipException {
+                IOutItem7z outItem = outItemFactory.createOutItem();
+                outItem.setPropertyPath(paths[index]);
+                outItem.setPropertyAttributes(attributes[index]);
+                outItem.setDataSize(Long.valueOf(contents[index].length));
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) throws SevenZipException {
+                return new ByteArrayStream(contents[index], true);
+            }
+        });
+        archiveStream.rewind();
+        return archiveStream;
+    }
+
+    private static void createSymbolicLink(File link, File target) throws Exception {
+        Process process = Runtime.getRuntime().exec(
+                new String[] { "ln", "-s", target.getAbsolutePath(), link.getAbsolutePath() });
+        assertEquals(0, process.waitFor());
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(content);
+            return content;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,62 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.RandomAccessFile;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class FormatDetectionTest extends JUnitNativeTestBase {
+    @Test
+    public void testFormatsWithSignature() throws Exception {
+        checkFormat("testdata/simple/7z/simple1.dat.5.7z", ArchiveFormat.SEVEN_ZIP);
+        checkFormat("testdata/simple/zip/simple1.dat.5.zip", ArchiveFormat.ZIP);
+        checkFormat("testdata/simple/rar/simple1.dat.2.rar", ArchiveFormat.RAR);
+        checkFormat("testdata/simple/gzip/simple1.dat.5.gz", ArchiveFormat.GZIP);
+        checkFormat("testdata/simple/bzip2/simple1.dat.5.bz2", ArchiveFormat.BZIP2);
+        checkFormat("testdata/simple/z/simple1.dat.0.Z", ArchiveFormat.Z);
+        checkFormat("testdata/simple/arj/simple1.dat.2.arj", ArchiveFormat.ARJ);
+        checkFormat("testdata/simple/cab/simple1.dat.0.cab", ArchiveFormat.CAB);
+        checkFormat("testdata/simple/chm/simple1.dat.0.chm", ArchiveFormat.CHM);
+        checkFormat("testdata/simple/deb/simple1.dat.1.deb", ArchiveFormat.DEB);
+        checkFormat("testdata/simple/rpm/simple1.dat.0.rpm", ArchiveFormat.RPM);
+        checkFormat("testdata/simple/wim/simple1.dat.1.wim", ArchiveFormat.WIM);
+        checkFormat("testdata/simple/xar/simple1.dat.1.xar", ArchiveFormat.XAR);
+        checkFormat("testdata/simple/lzh/simple1.dat.5.lzh", ArchiveFormat.LZH);
+        checkFormat("testdata/simple/tar/simple1.dat.0.tar", ArchiveFormat.TAR);
+    }
+
+    @Test
+    public void testFormatsWithoutSignature() throws Exception {
+        checkFormat("testdata/simple/lzma/simple1.dat.5.lzma", ArchiveFormat.LZMA);
+        checkFormat("testdata/simple/nsis/simple1.dat.1.exe", ArchiveFormat.NSIS);
+        checkFormat("testdata/simple/cpio/simple1.dat.0.cpio", ArchiveFormat.CPIO);
+    }
+
+    @Test
+    public void testStreamShorterThanSignatureHeader() throws Exception {
+        ByteArrayStream stream = new ByteArrayStream(new byte[] { 'P', 'K' }, false);
+        try {
+            SevenZip.openInArchive(null, stream);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private void checkFormat(String filename, ArchiveFormat expectedArchiveFormat) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, new RandomAccessFileInStream(
+                randomAccessFile)));
+        assertEquals(filename, expectedArchiveFormat, inArchive.getArchiveFormat());
+    }
+}
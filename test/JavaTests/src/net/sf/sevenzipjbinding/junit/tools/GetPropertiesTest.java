@@ -0,0 +1,182 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ItemPropertyColumns;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+
+import org.junit.Test;
+
+public class GetPropertiesTest extends JUnitNativeTestBase {
+    private static final PropID[] PROP_IDS = { PropID.PATH, PropID.SIZE, PropID.PACKED_SIZE, PropID.ATTRIBUTES,
+            PropID.LAST_MODIFICATION_TIME, PropID.CREATION_TIME, PropID.IS_FOLDER, PropID.ENCRYPTED, PropID.CRC,
+            PropID.METHOD, PropID.COMMENT };
+
+    @Test
+    public void testSevenZip() throws Exception {
+        checkAllItems("testdata/multiple-files/7z/archive1.zip.5.7z");
+    }
+
+    @Test
+    public void testZip() throws Exception {
+        checkAllItems("testdata/multiple-files/zip/archive1.zip.5.zip");
+    }
+
+    @Test
+    public void testTar() throws Exception {
+        checkAllItems("testdata/multiple-files/tar/archive1.zip.0.tar");
+    }
+
+    @Test
+    public void testArj() throws Exception {
+        checkAllItems("testdata/multiple-files/arj/archive1.zip.4.arj");
+    }
+
+    @Test
+    public void testSubRange() throws Exception {
+        IInArchive inArchive = openArchive("testdata/multiple-files/7z/archive1.zip.5.7z");
+        int fromIndex = 3;
+        int toIndex = inArchive.getNumberOfItems() - 2;
+        ItemPropertyColumns columns = inArchive.getProperties(PROP_IDS, fromIndex, toIndex);
+        assertEquals(fromIndex, columns.getFromIndex());
+        assertEquals(toIndex, columns.getToIndex());
+        assertEquals(toIndex - fromIndex, columns.getStringColumn(PropID.PATH).length);
+        checkColumns(inArchive, columns);
+    }
+
+    @Test
+    public void testEmptyRange() throws Exception {
+        IInArchive inArchive = openArchive("testdata/multiple-files/7z/archive1.zip.5.7z");
+        ItemPropertyColumns columns = inArchive.getProperties(PROP_IDS, 5, 5);
+        assertEquals(0, columns.getItemCount());
+        assertEquals(0, columns.getStringColumn(PropID.PATH).length);
+        assertEquals(0, columns.getLongColumn(PropID.SIZE).length);
+    }
+
+    @Test
+    public void testInvalidRange() throws Exception {
+        IInArchive inArchive = openArchive("testdata/multiple-files/7z/archive1.zip.5.7z");
+        int numberOfItems = inArchive.getNumberOfItems();
+        int[][] invalidRanges = { { -1, 1 }, { 2, 1 }, { 0, numberOfItems + 1 } };
+        for (int[] invalidRange : invalidRanges) {
+            try {
+                inArchive.getProperties(PROP_IDS, invalidRange[0], invalidRange[1]);
+                fail("Exception expected");
+            } catch (SevenZipException e) {
+                // Expected
+            }
+        }
+    }
+
+    @Test
+    public void testColumnAccess() throws Exception {
+        IInArchive inArchive = openArchive("testdata/multiple-files/7z/archive1.zip.5.7z");
+        ItemPropertyColumns columns = inArchive.getProperties(new PropID[] { PropID.PATH, PropID.ATTRIBUTES }, 0,
+                inArchive.getNumberOfItems());
+        try {
+            columns.getColumn(PropID.SIZE);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            columns.getLongColumn(PropID.PATH);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        int[] attributes = columns.getIntColumn(PropID.ATTRIBUTES);
+        long[] longAttributes = columns.getLongColumn(PropID.ATTRIBUTES);
+        for (int i = 0; i < attributes.length; i++) {
+            assertEquals(attributes[i], (int) longAttributes[i]);
+        }
+    }
+
+    @Test
+    public void testUnsignedValuesNotSignExtended() throws Exception {
+        IInArchive inArchive = openArchive("testdata/multiple-files/arj/archive1.zip.4.arj");
+        ItemPropertyColumns columns = inArchive.getProperties(new PropID[] { PropID.CRC }, 0,
+                inArchive.getNumberOfItems());
+        int[] crcs = columns.getIntColumn(PropID.CRC);
+        long[] longCrcs = columns.getLongColumn(PropID.CRC);
+        boolean negativeIntCrcFound = false;
+        for (int i = 0; i < crcs.length; i++) {
+            assertTrue(longCrcs[i] >= 0);
+            assertEquals(crcs[i], (int) longCrcs[i]);
+            negativeIntCrcFound |= crcs[i] < 0;
+        }
+        assertTrue(negativeIntCrcFound);
+    }
+
+    private void checkAllItems(String filename) throws Exception {
+        IInArchive inArchive = openArchive(filename);
+        ItemPropertyColumns columns = inArchive.getProperties(PROP_IDS, 0, inArchive.getNumberOfItems());
+        assertEquals(inArchive.getNumberOfItems(), columns.getItemCount());
+        assertTrue(columns.getItemCount() > 1);
+        checkColumns(inArchive, columns);
+    }
+
+    private void checkColumns(IInArchive inArchive, ItemPropertyColumns columns) throws Exception {
+        for (PropID propID : PROP_IDS) {
+            Object column = columns.getColumn(propID);
+            for (int index = columns.getFromIndex(); index < columns.getToIndex(); index++) {
+                String message = propID + " of item " + index;
+                Object expected = inArchive.getProperty(index, propID);
+                int i = index - columns.getFromIndex();
+
+                if (column == null || !columns.isDefined(propID, index)) {
+                    assertFalse(message, columns.isDefined(propID, index));
+                    if (expected instanceof Boolean) {
+                        // getProperty() returns FALSE instead of null for some properties
+                        assertFalse(message, ((Boolean) expected).booleanValue());
+                    } else if (expected instanceof Long) {
+                        // getProperty() returns 0 instead of null for the size of NSIS items
+                        assertEquals(message, 0, ((Long) expected).longValue());
+                    } else {
+                        assertNull(message, expected);
+                    }
+                    continue;
+                }
+
+                if (expected instanceof String) {
+                    assertEquals(message, expected, columns.getStringColumn(propID)[i]);
+                } else if (expected instanceof Integer) {
+                    assertEquals(message, ((Integer) expected).intValue(), columns.getIntColumn(propID)[i]);
+                    // All tested integer properties (attributes, CRC) are unsigned 32 bit values
+                    assertEquals(message, ((Integer) expected).intValue() & 0xFFFFFFFFL,
+                            columns.getLongColumn(propID)[i]);
+                } else if (expected instanceof Long) {
+                    assertEquals(message, ((Long) expected).longValue(), columns.getLongColumn(propID)[i]);
+                } else if (expected instanceof Boolean) {
+                    assertEquals(message, ((Boolean) expected).booleanValue(), columns.getBooleanColumn(propID)[i]);
+                } else if (expected instanceof Date) {
+                    assertEquals(message, expected,
+                            ItemPropertyColumns.filetimeToDate(columns.getLongColumn(propID)[i]));
+                } else {
+                    fail(message + ": unexpected value " + expected);
+                }
+            }
+        }
+        assertArrayEquals(columns.getStringColumn(PropID.PATH), inArchive.getProperties(
+                new PropID[] { PropID.PATH }, columns.getFromIndex(), columns.getToIndex()).getStringColumn(
+                PropID.PATH));
+    }
+
+    private IInArchive openArchive(String filename) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        return closeLater(SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile)));
+    }
+}
@@ -0,0 +1,254 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.service.InArchiveLease;
+import net.sf.sevenzipjbinding.service.InArchivePool;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class InArchivePoolTest extends JUnitNativeTestBase {
+    private static final String[] ARCHIVES = { //
+    "testdata/multiple-files/7z/archive1.zip.5.7z", //
+            "testdata/multiple-files/zip/archive2.zip.5.zip", //
+            "testdata/multiple-files/7z/archive3.zip.5.7z", //
+    };
+    private static final long UNLIMITED_MEMORY = Long.MAX_VALUE;
+    private static final int THREAD_COUNT = 8;
+
+    @Test
+    public void testReuseIdleArchive() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(10, UNLIMITED_MEMORY));
+        File file = new File(ARCHIVES[0]);
+        InArchiveLease lease = pool.lease(file);
+        IInArchive inArchive = lease.getInArchive();
+        assertTrue(inArchive.getNumberOfItems() > 0);
+        lease.close();
+        lease.close();
+
+        lease = pool.lease(file);
+        assertSame(inArchive, lease.getInArchive());
+        lease.close();
+        assertEquals(1, pool.getHitCount());
+        assertEquals(1, pool.getMissCount());
+        assertEquals(1, pool.getOpenArchiveCount());
+        assertEquals(InArchivePool.ESTIMATED_ARCHIVE_MEMORY_USAGE + InArchivePool.ESTIMATED_ITEM_MEMORY_USAGE
+                * inArchive.getNumberOfItems(), pool.getMemoryUsage());
+    }
+
+    @Test
+    public void testSimultaneousLeasesOpenNewInstances() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(10, UNLIMITED_MEMORY));
+        File file = new File(ARCHIVES[0]);
+        InArchiveLease lease1 = pool.lease(file);
+        InArchiveLease lease2 = pool.lease(file);
+        assertNotSame(lease1.getInArchive(), lease2.getInArchive());
+        assertEquals(2, pool.getOpenArchiveCount());
+        lease1.close();
+        lease2.close();
+        assertEquals(2, pool.getOpenArchiveCount());
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEviction() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(2, UNLIMITED_MEMORY));
+        leaseAndClose(pool, ARCHIVES[0]);
+        leaseAndClose(pool, ARCHIVES[1]);
+        leaseAndClose(pool, ARCHIVES[0]);
+        leaseAndClose(pool, ARCHIVES[2]); // Evicts ARCHIVES[1]
+        assertEquals(2, pool.getOpenArchiveCount());
+        assertEquals(1, pool.getEvictionCount());
+        assertEquals(1, pool.getHitCount());
+
+        leaseAndClose(pool, ARCHIVES[0]);
+        assertEquals(2, pool.getHitCount());
+        leaseAndClose(pool, ARCHIVES[1]);
+        assertEquals(4, pool.getMissCount());
+        assertEquals(2, pool.getEvictionCount());
+    }
+
+    @Test
+    public void testMemoryLimit() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(10, 1));
+        InArchiveLease lease = pool.lease(new File(ARCHIVES[0]));
+        assertEquals(1, pool.getOpenArchiveCount());
+        lease.close();
+        assertEquals(0, pool.getOpenArchiveCount());
+        assertEquals(0, pool.getMemoryUsage());
+        try {
+            lease.getInArchive();
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(10, UNLIMITED_MEMORY));
+        InArchiveLease lease = pool.lease(new File(ARCHIVES[0]));
+        lease.invalidate();
+        lease.close();
+        assertEquals(0, pool.getOpenArchiveCount());
+        leaseAndClose(pool, ARCHIVES[0]);
+        assertEquals(2, pool.getMissCount());
+    }
+
+    @Test
+    public void testModifiedFile() throws Exception {
+        File file = File.createTempFile("sevenzipjbinding", ".7z");
+        try {
+            copyFile(new File(ARCHIVES[0]), file);
+            InArchivePool pool = closeLater(new InArchivePool(10, UNLIMITED_MEMORY));
+            leaseAndClose(pool, file.getPath());
+            leaseAndClose(pool, file.getPath());
+            assertEquals(1, pool.getHitCount());
+
+            copyFile(new File(ARCHIVES[2]), file);
+            assertTrue(file.setLastModified(file.lastModified() - 10000));
+            InArchiveLease lease = pool.lease(file);
+            assertEquals(2, pool.getMissCount());
+            assertEquals(1, pool.getOpenArchiveCount());
+            assertEquals(getPaths(new File(ARCHIVES[2])), getPaths(lease.getInArchive()));
+            lease.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testClosedPool() throws Exception {
+        InArchivePool pool = new InArchivePool(10, UNLIMITED_MEMORY);
+        leaseAndClose(pool, ARCHIVES[0]);
+        InArchiveLease lease = pool.lease(new File(ARCHIVES[1]));
+        pool.close();
+        assertEquals(1, pool.getOpenArchiveCount());
+        lease.getInArchive().getNumberOfItems();
+        lease.close();
+        assertEquals(0, pool.getOpenArchiveCount());
+        try {
+            pool.lease(new File(ARCHIVES[0]));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testNotAnArchive() throws Exception {
+        InArchivePool pool = closeLater(new InArchivePool(10, UNLIMITED_MEMORY));
+        try {
+            pool.lease(new File("testdata/simple/simple2.dat"));
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        assertEquals(0, pool.getOpenArchiveCount());
+    }
+
+    @Test
+    public void testConcurrentLeases() throws Exception {
+        final InArchivePool pool = closeLater(new InArchivePool(4, UNLIMITED_MEMORY));
+        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < threads.length; i++) {
+            final Random random = new Random(i);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 30; j++) {
+                            InArchiveLease lease = pool.lease(new File(ARCHIVES[random.nextInt(ARCHIVES.length)]));
+                            try {
+                                IInArchive inArchive = lease.getInArchive();
+                                int index = random.nextInt(inArchive.getNumberOfItems());
+                                if (!Boolean.TRUE.equals(inArchive.getProperty(index, PropID.IS_FOLDER))) {
+                                    ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+                                    assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(index, outStream));
+                                    assertEquals(inArchive.getProperty(index, PropID.SIZE), Long.valueOf(outStream
+                                            .getSize()));
+                                }
+                            } finally {
+                                lease.close();
+                            }
+                        }
+                    } catch (Throwable throwable) {
+                        exceptions.add(throwable);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), exceptions);
+        assertTrue(pool.getOpenArchiveCount() <= 4);
+        assertEquals(THREAD_COUNT * 30, pool.getHitCount() + pool.getMissCount());
+    }
+
+    private void leaseAndClose(InArchivePool pool, String filename) throws Exception {
+        InArchiveLease lease = pool.lease(new File(filename));
+        assertTrue(lease.getInArchive().getNumberOfItems() > 0);
+        lease.close();
+    }
+
+    private List<String> getPaths(File archiveFile) throws Exception {
+        InArchivePool pool = new InArchivePool(1, UNLIMITED_MEMORY);
+        try {
+            InArchiveLease lease = pool.lease(archiveFile);
+            try {
+                return getPaths(lease.getInArchive());
+            } finally {
+                lease.close();
+            }
+        } finally {
+            pool.close();
+        }
+    }
+
+    private List<String> getPaths(IInArchive inArchive) throws Exception {
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            paths.add(inArchive.getStringProperty(i, PropID.PATH));
+        }
+        return paths;
+    }
+
+    private void copyFile(File from, File to) throws Exception {
+        FileInputStream inputStream = new FileInputStream(from);
+        try {
+            FileOutputStream outputStream = new FileOutputStream(to);
+            try {
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = inputStream.read(buffer)) > 0) {
+                    outputStream.write(buffer, 0, read);
+                }
+            } finally {
+                outputStream.close();
+            }
+        } finally {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.IOutCreateArchiveZip;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItemZip;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class InStreamReadBufferTest extends JUnitNativeTestBase {
+    private static final String ARCHIVE_ZIP = "testdata/multiple-files/zip/archive1.zip.5.zip";
+    private static final String ARCHIVE_7Z = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final int[] READ_BUFFER_SIZES = { 1, 17, 4096, READ_BUFFER_SIZE, 1024 * 1024 };
+
+    private static class CountingInStream implements IInStream {
+        private final ByteArrayStream stream;
+        int readCount;
+        int seekCount;
+
+        CountingInStream(byte[] content) {
+            stream = new ByteArrayStream(content, false);
+        }
+
+        public int read(byte[] data) throws SevenZipException {
+            readCount++;
+            return stream.read(data);
+        }
+
+        public long seek(long offset, int seekOrigin) throws SevenZipException {
+            seekCount++;
+            return stream.seek(offset, seekOrigin);
+        }
+
+        public void close() {
+        }
+    }
+
+    @After
+    public void restoreInStreamReadBufferSize() {
+        SevenZip.setInStreamReadBufferSize(SevenZip.DEFAULT_IN_STREAM_READ_BUFFER_SIZE);
+    }
+
+    @Test
+    public void testDefaults() {
+        assertEquals(0, SevenZip.DEFAULT_IN_STREAM_READ_BUFFER_SIZE);
+        assertEquals(SevenZip.DEFAULT_IN_STREAM_READ_BUFFER_SIZE, SevenZip.getInStreamReadBufferSize());
+        try {
+            SevenZip.setInStreamReadBufferSize(-1);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testFewerUpcallsZip() throws Exception {
+        testFewerUpcalls(ARCHIVE_ZIP);
+    }
+
+    @Test
+    public void testFewerUpcalls7z() throws Exception {
+        testFewerUpcalls(ARCHIVE_7Z);
+    }
+
+    @Test
+    public void testBufferSizesZip() throws Exception {
+        testBufferSizes(ARCHIVE_ZIP);
+    }
+
+    @Test
+    public void testBufferSizes7z() throws Exception {
+        testBufferSizes(ARCHIVE_7Z);
+    }
+
+    /**
+     * Two {@link RandomAccessFileInStream} instances over the same {@link RandomAccessFile} share the file pointer
+     * (like in the <code>OpenMultipartArchiveRar</code> snippet). The seek of 7-Zip to the current position of the
+     * first stream must reach the Java stream.
+     */
+    @Test
+    public void testSharedRandomAccessFileByDefault() throws Exception {
+        byte[][] contents = { new byte[2 * READ_BUFFER_SIZE], new byte[1024] };
+        Random random = new Random(0);
+        for (byte[] content : contents) {
+            random.nextBytes(content);
+        }
+        File archiveFile = createStoredZipArchive(contents);
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(archiveFile, "r"));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(ArchiveFormat.ZIP, new RandomAccessFileInStream(
+                randomAccessFile)));
+
+        // Leaves the position right before the local header of the second item
+        ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+        assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(0, outStream));
+        assertArrayEquals(contents[0], outStream.getBytes());
+
+        RandomAccessFileInStream secondInStream = new RandomAccessFileInStream(randomAccessFile);
+        secondInStream.seek(0, IInStream.SEEK_SET);
+
+        outStream = new ByteArrayStream(Integer.MAX_VALUE);
+        assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(1, outStream));
+        assertArrayEquals(contents[1], outStream.getBytes());
+    }
+
+    private void testFewerUpcalls(String archive) throws Exception {
+        byte[] content = readFile(new File(archive));
+
+        SevenZip.setInStreamReadBufferSize(0);
+        CountingInStream unbufferedInStream = new CountingInStream(content);
+        List<byte[]> expectedItems = extractAll(unbufferedInStream);
+
+        SevenZip.setInStreamReadBufferSize(READ_BUFFER_SIZE);
+        CountingInStream bufferedInStream = new CountingInStream(content);
+        assertItemsEquals(expectedItems, extractAll(bufferedInStream));
+
+        int unbufferedUpcalls = unbufferedInStream.readCount + unbufferedInStream.seekCount;
+        int bufferedUpcalls = bufferedInStream.readCount + bufferedInStream.seekCount;
+        assertTrue("Upcalls with read buffer: " + bufferedUpcalls + ", without: " + unbufferedUpcalls,
+                bufferedUpcalls < unbufferedUpcalls);
+        assertTrue("Seeks with read buffer: " + bufferedInStream.seekCount + ", without: "
+                + unbufferedInStream.seekCount, bufferedInStream.seekCount <= unbufferedInStream.seekCount);
+    }
+
+    private void testBufferSizes(String archive) throws Exception {
+        byte[] content = readFile(new File(archive));
+
+        SevenZip.setInStreamReadBufferSize(0);
+        List<byte[]> expectedItems = extractAll(new CountingInStream(content));
+        for (int readBufferSize : READ_BUFFER_SIZES) {
+            SevenZip.setInStreamReadBufferSize(readBufferSize);
+            assertItemsEquals(expectedItems, extractAll(new CountingInStream(content)));
+        }
+    }
+
+    private List<byte[]> extractAll(IInStream inStream) throws Exception {
+        List<byte[]> items = new ArrayList<byte[]>();
+        IInArchive inArchive = SevenZip.openInArchive(null, inStream);
+        try {
+            for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+                if (Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                    continue;
+                }
+                ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+                assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, outStream));
+                items.add(outStream.getBytes());
+            }
+        } finally {
+            inArchive.close();
+        }
+        return items;
+    }
+
+    private File createStoredZipArchive(final byte[][] contents) throws Exception {
+        ByteArrayStream archiveStream = new ByteArrayStream(Integer.MAX_VALUE);
+        IOutCreateArchiveZip outArchive = closeLater(SevenZip.openOutArchiveZip());
+        outArchive.setLevel(0);
+        outArchive.createArchive(archiveStream, contents.length, new IOutCreateCallback<IOutItemZip>() {
+            public void setTotal(long total) throws SevenZipException {
+            }
+
+            public void setCompleted(long complete) throws SevenZipException {
+            }
+
+            public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+            }
+
+            public IOutItemZip getItemInformation(int index, OutItemFactory<IOutItemZip> outItemFactory)
+                    throws SevenZipException {
+                IOutItemZip outItem = outItemFactory.createOutItem();
+                outItem.setPropertyPath("item" + index);
+                outItem.setDataSize(Long.valueOf(contents[index].length));
+                return outItem;
+            }
+
+            public ISequentialInStream getStream(int index) throws SevenZipException {
+                return new ByteArrayStream(contents[index], true);
+            }
+        });
+
+        File archiveFile = File.createTempFile("sevenzipjbinding-", ".zip");
+        archiveFile.deleteOnExit();
+        archiveStream.writeToOutputStream(new FileOutputStream(archiveFile), true);
+        return archiveFile;
+    }
+
+    private static void assertItemsEquals(List<byte[]> expectedItems, List<byte[]> items) {
+        assertEquals(expectedItems.size(), items.size());
+        for (int i = 0; i < expectedItems.size(); i++) {
+            assertArrayEquals(expectedItems.get(i), items.get(i));
+        }
+    }
+
+    private static byte[] readFile(File file) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } finally {
+            inputStream.close();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -0,0 +1,175 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISeekableStream;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.MappedFileInStream;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+
+import org.junit.Test;
+
+public class MappedFileInStreamTest extends JUnitNativeTestBase {
+    private static final String SINGLE_FILE = "testdata/simple/simple2.dat";
+    private static final String SINGLE_FILE_7Z_ARCHIVE = "testdata/simple/7z/simple2.dat.5.7z";
+    private static final String SINGLE_FILE_ZIP_ARCHIVE = "testdata/simple/zip/simple2.dat.5.zip";
+    private static final int SMALL_CHUNK_SIZE = 4096;
+
+    private static class CountingMappedFileInStream extends MappedFileInStream {
+        int seekCount;
+        int readCount;
+
+        public CountingMappedFileInStream(FileChannel fileChannel, int chunkSize) throws Exception {
+            super(fileChannel, chunkSize);
+        }
+
+        @Override
+        public synchronized long seek(long offset, int seekOrigin) throws SevenZipException {
+            seekCount++;
+            return super.seek(offset, seekOrigin);
+        }
+
+        @Override
+        public synchronized int read(byte[] data) throws SevenZipException {
+            readCount++;
+            return super.read(data);
+        }
+
+        @Override
+        public synchronized int read(ByteBuffer buffer) throws SevenZipException {
+            readCount++;
+            return super.read(buffer);
+        }
+    }
+
+    @Test
+    public void testSeekAndReadSameAsRandomAccessFileInStream() throws Exception {
+        File file = new File(SINGLE_FILE_7Z_ARCHIVE);
+        MappedFileInStream mappedStream = closeLater(new MappedFileInStream(openChannel(file), 100));
+        RandomAccessFileInStream expectedStream = new RandomAccessFileInStream(closeLater(new RandomAccessFile(
+                file, "r")));
+        assertEquals(file.length(), mappedStream.getSize());
+
+        long[][] seeks = new long[][] { { 0, ISeekableStream.SEEK_SET }, { 99, ISeekableStream.SEEK_SET },
+                { 150, ISeekableStream.SEEK_CUR }, { -1, ISeekableStream.SEEK_END },
+                { -350, ISeekableStream.SEEK_END }, { 10, ISeekableStream.SEEK_END } };
+        for (long[] seek : seeks) {
+            assertEquals(expectedStream.seek(seek[0], (int) seek[1]), mappedStream.seek(seek[0], (int) seek[1]));
+            for (int i = 0; i < 3; i++) {
+                assertArrayEquals(readAll(expectedStream, 70), readAll(mappedStream, 70));
+            }
+        }
+
+        try {
+            mappedStream.seek(-1, ISeekableStream.SEEK_SET);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testReadIntoByteBuffer() throws Exception {
+        File file = new File(SINGLE_FILE);
+        MappedFileInStream mappedStream = closeLater(new MappedFileInStream(openChannel(file), 1000));
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.length());
+        while (mappedStream.read(buffer) > 0) {
+            // Read the whole file
+        }
+        assertEquals(0, buffer.remaining());
+        byte[] content = new byte[buffer.capacity()];
+        buffer.flip();
+        buffer.get(content);
+        assertArrayEquals(readFile(file), content);
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        MappedFileInStream mappedStream = new MappedFileInStream(new File(SINGLE_FILE));
+        mappedStream.close();
+        try {
+            mappedStream.read(new byte[10]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testExtract7zArchive() throws Exception {
+        checkExtraction(SINGLE_FILE_7Z_ARCHIVE, SMALL_CHUNK_SIZE);
+    }
+
+    @Test
+    public void testExtractZipArchive() throws Exception {
+        checkExtraction(SINGLE_FILE_ZIP_ARCHIVE, SMALL_CHUNK_SIZE);
+    }
+
+    @Test
+    public void testExtractWithDefaultChunkSize() throws Exception {
+        checkExtraction(SINGLE_FILE_7Z_ARCHIVE, MappedFileInStream.DEFAULT_CHUNK_SIZE);
+    }
+
+    private void checkExtraction(String archiveFilename, int chunkSize) throws Exception {
+        CountingMappedFileInStream inStream = new CountingMappedFileInStream(openChannel(new File(archiveFilename)),
+                chunkSize);
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, inStream));
+
+        final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ExtractOperationResult result = inArchive.extractSlow(0, new ISequentialOutStream() {
+            public int write(byte[] data) throws SevenZipException {
+                outputStream.write(data, 0, data.length);
+                return data.length;
+            }
+        });
+        assertEquals(ExtractOperationResult.OK, result);
+        assertArrayEquals(readFile(new File(SINGLE_FILE)), outputStream.toByteArray());
+
+        // Native code reads the mapped memory directly. Only the initial position gets queried.
+        assertEquals(0, inStream.readCount);
+        assertTrue(inStream.seekCount <= 1);
+    }
+
+    private FileChannel openChannel(File file) throws Exception {
+        return closeLater(new RandomAccessFile(file, "r")).getChannel();
+    }
+
+    private byte[] readAll(IInStream inStream, int length) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        while (outputStream.size() < length) {
+            byte[] buffer = new byte[length - outputStream.size()];
+            int read = inStream.read(buffer);
+            if (read == 0) {
+                break;
+            }
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(content);
+            return content;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
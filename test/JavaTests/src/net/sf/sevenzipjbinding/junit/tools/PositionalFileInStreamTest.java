@@ -0,0 +1,235 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.ISeekableStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.PositionalFileInStream;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.service.ConcurrentInArchive;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.Test;
+
+public class PositionalFileInStreamTest extends JUnitNativeTestBase {
+    private static final String SINGLE_FILE = "testdata/simple/simple2.dat";
+    private static final String SINGLE_FILE_7Z_ARCHIVE = "testdata/simple/7z/simple2.dat.5.7z";
+    private static final String SINGLE_FILE_ZIP_ARCHIVE = "testdata/simple/zip/simple2.dat.5.zip";
+    private static final String MULTIPLE_FILES_7Z_ARCHIVE = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final int THREAD_COUNT = 4;
+
+    @Test
+    public void testSeekAndReadSameAsRandomAccessFileInStream() throws Exception {
+        File file = new File(SINGLE_FILE_7Z_ARCHIVE);
+        PositionalFileInStream positionalStream = closeLater(new PositionalFileInStream(file));
+        RandomAccessFileInStream expectedStream = new RandomAccessFileInStream(closeLater(new RandomAccessFile(
+                file, "r")));
+
+        long[][] seeks = new long[][] { { 0, ISeekableStream.SEEK_SET }, { 99, ISeekableStream.SEEK_SET },
+                { 150, ISeekableStream.SEEK_CUR }, { -1, ISeekableStream.SEEK_END },
+                { -350, ISeekableStream.SEEK_END }, { 10, ISeekableStream.SEEK_END } };
+        for (long[] seek : seeks) {
+            assertEquals(expectedStream.seek(seek[0], (int) seek[1]),
+                    positionalStream.seek(seek[0], (int) seek[1]));
+            for (int i = 0; i < 3; i++) {
+                assertArrayEquals(readAll(expectedStream, 70), readAll(positionalStream, 70));
+            }
+        }
+
+        try {
+            positionalStream.seek(-1, ISeekableStream.SEEK_SET);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testReadIntoByteBuffer() throws Exception {
+        File file = new File(SINGLE_FILE);
+        PositionalFileInStream positionalStream = closeLater(new PositionalFileInStream(openChannel(file)));
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) file.length());
+        while (positionalStream.read(buffer) > 0) {
+            // Read the whole file
+        }
+        assertEquals(0, buffer.remaining());
+        byte[] content = new byte[buffer.capacity()];
+        buffer.flip();
+        buffer.get(content);
+        assertArrayEquals(readFile(file), content);
+    }
+
+    @Test
+    public void testChannelPositionUnchanged() throws Exception {
+        FileChannel fileChannel = openChannel(new File(SINGLE_FILE));
+        fileChannel.position(10);
+        PositionalFileInStream positionalStream = new PositionalFileInStream(fileChannel);
+        assertEquals(100, readAll(positionalStream, 100).length);
+        positionalStream.close();
+        assertEquals(10, fileChannel.position());
+        assertTrue(fileChannel.isOpen());
+    }
+
+    @Test
+    public void testClose() throws Exception {
+        PositionalFileInStream positionalStream = new PositionalFileInStream(new File(SINGLE_FILE));
+        IInStream clonedStream = positionalStream.cloneStream();
+        positionalStream.close();
+        try {
+            positionalStream.read(new byte[10]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        try {
+            positionalStream.cloneStream();
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+
+        // The file stays open until the last clone was closed
+        assertArrayEquals(copyOfRange(readFile(new File(SINGLE_FILE)), 0, 100), readAll(clonedStream, 100));
+        ((PositionalFileInStream) clonedStream).close();
+        try {
+            clonedStream.read(new byte[10]);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClonesHaveOwnPositions() throws Exception {
+        File file = new File(SINGLE_FILE);
+        byte[] content = readFile(file);
+        PositionalFileInStream positionalStream = closeLater(new PositionalFileInStream(file));
+        PositionalFileInStream clonedStream = closeLater((PositionalFileInStream) positionalStream.cloneStream());
+        positionalStream.seek(100, ISeekableStream.SEEK_SET);
+        assertEquals(0, clonedStream.seek(0, ISeekableStream.SEEK_CUR));
+        assertArrayEquals(copyOfRange(content, 0, 50), readAll(clonedStream, 50));
+        assertArrayEquals(copyOfRange(content, 100, 150), readAll(positionalStream, 50));
+        assertArrayEquals(copyOfRange(content, 50, 100), readAll(clonedStream, 50));
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        final File file = new File(SINGLE_FILE);
+        final byte[] content = readFile(file);
+        final PositionalFileInStream positionalStream = closeLater(new PositionalFileInStream(file));
+        final List<Throwable> exceptions = Collections.synchronizedList(new ArrayList<Throwable>());
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < threads.length; i++) {
+            final Random random = new Random(i);
+            final IInStream clonedStream = closeLater((PositionalFileInStream) positionalStream.cloneStream());
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 1000; j++) {
+                            int position = random.nextInt(content.length);
+                            int length = Math.min(random.nextInt(200), content.length - position);
+                            clonedStream.seek(position, ISeekableStream.SEEK_SET);
+                            assertArrayEquals(copyOfRange(content, position, position + length), readAll(
+                                    clonedStream, length));
+                        }
+                    } catch (Throwable throwable) {
+                        exceptions.add(throwable);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(Collections.emptyList(), exceptions);
+    }
+
+    @Test
+    public void testExtract7zArchive() throws Exception {
+        checkExtraction(SINGLE_FILE_7Z_ARCHIVE);
+    }
+
+    @Test
+    public void testExtractZipArchive() throws Exception {
+        checkExtraction(SINGLE_FILE_ZIP_ARCHIVE);
+    }
+
+    @Test
+    public void testConcurrentInArchive() throws Exception {
+        PositionalFileInStream inStream = closeLater(new PositionalFileInStream(new File(MULTIPLE_FILES_7Z_ARCHIVE)));
+        ConcurrentInArchive archive = closeLater(new ConcurrentInArchive(null, inStream, THREAD_COUNT));
+        for (int i = 0; i < archive.getNumberOfItems(); i++) {
+            assertFalse(archive.getStringProperty(i, PropID.PATH).length() == 0);
+            if (!Boolean.TRUE.equals(archive.getProperty(i, PropID.IS_FOLDER))) {
+                ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+                assertEquals(ExtractOperationResult.OK, archive.extractSlow(i, outStream));
+                assertEquals(archive.getProperty(i, PropID.SIZE), Long.valueOf(outStream.getSize()));
+            }
+        }
+    }
+
+    private void checkExtraction(String archiveFilename) throws Exception {
+        PositionalFileInStream inStream = closeLater(new PositionalFileInStream(new File(archiveFilename)));
+        IInArchive inArchive = closeLater(SevenZip.openInArchive(null, inStream));
+
+        ByteArrayStream outputStream = new ByteArrayStream(Integer.MAX_VALUE);
+        assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(0, outputStream));
+        assertArrayEquals(readFile(new File(SINGLE_FILE)), outputStream.getBytes());
+    }
+
+    private FileChannel openChannel(File file) throws Exception {
+        return closeLater(new RandomAccessFile(file, "r")).getChannel();
+    }
+
+    private static byte[] readAll(IInStream inStream, int length) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        while (outputStream.size() < length) {
+            byte[] buffer = new byte[length - outputStream.size()];
+            int read = inStream.read(buffer);
+            if (read == 0) {
+                break;
+            }
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static byte[] copyOfRange(byte[] array, int from, int to) {
+        byte[] result = new byte[to - from];
+        System.arraycopy(array, from, result, 0, result.length);
+        return result;
+    }
+
+    private byte[] readFile(File file) throws Exception {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            byte[] content = new byte[(int) randomAccessFile.length()];
+            randomAccessFile.readFully(content);
+            return content;
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+}
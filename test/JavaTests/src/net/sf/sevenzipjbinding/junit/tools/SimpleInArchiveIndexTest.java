@@ -0,0 +1,138 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.RandomAccessFile;
+
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileInStream;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.simple.ISimpleInArchive;
+import net.sf.sevenzipjbinding.simple.ISimpleInArchiveItem;
+
+import org.junit.Test;
+
+public class SimpleInArchiveIndexTest extends JUnitNativeTestBase {
+    private static final String SEVEN_ZIP_ARCHIVE = "testdata/multiple-files/7z/archive1.zip.5.7z";
+
+    @Test
+    public void testSevenZip() throws Exception {
+        checkIndex(SEVEN_ZIP_ARCHIVE);
+    }
+
+    @Test
+    public void testZip() throws Exception {
+        checkIndex("testdata/multiple-files/zip/archive1.zip.5.zip");
+    }
+
+    @Test
+    public void testTar() throws Exception {
+        checkIndex("testdata/multiple-files/tar/archive1.zip.0.tar");
+    }
+
+    @Test
+    public void testArj() throws Exception {
+        checkIndex("testdata/multiple-files/arj/archive1.zip.4.arj");
+    }
+
+    @Test
+    public void testNsis() throws Exception {
+        checkIndex("testdata/simple/nsis/simple1.dat.1.exe");
+    }
+
+    @Test
+    public void testLookupByPathWithoutIndex() throws Exception {
+        ISimpleInArchive simpleInArchive = openArchive(SEVEN_ZIP_ARCHIVE).getSimpleInterface();
+        ISimpleInArchiveItem[] items = simpleInArchive.getArchiveItems();
+        ISimpleInArchiveItem lastItem = items[items.length - 1];
+        assertEquals(lastItem.getItemIndex(), simpleInArchive.getArchiveItem(lastItem.getPath()).getItemIndex());
+        assertNull(simpleInArchive.getArchiveItem("not-existing-path"));
+    }
+
+    @Test
+    public void testClosedArchive() throws Exception {
+        IInArchive inArchive = SevenZip.openInArchive(null, new RandomAccessFileInStream(closeLater(new RandomAccessFile(
+                SEVEN_ZIP_ARCHIVE, "r"))));
+        ISimpleInArchive simpleInArchive = inArchive.getSimpleInterface();
+        simpleInArchive.materializeIndex();
+        ISimpleInArchiveItem item = simpleInArchive.getArchiveItem(0);
+        simpleInArchive.close();
+        try {
+            item.getPath();
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+        try {
+            simpleInArchive.getArchiveItem(0);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private void checkIndex(String filename) throws Exception {
+        IInArchive inArchive = openArchive(filename);
+        ISimpleInArchive expectedSimpleInArchive = inArchive.getSimpleInterface();
+        ISimpleInArchive indexedSimpleInArchive = inArchive.getSimpleInterface();
+        indexedSimpleInArchive.materializeIndex();
+        indexedSimpleInArchive.materializeIndex();
+
+        assertEquals(expectedSimpleInArchive.getNumberOfItems(), indexedSimpleInArchive.getNumberOfItems());
+        ISimpleInArchiveItem[] expectedItems = expectedSimpleInArchive.getArchiveItems();
+        ISimpleInArchiveItem[] indexedItems = indexedSimpleInArchive.getArchiveItems();
+        assertEquals(expectedItems.length, indexedItems.length);
+        assertTrue(expectedItems.length > 0);
+
+        for (int i = 0; i < expectedItems.length; i++) {
+            checkItem(expectedItems[i], indexedItems[i]);
+            checkItem(expectedItems[i], indexedSimpleInArchive.getArchiveItem(i));
+
+            ISimpleInArchiveItem itemByPath = indexedSimpleInArchive.getArchiveItem(expectedItems[i].getPath());
+            assertNotNull(itemByPath);
+            assertEquals(expectedItems[i].getPath(), itemByPath.getPath());
+            assertTrue(itemByPath.getItemIndex() <= i);
+        }
+        assertNull(indexedSimpleInArchive.getArchiveItem("not-existing-path"));
+
+        try {
+            indexedSimpleInArchive.getArchiveItem(expectedItems.length);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private void checkItem(ISimpleInArchiveItem expected, ISimpleInArchiveItem actual) throws Exception {
+        String message = "Item " + expected.getItemIndex();
+        assertEquals(message, expected.getItemIndex(), actual.getItemIndex());
+        assertEquals(message, expected.getPath(), actual.getPath());
+        assertEquals(message, expected.getAttributes(), actual.getAttributes());
+        assertEquals(message, expected.getCRC(), actual.getCRC());
+        assertEquals(message, expected.getComment(), actual.getComment());
+        assertEquals(message, expected.getCreationTime(), actual.getCreationTime());
+        assertEquals(message, expected.getGroup(), actual.getGroup());
+        assertEquals(message, expected.getHostOS(), actual.getHostOS());
+        assertEquals(message, expected.getLastAccessTime(), actual.getLastAccessTime());
+        assertEquals(message, expected.getLastWriteTime(), actual.getLastWriteTime());
+        assertEquals(message, expected.getMethod(), actual.getMethod());
+        assertEquals(message, expected.getPackedSize(), actual.getPackedSize());
+        assertEquals(message, expected.getPosition(), actual.getPosition());
+        assertEquals(message, expected.getSize(), actual.getSize());
+        assertEquals(message, expected.getUser(), actual.getUser());
+        assertEquals(message, expected.isCommented(), actual.isCommented());
+        assertEquals(message, expected.isEncrypted(), actual.isEncrypted());
+        assertEquals(message, expected.isFolder(), actual.isFolder());
+    }
+
+    private IInArchive openArchive(String filename) throws Exception {
+        RandomAccessFile randomAccessFile = closeLater(new RandomAccessFile(filename, "r"));
+        return closeLater(SevenZip.openInArchive(null, new RandomAccessFileInStream(randomAccessFile)));
+    }
+}
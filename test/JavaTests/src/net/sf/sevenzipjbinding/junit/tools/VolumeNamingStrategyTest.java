@@ -0,0 +1,74 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import net.sf.sevenzipjbinding.impl.VolumeNamingStrategy;
+import net.sf.sevenzipjbinding.junit.JUnitTestBase;
+
+import org.junit.Test;
+
+public class VolumeNamingStrategyTest extends JUnitTestBase {
+    @Test
+    public void testSevenZip() {
+        VolumeNamingStrategy strategy = VolumeNamingStrategy.SEVEN_ZIP;
+        assertTrue(strategy.isFirstVolume("archive.7z.001"));
+        assertFalse(strategy.isFirstVolume("archive.7z.002"));
+        assertFalse(strategy.isFirstVolume("archive.7z"));
+        assertEquals("archive.7z.001", strategy.getVolumeFilename("archive.7z.001", 0));
+        assertEquals("archive.7z.010", strategy.getVolumeFilename("archive.7z.001", 9));
+        assertEquals("archive.7z.1000", strategy.getVolumeFilename("archive.7z.001", 999));
+        assertTrue(strategy.isConcatenated());
+    }
+
+    @Test
+    public void testSplit() {
+        VolumeNamingStrategy strategy = VolumeNamingStrategy.SPLIT;
+        assertTrue(strategy.isFirstVolume("file.iso.01"));
+        assertEquals("file.iso.02", strategy.getVolumeFilename("file.iso.01", 1));
+        assertEquals("file.iso.001", strategy.getVolumeFilename("file.iso.001", 0));
+        assertTrue(strategy.isConcatenated());
+    }
+
+    @Test
+    public void testRar() {
+        VolumeNamingStrategy strategy = VolumeNamingStrategy.RAR;
+        assertTrue(strategy.isFirstVolume("archive.part1.rar"));
+        assertTrue(strategy.isFirstVolume("archive.part001.rar"));
+        assertFalse(strategy.isFirstVolume("archive.part2.rar"));
+        assertTrue(strategy.isFirstVolume("archive.rar"));
+        assertEquals("archive.part1.rar", strategy.getVolumeFilename("archive.part1.rar", 0));
+        assertEquals("archive.part10.rar", strategy.getVolumeFilename("archive.part1.rar", 9));
+        assertEquals("archive.part02.rar", strategy.getVolumeFilename("archive.part01.rar", 1));
+        assertEquals("archive.rar", strategy.getVolumeFilename("archive.rar", 0));
+        assertEquals("archive.r00", strategy.getVolumeFilename("archive.rar", 1));
+        assertEquals("archive.r10", strategy.getVolumeFilename("archive.rar", 11));
+        assertFalse(strategy.isConcatenated());
+    }
+
+    @Test
+    public void testDetect() {
+        assertSame(VolumeNamingStrategy.SEVEN_ZIP, VolumeNamingStrategy.detect("dir/archive.7z.001"));
+        assertSame(VolumeNamingStrategy.RAR, VolumeNamingStrategy.detect("archive.part01.rar"));
+        assertSame(VolumeNamingStrategy.RAR, VolumeNamingStrategy.detect("archive.rar"));
+        assertSame(VolumeNamingStrategy.SPLIT, VolumeNamingStrategy.detect("archive.zip.001"));
+        assertNull(VolumeNamingStrategy.detect("archive.part02.rar"));
+        assertNull(VolumeNamingStrategy.detect("archive.7z.002"));
+        assertNull(VolumeNamingStrategy.detect("archive.zip"));
+        assertNull(VolumeNamingStrategy.detect("archive.z01"));
+    }
+
+    @Test
+    public void testNotFirstVolume() {
+        try {
+            VolumeNamingStrategy.SEVEN_ZIP.getVolumeFilename("archive.7z.002", 1);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+}
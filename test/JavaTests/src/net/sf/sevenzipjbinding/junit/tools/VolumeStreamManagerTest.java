@@ -0,0 +1,224 @@
+package net.sf.sevenzipjbinding.junit.tools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IInStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.PositionalFileInStream;
+import net.sf.sevenzipjbinding.impl.VolumeNamingStrategy;
+import net.sf.sevenzipjbinding.impl.VolumeStreamManager;
+import net.sf.sevenzipjbinding.junit.JUnitNativeTestBase;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class VolumeStreamManagerTest extends JUnitNativeTestBase {
+    private static final String ARCHIVE_7Z = "testdata/multiple-files/7z/archive1.zip.5.7z";
+    private static final String ARCHIVE_RAR = "testdata/multiple-files/rar/archive1.zip.5.rar";
+    private static final String VOLUMED_ARCHIVE_RAR = "testdata/multiple-files/rar/vol-archive1.zip.5.part01.rar";
+    private static final int VOLUME_SIZE = 1000;
+
+    /**
+     * Records the opened volumes and the opening threads.
+     */
+    private static class TestVolumeStreamManager extends VolumeStreamManager {
+        final List<String> openedVolumes = Collections.synchronizedList(new ArrayList<String>());
+        final List<Thread> openingThreads = Collections.synchronizedList(new ArrayList<Thread>());
+
+        TestVolumeStreamManager(File firstVolume, VolumeNamingStrategy volumeNamingStrategy) {
+            super(firstVolume, volumeNamingStrategy, 2, 1024);
+        }
+
+        @Override
+        protected IInStream openVolume(File file) throws SevenZipException {
+            IInStream inStream = super.openVolume(file);
+            if (inStream != null) {
+                openedVolumes.add(file.getName());
+                openingThreads.add(Thread.currentThread());
+            }
+            return inStream;
+        }
+    }
+
+    private final List<File> tempFiles = new ArrayList<File>();
+
+    @After
+    public void deleteTempFiles() {
+        for (File file : tempFiles) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testSevenZipVolumes() throws Exception {
+        File firstVolume = splitFile(new File(ARCHIVE_7Z), VolumeNamingStrategy.SEVEN_ZIP, "archive.7z.001");
+        VolumeStreamManager volumeStreamManager = closeLater(new VolumeStreamManager(firstVolume));
+        assertSame(VolumeNamingStrategy.SEVEN_ZIP, volumeStreamManager.getVolumeNamingStrategy());
+        IInArchive inArchive = closeLater(volumeStreamManager.openInArchive(ArchiveFormat.SEVEN_ZIP));
+        assertSameContent(openInArchive(ARCHIVE_7Z), inArchive);
+    }
+
+    @Test
+    public void testSplitVolumes() throws Exception {
+        File firstVolume = splitFile(new File(ARCHIVE_7Z), VolumeNamingStrategy.SPLIT, "archive.bin.01");
+        TestVolumeStreamManager volumeStreamManager = closeLater(new TestVolumeStreamManager(firstVolume,
+                VolumeNamingStrategy.SPLIT));
+        IInArchive inArchive = closeLater(volumeStreamManager.openInArchive(null));
+        assertEquals(ArchiveFormat.SEVEN_ZIP, inArchive.getArchiveFormat());
+        assertSameContent(openInArchive(ARCHIVE_7Z), inArchive);
+        List<String> volumeNames = new ArrayList<String>();
+        for (File file : tempFiles) {
+            volumeNames.add(file.getName());
+        }
+        List<String> openedVolumes = new ArrayList<String>(volumeStreamManager.openedVolumes);
+        Collections.sort(openedVolumes); // Volumes get prefetched concurrently
+        assertEquals(volumeNames, openedVolumes);
+    }
+
+    @Test
+    public void testZipSplitRejected() throws Exception {
+        try {
+            new VolumeStreamManager(new File("archive.z01"));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Split Zip archives aren't supported"));
+        }
+    }
+
+    @Test
+    public void testRarVolumesPrefetched() throws Exception {
+        TestVolumeStreamManager volumeStreamManager = closeLater(new TestVolumeStreamManager(new File(
+                VOLUMED_ARCHIVE_RAR), VolumeNamingStrategy.RAR));
+        IInArchive inArchive = closeLater(volumeStreamManager.openInArchive(ArchiveFormat.RAR));
+        assertSameContent(openInArchive(ARCHIVE_RAR), inArchive);
+
+        File firstVolume = new File(VOLUMED_ARCHIVE_RAR);
+        int volumeCount = 0;
+        while (new File(firstVolume.getParentFile(), VolumeNamingStrategy.RAR.getVolumeFilename(firstVolume.getName(),
+                volumeCount)).exists()) {
+            volumeCount++;
+        }
+        assertEquals(volumeCount, volumeStreamManager.openedVolumes.size());
+        assertEquals(firstVolume.getName(), volumeStreamManager.openedVolumes.get(0));
+        assertSame(Thread.currentThread(), volumeStreamManager.openingThreads.get(0));
+        for (int i = 1; i < volumeCount; i++) {
+            assertNotSame(Thread.currentThread(), volumeStreamManager.openingThreads.get(i));
+        }
+    }
+
+    @Test
+    public void testGetProperty() throws Exception {
+        File firstVolume = new File(VOLUMED_ARCHIVE_RAR);
+        VolumeStreamManager volumeStreamManager = closeLater(new VolumeStreamManager(firstVolume));
+        assertEquals(firstVolume.getPath(), volumeStreamManager.getProperty(PropID.NAME));
+        assertNull(volumeStreamManager.getProperty(PropID.SIZE));
+        assertNull(volumeStreamManager.getStream("not-existing.part99.rar"));
+    }
+
+    @Test
+    public void testUnknownNamingScheme() throws Exception {
+        try {
+            new VolumeStreamManager(new File(ARCHIVE_7Z));
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+        try {
+            new VolumeStreamManager(new File("archive.part2.rar"), VolumeNamingStrategy.RAR, 1, 1024);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testClosed() throws Exception {
+        VolumeStreamManager volumeStreamManager = new VolumeStreamManager(new File(VOLUMED_ARCHIVE_RAR));
+        volumeStreamManager.close();
+        try {
+            volumeStreamManager.openInArchive(ArchiveFormat.RAR);
+            fail("Exception expected");
+        } catch (SevenZipException e) {
+            // Expected
+        }
+    }
+
+    private IInArchive openInArchive(String filename) throws Exception {
+        return closeLater(SevenZip.openInArchive(null, closeLater(new PositionalFileInStream(new File(filename)))));
+    }
+
+    private void assertSameContent(IInArchive expectedInArchive, IInArchive inArchive) throws Exception {
+        assertEquals(expectedInArchive.getNumberOfItems(), inArchive.getNumberOfItems());
+        for (int i = 0; i < expectedInArchive.getNumberOfItems(); i++) {
+            assertEquals(expectedInArchive.getStringProperty(i, PropID.PATH), inArchive.getStringProperty(i,
+                    PropID.PATH));
+            if (Boolean.TRUE.equals(expectedInArchive.getProperty(i, PropID.IS_FOLDER))) {
+                continue;
+            }
+            ByteArrayStream expectedOutStream = new ByteArrayStream(Integer.MAX_VALUE);
+            ByteArrayStream outStream = new ByteArrayStream(Integer.MAX_VALUE);
+            assertEquals(ExtractOperationResult.OK, expectedInArchive.extractSlow(i, expectedOutStream));
+            assertEquals(ExtractOperationResult.OK, inArchive.extractSlow(i, outStream));
+            assertArrayEquals(expectedOutStream.getBytes(), outStream.getBytes());
+        }
+    }
+
+    /**
+     * Splits the <code>file</code> into volumes of {@link #VOLUME_SIZE} bytes in a new temporary directory. Returns
+     * the first volume.
+     */
+    private File splitFile(File file, VolumeNamingStrategy volumeNamingStrategy, String firstVolumeName)
+            throws Exception {
+        File directory = File.createTempFile("sevenzipjbinding", "-volumes");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+        directory.deleteOnExit();
+
+        FileInputStream inputStream = new FileInputStream(file);
+        try {
+            long remaining = file.length();
+            int index = 0;
+            while (remaining > 0) {
+                int volumeSize = (int) Math.min(VOLUME_SIZE, remaining);
+                remaining -= volumeSize;
+                File volume = new File(directory, volumeNamingStrategy.getVolumeFilename(firstVolumeName, index));
+                tempFiles.add(volume);
+                byte[] buffer = new byte[volumeSize];
+                int offset = 0;
+                while (offset < volumeSize) {
+                    offset += inputStream.read(buffer, offset, volumeSize - offset);
+                }
+                FileOutputStream outputStream = new FileOutputStream(volume);
+                try {
+                    outputStream.write(buffer);
+                } finally {
+                    outputStream.close();
+                }
+                index++;
+            }
+        } finally {
+            inputStream.close();
+        }
+        assertTrue(tempFiles.size() > 2);
+        return new File(directory, firstVolumeName);
+    }
+}
@@ -9,6 +9,7 @@ import net.sf.sevenzipjbinding.IArchiveOpenVolumeCallback;
 import net.sf.sevenzipjbinding.IInStream;
 import net.sf.sevenzipjbinding.PropID;
 import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.BufferedVolumedArchiveInStream;
 import net.sf.sevenzipjbinding.impl.VolumedArchiveInStream;
 
 import org.junit.Test;
@@ -300,6 +301,21 @@ public abstract class VolumedArchiveInStreamTest {
         } catch (SevenZipException e) {
             throw new Error(e);
         }
+        readTest(volumedArchiveInStream, streamSizes, readSizes);
+
+        for (int bufferSize = 1; bufferSize <= 4; bufferSize++) {
+            BufferedVolumedArchiveInStream bufferedVolumedArchiveInStream = new BufferedVolumedArchiveInStream(
+                    "file.7z.001", new TestArchiveOpenVolumeCallback("file.7z.001", streamSizes), bufferSize, 2);
+            try {
+                readTest(bufferedVolumedArchiveInStream, streamSizes, readSizes);
+            } finally {
+                bufferedVolumedArchiveInStream.close();
+            }
+        }
+    }
+
+    private void readTest(IInStream volumedArchiveInStream, long[] streamSizes, int[] readSizes)
+            throws SevenZipException {
 
         int entireSize = 0;
         for (int i = 0; i < streamSizes.length; i++) {
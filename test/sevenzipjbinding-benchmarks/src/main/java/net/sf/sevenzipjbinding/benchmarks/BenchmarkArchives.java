@@ -0,0 +1,283 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IOutCreateArchive;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItemAllFormats;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+/**
+ * Access to the archives and files of the <code>test/JavaTests/testdata</code> directory used by the benchmarks. The
+ * directory can be changed with the system property {@value #TESTDATA_PROPERTY}.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public final class BenchmarkArchives {
+    /**
+     * System property with the path of the <code>testdata</code> directory.
+     */
+    public static final String TESTDATA_PROPERTY = "sevenzipjbinding.testdata";
+
+    private static final String DEFAULT_TESTDATA_DIRECTORY = "../JavaTests/testdata";
+    private static final String COMPRESSION_CONTENT = "multiple-files/archive1.zip";
+    private static final int MAX_SIZE = Integer.MAX_VALUE;
+
+    private static final Map<ArchiveFormat, String> TEST_ARCHIVES = new EnumMap<ArchiveFormat, String>(
+            ArchiveFormat.class);
+
+    static {
+        TEST_ARCHIVES.put(ArchiveFormat.SEVEN_ZIP, "multiple-files/7z/archive1.zip.5.7z");
+        TEST_ARCHIVES.put(ArchiveFormat.ZIP, "multiple-files/zip/archive1.zip.5.zip");
+        TEST_ARCHIVES.put(ArchiveFormat.TAR, "multiple-files/tar/archive1.zip.0.tar");
+        TEST_ARCHIVES.put(ArchiveFormat.RAR, "multiple-files/rar/archive1.zip.5.rar");
+        TEST_ARCHIVES.put(ArchiveFormat.LZMA, "simple/lzma/simple2.dat.5.lzma");
+        TEST_ARCHIVES.put(ArchiveFormat.ISO, "multiple-files/iso/archive1.zip.0.iso.zip");
+        TEST_ARCHIVES.put(ArchiveFormat.GZIP, "simple/gzip/simple2.dat.5.gz");
+        TEST_ARCHIVES.put(ArchiveFormat.CPIO, "multiple-files/cpio/archive1.zip.0.cpio");
+        TEST_ARCHIVES.put(ArchiveFormat.BZIP2, "simple/bzip2/simple2.dat.5.bz2");
+        TEST_ARCHIVES.put(ArchiveFormat.Z, "simple/z/simple2.dat.0.Z");
+        TEST_ARCHIVES.put(ArchiveFormat.ARJ, "multiple-files/arj/archive1.zip.2.arj");
+        TEST_ARCHIVES.put(ArchiveFormat.CAB, "multiple-files/cab/archive1.zip.1.cab");
+        TEST_ARCHIVES.put(ArchiveFormat.LZH, "multiple-files/lzh/archive1.zip.5.lzh");
+        TEST_ARCHIVES.put(ArchiveFormat.CHM, "simple/chm/simple2.dat.0.chm");
+        TEST_ARCHIVES.put(ArchiveFormat.NSIS, "simple/nsis/simple2.dat.1.exe");
+        TEST_ARCHIVES.put(ArchiveFormat.DEB, "multiple-files/deb/archive1.zip.1.deb");
+        TEST_ARCHIVES.put(ArchiveFormat.RPM, "simple/rpm/simple2.dat.0.rpm");
+        TEST_ARCHIVES.put(ArchiveFormat.UDF, "multiple-files/udf/archive1.zip.102.udf.zip");
+        TEST_ARCHIVES.put(ArchiveFormat.WIM, "multiple-files/wim/archive1.zip.1.wim");
+        TEST_ARCHIVES.put(ArchiveFormat.XAR, "multiple-files/xar/archive1.zip.1.xar");
+    }
+
+    /**
+     * File to compress: path and content.
+     */
+    public static final class ContentFile {
+        final String path;
+        final byte[] content;
+
+        ContentFile(String path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+
+    private BenchmarkArchives() {
+    }
+
+    /**
+     * Returns the <code>testdata</code> directory.
+     *
+     * @return the <code>testdata</code> directory
+     */
+    public static File getTestDataDirectory() {
+        return new File(System.getProperty(TESTDATA_PROPERTY, DEFAULT_TESTDATA_DIRECTORY)).getAbsoluteFile();
+    }
+
+    /**
+     * Loads the test archive of the <code>archiveFormat</code>. The ISO and UDF test images are stored zipped and get
+     * unpacked in the memory. There are no test archives for {@link ArchiveFormat#HFS} and {@link ArchiveFormat#SPLIT}
+     * (multi-volume only).
+     *
+     * @param archiveFormat
+     *            format of the archive
+     * @return content of the test archive
+     * @throws IOException
+     *             if the test archive can't be read
+     */
+    public static byte[] loadTestArchive(ArchiveFormat archiveFormat) throws IOException {
+        String path = TEST_ARCHIVES.get(archiveFormat);
+        if (path == null) {
+            throw new IllegalArgumentException("No test archive for the archive format " + archiveFormat);
+        }
+        File file = new File(getTestDataDirectory(), path);
+        if (archiveFormat != ArchiveFormat.ZIP && path.endsWith(".zip")) {
+            ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(file));
+            try {
+                zipInputStream.getNextEntry();
+                return readFully(zipInputStream);
+            } finally {
+                zipInputStream.close();
+            }
+        }
+        InputStream inputStream = new FileInputStream(file);
+        try {
+            return readFully(inputStream);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    private static List<ContentFile> loadContentFiles() throws IOException {
+        List<ContentFile> contentFiles = new ArrayList<ContentFile>();
+        ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(new File(getTestDataDirectory(),
+                COMPRESSION_CONTENT)));
+        try {
+            ZipEntry zipEntry;
+            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                if (!zipEntry.isDirectory()) {
+                    contentFiles.add(new ContentFile(zipEntry.getName(), readFully(zipInputStream)));
+                }
+            }
+        } finally {
+            zipInputStream.close();
+        }
+        return contentFiles;
+    }
+
+    /**
+     * Loads the files to compress into an archive of the <code>archiveFormat</code>: the files of the
+     * <code>multiple-files/archive1.zip</code> test archive (283 small text and binary files). The single item formats
+     * GZip and BZip2 get the largest file only.
+     *
+     * @param archiveFormat
+     *            format of the archive
+     * @return files to compress
+     * @throws IOException
+     *             if the files can't be read
+     */
+    public static List<ContentFile> loadContentFiles(ArchiveFormat archiveFormat) throws IOException {
+        List<ContentFile> contentFiles = loadContentFiles();
+        if (archiveFormat != ArchiveFormat.GZIP && archiveFormat != ArchiveFormat.BZIP2) {
+            return contentFiles;
+        }
+        ContentFile largestContentFile = contentFiles.get(0);
+        for (ContentFile contentFile : contentFiles) {
+            if (contentFile.content.length > largestContentFile.content.length) {
+                largestContentFile = contentFile;
+            }
+        }
+        return Collections.singletonList(largestContentFile);
+    }
+
+    /**
+     * Returns the total size of the <code>contentFiles</code>.
+     *
+     * @param contentFiles
+     *            files to compress
+     * @return the total size in bytes
+     */
+    public static int getContentSize(List<ContentFile> contentFiles) {
+        int size = 0;
+        for (ContentFile contentFile : contentFiles) {
+            size += contentFile.content.length;
+        }
+        return size;
+    }
+
+    /**
+     * Creates new archive of the <code>archiveFormat</code> containing the <code>contentFiles</code> with the default
+     * settings.
+     *
+     * @param archiveFormat
+     *            format of the archive
+     * @param contentFiles
+     *            files to compress. See {@link #loadContentFiles(ArchiveFormat)}.
+     * @return the created archive
+     * @throws SevenZipException
+     *             7-Zip or 7-Zip-JBinding error occur.
+     */
+    public static ByteArrayStream createArchive(ArchiveFormat archiveFormat, List<ContentFile> contentFiles)
+            throws SevenZipException {
+        ByteArrayStream outStream = newOutStream(getContentSize(contentFiles));
+        IOutCreateArchive<IOutItemAllFormats> outArchive = SevenZip.openOutArchive(archiveFormat);
+        try {
+            outArchive.createArchive(outStream, contentFiles.size(), new ContentOutCreateCallback(contentFiles));
+        } finally {
+            try {
+                outArchive.close();
+            } catch (IOException e) {
+                throw new SevenZipException("Error closing archive", e);
+            }
+        }
+        return outStream;
+    }
+
+    /**
+     * Creates new input stream reading the <code>archive</code>. Seeking beyond the end of the archive is allowed.
+     *
+     * @param archive
+     *            content of the archive
+     * @return new input stream
+     */
+    public static ByteArrayStream newInStream(byte[] archive) {
+        return new ByteArrayStream(archive, false, MAX_SIZE);
+    }
+
+    /**
+     * Creates new output stream with the initial capacity for the <code>expectedSize</code> bytes.
+     *
+     * @param expectedSize
+     *            expected size of the output
+     * @return new output stream
+     */
+    public static ByteArrayStream newOutStream(int expectedSize) {
+        return new ByteArrayStream(expectedSize + 1024, MAX_SIZE);
+    }
+
+    /**
+     * Provides the content files as the new archive items.
+     */
+    static final class ContentOutCreateCallback implements IOutCreateCallback<IOutItemAllFormats> {
+        private static final Date LAST_MODIFICATION_TIME = new Date(1262304000000L);
+
+        private final List<ContentFile> contentFiles;
+
+        ContentOutCreateCallback(List<ContentFile> contentFiles) {
+            this.contentFiles = contentFiles;
+        }
+
+        public void setTotal(long total) {
+        }
+
+        public void setCompleted(long complete) {
+        }
+
+        public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+            if (!operationResultOk) {
+                throw new SevenZipException("Compression failed");
+            }
+        }
+
+        public IOutItemAllFormats getItemInformation(int index, OutItemFactory<IOutItemAllFormats> outItemFactory) {
+            ContentFile contentFile = contentFiles.get(index);
+            IOutItemAllFormats outItem = outItemFactory.createOutItem();
+            outItem.setDataSize(Long.valueOf(contentFile.content.length));
+            outItem.setPropertyPath(contentFile.path);
+            outItem.setPropertyLastModificationTime(LAST_MODIFICATION_TIME);
+            return outItem;
+        }
+
+        public ISequentialInStream getStream(int index) {
+            return new ByteArrayStream(contentFiles.get(index).content, false);
+        }
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+}
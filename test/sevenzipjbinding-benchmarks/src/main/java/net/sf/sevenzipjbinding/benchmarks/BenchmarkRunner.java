@@ -0,0 +1,44 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler reporting the allocation rate. Accepts the standard JMH command line
+ * options, like a benchmark regexp or <code>-p archiveFormat=SEVEN_ZIP,ZIP</code>. The <code>testdata</code>
+ * directory gets passed to the forked JVMs.
+ *
+ * <pre>
+ * java -jar target/benchmarks.jar Extract -p archiveFormat=ZIP
+ * </pre>
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Main method.
+     *
+     * @param args
+     *            JMH command line options
+     * @throws RunnerException
+     *             if the benchmarks fail
+     * @throws CommandLineOptionException
+     *             if the command line options are invalid
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        ChainedOptionsBuilder optionsBuilder = new OptionsBuilder().parent(new CommandLineOptions(args));
+        optionsBuilder.addProfiler(GCProfiler.class);
+        optionsBuilder.jvmArgsAppend("-D" + BenchmarkArchives.TESTDATA_PROPERTY + "="
+                + BenchmarkArchives.getTestDataDirectory().getPath());
+        new Runner(optionsBuilder.build()).run();
+    }
+}
@@ -0,0 +1,31 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary benchmark result counting the processed bytes. Reported by JMH as bytes per second (<code>bytes</code>
+ * column) next to the operations per second.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+@State(Scope.Thread)
+public class ByteCounter {
+    /**
+     * Processed bytes in the current iteration.
+     */
+    public long bytes;
+
+    /**
+     * Resets the counter before each iteration.
+     */
+    @Setup(Level.Iteration)
+    public void reset() {
+        bytes = 0;
+    }
+}
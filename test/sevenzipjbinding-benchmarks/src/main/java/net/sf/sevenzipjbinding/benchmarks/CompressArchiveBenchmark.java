@@ -0,0 +1,60 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IOutCreateArchive;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.benchmarks.BenchmarkArchives.ContentFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures creation of new archives in the memory using
+ * {@link IOutCreateArchive#createArchive(net.sf.sevenzipjbinding.ISequentialOutStream, int,
+ * net.sf.sevenzipjbinding.IOutCreateCallback)} with the default settings for every archive format supporting
+ * compression. The content are the files of {@link BenchmarkArchives#loadContentFiles(ArchiveFormat)}. The
+ * <code>bytes</code> column reports the compressed input bytes per second.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CompressArchiveBenchmark {
+    @Param({ "SEVEN_ZIP", "ZIP", "TAR", "GZIP", "BZIP2" })
+    public ArchiveFormat archiveFormat;
+
+    private List<ContentFile> contentFiles;
+    private long contentSize;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        contentFiles = BenchmarkArchives.loadContentFiles(archiveFormat);
+        contentSize = BenchmarkArchives.getContentSize(contentFiles);
+    }
+
+    @Benchmark
+    public int createArchive(ByteCounter byteCounter) throws SevenZipException {
+        int archiveSize = BenchmarkArchives.createArchive(archiveFormat, contentFiles).getSize();
+        byteCounter.bytes += contentSize;
+        return archiveSize;
+    }
+}
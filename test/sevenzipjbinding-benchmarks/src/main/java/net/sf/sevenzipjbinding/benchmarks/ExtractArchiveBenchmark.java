@@ -0,0 +1,178 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.ExtractAskMode;
+import net.sf.sevenzipjbinding.ExtractOperationResult;
+import net.sf.sevenzipjbinding.IArchiveExtractCallback;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.ISequentialOutStream;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.impl.RandomAccessFileOutStream;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures extraction of all items of an open archive using
+ * {@link IInArchive#extract(int[], boolean, IArchiveExtractCallback)} into {@link ByteArrayStream}s and into files
+ * using {@link RandomAccessFileOutStream}. The <code>bytes</code> column reports the extracted bytes per second.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ExtractArchiveBenchmark {
+    @Param({ "SEVEN_ZIP", "ZIP", "TAR", "RAR", "LZMA", "ISO", "GZIP", "CPIO", "BZIP2", "Z", "ARJ", "CAB", "LZH",
+            "CHM", "NSIS", "DEB", "RPM", "UDF", "WIM", "XAR" })
+    public ArchiveFormat archiveFormat;
+
+    private IInArchive inArchive;
+    private int[] indices;
+    private long extractedSize;
+    private File directory;
+
+    /**
+     * Base extract callback checking the operation results.
+     */
+    private abstract static class AbstractExtractCallback implements IArchiveExtractCallback {
+        public void setTotal(long total) {
+        }
+
+        public void setCompleted(long complete) {
+        }
+
+        public void prepareOperation(ExtractAskMode extractAskMode) {
+        }
+
+        public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+            if (extractOperationResult != ExtractOperationResult.OK) {
+                throw new SevenZipException("Extraction failed: " + extractOperationResult);
+            }
+        }
+    }
+
+    /**
+     * Extracts each item into a new {@link ByteArrayStream}.
+     */
+    private static final class ByteArrayStreamExtractCallback extends AbstractExtractCallback {
+        public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) {
+            if (extractAskMode != ExtractAskMode.EXTRACT) {
+                return null;
+            }
+            return new ByteArrayStream(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * Extracts each item into a file of the <code>directory</code>. The files get overwritten by each operation.
+     */
+    private static final class FileExtractCallback extends AbstractExtractCallback {
+        private final File directory;
+        private RandomAccessFile randomAccessFile;
+
+        FileExtractCallback(File directory) {
+            this.directory = directory;
+        }
+
+        public ISequentialOutStream getStream(int index, ExtractAskMode extractAskMode) throws SevenZipException {
+            if (extractAskMode != ExtractAskMode.EXTRACT) {
+                return null;
+            }
+            try {
+                randomAccessFile = new RandomAccessFile(new File(directory, "item" + index), "rw");
+                randomAccessFile.setLength(0);
+            } catch (IOException e) {
+                throw new SevenZipException("Error creating output file", e);
+            }
+            return new RandomAccessFileOutStream(randomAccessFile);
+        }
+
+        @Override
+        public void setOperationResult(ExtractOperationResult extractOperationResult) throws SevenZipException {
+            if (randomAccessFile != null) {
+                try {
+                    randomAccessFile.close();
+                } catch (IOException e) {
+                    throw new SevenZipException("Error closing output file", e);
+                }
+                randomAccessFile = null;
+            }
+            super.setOperationResult(extractOperationResult);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        inArchive = SevenZip.openInArchive(archiveFormat, BenchmarkArchives.newInStream(BenchmarkArchives
+                .loadTestArchive(archiveFormat)));
+        List<Integer> indexList = new ArrayList<Integer>();
+        for (int i = 0; i < inArchive.getNumberOfItems(); i++) {
+            if (!Boolean.TRUE.equals(inArchive.getProperty(i, PropID.IS_FOLDER))) {
+                indexList.add(Integer.valueOf(i));
+                Long size = (Long) inArchive.getProperty(i, PropID.SIZE);
+                if (size != null) {
+                    extractedSize += size.longValue();
+                }
+            }
+        }
+        indices = new int[indexList.size()];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = indexList.get(i).intValue();
+        }
+
+        directory = File.createTempFile("sevenzipjbinding-benchmark", "");
+        if (!directory.delete() || !directory.mkdir()) {
+            throw new IOException("Can't create temporary directory " + directory);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        inArchive.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void extractToByteArrayStream(ByteCounter byteCounter) throws SevenZipException {
+        inArchive.extract(indices, false, new ByteArrayStreamExtractCallback());
+        byteCounter.bytes += extractedSize;
+    }
+
+    @Benchmark
+    public void extractToFile(ByteCounter byteCounter) throws SevenZipException {
+        inArchive.extract(indices, false, new FileExtractCallback(directory));
+        byteCounter.bytes += extractedSize;
+    }
+}
@@ -0,0 +1,81 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.PropID;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures listing of the items of an open archive using {@link IInArchive#getProperty(int, PropID)} and
+ * {@link IInArchive#getStringProperty(int, PropID)}. Each operation lists all items of the archive. Every property
+ * access is a call into the native code.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ListArchiveBenchmark {
+    private static final PropID[] PROPERTIES = { PropID.PATH, PropID.SIZE, PropID.PACKED_SIZE, PropID.IS_FOLDER,
+            PropID.LAST_MODIFICATION_TIME, PropID.CRC };
+
+    @Param({ "SEVEN_ZIP", "ZIP", "TAR", "RAR", "LZMA", "ISO", "GZIP", "CPIO", "BZIP2", "Z", "ARJ", "CAB", "LZH",
+            "CHM", "NSIS", "DEB", "RPM", "UDF", "WIM", "XAR" })
+    public ArchiveFormat archiveFormat;
+
+    private IInArchive inArchive;
+    private int numberOfItems;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        inArchive = SevenZip.openInArchive(archiveFormat, BenchmarkArchives.newInStream(BenchmarkArchives
+                .loadTestArchive(archiveFormat)));
+        numberOfItems = inArchive.getNumberOfItems();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        inArchive.close();
+    }
+
+    @Benchmark
+    public void getProperty(Blackhole blackhole) throws SevenZipException {
+        for (int i = 0; i < numberOfItems; i++) {
+            for (PropID propID : PROPERTIES) {
+                blackhole.consume(inArchive.getProperty(i, propID));
+            }
+        }
+    }
+
+    @Benchmark
+    public void getStringProperty(Blackhole blackhole) throws SevenZipException {
+        for (int i = 0; i < numberOfItems; i++) {
+            for (PropID propID : PROPERTIES) {
+                blackhole.consume(inArchive.getStringProperty(i, propID));
+            }
+        }
+    }
+}
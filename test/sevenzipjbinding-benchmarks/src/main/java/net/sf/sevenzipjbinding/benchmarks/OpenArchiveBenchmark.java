@@ -0,0 +1,67 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.SevenZip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link SevenZip#openInArchive(ArchiveFormat, net.sf.sevenzipjbinding.IInStream)} of the test archives
+ * in the memory with and without the format detection. Each operation opens and closes the archive.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class OpenArchiveBenchmark {
+    @Param({ "SEVEN_ZIP", "ZIP", "TAR", "RAR", "LZMA", "ISO", "GZIP", "CPIO", "BZIP2", "Z", "ARJ", "CAB", "LZH",
+            "CHM", "NSIS", "DEB", "RPM", "UDF", "WIM", "XAR" })
+    public ArchiveFormat archiveFormat;
+
+    private byte[] archive;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        archive = BenchmarkArchives.loadTestArchive(archiveFormat);
+    }
+
+    @Benchmark
+    public int openInArchive(ByteCounter byteCounter) throws IOException {
+        return open(archiveFormat, byteCounter);
+    }
+
+    @Benchmark
+    public int openInArchiveDetectFormat(ByteCounter byteCounter) throws IOException {
+        return open(null, byteCounter);
+    }
+
+    private int open(ArchiveFormat format, ByteCounter byteCounter) throws IOException {
+        IInArchive inArchive = SevenZip.openInArchive(format, BenchmarkArchives.newInStream(archive));
+        try {
+            byteCounter.bytes += archive.length;
+            return inArchive.getNumberOfItems();
+        } finally {
+            inArchive.close();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.sf.sevenzipjbinding.benchmarks;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import net.sf.sevenzipjbinding.ArchiveFormat;
+import net.sf.sevenzipjbinding.IInArchive;
+import net.sf.sevenzipjbinding.IOutCreateCallback;
+import net.sf.sevenzipjbinding.IOutItemAllFormats;
+import net.sf.sevenzipjbinding.IOutUpdateArchive;
+import net.sf.sevenzipjbinding.ISequentialInStream;
+import net.sf.sevenzipjbinding.SevenZip;
+import net.sf.sevenzipjbinding.SevenZipException;
+import net.sf.sevenzipjbinding.benchmarks.BenchmarkArchives.ContentFile;
+import net.sf.sevenzipjbinding.impl.OutItemFactory;
+import net.sf.sevenzipjbinding.util.ByteArrayStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures updates of existing archives using the connected out-archive {@link IInArchive#getConnectedOutArchive()}.
+ * Each operation opens the archive created by {@link CompressArchiveBenchmark} in the memory and replaces the content
+ * of the first item. All other items get copied from the old archive. The <code>bytes</code> column reports the
+ * written archive bytes per second.
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UpdateArchiveBenchmark {
+    @Param({ "SEVEN_ZIP", "ZIP", "TAR", "GZIP", "BZIP2" })
+    public ArchiveFormat archiveFormat;
+
+    private byte[] archive;
+    private byte[] newContent;
+
+    /**
+     * Replaces the content of the item <code>0</code>.
+     */
+    private static final class UpdateContentCallback implements IOutCreateCallback<IOutItemAllFormats> {
+        private final byte[] newContent;
+
+        UpdateContentCallback(byte[] newContent) {
+            this.newContent = newContent;
+        }
+
+        public void setTotal(long total) {
+        }
+
+        public void setCompleted(long complete) {
+        }
+
+        public void setOperationResult(boolean operationResultOk) throws SevenZipException {
+            if (!operationResultOk) {
+                throw new SevenZipException("Update failed");
+            }
+        }
+
+        public IOutItemAllFormats getItemInformation(int index, OutItemFactory<IOutItemAllFormats> outItemFactory)
+                throws SevenZipException {
+            IOutItemAllFormats outItem = outItemFactory.createOutItemAndCloneProperties(index);
+            if (index == 0) {
+                outItem.setUpdateIsNewData(Boolean.TRUE);
+                outItem.setUpdateIsNewProperties(Boolean.TRUE);
+                outItem.setDataSize(Long.valueOf(newContent.length));
+            }
+            return outItem;
+        }
+
+        public ISequentialInStream getStream(int index) {
+            return new ByteArrayStream(newContent, false);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        List<ContentFile> contentFiles = BenchmarkArchives.loadContentFiles(archiveFormat);
+        archive = BenchmarkArchives.createArchive(archiveFormat, contentFiles).getBytes();
+
+        byte[] content = contentFiles.get(0).content;
+        newContent = new byte[content.length];
+        for (int i = 0; i < content.length; i++) {
+            newContent[i] = content[content.length - 1 - i];
+        }
+    }
+
+    @Benchmark
+    public int updateItemContent(ByteCounter byteCounter) throws IOException {
+        IInArchive inArchive = SevenZip.openInArchive(archiveFormat, BenchmarkArchives.newInStream(archive));
+        try {
+            IOutUpdateArchive<IOutItemAllFormats> outArchive = inArchive.getConnectedOutArchive();
+            ByteArrayStream outStream = BenchmarkArchives.newOutStream(archive.length + newContent.length);
+            outArchive.updateItems(outStream, inArchive.getNumberOfItems(), new UpdateContentCallback(newContent));
+            byteCounter.bytes += outStream.getSize();
+            return outStream.getSize();
+        } finally {
+            inArchive.close();
+        }
+    }
+}
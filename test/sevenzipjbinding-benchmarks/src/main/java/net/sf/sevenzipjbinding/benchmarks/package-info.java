@@ -0,0 +1,26 @@
+/**
+ * JMH benchmarks of 7-Zip-JBinding: opening, listing, extraction, compression and update of the archives of all
+ * supported formats. The benchmarks reuse the test archives of the <code>test/JavaTests/testdata</code> directory
+ * and report operations per second, processed bytes per second (<code>bytes</code> column) and the allocation rate
+ * (GC profiler).<br>
+ * <br>
+ * The benchmarks measure 7-Zip-JBinding of this source tree. Build it with CMake first. The Maven build installs the
+ * jar and the native library jar of the CMake build into the local Maven repository. Build and run from the
+ * <code>test/sevenzipjbinding-benchmarks</code> directory:
+ *
+ * <pre>
+ * (cd ../.. &amp;&amp; cmake . &amp;&amp; make)
+ * mvn package
+ * mvn package -Dsevenzipjbinding.build.dir=/path/to/out-of-source/build
+ * java -jar target/benchmarks.jar
+ * java -jar target/benchmarks.jar OpenArchiveBenchmark -p archiveFormat=SEVEN_ZIP,ZIP
+ * java -Dsevenzipjbinding.testdata=/path/to/testdata -jar target/benchmarks.jar
+ * </pre>
+ *
+ * @see net.sf.sevenzipjbinding.benchmarks.BenchmarkRunner
+ *
+ * @author Boris Brodski
+ * @since 9.20-2.00
+ */
+package net.sf.sevenzipjbinding.benchmarks;
+